@@ -1,7 +1,9 @@
 package com.luna.core.proxy.client;
 
+import java.io.OutputStream;
 import java.net.SocketTimeoutException;
 import java.time.Instant;
+import java.util.List;
 
 import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpEntity;
@@ -20,6 +22,7 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
 
 import com.luna.core.common.web.CorrelationIdFilter;
 import com.luna.core.proxy.config.TotemApiProperties;
@@ -89,6 +92,52 @@ public class TotemApiClient {
         });
     }
 
+    /**
+     * GET that relays the TotemAPI body as raw bytes (no JSON deserialize/re-serialize round trip).
+     * Only status and content type are forwarded.
+     */
+    public ResponseEntity<byte[]> getRaw(String path, String authHeader) {
+        ResponseEntity<byte[]> upstream = exchange(path, HttpMethod.GET, null, authHeader,
+                new ParameterizedTypeReference<byte[]>() {
+                });
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(upstream.getStatusCode());
+        MediaType contentType = upstream.getHeaders().getContentType();
+        if (contentType != null) {
+            builder.contentType(contentType);
+        }
+        return builder.body(upstream.getBody());
+    }
+
+    /**
+     * GET that copies the TotemAPI response body straight into {@code out} (used for large exports,
+     * so the payload is never buffered in LunaCore).
+     */
+    public void streamTo(String path, String authHeader, MediaType accept, OutputStream out) {
+        String correlationId = resolveCorrelationId();
+        try {
+            restTemplate.execute(
+                    normalizeBaseUrl(properties.getBaseUrl()) + path,
+                    HttpMethod.GET,
+                    request -> {
+                        request.getHeaders().setAccept(List.of(accept));
+                        if (authHeader != null && !authHeader.isBlank()) {
+                            request.getHeaders().set(HttpHeaders.AUTHORIZATION, authHeader);
+                        }
+                        if (correlationId != null && !correlationId.isBlank()) {
+                            request.getHeaders().set(CorrelationIdFilter.HEADER_NAME, correlationId);
+                        }
+                    },
+                    response -> {
+                        StreamUtils.copy(response.getBody(), out);
+                        return null;
+                    });
+        } catch (ResourceAccessException e) {
+            HttpStatus status = isTimeout(e) ? HttpStatus.GATEWAY_TIMEOUT : HttpStatus.BAD_GATEWAY;
+            throw new TotemApiGatewayException(status, "TotemAPI unavailable (" + status.value() + ")",
+                    correlationId, e);
+        }
+    }
+
     public <T> ResponseEntity<T> exchangeMultipart(
             String path,
             MultipartFile file,
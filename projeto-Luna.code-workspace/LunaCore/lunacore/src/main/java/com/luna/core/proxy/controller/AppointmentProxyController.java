@@ -5,9 +5,12 @@ import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.*;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import com.luna.core.proxy.client.TotemApiClient;
 
+import jakarta.servlet.http.HttpServletRequest;
+
 import java.util.List;
 import java.util.Map;
 
@@ -19,6 +22,8 @@ import java.util.Map;
 @RequiredArgsConstructor
 public class AppointmentProxyController {
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final TotemApiClient totemApiClient;
 
     @GetMapping
@@ -43,6 +48,34 @@ public class AppointmentProxyController {
                 });
     }
 
+    /**
+     * Keyset-paginated listing. Relayed as raw bytes: the page is already a compact projection,
+     * so there is nothing to gain from parsing it into maps here.
+     */
+    @GetMapping("/page")
+    public ResponseEntity<byte[]> page(HttpServletRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        return totemApiClient.getRaw(withQuery("/api/appointments/page", request), authHeader);
+    }
+
+    @GetMapping("/upcoming/page")
+    public ResponseEntity<byte[]> upcomingPage(HttpServletRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        return totemApiClient.getRaw(withQuery("/api/appointments/upcoming/page", request), authHeader);
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(HttpServletRequest request,
+            @RequestHeader(value = "Authorization", required = false) String authHeader) {
+        String path = withQuery("/api/appointments/export", request);
+        StreamingResponseBody body = out -> totemApiClient.streamTo(path, authHeader,
+                MediaType.parseMediaType(NDJSON_VALUE), out);
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"agendamentos.ndjson\"")
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Map<String, Object>> get(@PathVariable String id,
             @RequestHeader(value = "Authorization", required = false) String authHeader) {
@@ -127,4 +160,9 @@ public class AppointmentProxyController {
                 new ParameterizedTypeReference<Map<String, Object>>() {
                 });
     }
+
+    private static String withQuery(String path, HttpServletRequest request) {
+        String query = request.getQueryString();
+        return (query == null || query.isBlank()) ? path : path + "?" + query;
+    }
 }
@@ -1,6 +1,8 @@
 package br.lunavita.printagent;
 
 import br.lunavita.printagent.config.AgentConfig;
+import br.lunavita.printagent.service.PrintSpool;
+import br.lunavita.printagent.service.SimulatedPrintService;
 import br.lunavita.printagent.service.ThermalPrintService;
 import br.lunavita.printagent.service.QueuePollingService;
 import org.slf4j.Logger;
@@ -9,6 +11,9 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Luna Print Agent
@@ -38,18 +43,42 @@ public class LunaPrintAgent {
             log.info("  - Backend URL: {}", config.getBackendUrl());
             log.info("  - Impressora: {}", config.getPrinterName());
             log.info("  - Intervalo de polling: {}ms", config.getPollingIntervalMs());
+            log.info("  - Long-poll: {}", config.getLongPollWaitMs() > 0
+                    ? config.getLongPollWaitMs() + "ms" : "desativado");
+            log.info("  - Jobs por lote: {}", config.getClaimBatchSize());
+            log.info("  - Jobs no pipeline: {}", config.getPipelineDepth());
+            config.getPrinterRoutes().forEach((receiptType, printerName) ->
+                    log.info("  - Recibos {}: impressora {}", receiptType, printerName));
+            log.info("  - Spool local: {}", Paths.get(config.getSpoolDir()).toAbsolutePath());
+            log.info("  - Heartbeat de lease: {}", config.getHeartbeatIntervalMs() > 0
+                    ? config.getHeartbeatIntervalMs() + "ms" : "desativado");
 
             // Inicializa serviços
-            ThermalPrintService printService = new ThermalPrintService(config.getPrinterName());
+            ThermalPrintService printService = createPrinter(config, config.getPrinterName());
+            // Impressoras por tipo de recibo (uma instância por impressora, compartilhada entre tipos)
+            Map<String, ThermalPrintService> printersByName = new HashMap<>();
+            Map<String, ThermalPrintService> printersByReceiptType = new LinkedHashMap<>();
+            config.getPrinterRoutes().forEach((receiptType, printerName) ->
+                    printersByReceiptType.put(receiptType,
+                            printersByName.computeIfAbsent(printerName, name -> createPrinter(config, name))));
+            printService.startWatcher();
+            printersByName.values().forEach(ThermalPrintService::startWatcher);
+
+            PrintSpool spool = new PrintSpool(Paths.get(config.getSpoolDir()));
             QueuePollingService pollingService = new QueuePollingService(
                     config, 
-                    printService
+                    printService,
+                    printersByReceiptType,
+                    spool
             );
 
             // Registra shutdown hook para parar graciosamente
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
                 log.info("Parando Luna Print Agent...");
                 pollingService.stop();
+                spool.close();
+                printService.stop();
+                printersByName.values().forEach(ThermalPrintService::stop);
                 log.info("Agent finalizado.");
             }));
 
@@ -77,6 +106,22 @@ public class LunaPrintAgent {
         config.setBackendUrl(getEnvOrDefault("BACKEND_URL", "http://localhost:8081"));
         config.setPrinterName(getEnvOrDefault("PRINTER_NAME", null)); // null = impressora padrão
         config.setPollingIntervalMs(Integer.parseInt(getEnvOrDefault("POLLING_INTERVAL_MS", "3000")));
+        config.setLongPollWaitMs(Integer.parseInt(getEnvOrDefault("LONG_POLL_WAIT_MS", "25000"))); // 0 = só polling
+        config.setClaimBatchSize(Integer.parseInt(getEnvOrDefault("CLAIM_BATCH_SIZE", "10"))); // 1 = um job por vez
+        // Recibos até este tamanho vêm em Base64 no próprio claim; maiores são baixados em binário (gzip)
+        config.setInlinePayloadMaxBytes(Integer.parseInt(getEnvOrDefault("INLINE_PAYLOAD_MAX_BYTES", "4096")));
+        // Renovação da lease dos jobs em impressão (deve ser bem menor que a lease do backend, 120s)
+        config.setHeartbeatIntervalMs(Integer.parseInt(getEnvOrDefault("HEARTBEAT_INTERVAL_MS", "30000")));
+        // Busca da impressora em background e envio do estado dela ao backend (0 = só quando preciso)
+        config.setPrinterRefreshMs(Integer.parseInt(getEnvOrDefault("PRINTER_REFRESH_MS", "60000")));
+        // Impressora por tipo de recibo, ex.: "LABEL=Zebra ZD220;CHECKIN=Zebra ZD220" (demais: PRINTER_NAME)
+        config.setPrinterRoutes(parseRoutes(getEnvOrDefault("PRINTER_ROUTES", "")));
+        // Jobs reservados à frente da impressão (o próximo já está no agent enquanto o atual imprime)
+        config.setPipelineDepth(Integer.parseInt(getEnvOrDefault("PIPELINE_DEPTH", "10")));
+        // > 0: impressoras simuladas com esse tempo por recibo (teste de vazão, nada é impresso)
+        config.setPrinterSimulateMs(Integer.parseInt(getEnvOrDefault("PRINTER_SIMULATE_MS", "0")));
+        // Journal local dos jobs impressos e resultados ainda não reportados
+        config.setSpoolDir(getEnvOrDefault("SPOOL_DIR", "spool"));
         config.setMaxRetries(Integer.parseInt(getEnvOrDefault("MAX_RETRIES", "3")));
 
         // Valida configuração
@@ -91,6 +136,31 @@ public class LunaPrintAgent {
         return config;
     }
 
+    private static ThermalPrintService createPrinter(AgentConfig config, String printerName) {
+        if (config.getPrinterSimulateMs() > 0) {
+            return new SimulatedPrintService(printerName, config.getPrinterSimulateMs());
+        }
+        return new ThermalPrintService(printerName, config.getPrinterRefreshMs());
+    }
+
+    /**
+     * Lê "TIPO=Impressora;TIPO=Impressora"
+     */
+    private static Map<String, String> parseRoutes(String routes) {
+        Map<String, String> parsed = new LinkedHashMap<>();
+        for (String route : routes.split(";")) {
+            if (route.isBlank()) {
+                continue;
+            }
+            String[] parts = route.split("=", 2);
+            if (parts.length != 2 || parts[0].isBlank() || parts[1].isBlank()) {
+                throw new IllegalArgumentException("PRINTER_ROUTES inválido: " + route);
+            }
+            parsed.put(parts[0].trim(), parts[1].trim());
+        }
+        return parsed;
+    }
+
     private static String getEnvOrDefault(String key, String defaultValue) {
         String value = System.getenv(key);
         return value != null ? value : defaultValue;
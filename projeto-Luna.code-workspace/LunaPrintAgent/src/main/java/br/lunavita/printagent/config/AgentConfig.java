@@ -1,5 +1,7 @@
 package br.lunavita.printagent.config;
 
+import java.util.Map;
+
 /**
  * Configuração do Print Agent
  */
@@ -9,6 +11,15 @@ public class AgentConfig {
     private String backendUrl;
     private String printerName;
     private int pollingIntervalMs = 3000;
+    private int longPollWaitMs = 25000;
+    private int claimBatchSize = 10;
+    private int inlinePayloadMaxBytes = 4096;
+    private int heartbeatIntervalMs = 30000;
+    private String spoolDir = "spool";
+    private int printerRefreshMs = 60000;
+    private Map<String, String> printerRoutes = Map.of();
+    private int pipelineDepth = 10;
+    private int printerSimulateMs = 0;
     private int maxRetries = 3;
 
     public String getTerminalId() {
@@ -43,6 +54,81 @@ public class AgentConfig {
         this.pollingIntervalMs = pollingIntervalMs;
     }
 
+    public int getLongPollWaitMs() {
+        return longPollWaitMs;
+    }
+
+    public void setLongPollWaitMs(int longPollWaitMs) {
+        this.longPollWaitMs = longPollWaitMs;
+    }
+
+    public int getClaimBatchSize() {
+        return claimBatchSize;
+    }
+
+    public void setClaimBatchSize(int claimBatchSize) {
+        this.claimBatchSize = claimBatchSize;
+    }
+
+    public int getInlinePayloadMaxBytes() {
+        return inlinePayloadMaxBytes;
+    }
+
+    public void setInlinePayloadMaxBytes(int inlinePayloadMaxBytes) {
+        this.inlinePayloadMaxBytes = inlinePayloadMaxBytes;
+    }
+
+    public int getHeartbeatIntervalMs() {
+        return heartbeatIntervalMs;
+    }
+
+    public void setHeartbeatIntervalMs(int heartbeatIntervalMs) {
+        this.heartbeatIntervalMs = heartbeatIntervalMs;
+    }
+
+    public String getSpoolDir() {
+        return spoolDir;
+    }
+
+    public void setSpoolDir(String spoolDir) {
+        this.spoolDir = spoolDir;
+    }
+
+    public int getPrinterRefreshMs() {
+        return printerRefreshMs;
+    }
+
+    public void setPrinterRefreshMs(int printerRefreshMs) {
+        this.printerRefreshMs = printerRefreshMs;
+    }
+
+    /**
+     * Impressora de cada tipo de recibo (receiptType -> nome da impressora); os demais vão para a padrão
+     */
+    public Map<String, String> getPrinterRoutes() {
+        return printerRoutes;
+    }
+
+    public void setPrinterRoutes(Map<String, String> printerRoutes) {
+        this.printerRoutes = printerRoutes;
+    }
+
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    public int getPrinterSimulateMs() {
+        return printerSimulateMs;
+    }
+
+    public void setPrinterSimulateMs(int printerSimulateMs) {
+        this.printerSimulateMs = printerSimulateMs;
+    }
+
     public int getMaxRetries() {
         return maxRetries;
     }
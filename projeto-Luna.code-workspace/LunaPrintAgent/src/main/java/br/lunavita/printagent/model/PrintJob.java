@@ -11,6 +11,7 @@ public class PrintJob {
     private String receiptType;
     private String status;
     private String payload;
+    private Integer payloadSize;
     private Integer attempts;
     private Integer maxAttempts;
     private String error;
@@ -64,6 +65,14 @@ public class PrintJob {
         this.payload = payload;
     }
 
+    public Integer getPayloadSize() {
+        return payloadSize;
+    }
+
+    public void setPayloadSize(Integer payloadSize) {
+        this.payloadSize = payloadSize;
+    }
+
     public Integer getAttempts() {
         return attempts;
     }
@@ -0,0 +1,65 @@
+package br.lunavita.printagent.model;
+
+/**
+ * Resultado da impressão de um job, como é reportado ao backend
+ */
+public class PrintResult {
+
+    private String jobId;
+    // Tentativa da reserva (attempts do claim): o backend descarta resultados de uma reserva que não vale mais
+    private Integer attempt;
+    private boolean success;
+    private String errorMessage;
+    // Tempos locais (ms), enviados ao backend para as métricas; null em resultados reenviados do spool
+    private Long decodeMs;
+    private Long spoolMs;
+    private Long printMs;
+
+    public PrintResult(String jobId, Integer attempt, boolean success, String errorMessage) {
+        this.jobId = jobId;
+        this.attempt = attempt;
+        this.success = success;
+        this.errorMessage = errorMessage;
+    }
+
+    // Getters
+    public String getJobId() {
+        return jobId;
+    }
+
+    public Integer getAttempt() {
+        return attempt;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public Long getDecodeMs() {
+        return decodeMs;
+    }
+
+    public void setDecodeMs(Long decodeMs) {
+        this.decodeMs = decodeMs;
+    }
+
+    public Long getSpoolMs() {
+        return spoolMs;
+    }
+
+    public void setSpoolMs(Long spoolMs) {
+        this.spoolMs = spoolMs;
+    }
+
+    public Long getPrintMs() {
+        return printMs;
+    }
+
+    public void setPrintMs(Long printMs) {
+        this.printMs = printMs;
+    }
+}
@@ -0,0 +1,82 @@
+package br.lunavita.printagent.model;
+
+/**
+ * Estado da impressora do terminal, como é informado ao backend
+ * (datas em ISO-8601)
+ */
+public class PrinterHealth {
+
+    private String terminalId;
+    private String printerName;
+    private boolean available;
+    private Boolean acceptingJobs;
+    private Integer queuedJobs;
+    private String lastSuccessAt;
+    private String lastErrorAt;
+    private String lastError;
+
+    // Getters e Setters
+    public String getTerminalId() {
+        return terminalId;
+    }
+
+    public void setTerminalId(String terminalId) {
+        this.terminalId = terminalId;
+    }
+
+    public String getPrinterName() {
+        return printerName;
+    }
+
+    public void setPrinterName(String printerName) {
+        this.printerName = printerName;
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    public void setAvailable(boolean available) {
+        this.available = available;
+    }
+
+    public Boolean getAcceptingJobs() {
+        return acceptingJobs;
+    }
+
+    public void setAcceptingJobs(Boolean acceptingJobs) {
+        this.acceptingJobs = acceptingJobs;
+    }
+
+    public Integer getQueuedJobs() {
+        return queuedJobs;
+    }
+
+    public void setQueuedJobs(Integer queuedJobs) {
+        this.queuedJobs = queuedJobs;
+    }
+
+    public String getLastSuccessAt() {
+        return lastSuccessAt;
+    }
+
+    public void setLastSuccessAt(String lastSuccessAt) {
+        this.lastSuccessAt = lastSuccessAt;
+    }
+
+    public String getLastErrorAt() {
+        return lastErrorAt;
+    }
+
+    public void setLastErrorAt(String lastErrorAt) {
+        this.lastErrorAt = lastErrorAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
@@ -0,0 +1,251 @@
+package br.lunavita.printagent.service;
+
+import br.lunavita.printagent.model.PrintResult;
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Spool local (journal append-only) dos jobs reservados e dos resultados ainda não reportados.
+ *
+ * Cada job passa por CLAIMED (gravado com fsync antes de imprimir), RESULT (gravado com fsync logo após
+ * a impressão) e REPORTED (backend confirmou o resultado). Com isso:
+ * <ul>
+ *   <li>resultados de impressões feitas com o backend fora do ar não se perdem: são reenviados na reconexão;</li>
+ *   <li>um job já impresso que volta do backend (lease vencida porque o report não chegou) não é impresso
+ *       de novo: o resultado gravado é reenviado no lugar;</li>
+ *   <li>um job CLAIMED sem RESULT ao iniciar (agent morreu no meio da impressão) é reportado como falha,
+ *       e o backend decide o retry.</li>
+ * </ul>
+ * Cada entrada guarda a tentativa da reserva (attempts do claim), enviada junto com o resultado: se o job
+ * já foi reservado de novo (lease vencida), o backend recusa o resultado como obsoleto e ele é descartado.
+ *
+ * O arquivo é compactado ao abrir e a cada {@value #COMPACT_EVERY} gravações: ficam só os jobs pendentes
+ * e os reportados nas últimas 24 horas (janela de deduplicação).
+ */
+public class PrintSpool {
+
+    private static final Logger log = LoggerFactory.getLogger(PrintSpool.class);
+
+    private static final String JOURNAL_FILE = "journal.log";
+    private static final int COMPACT_EVERY = 5000;
+    private static final Duration RETENTION = Duration.ofHours(24);
+    private static final String INTERRUPTED_ERROR = "Agent interrompido durante a impressão";
+
+    private enum State { CLAIMED, RESULT, REPORTED }
+
+    /**
+     * Linha do journal (JSON)
+     */
+    private static class Entry {
+        private State type;
+        private String jobId;
+        private Integer attempt;
+        private Boolean success;
+        private String errorMessage;
+        private long at;
+    }
+
+    private final Path journal;
+    private final Gson gson = new Gson();
+    // Último estado de cada job, na ordem em que apareceram
+    private final Map<String, Entry> jobs = new LinkedHashMap<>();
+    private FileChannel channel;
+    private int appendsSinceCompaction;
+
+    public PrintSpool(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        this.journal = directory.resolve(JOURNAL_FILE);
+        load();
+        compact();
+    }
+
+    /**
+     * Resultado de sucesso já gravado para o job (reportado ou não), se ele já foi impresso por este agent.
+     * Falhas não contam: um job que volta após falha é um retry legítimo.
+     */
+    public synchronized Optional<PrintResult> printedResult(String jobId) {
+        Entry entry = jobs.get(jobId);
+        if (entry == null || entry.type == State.CLAIMED || !Boolean.TRUE.equals(entry.success)) {
+            return Optional.empty();
+        }
+        return Optional.of(toResult(entry));
+    }
+
+    /**
+     * Registra (com fsync) que o job vai ser impresso
+     *
+     * @param attempt tentativa da reserva (attempts do claim)
+     */
+    public synchronized void claimed(String jobId, Integer attempt) throws IOException {
+        append(entry(State.CLAIMED, jobId, attempt, null, null), true);
+    }
+
+    /**
+     * Registra (com fsync) o resultado da impressão, antes de reportá-lo
+     */
+    public synchronized void result(PrintResult result) throws IOException {
+        append(entry(State.RESULT, result.getJobId(), result.getAttempt(), result.isSuccess(),
+                result.getErrorMessage()), true);
+    }
+
+    /**
+     * Registra que o backend confirmou (ou descartou como obsoletos) os resultados destes jobs
+     */
+    public synchronized void reported(Collection<String> jobIds) throws IOException {
+        for (String jobId : jobIds) {
+            Entry previous = jobs.get(jobId);
+            if (previous != null && previous.type == State.RESULT) {
+                append(entry(State.REPORTED, jobId, previous.attempt, previous.success, previous.errorMessage),
+                        false);
+            }
+        }
+        channel.force(false);
+        if (appendsSinceCompaction >= COMPACT_EVERY) {
+            compact();
+        }
+    }
+
+    /**
+     * Resultados gravados e ainda não confirmados pelo backend, na ordem de impressão
+     */
+    public synchronized List<PrintResult> unreported() {
+        List<PrintResult> results = new ArrayList<>();
+        for (Entry entry : jobs.values()) {
+            if (entry.type == State.RESULT) {
+                results.add(toResult(entry));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Se o backend já confirmou o resultado do job
+     */
+    public synchronized boolean isReported(String jobId) {
+        Entry entry = jobs.get(jobId);
+        return entry != null && entry.type == State.REPORTED;
+    }
+
+    public synchronized void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("Falha ao fechar o spool: {}", e.getMessage());
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(journal)) {
+            return;
+        }
+        int corrupted = 0;
+        for (String line : Files.readAllLines(journal, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                Entry entry = gson.fromJson(line, Entry.class);
+                if (entry != null && entry.type != null && entry.jobId != null) {
+                    jobs.put(entry.jobId, entry);
+                }
+            } catch (JsonParseException e) {
+                // Última linha incompleta (queda de energia durante a gravação)
+                corrupted++;
+            }
+        }
+        if (corrupted > 0) {
+            log.warn("Spool: {} linhas inválidas ignoradas em {}", corrupted, journal);
+        }
+
+        // Impressões interrompidas: o papel pode ou não ter saído; o backend decide o retry.
+        // A falha vai com a tentativa gravada no CLAIMED: se o job já foi reservado de novo, é recusada
+        for (Entry entry : jobs.values()) {
+            if (entry.type == State.CLAIMED) {
+                log.warn("Spool: job {} foi interrompido durante a impressão, será reportado como falha",
+                         entry.jobId);
+                entry.type = State.RESULT;
+                entry.success = false;
+                entry.errorMessage = INTERRUPTED_ERROR;
+            }
+        }
+        log.info("Spool carregado: {} jobs, {} resultados a reportar", jobs.size(), unreported().size());
+    }
+
+    /**
+     * Reescreve o journal só com os jobs pendentes e os reportados dentro da retenção
+     * (arquivo temporário + move atômico: uma queda no meio mantém o journal anterior)
+     */
+    private void compact() throws IOException {
+        long cutoff = System.currentTimeMillis() - RETENTION.toMillis();
+        jobs.values().removeIf(entry -> entry.type == State.REPORTED && entry.at < cutoff);
+
+        Path temp = journal.resolveSibling(JOURNAL_FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Entry entry : jobs.values()) {
+                write(out, entry);
+            }
+            out.force(false);
+        }
+
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(temp, journal, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        appendsSinceCompaction = 0;
+    }
+
+    private void append(Entry entry, boolean sync) throws IOException {
+        write(channel, entry);
+        if (sync) {
+            channel.force(false);
+        }
+        jobs.remove(entry.jobId); // Reinsere no fim: a ordem segue a última alteração
+        jobs.put(entry.jobId, entry);
+        appendsSinceCompaction++;
+    }
+
+    private void write(FileChannel out, Entry entry) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((gson.toJson(entry) + "\n").getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private static Entry entry(State type, String jobId, Integer attempt, Boolean success, String errorMessage) {
+        Entry entry = new Entry();
+        entry.type = type;
+        entry.jobId = jobId;
+        entry.attempt = attempt;
+        entry.success = success;
+        entry.errorMessage = errorMessage;
+        entry.at = System.currentTimeMillis();
+        return entry;
+    }
+
+    private static PrintResult toResult(Entry entry) {
+        return new PrintResult(entry.jobId, entry.attempt, Boolean.TRUE.equals(entry.success), entry.errorMessage);
+    }
+}
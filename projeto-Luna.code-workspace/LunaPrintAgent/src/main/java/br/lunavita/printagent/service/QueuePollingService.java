@@ -2,39 +2,135 @@ package br.lunavita.printagent.service;
 
 import br.lunavita.printagent.config.AgentConfig;
 import br.lunavita.printagent.model.PrintJob;
+import br.lunavita.printagent.model.PrintResult;
+import br.lunavita.printagent.model.PrinterHealth;
 import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Serviço que faz polling no backend para buscar jobs de impressão pendentes
+ * Serviço que busca jobs de impressão pendentes no backend.
+ *
+ * Funciona em pipeline, com três estágios ligados por filas:
+ * <ul>
+ *   <li>busca (thread que chamou {@link #start()}): reserva jobs enquanto houver vaga no pipeline
+ *       ({@code PIPELINE_DEPTH} jobs reservados e ainda não impressos) e os distribui por impressora;</li>
+ *   <li>impressão: uma thread por impressora, com fila limitada; o tipo do recibo define a impressora
+ *       ({@code PRINTER_ROUTES}, o resto vai para {@code PRINTER_NAME});</li>
+ *   <li>report: uma thread que envia os resultados em lote ao backend, sem segurar a impressão.</li>
+ * </ul>
+ * Assim o próximo job já está reservado enquanto o atual imprime, e a latência até o backend
+ * não soma no tempo de cada recibo.
+ *
+ * Por padrão usa long-poll: a requisição fica aberta no backend até um job ser enfileirado para o
+ * terminal (ou até {@code longPollWaitMs}), e o agent reconecta em seguida. O polling com intervalo
+ * fixo fica só como fallback: backend sem long-poll, erro de conexão ou {@code LONG_POLL_WAIT_MS=0}.
+ *
+ * Quando chega um job, o restante do acúmulo do terminal é reservado de uma vez (claim-batch, até
+ * {@code CLAIM_BATCH_SIZE}) e os resultados voltam num único report-batch.
+ *
+ * Recibos pequenos vêm em Base64 no próprio claim; acima de {@code INLINE_PAYLOAD_MAX_BYTES} o backend
+ * omite o payload e ele é baixado em binário (gzip), sem o acréscimo de ~33% do Base64.
+ *
+ * Jobs reservados têm lease no backend: enquanto estão com o agent, um heartbeat a cada
+ * {@code HEARTBEAT_INTERVAL_MS} renova a lease. Se o agent morrer, o backend devolve os jobs à fila
+ * quando a lease vence; se uma lease já foi perdida, o job não é impresso aqui (outro agent o pegará).
+ *
+ * Todo job passa pelo {@link PrintSpool} local: se o backend cair, a impressão dos jobs já recebidos
+ * continua, os resultados ficam no spool e são reenviados na reconexão, e um job já impresso que volte
+ * do backend não é impresso de novo.
+ *
+ * O estado da impressora ({@link ThermalPrintService#health()}) é enviado ao backend a cada
+ * {@code PRINTER_REFRESH_MS}. Os tempos de cada etapa local (decode, spool, escrita na impressora) vão
+ * junto com o resultado e aparecem nas métricas do backend ({@code totem.print.agent.stage}).
  */
 public class QueuePollingService {
 
     private static final Logger log = LoggerFactory.getLogger(QueuePollingService.class);
 
+    // Limite de resultados por report-batch no backend
+    private static final int REPORT_BATCH_MAX = 20;
+
     private final AgentConfig config;
     private final ThermalPrintService printService;
+    private final Map<String, ThermalPrintService> printersByReceiptType;
+    private final PrintSpool spool;
     private final HttpClient httpClient;
     private final Gson gson;
     private final AtomicBoolean running;
+    // Desligado se o backend não tiver os endpoints de lote (versão anterior)
+    private volatile boolean batchSupported = true;
+    // Jobs reservados e ainda não reportados (renovados pelo heartbeat)
+    private final Set<String> heldJobs = ConcurrentHashMap.newKeySet();
+    // Jobs cuja lease o backend informou como perdida
+    private final Set<String> lostJobs = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService heartbeatScheduler;
+    private volatile boolean heartbeatSupported = true;
+    private volatile boolean printerStatusSupported = true;
+
+    // Vagas do pipeline: uma por job reservado que ainda não saiu da impressão
+    private final Semaphore inFlight;
+    private final Map<ThermalPrintService, BlockingQueue<PrintJob>> printQueues = new LinkedHashMap<>();
+    private final BlockingQueue<PrintResult> results = new LinkedBlockingQueue<>();
+    private final List<Thread> workers = new ArrayList<>();
+
+    public QueuePollingService(AgentConfig config, ThermalPrintService printService, PrintSpool spool) {
+        this(config, printService, Map.of(), spool);
+    }
 
-    public QueuePollingService(AgentConfig config, ThermalPrintService printService) {
+    /**
+     * @param printService          impressora padrão
+     * @param printersByReceiptType impressora de cada tipo de recibo que não vai para a padrão
+     */
+    public QueuePollingService(AgentConfig config, ThermalPrintService printService,
+                               Map<String, ThermalPrintService> printersByReceiptType, PrintSpool spool) {
         this.config = config;
         this.printService = printService;
+        this.printersByReceiptType = Map.copyOf(printersByReceiptType);
+        this.spool = spool;
+        int depth = Math.max(1, config.getPipelineDepth());
+        this.inFlight = new Semaphore(depth);
+        printQueues.put(printService, new ArrayBlockingQueue<>(depth));
+        for (ThermalPrintService printer : this.printersByReceiptType.values()) {
+            printQueues.computeIfAbsent(printer, p -> new ArrayBlockingQueue<>(depth));
+        }
         this.gson = new Gson();
         this.running = new AtomicBoolean(false);
         this.httpClient = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
+        this.heartbeatScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     /**
@@ -44,21 +140,52 @@ public class QueuePollingService {
         running.set(true);
         log.info("Iniciando polling de jobs pendentes...");
 
+        long heartbeatMs = config.getHeartbeatIntervalMs();
+        if (heartbeatMs > 0) {
+            heartbeatScheduler.scheduleWithFixedDelay(this::sendHeartbeat, heartbeatMs, heartbeatMs,
+                    TimeUnit.MILLISECONDS);
+        }
+        long printerStatusMs = config.getPrinterRefreshMs();
+        if (printerStatusMs > 0) {
+            heartbeatScheduler.scheduleWithFixedDelay(this::reportPrinterHealth, 0, printerStatusMs,
+                    TimeUnit.MILLISECONDS);
+        }
+
+        printQueues.forEach((printer, queue) ->
+                startWorker("print-" + workers.size(), () -> printLoop(printer, queue)));
+        startWorker("report", this::reportLoop);
+
         while (running.get()) {
+            int permits = 0;
             try {
-                // Busca o próximo job pendente
-                PrintJob job = claimNextJob();
+                // Espera vaga no pipeline (impressoras ocupadas com jobs já reservados)
+                inFlight.acquire();
+                permits = 1;
+
+                // Busca o próximo job pendente (aguardando no backend, se long-poll)
+                int waitMs = config.getLongPollWaitMs();
+                long startedAt = System.currentTimeMillis();
+                PrintJob job = claimNextJob(waitMs);
 
                 if (job != null) {
-                    log.info("Job recebido: {} (tipo: {}, tentativa: {}/{})",
-                             job.getId(), job.getReceiptType(), job.getAttempts(), job.getMaxAttempts());
+                    // Reserva o restante do acúmulo na mesma ida ao servidor, até as vagas livres
+                    while (permits < config.getClaimBatchSize() && inFlight.tryAcquire()) {
+                        permits++;
+                    }
+                    List<PrintJob> jobs = new ArrayList<>();
+                    jobs.add(job);
+                    jobs.addAll(claimBatch(permits - 1));
 
-                    // Tenta imprimir
-                    processJob(job);
-                } else {
-                    // Nenhum job pendente, aguarda antes de buscar novamente
+                    // As vagas não usadas voltam; as usadas são liberadas pela impressão
+                    inFlight.release(permits - jobs.size());
+                    permits = 0;
+                    dispatch(jobs);
+                } else if (waitMs <= 0 || System.currentTimeMillis() - startedAt < waitMs / 2) {
+                    // Polling, ou backend respondeu sem aguardar (sem suporte a long-poll):
+                    // aguarda antes de buscar novamente
                     Thread.sleep(config.getPollingIntervalMs());
                 }
+                // Long-poll expirou sem job: reconecta imediatamente
 
             } catch (InterruptedException e) {
                 log.info("Polling interrompido");
@@ -70,30 +197,61 @@ public class QueuePollingService {
                 } catch (InterruptedException ie) {
                     break;
                 }
+            } finally {
+                inFlight.release(permits);
             }
         }
 
         log.info("Polling finalizado");
     }
 
+    private void startWorker(String name, Runnable loop) {
+        Thread thread = new Thread(loop, name);
+        thread.setDaemon(true);
+        workers.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Entrega os jobs reservados à fila da impressora de cada um
+     */
+    private void dispatch(List<PrintJob> jobs) throws InterruptedException {
+        for (PrintJob job : jobs) {
+            log.info("Job recebido: {} (tipo: {}, tentativa: {}/{})",
+                     job.getId(), job.getReceiptType(), job.getAttempts(), job.getMaxAttempts());
+            heldJobs.add(job.getId());
+            ThermalPrintService printer = printersByReceiptType.getOrDefault(job.getReceiptType(), printService);
+            // Não bloqueia: cada fila comporta todas as vagas do pipeline
+            printQueues.get(printer).put(job);
+        }
+    }
+
     /**
      * Para o loop de polling
      */
     public void stop() {
         log.info("Parando polling...");
         running.set(false);
+        heartbeatScheduler.shutdownNow();
+        workers.forEach(Thread::interrupt);
     }
 
     /**
      * Busca (e reserva) o próximo job pendente no backend
+     *
+     * @param waitMs tempo que o backend pode segurar a requisição aguardando um job (0 = responde na hora)
      */
-    private PrintJob claimNextJob() throws IOException, InterruptedException {
-        String url = config.getBackendUrl() + "/api/print-queue/claim-next?terminalId=" + config.getTerminalId();
+    private PrintJob claimNextJob(int waitMs) throws IOException, InterruptedException {
+        String url = config.getBackendUrl() + "/api/print-queue/claim-next?terminalId=" + config.getTerminalId()
+                + "&inlineMax=" + config.getInlinePayloadMaxBytes();
+        if (waitMs > 0) {
+            url += "&waitMs=" + waitMs;
+        }
 
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(url))
                 .GET()
-                .timeout(Duration.ofSeconds(10))
+                .timeout(Duration.ofMillis(Math.max(waitMs, 0) + 10000L))
                 .build();
 
         HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
@@ -113,39 +271,420 @@ public class QueuePollingService {
     }
 
     /**
-     * Processa um job de impressão
+     * Reserva até max jobs pendentes adicionais. Falhas não interrompem o job já recebido:
+     * retorna lista vazia e o restante fica para a próxima busca.
+     */
+    private List<PrintJob> claimBatch(int max) {
+        if (max <= 0 || !batchSupported) {
+            return List.of();
+        }
+
+        try {
+            String url = config.getBackendUrl() + "/api/print-queue/claim-batch?terminalId="
+                    + config.getTerminalId() + "&max=" + max
+                    + "&inlineMax=" + config.getInlinePayloadMaxBytes();
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .timeout(Duration.ofSeconds(10))
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 204) {
+                return List.of();
+            }
+
+            if (response.statusCode() == 404 || response.statusCode() == 405) {
+                log.info("Backend sem suporte a lotes, buscando um job por vez");
+                batchSupported = false;
+                return List.of();
+            }
+
+            if (response.statusCode() != 200) {
+                log.warn("Erro ao reservar lote de jobs: HTTP {}", response.statusCode());
+                return List.of();
+            }
+
+            return Arrays.asList(gson.fromJson(response.body(), PrintJob[].class));
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return List.of();
+        } catch (Exception e) {
+            log.warn("Falha ao reservar lote de jobs: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Envia o estado da impressora ao backend. Roda na thread do heartbeat.
+     */
+    private void reportPrinterHealth() {
+        if (!printerStatusSupported) {
+            return;
+        }
+
+        try {
+            PrinterHealth health = printService.health();
+            health.setTerminalId(config.getTerminalId());
+            String url = config.getBackendUrl() + "/api/print-queue/printer-status";
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .PUT(HttpRequest.BodyPublishers.ofString(gson.toJson(health)))
+                    .timeout(Duration.ofSeconds(10))
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 404 || response.statusCode() == 405) {
+                log.info("Backend sem suporte a estado da impressora, desativando");
+                printerStatusSupported = false;
+            } else if (response.statusCode() != 200) {
+                log.warn("Erro ao enviar estado da impressora: HTTP {}", response.statusCode());
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Falha ao enviar estado da impressora: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Estágio de impressão de uma impressora: imprime os jobs da fila, em ordem, e passa os resultados
+     * ao estágio de report
+     */
+    private void printLoop(ThermalPrintService printer, BlockingQueue<PrintJob> queue) {
+        while (running.get()) {
+            PrintJob job;
+            try {
+                job = queue.take();
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                PrintResult result = printJob(printer, job);
+                if (result != null) {
+                    results.add(result);
+                }
+            } catch (Exception e) {
+                log.error("Erro no estágio de impressão do job {}", job.getId(), e);
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+
+    /**
+     * Imprime um job (com deduplicação pelo spool)
+     *
+     * @return resultado a reportar, ou null se o job não é mais deste agent
+     */
+    private PrintResult printJob(ThermalPrintService printer, PrintJob job) {
+        if (lostJobs.remove(job.getId())) {
+            // A lease venceu antes da impressão: o job já voltou à fila
+            log.warn("Lease do job {} perdida, não será impresso por este agent", job.getId());
+            heldJobs.remove(job.getId());
+            return null;
+        }
+
+        Optional<PrintResult> printed = spool.printedResult(job.getId());
+        if (printed.isPresent()) {
+            // Já impresso, mas o backend não recebeu o resultado: só reenvia, com a tentativa desta reserva
+            // (a gravada no spool é a da reserva anterior e seria recusada como obsoleta)
+            log.warn("Job {} já foi impresso por este agent, reenviando o resultado", job.getId());
+            PrintResult resend = new PrintResult(job.getId(), job.getAttempts(), true, null);
+            journal(() -> spool.result(resend));
+            return resend;
+        }
+
+        // Tenta imprimir
+        long claimStart = System.nanoTime();
+        journal(() -> spool.claimed(job.getId(), job.getAttempts()));
+        long claimNanos = System.nanoTime() - claimStart;
+        PrintResult result = processJob(printer, job);
+        long resultStart = System.nanoTime();
+        journal(() -> spool.result(result));
+        result.setSpoolMs(TimeUnit.NANOSECONDS.toMillis(claimNanos + System.nanoTime() - resultStart));
+        return result;
+    }
+
+    /**
+     * Estágio de report: envia em lote os resultados que chegaram da impressão mais os que ficaram
+     * no spool (backend fora do ar). Sem backend, tenta de novo a cada 5s ou no próximo resultado.
+     */
+    private void reportLoop() {
+        while (running.get()) {
+            List<PrintResult> arrived = new ArrayList<>();
+            try {
+                PrintResult first = results.poll(5, TimeUnit.SECONDS);
+                if (first != null) {
+                    arrived.add(first);
+                    results.drainTo(arrived);
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            Map<String, PrintResult> pending = new LinkedHashMap<>();
+            for (PrintResult result : spool.unreported()) {
+                pending.put(result.getJobId(), result);
+            }
+            for (PrintResult result : arrived) {
+                // Já reportado junto com os pendentes do spool numa volta anterior; senão substitui a cópia
+                // do spool, que não tem os tempos da impressão
+                if (!spool.isReported(result.getJobId())) {
+                    pending.put(result.getJobId(), result);
+                }
+            }
+            if (pending.isEmpty()) {
+                continue;
+            }
+
+            List<PrintResult> batch = new ArrayList<>(pending.values());
+            for (int from = 0; from < batch.size(); from += REPORT_BATCH_MAX) {
+                List<PrintResult> chunk = batch.subList(from, Math.min(from + REPORT_BATCH_MAX, batch.size()));
+                List<String> reported = reportResults(chunk);
+                // Inclui os recusados como obsoletos: reenviá-los não adianta
+                journal(() -> spool.reported(reported));
+                if (reported.size() < chunk.size()) {
+                    // Backend indisponível: o restante fica no spool para a próxima volta
+                    log.warn("{} resultados ficaram no spool para reenvio", batch.size() - from - reported.size());
+                    break;
+                }
+            }
+            arrived.forEach(result -> {
+                heldJobs.remove(result.getJobId());
+                lostJobs.remove(result.getJobId());
+            });
+        }
+    }
+
+    /**
+     * Gravação no spool. Uma falha de disco não impede a impressão: só perde a garantia contra duplicidade.
+     */
+    private void journal(SpoolWrite write) {
+        try {
+            write.run();
+        } catch (IOException e) {
+            log.error("Falha ao gravar no spool local: {}", e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface SpoolWrite {
+        void run() throws IOException;
+    }
+
+    /**
+     * Renova a lease dos jobs reservados e ainda não reportados. Roda na thread do heartbeat.
      */
-    private void processJob(PrintJob job) {
+    private void sendHeartbeat() {
+        if (!heartbeatSupported || heldJobs.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<String> jobIds = List.copyOf(heldJobs);
+            String url = config.getBackendUrl() + "/api/print-queue/heartbeat";
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(jobIds)))
+                    .timeout(Duration.ofSeconds(10))
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 404 || response.statusCode() == 405) {
+                log.info("Backend sem suporte a heartbeat de lease, desativando");
+                heartbeatSupported = false;
+                return;
+            }
+
+            if (response.statusCode() != 200) {
+                log.warn("Erro ao renovar lease de {} jobs: HTTP {}", jobIds.size(), response.statusCode());
+                return;
+            }
+
+            HeartbeatResponse body = gson.fromJson(response.body(), HeartbeatResponse.class);
+            if (body != null && body.lost != null) {
+                for (String jobId : body.lost) {
+                    if (heldJobs.contains(jobId)) {
+                        log.warn("Lease do job {} perdida no backend", jobId);
+                        lostJobs.add(jobId);
+                    }
+                }
+            }
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("Falha ao renovar lease dos jobs: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Processa um job de impressão (medindo o tempo de decode/download e de escrita na impressora)
+     */
+    private PrintResult processJob(ThermalPrintService printer, PrintJob job) {
+        Long decodeMs = null;
         try {
             // Verifica se a impressora está disponível
-            if (!printService.isPrinterAvailable()) {
+            if (!printer.isPrinterAvailable()) {
                 log.warn("Impressora não disponível, reportando falha");
-                reportResult(job.getId(), false, "Impressora não disponível");
-                return;
+                return new PrintResult(job.getId(), job.getAttempts(), false, "Impressora não disponível");
             }
 
             // Tenta imprimir
             log.info("Imprimindo job {}...", job.getId());
-            printService.print(job.getPayload());
+            long start = System.nanoTime();
+            byte[] escPosBytes = escPosBytes(job);
+            long decoded = System.nanoTime();
+            decodeMs = TimeUnit.NANOSECONDS.toMillis(decoded - start);
+            printer.print(escPosBytes);
 
             // Sucesso!
             log.info("✅ Job {} impresso com sucesso", job.getId());
-            reportResult(job.getId(), true, null);
+            PrintResult result = new PrintResult(job.getId(), job.getAttempts(), true, null);
+            result.setDecodeMs(decodeMs);
+            result.setPrintMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - decoded));
+            return result;
 
         } catch (Exception e) {
             log.error("❌ Erro ao imprimir job {}: {}", job.getId(), e.getMessage(), e);
-            reportResult(job.getId(), false, e.getMessage());
+            PrintResult result = new PrintResult(job.getId(), job.getAttempts(), false, e.getMessage());
+            result.setDecodeMs(decodeMs);
+            return result;
+        }
+    }
+
+    /**
+     * Conteúdo ESC/POS do job: Base64 do claim, ou download binário se o backend o omitiu
+     */
+    private byte[] escPosBytes(PrintJob job) throws IOException, InterruptedException {
+        if (job.getPayload() != null) {
+            return Base64.getDecoder().decode(job.getPayload());
+        }
+
+        String url = config.getBackendUrl() + "/api/print-queue/" + job.getId() + "/payload";
+
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Accept-Encoding", "gzip")
+                .GET()
+                .timeout(Duration.ofSeconds(10))
+                .build();
+
+        HttpResponse<byte[]> response = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+
+        if (response.statusCode() != 200) {
+            throw new IOException("Erro ao baixar conteúdo do job " + job.getId() + ": HTTP " + response.statusCode());
+        }
+
+        boolean gzipped = response.headers().firstValue("Content-Encoding")
+                .map(encoding -> encoding.equalsIgnoreCase("gzip"))
+                .orElse(false);
+        if (!gzipped) {
+            return response.body();
+        }
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+            return gzip.readAllBytes();
+        }
+    }
+
+    /**
+     * Reporta os resultados ao backend: um report-batch para o lote todo, ou um report por job
+     * se houver um só resultado ou o backend não aceitar lotes
+     *
+     * @return ids dos jobs cujo resultado o backend confirmou ou recusou como obsoleto
+     */
+    private List<String> reportResults(List<PrintResult> results) {
+        if (results.size() > 1 && batchSupported && reportBatch(results)) {
+            return results.stream().map(PrintResult::getJobId).toList();
+        }
+        List<String> reported = new ArrayList<>();
+        for (PrintResult result : results) {
+            if (reportResult(result)) {
+                reported.add(result.getJobId());
+            }
+        }
+        return reported;
+    }
+
+    /**
+     * @return true se o backend aceitou o lote
+     */
+    private boolean reportBatch(List<PrintResult> results) {
+        try {
+            String url = config.getBackendUrl() + "/api/print-queue/report-batch";
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(results)))
+                    .timeout(Duration.ofSeconds(10))
+                    .build();
+
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+
+            if (response.statusCode() == 200) {
+                long stale = countStale(response.body());
+                if (stale > 0) {
+                    log.warn("{} resultados descartados pelo backend: reserva não vale mais", stale);
+                }
+                log.info("Resultado reportado com sucesso para {} jobs", results.size() - stale);
+                return true;
+            }
+
+            if (response.statusCode() == 404 || response.statusCode() == 405) {
+                batchSupported = false;
+            }
+            log.warn("Erro ao reportar lote de {} jobs: HTTP {}, reportando um a um", results.size(),
+                     response.statusCode());
+            return false;
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.warn("Falha ao reportar lote de {} jobs ({}), reportando um a um", results.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Jobs marcados STALE na resposta do report-batch (resultado de uma reserva que não vale mais)
+     */
+    private long countStale(String body) {
+        try {
+            ReportBatchResponse response = gson.fromJson(body, ReportBatchResponse.class);
+            if (response == null || response.results == null) {
+                return 0;
+            }
+            return response.results.values().stream().filter("STALE"::equals).count();
+        } catch (JsonParseException e) {
+            return 0;
         }
     }
 
     /**
      * Reporta o resultado da impressão ao backend
+     *
+     * @return true se o backend confirmou o resultado ou o recusou (reserva obsoleta, job inexistente):
+     *         nos dois casos ele sai do spool
      */
-    private void reportResult(String jobId, boolean success, String errorMessage) {
+    private boolean reportResult(PrintResult result) {
+        String jobId = result.getJobId();
         try {
             String url = config.getBackendUrl() + "/api/print-queue/report";
 
-            String jsonBody = gson.toJson(new PrintResult(jobId, success, errorMessage));
+            String jsonBody = gson.toJson(result);
 
             HttpRequest request = HttpRequest.newBuilder()
                     .uri(URI.create(url))
@@ -158,28 +697,37 @@ public class QueuePollingService {
 
             if (response.statusCode() == 200) {
                 log.info("Resultado reportado com sucesso para job {}", jobId);
-            } else {
-                log.warn("Erro ao reportar resultado para job {}: HTTP {}", jobId, response.statusCode());
+                return true;
+            }
+            if (response.statusCode() == 409 || response.statusCode() == 404) {
+                // O job foi reservado de novo (ou já finalizado/removido): o resultado não vale mais
+                log.warn("Resultado do job {} descartado pelo backend (HTTP {}): reserva não vale mais",
+                         jobId, response.statusCode());
+                return true;
             }
+            log.warn("Erro ao reportar resultado para job {}: HTTP {}", jobId, response.statusCode());
+            return false;
 
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
         } catch (Exception e) {
-            log.error("Falha ao reportar resultado do job {}", jobId, e);
-            // Não propaga erro - o job eventualmente será liberado pelo backend
+            log.warn("Falha ao reportar resultado do job {} ({}), fica no spool para reenvio", jobId, e.getMessage());
+            return false;
         }
     }
 
     /**
-     * DTO para reportar resultado
+     * Resposta do report-batch
      */
-    private static class PrintResult {
-        private String jobId;
-        private boolean success;
-        private String errorMessage;
+    private static class ReportBatchResponse {
+        private Map<String, String> results;
+    }
 
-        public PrintResult(String jobId, boolean success, String errorMessage) {
-            this.jobId = jobId;
-            this.success = success;
-            this.errorMessage = errorMessage;
-        }
+    /**
+     * Resposta do heartbeat
+     */
+    private static class HeartbeatResponse {
+        private List<String> lost;
     }
 }
@@ -0,0 +1,52 @@
+package br.lunavita.printagent.service;
+
+import br.lunavita.printagent.model.PrinterHealth;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+
+/**
+ * Impressora simulada: descarta o conteúdo ESC/POS após um tempo fixo por recibo.
+ * Usada para medir a vazão do agent sem impressora física ({@code PRINTER_SIMULATE_MS}).
+ */
+public class SimulatedPrintService extends ThermalPrintService {
+
+    private static final Logger log = LoggerFactory.getLogger(SimulatedPrintService.class);
+
+    private final String name;
+    private final long printTimeMs;
+    private volatile Instant lastSuccessAt;
+
+    public SimulatedPrintService(String name, long printTimeMs) {
+        super(name);
+        this.name = "simulada:" + (name != null ? name : "padrão");
+        this.printTimeMs = printTimeMs;
+    }
+
+    @Override
+    public void startWatcher() {
+        log.warn("Impressora {} ativa: nada será impresso ({}ms por recibo)", name, printTimeMs);
+    }
+
+    @Override
+    public void print(byte[] escPosBytes) throws Exception {
+        Thread.sleep(printTimeMs);
+        lastSuccessAt = Instant.now();
+        log.info("{} bytes descartados pela impressora {}", escPosBytes.length, name);
+    }
+
+    @Override
+    public boolean isPrinterAvailable() {
+        return true;
+    }
+
+    @Override
+    public PrinterHealth health() {
+        PrinterHealth health = new PrinterHealth();
+        health.setPrinterName(name);
+        health.setAvailable(true);
+        health.setLastSuccessAt(lastSuccessAt != null ? lastSuccessAt.toString() : null);
+        return health;
+    }
+}
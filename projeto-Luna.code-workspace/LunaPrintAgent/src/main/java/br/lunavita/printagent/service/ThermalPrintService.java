@@ -1,25 +1,74 @@
 package br.lunavita.printagent.service;
 
+import br.lunavita.printagent.model.PrinterHealth;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.print.*;
 import javax.print.attribute.HashPrintRequestAttributeSet;
 import javax.print.attribute.PrintRequestAttributeSet;
+import javax.print.attribute.standard.PrinterIsAcceptingJobs;
+import javax.print.attribute.standard.QueuedJobCount;
+import java.time.Instant;
 import java.util.Base64;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Serviço de impressão usando javax.print
  * Imprime bytes ESC/POS diretamente na impressora USB
+ *
+ * A impressora resolvida fica em cache: a busca no sistema ({@code lookupPrintServices}, lenta no CUPS)
+ * roda numa thread de fundo a cada {@code refreshIntervalMs} e logo após uma falha de impressão,
+ * não a cada job. A mesma thread lê o estado do spooler (aceitando jobs, fila) para o {@link #health()}.
  */
 public class ThermalPrintService {
 
     private static final Logger log = LoggerFactory.getLogger(ThermalPrintService.class);
 
     private final String printerName;
+    private final long refreshIntervalMs;
+    private final ScheduledExecutorService watcher;
+
+    private volatile PrintService printer;
+    private volatile Boolean acceptingJobs;
+    private volatile Integer queuedJobs;
+    private volatile Instant lastSuccessAt;
+    private volatile Instant lastErrorAt;
+    private volatile String lastError;
 
     public ThermalPrintService(String printerName) {
+        this(printerName, 0);
+    }
+
+    /**
+     * @param refreshIntervalMs intervalo do watcher da impressora (0 = sem watcher, busca só quando preciso)
+     */
+    public ThermalPrintService(String printerName, long refreshIntervalMs) {
         this.printerName = printerName;
+        this.refreshIntervalMs = refreshIntervalMs;
+        this.watcher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "printer-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Resolve a impressora agora e inicia o watcher
+     */
+    public void startWatcher() {
+        refresh();
+        if (refreshIntervalMs > 0) {
+            watcher.scheduleWithFixedDelay(this::refreshQuietly, refreshIntervalMs, refreshIntervalMs,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void stop() {
+        watcher.shutdownNow();
     }
 
     /**
@@ -27,36 +76,92 @@ public class ThermalPrintService {
      */
     public void print(String base64Payload) throws Exception {
         // Decodifica Base64 para bytes ESC/POS
-        byte[] escPosBytes = Base64.getDecoder().decode(base64Payload);
+        print(Base64.getDecoder().decode(base64Payload));
+    }
 
+    /**
+     * Imprime os bytes ESC/POS na impressora
+     */
+    public void print(byte[] escPosBytes) throws Exception {
         // Busca a impressora
         PrintService printer = findPrintService();
         if (printer == null) {
-            throw new Exception("Impressora não encontrada: " + 
-                              (printerName != null ? printerName : "padrão"));
+            String message = "Impressora não encontrada: " + (printerName != null ? printerName : "padrão");
+            recordError(message);
+            throw new Exception(message);
         }
 
         log.info("Imprimindo em: {}", printer.getName());
 
-        // Cria o job de impressão
-        DocPrintJob printJob = printer.createPrintJob();
+        try {
+            // Cria o job de impressão
+            DocPrintJob printJob = printer.createPrintJob();
 
-        // Define o documento (bytes ESC/POS)
-        Doc doc = new SimpleDoc(escPosBytes, DocFlavor.BYTE_ARRAY.AUTOSENSE, null);
+            // Define o documento (bytes ESC/POS)
+            Doc doc = new SimpleDoc(escPosBytes, DocFlavor.BYTE_ARRAY.AUTOSENSE, null);
 
-        // Atributos de impressão
-        PrintRequestAttributeSet attributes = new HashPrintRequestAttributeSet();
+            // Atributos de impressão
+            PrintRequestAttributeSet attributes = new HashPrintRequestAttributeSet();
 
-        // Executa a impressão
-        printJob.print(doc, attributes);
+            // Executa a impressão
+            printJob.print(doc, attributes);
+        } catch (Exception e) {
+            // A impressora em cache pode ter sumido (desconectada, renomeada): busca de novo em background
+            recordError(e.getMessage());
+            this.printer = null;
+            watcher.execute(this::refreshQuietly);
+            throw e;
+        }
 
+        lastSuccessAt = Instant.now();
         log.info("Impressão enviada com sucesso");
     }
 
     /**
-     * Busca a impressora configurada (ou padrão)
+     * Impressora em cache; busca no sistema só se ainda não há uma resolvida
      */
     private PrintService findPrintService() {
+        PrintService cached = printer;
+        return cached != null ? cached : refresh();
+    }
+
+    /**
+     * Busca a impressora no sistema, atualiza o cache e o estado do spooler
+     */
+    public synchronized PrintService refresh() {
+        PrintService found = lookupPrintService();
+        PrintService previous = printer;
+        if (found != null && (previous == null || !Objects.equals(previous.getName(), found.getName()))) {
+            log.info("Impressora resolvida: {}", found.getName());
+        } else if (found == null && previous != null) {
+            log.warn("Impressora {} não está mais disponível", previous.getName());
+        }
+        printer = found;
+
+        if (found != null) {
+            PrinterIsAcceptingJobs accepting = found.getAttribute(PrinterIsAcceptingJobs.class);
+            QueuedJobCount queued = found.getAttribute(QueuedJobCount.class);
+            acceptingJobs = accepting != null ? accepting == PrinterIsAcceptingJobs.ACCEPTING_JOBS : null;
+            queuedJobs = queued != null ? queued.getValue() : null;
+        } else {
+            acceptingJobs = null;
+            queuedJobs = null;
+        }
+        return found;
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (Exception e) {
+            log.warn("Erro ao atualizar impressora: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Busca a impressora configurada (ou padrão)
+     */
+    private PrintService lookupPrintService() {
         PrintService[] printers = PrintServiceLookup.lookupPrintServices(null, null);
 
         if (printers == null || printers.length == 0) {
@@ -68,7 +173,6 @@ public class ThermalPrintService {
         if (printerName == null || printerName.isBlank()) {
             PrintService defaultPrinter = PrintServiceLookup.lookupDefaultPrintService();
             if (defaultPrinter != null) {
-                log.info("Usando impressora padrão: {}", defaultPrinter.getName());
                 return defaultPrinter;
             }
             log.warn("Nenhuma impressora padrão configurada");
@@ -79,7 +183,6 @@ public class ThermalPrintService {
         for (PrintService printer : printers) {
             if (printer.getName().equalsIgnoreCase(printerName) ||
                 printer.getName().contains(printerName)) {
-                log.info("Impressora encontrada: {}", printer.getName());
                 return printer;
             }
         }
@@ -92,6 +195,11 @@ public class ThermalPrintService {
         return null;
     }
 
+    private void recordError(String message) {
+        lastErrorAt = Instant.now();
+        lastError = message;
+    }
+
     /**
      * Verifica se a impressora está disponível
      */
@@ -104,12 +212,28 @@ public class ThermalPrintService {
         }
     }
 
+    /**
+     * Estado atual da impressora (do cache, sem consultar o sistema)
+     */
+    public PrinterHealth health() {
+        PrintService cached = printer;
+        PrinterHealth health = new PrinterHealth();
+        health.setPrinterName(cached != null ? cached.getName() : null);
+        health.setAvailable(cached != null);
+        health.setAcceptingJobs(acceptingJobs);
+        health.setQueuedJobs(queuedJobs);
+        health.setLastSuccessAt(lastSuccessAt != null ? lastSuccessAt.toString() : null);
+        health.setLastErrorAt(lastErrorAt != null ? lastErrorAt.toString() : null);
+        health.setLastError(lastError);
+        return health;
+    }
+
     /**
      * Lista todas as impressoras disponíveis
      */
     public void listAvailablePrinters() {
         PrintService[] printers = PrintServiceLookup.lookupPrintServices(null, null);
-        
+
         if (printers == null || printers.length == 0) {
             log.info("Nenhuma impressora encontrada");
             return;
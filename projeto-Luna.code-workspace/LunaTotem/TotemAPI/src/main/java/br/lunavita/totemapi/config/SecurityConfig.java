@@ -2,6 +2,7 @@ package br.lunavita.totemapi.config;
 
 import java.util.Arrays;
 
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
@@ -53,6 +54,8 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .authorizeHttpRequests(auth -> auth
                 .requestMatchers(HttpMethod.OPTIONS, "/**").permitAll()
+                // Metrics cover every tenant's print queue: administrators only (Bearer token from LunaCore)
+                .requestMatchers(EndpointRequest.to("prometheus")).hasAnyRole("OWNER", "ADMIN")
                 .anyRequest().permitAll()
             )
             // Populate @AuthenticationPrincipal(UserContext) when the client sends a LunaCore-issued Bearer token.
@@ -1,15 +1,24 @@
 package br.lunavita.totemapi.controller;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
@@ -19,15 +28,24 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import br.lunavita.totemapi.dto.AppointmentNotificationRequest;
+import br.lunavita.totemapi.dto.AppointmentPageResponse;
 import br.lunavita.totemapi.model.Appointment;
 import br.lunavita.totemapi.model.AppointmentPaidUpdate;
+import br.lunavita.totemapi.model.AppointmentPatch;
 import br.lunavita.totemapi.model.AppointmentRequest;
 import br.lunavita.totemapi.model.AppointmentStatusUpdate;
 import br.lunavita.totemapi.security.UserContext;
+import br.lunavita.totemapi.service.AppointmentListingService;
+import br.lunavita.totemapi.service.AppointmentPhotoService;
 import br.lunavita.totemapi.service.DataStoreService;
 import br.lunavita.totemapi.service.ReportService;
+import br.lunavita.totemapi.service.TodayAgendaService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 @RestController
 @RequestMapping("/api/appointments")
@@ -35,12 +53,22 @@ public class AppointmentController {
 
     private static final Logger logger = LoggerFactory.getLogger(AppointmentController.class);
 
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
     private final DataStoreService store;
     private final ReportService reportService;
+    private final AppointmentListingService listingService;
+    private final TodayAgendaService todayAgendaService;
+    private final AppointmentPhotoService photoService;
 
-    public AppointmentController(DataStoreService store, ReportService reportService) {
+    public AppointmentController(DataStoreService store, ReportService reportService,
+            AppointmentListingService listingService, TodayAgendaService todayAgendaService,
+            AppointmentPhotoService photoService) {
         this.store = store;
         this.reportService = reportService;
+        this.listingService = listingService;
+        this.todayAgendaService = todayAgendaService;
+        this.photoService = photoService;
     }
 
     @GetMapping
@@ -59,6 +87,97 @@ public class AppointmentController {
         return store.listUpcomingAppointments();
     }
 
+    /**
+     * Listagem paginada por keyset: GET /api/appointments/page?limit=50&cursor=...
+     *
+     * Filtros opcionais: from/to (yyyy-MM-dd), status e order (asc|desc).
+     * Retorna uma projeção leve e {@code nextCursor} para a próxima página.
+     */
+    @GetMapping("/page")
+    public AppointmentPageResponse page(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "asc") String order,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        return page(tenantId, new AppointmentListingService.Filter(from, to, status, isDescending(order)),
+                cursor, limit);
+    }
+
+    /**
+     * Variante paginada de /upcoming (a partir de hoje, data/hora crescente).
+     */
+    @GetMapping("/upcoming/page")
+    public AppointmentPageResponse upcomingPage(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        return page(tenantId, new AppointmentListingService.Filter(LocalDate.now(), to, status, false),
+                cursor, limit);
+    }
+
+    /**
+     * Exportação em streaming (NDJSON, um agendamento por linha) com os mesmos filtros de /page.
+     */
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String status,
+            @RequestParam(defaultValue = "asc") String order,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        AppointmentListingService.Filter filter = new AppointmentListingService.Filter(from, to, status,
+                isDescending(order));
+        StreamingResponseBody body = out -> {
+            long written = listingService.exportNdjson(tenantId, filter, out);
+            logger.info("[EXPORT] {} agendamentos exportados (tenant: {})", written, tenantId);
+        };
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=\"agendamentos.ndjson\"")
+                .contentType(MediaType.parseMediaType(NDJSON_VALUE))
+                .body(body);
+    }
+
+    /**
+     * Agenda do dia em tempo real (SSE) para as telas da recepção: GET /api/appointments/today/stream
+     *
+     * Eventos: {@code snapshot} (agenda completa, na conexão e na virada do dia), {@code upsert}
+     * (agendamento do dia criado/alterado) e {@code remove} (saiu da agenda do dia).
+     */
+    @GetMapping(value = "/today/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter todayStream(@AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        return todayAgendaService.subscribe(tenantId);
+    }
+
+    private AppointmentPageResponse page(String tenantId, AppointmentListingService.Filter filter,
+            String cursor, Integer limit) {
+        try {
+            return listingService.page(tenantId, filter, cursor, limit);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private String requireTenant(UserContext userContext) {
+        if (userContext == null || userContext.getTenantId() == null || userContext.getTenantId().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Tenant information missing: authenticate or include tenantId in request");
+        }
+        return userContext.getTenantId();
+    }
+
+    private boolean isDescending(String order) {
+        return "desc".equalsIgnoreCase(order);
+    }
+
     @GetMapping("/search")
     public List<Appointment> search(@RequestParam("q") String q,
             @AuthenticationPrincipal UserContext userContext) {
@@ -193,10 +312,25 @@ public class AppointmentController {
         }
     }
 
+    /**
+     * Atualiza o status. Com {@code expectedStatus} no corpo a troca é compare-and-set
+     * (ex.: {"status":"CHECKIN","expectedStatus":"AGUARDANDO"}): 409 com o agendamento atual
+     * se o status já era outro.
+     */
     @PutMapping("/{id}/status")
     public ResponseEntity<Appointment> updateStatus(@PathVariable String id,
             @RequestBody AppointmentStatusUpdate update,
             @AuthenticationPrincipal UserContext userContext) {
+        if (update.getExpectedStatus() != null && !update.getExpectedStatus().isBlank()) {
+            String tenantId = requireTenant(userContext);
+            if (update.getStatus() == null || update.getStatus().isBlank()) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Field 'status' is required");
+            }
+            return store.compareAndSetStatus(id, update.getExpectedStatus(), update.getStatus(), tenantId)
+                    .map(transition -> ResponseEntity.status(transition.applied() ? HttpStatus.OK : HttpStatus.CONFLICT)
+                            .body(transition.appointment()))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
         if (userContext != null && userContext.getTenantId() != null && !userContext.getTenantId().isBlank()) {
             return store.updateStatus(id, update.getStatus(), userContext.getTenantId())
                     .map(ResponseEntity::ok)
@@ -243,6 +377,27 @@ public class AppointmentController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Alteração parcial: PATCH /api/appointments/{id} grava apenas os campos enviados.
+     *
+     * Com {@code version} no corpo (valor lido em GET), responde 409 com o agendamento atual
+     * se alguém o alterou nesse meio tempo, em vez de sobrescrever a alteração alheia.
+     */
+    @PatchMapping("/{id}")
+    public ResponseEntity<Appointment> patch(@PathVariable String id, @RequestBody AppointmentPatch patch,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        try {
+            return store.patchAppointment(id, patch, tenantId)
+                    .map(ResponseEntity::ok)
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (ObjectOptimisticLockingFailureException e) {
+            return store.findAppointment(tenantId, id)
+                    .map(current -> ResponseEntity.status(HttpStatus.CONFLICT).body(current))
+                    .orElseGet(() -> ResponseEntity.notFound().build());
+        }
+    }
+
     @DeleteMapping("/{id}")
     public ResponseEntity<?> delete(@PathVariable String id,
             @AuthenticationPrincipal UserContext userContext) {
@@ -261,33 +416,126 @@ public class AppointmentController {
     @PostMapping(value = "/{id}/photo", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Appointment> uploadPhoto(@PathVariable String id, @RequestParam("file") MultipartFile file,
             @AuthenticationPrincipal UserContext userContext) {
-        if (userContext != null && userContext.getTenantId() != null && !userContext.getTenantId().isBlank()) {
-            return store.findAppointment(userContext.getTenantId(), id)
-                    .flatMap(apt -> store.uploadAppointmentPhoto(apt.getId(), file))
+        try {
+            if (userContext != null && userContext.getTenantId() != null && !userContext.getTenantId().isBlank()) {
+                return store.findAppointment(userContext.getTenantId(), id)
+                        .flatMap(apt -> store.uploadAppointmentPhoto(apt.getId(), file))
+                        .map(ResponseEntity::ok)
+                        .orElseGet(() -> ResponseEntity.notFound().build());
+            }
+            return store.uploadAppointmentPhoto(id, file)
                     .map(ResponseEntity::ok)
                     .orElseGet(() -> ResponseEntity.notFound().build());
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
         }
-        return store.uploadAppointmentPhoto(id, file)
-                .map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
-    @GetMapping(value = "/{id}/report", produces = MediaType.APPLICATION_PDF_VALUE)
-    public ResponseEntity<byte[]> getReport(@PathVariable String id,
+    /**
+     * Foto do agendamento na variante pedida: {@code original} (padrão), {@code report} ou {@code thumb}.
+     * Enquanto as variantes são geradas, serve o arquivo enviado.
+     */
+    @GetMapping("/{id}/photo")
+    public void getPhoto(@PathVariable String id,
+            @RequestParam(defaultValue = "original") String variant,
+            @AuthenticationPrincipal UserContext userContext, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        AppointmentPhotoService.Variant photoVariant;
+        try {
+            photoVariant = AppointmentPhotoService.Variant.of(variant);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        Path path = findForUser(id, userContext)
+                .filter(apt -> apt.getPhotoUrl() != null && !apt.getPhotoUrl().isBlank())
+                .map(apt -> photoService.resolve(apt.getPhotoUrl(), photoVariant))
+                .orElse(null);
+        // Nova foto troca o arquivo atrás desta URL: revalida pela ETag
+        FileResponses.serve(path, path == null ? null : path.getFileName().toString(), FileResponses.REVALIDATE,
+                request, response);
+    }
+
+    /**
+     * Estado das variantes e dimensões da foto
+     */
+    @GetMapping("/{id}/photo/info")
+    public ResponseEntity<Map<String, Object>> getPhotoInfo(@PathVariable String id,
             @AuthenticationPrincipal UserContext userContext) {
+        return findForUser(id, userContext)
+                .filter(apt -> apt.getPhotoUrl() != null && !apt.getPhotoUrl().isBlank())
+                .map(apt -> {
+                    Map<String, Object> body = new LinkedHashMap<>();
+                    body.put("photoUrl", apt.getPhotoUrl());
+                    photoService.find(apt.getId())
+                            .filter(photo -> apt.getPhotoUrl().equals(photo.getPhotoUrl()))
+                            .ifPresentOrElse(photo -> {
+                                body.put("status", photo.getStatus());
+                                body.put("width", photo.getWidth());
+                                body.put("height", photo.getHeight());
+                                body.put("uploadBytes", photo.getUploadBytes());
+                                body.put("originalBytes", photo.getOriginalBytes());
+                                body.put("reportBytes", photo.getReportBytes());
+                                body.put("thumbBytes", photo.getThumbBytes());
+                            }, () -> body.put("status", "LEGACY")); // Enviada antes das variantes
+                    return ResponseEntity.ok(body);
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private Optional<Appointment> findForUser(String id, UserContext userContext) {
         if (userContext != null && userContext.getTenantId() != null && !userContext.getTenantId().isBlank()) {
-            return store.findAppointment(userContext.getTenantId(), id)
-                    .map(apt -> ResponseEntity.ok()
-                            .header("Content-Disposition", "inline; filename=\"relatorio-" + id + ".pdf\"")
-                            .contentType(MediaType.APPLICATION_PDF)
-                            .body(reportService.generateAppointmentReport(apt)))
-                    .orElseGet(() -> ResponseEntity.notFound().build());
+            return store.findAppointment(userContext.getTenantId(), id);
         }
-        return store.findAppointment(id)
+        return store.findAppointment(id);
+    }
+
+    @GetMapping(value = "/{id}/report", produces = MediaType.APPLICATION_PDF_VALUE)
+    public ResponseEntity<StreamingResponseBody> getReport(@PathVariable String id,
+            @AuthenticationPrincipal UserContext userContext) {
+        // PDF escrito direto na resposta, sem montar o arquivo inteiro em memória
+        return findForUser(id, userContext)
                 .map(apt -> ResponseEntity.ok()
                         .header("Content-Disposition", "inline; filename=\"relatorio-" + id + ".pdf\"")
                         .contentType(MediaType.APPLICATION_PDF)
-                        .body(reportService.generateAppointmentReport(apt)))
+                        .<StreamingResponseBody>body(out -> reportService.writeAppointmentReport(apt, out)))
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
+
+    /**
+     * Relatórios em lote do período [from, to] (um dia quando {@code to} é omitido):
+     * {@code format=pdf} gera um PDF único, {@code format=zip} um ZIP com um PDF por agendamento.
+     */
+    @GetMapping("/reports")
+    public ResponseEntity<StreamingResponseBody> getBatchReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(defaultValue = "pdf") String format,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        ReportService.BatchFormat batchFormat;
+        List<Appointment> appointments;
+        try {
+            batchFormat = ReportService.BatchFormat.of(format);
+            appointments = reportService.findBatch(tenantId, from, to);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        if (appointments.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Nenhum agendamento no período");
+        }
+
+        String period = to == null || to.equals(from) ? from.toString() : from + "_" + to;
+        logger.info("[REPORT] Lote {} de {} relatórios ({}, tenant: {})", batchFormat, appointments.size(),
+                period, tenantId);
+        if (batchFormat == ReportService.BatchFormat.ZIP) {
+            return ResponseEntity.ok()
+                    .header("Content-Disposition", "attachment; filename=\"relatorios-" + period + ".zip\"")
+                    .contentType(MediaType.parseMediaType("application/zip"))
+                    .body(out -> reportService.writeBatchZip(appointments, out));
+        }
+        return ResponseEntity.ok()
+                .header("Content-Disposition", "attachment; filename=\"relatorios-" + period + ".pdf\"")
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(out -> reportService.writeBatchPdf(appointments, out));
+    }
 }
@@ -44,7 +44,8 @@ public class AsaasPaymentController {
 
         try {
             return ResponseEntity.status(HttpStatus.CREATED)
-                    .body(paymentProxyService.createPixForAppointment(request.appointmentId, userContext, auth));
+                    .body(paymentProxyService.createPixForAppointment(request.appointmentId, userContext, auth,
+                            request.print));
         } catch (IllegalArgumentException e) {
             return ResponseEntity.badRequest().body(java.util.Map.of("error", e.getMessage()));
         } catch (SecurityException e) {
@@ -82,5 +83,7 @@ public class AsaasPaymentController {
 
     public static class PixRequest {
         public String appointmentId;
+        // Imprime a cobrança (QR Code + copia e cola) no totem
+        public boolean print;
     }
 }
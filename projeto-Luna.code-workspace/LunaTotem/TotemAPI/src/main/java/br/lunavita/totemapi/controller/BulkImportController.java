@@ -0,0 +1,120 @@
+package br.lunavita.totemapi.controller;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import br.lunavita.totemapi.dto.BulkImportRowError;
+import br.lunavita.totemapi.dto.BulkImportStatus;
+import br.lunavita.totemapi.security.UserContext;
+import br.lunavita.totemapi.service.BulkImportReader;
+import br.lunavita.totemapi.service.BulkImportService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Importação em lote de pacientes e agendamentos.
+ *
+ * Corpo em NDJSON (um objeto por linha) ou CSV com cabeçalho; o formato vem de {@code ?format=}
+ * ou do Content-Type. A resposta é NDJSON em streaming: uma linha por erro, uma linha de
+ * progresso por lote gravado e, por último, o resumo.
+ */
+@RestController
+@RequestMapping("/api/import")
+public class BulkImportController {
+
+    private static final String NDJSON_VALUE = "application/x-ndjson";
+
+    private final BulkImportService importService;
+    private final ObjectMapper objectMapper;
+    private final ObjectWriter lineWriter;
+
+    public BulkImportController(BulkImportService importService, ObjectMapper objectMapper) {
+        this.importService = importService;
+        this.objectMapper = objectMapper;
+        this.lineWriter = objectMapper.writer();
+    }
+
+    @PostMapping
+    public void importData(@RequestParam(required = false) String format,
+            @AuthenticationPrincipal UserContext userContext,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String tenantId = requireTenant(userContext);
+        boolean csv = isCsv(format, request.getContentType());
+
+        InputStreamReader body = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType(NDJSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+        OutputStream out = response.getOutputStream();
+
+        try (BulkImportReader reader = csv
+                ? BulkImportReader.csv(body, objectMapper)
+                : BulkImportReader.ndjson(body, objectMapper)) {
+            BulkImportStatus summary = importService.importRows(tenantId, reader, new BulkImportService.Listener() {
+                @Override
+                public void onRowError(BulkImportRowError error) {
+                    writeLine(out, error, false);
+                }
+
+                @Override
+                public void onProgress(BulkImportStatus status) {
+                    writeLine(out, status, true);
+                }
+            });
+            writeLine(out, summary, true);
+        } catch (UncheckedIOException e) {
+            // Cliente desconectou no meio da importação: os lotes já gravados permanecem
+            throw e.getCause();
+        }
+    }
+
+    private void writeLine(OutputStream out, Object value, boolean flush) {
+        try {
+            out.write(lineWriter.writeValueAsBytes(value));
+            out.write('\n');
+            if (flush) {
+                out.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean isCsv(String format, String contentType) {
+        if (format != null && !format.isBlank()) {
+            if (format.equalsIgnoreCase("csv")) {
+                return true;
+            }
+            if (format.equalsIgnoreCase("ndjson")) {
+                return false;
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "format deve ser csv ou ndjson");
+        }
+        return contentType != null && contentType.toLowerCase().contains("csv");
+    }
+
+    private String requireTenant(UserContext userContext) {
+        if (userContext == null || userContext.getTenantId() == null || userContext.getTenantId().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Tenant information missing: authenticate or include tenantId in request");
+        }
+        return userContext.getTenantId();
+    }
+}
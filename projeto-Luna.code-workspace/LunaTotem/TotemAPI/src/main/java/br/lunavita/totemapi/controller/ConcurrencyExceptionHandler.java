@@ -0,0 +1,31 @@
+package br.lunavita.totemapi.controller;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+/**
+ * Conflito de versão (@Version) em qualquer rota → 409, em vez de 500.
+ *
+ * Acontece quando outra requisição gravou a entidade entre a leitura e o commit (ex.: PUT concorrente
+ * com um pagamento). O cliente recarrega e tenta de novo. Rotas que devolvem o estado atual no
+ * conflito (PATCH de agendamento) tratam a exceção no próprio controller.
+ */
+@RestControllerAdvice
+public class ConcurrencyExceptionHandler {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConcurrencyExceptionHandler.class);
+
+    @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+    public ResponseEntity<Map<String, String>> handleVersionConflict(ObjectOptimisticLockingFailureException e) {
+        logger.info("[CONFLICT] {} {} alterado por outra requisição", e.getPersistentClassName(), e.getIdentifier());
+        return ResponseEntity.status(HttpStatus.CONFLICT)
+                .body(Map.of("error", "Registro alterado por outra requisição; recarregue e tente novamente"));
+    }
+}
@@ -1,15 +1,15 @@
 package br.lunavita.totemapi.controller;
 
+import br.lunavita.totemapi.service.AppointmentPhotoService;
 import br.lunavita.totemapi.service.FileStorageService;
-import org.springframework.core.io.ByteArrayResource;
-import org.springframework.core.io.Resource;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
 @RestController
@@ -18,26 +18,45 @@ import java.nio.file.Path;
 public class FileController {
 
     private final FileStorageService storage;
+    private final AppointmentPhotoService photoService;
 
-    public FileController(FileStorageService storage) {
+    public FileController(FileStorageService storage, AppointmentPhotoService photoService) {
         this.storage = storage;
+        this.photoService = photoService;
     }
 
+    /**
+     * Arquivos do agendamento. Para fotos, {@code ?variant=original|report|thumb} escolhe a variante
+     * (padrão original, sem EXIF); sem variantes geradas serve o arquivo enviado.
+     *
+     * Aceita Range e If-None-Match. Variantes geradas e auditorias têm timestamp no nome e nunca mudam
+     * (cache de um ano); o arquivo enviado é revalidado, pois a URL passa a servir a variante.
+     */
     @GetMapping("/appointments/{id}/{filename}")
-    public ResponseEntity<Resource> getAppointmentFile(@PathVariable String id, @PathVariable String filename)
-            throws IOException {
+    public void getAppointmentFile(@PathVariable String id, @PathVariable String filename,
+            @RequestParam(required = false) String variant, HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
         String url = "/files/appointments/" + id + "/" + filename;
-        Path path = storage.resolveFromUrl(url);
-        if (!Files.exists(path) || !path.normalize().toFile().isFile()) {
-            return ResponseEntity.notFound().build();
+        Path path;
+        CacheControl cacheControl = FileResponses.IMMUTABLE;
+        if (filename.startsWith("photo-")) {
+            AppointmentPhotoService.Variant photoVariant;
+            try {
+                photoVariant = variant == null ? AppointmentPhotoService.Variant.ORIGINAL
+                        : AppointmentPhotoService.Variant.of(variant);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+            }
+            path = photoService.generated(url, photoVariant);
+            if (path == null) {
+                path = photoService.resolve(url, photoVariant);
+                cacheControl = FileResponses.REVALIDATE;
+            }
+        } else {
+            path = storage.resolveFromUrl(url);
         }
-        byte[] bytes = Files.readAllBytes(path);
-        String contentType = Files.probeContentType(path);
-        if (contentType == null)
-            contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"" + filename + "\"")
-                .contentType(MediaType.parseMediaType(contentType))
-                .body(new ByteArrayResource(bytes));
+        // Nome do arquivo servido (a variante é JPEG mesmo quando a foto enviada era PNG)
+        FileResponses.serve(path, path == null ? null : path.getFileName().toString(), cacheControl, request,
+                response);
     }
 }
@@ -102,8 +102,9 @@ public class PaymentController {
     private void enqueuePaymentReceipt(Appointment appointment, PaymentProcessRequest request) {
         try {
             // Gera o conteúdo ESC/POS do recibo
-            String escPosPayload = receiptGenerator.generatePaymentReceipt(
-                    "Luna Vita", // Nome da clínica (pode vir de config)
+            byte[] escPosPayload = receiptGenerator.generatePaymentReceipt(
+                    appointment.getTenantId(),
+                    ReceiptGeneratorService.DEFAULT_CLINIC_NAME, // Nome da clínica (pode vir de config)
                     appointment.getPatient(),
                     appointment.getCpf(),
                     request.amount != null ? request.amount : appointment.getAmount(),
@@ -116,10 +117,10 @@ public class PaymentController {
 
             // Cria o job de impressão
             CreatePrintJobRequest printJob = CreatePrintJobRequest.builder()
-                    .terminalId(getTerminalId(appointment.getTenantId())) // Identifica o totem
+                    .terminalId(PrintQueueService.totemTerminalId(appointment.getTenantId())) // Identifica o totem
                     .tenantId(appointment.getTenantId())
                     .receiptType("PAYMENT")
-                    .payload(escPosPayload)
+                    .payloadBytes(escPosPayload)
                     .appointmentId(appointment.getId())
                     .priority(0) // Alta prioridade para recibos de pagamento
                     .maxAttempts(5)
@@ -134,15 +135,6 @@ public class PaymentController {
         }
     }
 
-    /**
-     * Determina qual terminal deve imprimir (pode ser configurável)
-     * Por enquanto usa um padrão simples: "TOTEM-" + tenantId
-     */
-    private String getTerminalId(String tenantId) {
-        // TODO: Implementar lógica mais sofisticada se houver múltiplos totems
-        return "TOTEM-" + (tenantId != null ? tenantId : "DEFAULT");
-    }
-
     @GetMapping
     public ResponseEntity<List<Appointment>> list(@AuthenticationPrincipal UserContext userContext) {
         // Mantido por compatibilidade com UI (não expõe dados de pagamento do LunaPay).
@@ -2,15 +2,23 @@ package br.lunavita.totemapi.controller;
 
 import br.lunavita.totemapi.dto.CreatePrintJobRequest;
 import br.lunavita.totemapi.dto.PrintJobResponse;
+import br.lunavita.totemapi.dto.PrintJobSummary;
 import br.lunavita.totemapi.dto.PrintResultRequest;
+import br.lunavita.totemapi.dto.PrinterStatusRequest;
+import br.lunavita.totemapi.model.PrintJob.PrintJobStatus;
+import br.lunavita.totemapi.model.PrinterStatus;
 import br.lunavita.totemapi.security.UserContext;
+import br.lunavita.totemapi.service.PrintJobLongPoll;
 import br.lunavita.totemapi.service.PrintQueueService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
 
 import java.util.List;
 import java.util.Map;
@@ -28,6 +36,7 @@ import java.util.Optional;
 public class PrintQueueController {
 
     private final PrintQueueService printQueueService;
+    private final PrintJobLongPoll printJobLongPoll;
 
     /**
      * Endpoint interno: Adiciona um novo job à fila
@@ -58,6 +67,9 @@ public class PrintQueueController {
             PrintJobResponse response = printQueueService.enqueue(request);
             log.info("Job de impressão enfileirado: {}", response.getId());
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "payload não é Base64 válido"));
         } catch (Exception e) {
             log.error("Erro ao enfileirar job de impressão", e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
@@ -68,16 +80,19 @@ public class PrintQueueController {
     /**
      * Endpoint para o Print Agent: busca o próximo job pendente
      * O Agent chama este endpoint periodicamente para buscar trabalhos
+     * inlineMax (opcional): payloads maiores que isso (bytes) vêm sem Base64, para download binário em /{jobId}/payload
      */
     @GetMapping("/claim-next")
-    public ResponseEntity<?> claimNext(@RequestParam String terminalId) {
+    public ResponseEntity<?> claimNext(
+            @RequestParam String terminalId,
+            @RequestParam(required = false) Integer inlineMax) {
 
         if (terminalId == null || terminalId.isBlank()) {
             return ResponseEntity.badRequest()
                     .body(Map.of("error", "terminalId é obrigatório"));
         }
 
-        Optional<PrintJobResponse> jobOpt = printQueueService.claimNext(terminalId);
+        Optional<PrintJobResponse> jobOpt = printQueueService.claimNext(terminalId, inlinePayloadMax(inlineMax));
 
         if (jobOpt.isEmpty()) {
             // Nenhum job pendente (resposta normal, não é erro)
@@ -87,8 +102,104 @@ public class PrintQueueController {
         return ResponseEntity.ok(jobOpt.get());
     }
 
+    /**
+     * Variante long-poll do claim-next: GET /claim-next?terminalId=X&waitMs=25000
+     * Sem job pendente, a requisição aguarda até um job ser enfileirado para o terminal
+     * (200 com o job) ou até waitMs (204, o agent reconecta).
+     */
+    @GetMapping(value = "/claim-next", params = "waitMs")
+    public DeferredResult<ResponseEntity<PrintJobResponse>> claimNextOrWait(
+            @RequestParam String terminalId,
+            @RequestParam long waitMs,
+            @RequestParam(required = false) Integer inlineMax) {
+
+        if (terminalId == null || terminalId.isBlank()) {
+            DeferredResult<ResponseEntity<PrintJobResponse>> badRequest = new DeferredResult<>();
+            badRequest.setResult(ResponseEntity.badRequest().build());
+            return badRequest;
+        }
+
+        return printJobLongPoll.claimOrWait(terminalId, waitMs, inlinePayloadMax(inlineMax));
+    }
+
+    /**
+     * Endpoint para o Print Agent: reserva até max jobs pendentes de uma vez
+     * POST /claim-batch?terminalId=X&max=10 — 200 com a lista (na ordem da fila) ou 204 se não há jobs
+     */
+    @PostMapping("/claim-batch")
+    public ResponseEntity<?> claimBatch(
+            @RequestParam String terminalId,
+            @RequestParam(defaultValue = "10") int max,
+            @RequestParam(required = false) Integer inlineMax) {
+
+        if (terminalId == null || terminalId.isBlank()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "terminalId é obrigatório"));
+        }
+
+        List<PrintJobResponse> jobs = printQueueService.claimBatch(terminalId, max, inlinePayloadMax(inlineMax));
+
+        if (jobs.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+        }
+
+        return ResponseEntity.ok(jobs);
+    }
+
+    /**
+     * Endpoint para o Print Agent: reporta o resultado de vários jobs numa única transação
+     * Resposta: {"results": {"<jobId>": "PRINTED" | "PENDING" | "FAILED" | "NOT_FOUND" | "STALE"}}
+     * (STALE: o job não está mais reservado para a tentativa informada; o resultado foi descartado)
+     */
+    @PostMapping("/report-batch")
+    public ResponseEntity<?> reportBatch(@RequestBody List<PrintResultRequest> results) {
+
+        if (results == null || results.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Lista de resultados vazia"));
+        }
+
+        if (results.size() > PrintQueueService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Máximo de " + PrintQueueService.MAX_BATCH_SIZE + " resultados por lote"));
+        }
+
+        if (results.stream().anyMatch(r -> r.getJobId() == null || r.getJobId().isBlank())) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "jobId é obrigatório"));
+        }
+
+        return ResponseEntity.ok(Map.of("results", printQueueService.reportBatch(results)));
+    }
+
+    /**
+     * Endpoint para o Print Agent: renova a lease dos jobs que ainda está imprimindo
+     * Corpo: ["<jobId>", ...]. Resposta: {"lost": ["<jobId>", ...]} com os jobs que não são mais do agent
+     */
+    @PostMapping("/heartbeat")
+    public ResponseEntity<?> heartbeat(@RequestBody List<String> jobIds) {
+
+        if (jobIds == null || jobIds.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Lista de jobs vazia"));
+        }
+
+        if (jobIds.size() > PrintQueueService.MAX_HEARTBEAT_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Máximo de " + PrintQueueService.MAX_HEARTBEAT_SIZE + " jobs por heartbeat"));
+        }
+
+        if (jobIds.stream().anyMatch(id -> id == null || id.isBlank())) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "jobId é obrigatório"));
+        }
+
+        return ResponseEntity.ok(Map.of("lost", printQueueService.heartbeat(jobIds)));
+    }
+
     /**
      * Endpoint para o Print Agent: reporta resultado da impressão
+     * 409 se o job não está mais reservado para a tentativa informada ({@code attempt}); o agent descarta
      */
     @PostMapping("/report")
     public ResponseEntity<?> report(@RequestBody PrintResultRequest request) {
@@ -98,27 +209,21 @@ public class PrintQueueController {
                     .body(Map.of("error", "jobId é obrigatório"));
         }
 
-        boolean success;
+        Optional<PrintQueueService.ReportOutcome> outcome = printQueueService.report(request);
+        if (outcome.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Job não encontrado"));
+        }
 
-        if (request.isSuccess()) {
-            success = printQueueService.markPrinted(request.getJobId());
-            if (success) {
-                log.info("Job {} marcado como PRINTED", request.getJobId());
-                return ResponseEntity.ok(Map.of("status", "PRINTED"));
-            }
-        } else {
-            String errorMsg = request.getErrorMessage() != null 
-                    ? request.getErrorMessage() 
-                    : "Erro desconhecido";
-            success = printQueueService.markFailed(request.getJobId(), errorMsg);
-            if (success) {
-                log.warn("Job {} marcado como FAILED: {}", request.getJobId(), errorMsg);
-                return ResponseEntity.ok(Map.of("status", "FAILED"));
-            }
+        if (!outcome.get().applied()) {
+            // Reserva não vale mais (lease vencida, job cancelado/finalizado): o agent descarta o resultado
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Resultado obsoleto: o job não está mais reservado para esta tentativa",
+                            "status", outcome.get().status().name()));
         }
 
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(Map.of("error", "Job não encontrado"));
+        // Falha com retry agendado também responde FAILED (contrato dos agents existentes)
+        return ResponseEntity.ok(Map.of("status", request.isSuccess() ? "PRINTED" : "FAILED"));
     }
 
     /**
@@ -163,39 +268,124 @@ public class PrintQueueController {
         return ResponseEntity.ok(jobOpt.get());
     }
 
+    /**
+     * Download binário do conteúdo ESC/POS (application/octet-stream)
+     * Com Accept-Encoding: gzip, o conteúdo vai comprimido como está armazenado (Content-Encoding: gzip)
+     */
+    @GetMapping("/{jobId}/payload")
+    public ResponseEntity<?> getPayload(
+            @PathVariable String jobId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+
+        boolean acceptGzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        Optional<PrintQueueService.Payload> payloadOpt = printQueueService.findPayload(jobId, acceptGzip);
+
+        if (payloadOpt.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Job não encontrado"));
+        }
+
+        PrintQueueService.Payload payload = payloadOpt.get();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (payload.gzipped()) {
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(payload.data());
+    }
+
     /**
      * Cancela um job
      */
     @PostMapping("/{jobId}/cancel")
     public ResponseEntity<?> cancelJob(@PathVariable String jobId) {
-        boolean success = printQueueService.cancel(jobId);
-        
-        if (!success) {
+        Optional<PrintJobStatus> status = printQueueService.cancel(jobId);
+
+        if (status.isEmpty()) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
                     .body(Map.of("error", "Job não encontrado"));
         }
 
+        if (status.get() != PrintJobStatus.CANCELED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Job já finalizado", "status", status.get().name()));
+        }
+
         return ResponseEntity.ok(Map.of("status", "CANCELED"));
     }
 
     /**
-     * Lista todos os jobs de um tenant (admin)
+     * Histórico de impressão do tenant (admin), paginado por keyset:
+     * GET /history?limit=50&cursor=...&terminalId=X (terminalId opcional)
+     * Inclui os jobs já arquivados; {@code nextCursor} é nulo na última página.
+     */
+    @GetMapping("/history")
+    public ResponseEntity<?> history(
+            @RequestParam(required = false) String terminalId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @AuthenticationPrincipal UserContext userContext) {
+
+        if (userContext == null || userContext.getTenantId() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        try {
+            return ResponseEntity.ok(printQueueService.history(userContext.getTenantId(), terminalId, cursor, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Jobs mais recentes do tenant (admin): primeira página de /history
      */
     @GetMapping("/tenant")
-    public ResponseEntity<List<PrintJobResponse>> listByTenant(
+    public ResponseEntity<List<PrintJobSummary>> listByTenant(
+            @RequestParam(required = false) Integer limit,
             @AuthenticationPrincipal UserContext userContext) {
 
         if (userContext == null || userContext.getTenantId() == null) {
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
         }
 
-        List<PrintJobResponse> jobs = printQueueService.listByTenant(userContext.getTenantId());
-        return ResponseEntity.ok(jobs);
+        return ResponseEntity.ok(printQueueService.history(userContext.getTenantId(), null, null, limit).items());
+    }
+
+    /**
+     * Endpoint para o Print Agent: informa o estado da impressora do terminal
+     */
+    @PutMapping("/printer-status")
+    public ResponseEntity<?> updatePrinterStatus(@RequestBody PrinterStatusRequest request) {
+
+        if (request.getTerminalId() == null || request.getTerminalId().isBlank()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "terminalId é obrigatório"));
+        }
+
+        return ResponseEntity.ok(printQueueService.updatePrinterStatus(request));
+    }
+
+    /**
+     * Último estado da impressora informado pelo agent do terminal
+     */
+    @GetMapping("/printer-status")
+    public ResponseEntity<?> getPrinterStatus(@RequestParam String terminalId) {
+        Optional<PrinterStatus> status = printQueueService.findPrinterStatus(terminalId);
+
+        if (status.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Nenhum estado de impressora informado para o terminal"));
+        }
+
+        return ResponseEntity.ok(status.get());
     }
 
     /**
      * Endpoint de manutenção: libera jobs travados
-     * Jobs que ficaram em PRINTING por mais de X minutos
+     * Jobs que ficaram em PRINTING por mais de X minutos, mesmo com lease ativa
      */
     @PostMapping("/maintenance/release-stale")
     public ResponseEntity<?> releaseStaleJobs(
@@ -208,4 +398,8 @@ public class PrintQueueController {
                 "message", released + " jobs foram liberados"
         ));
     }
+
+    private static int inlinePayloadMax(Integer inlineMax) {
+        return inlineMax != null ? Math.max(0, inlineMax) : Integer.MAX_VALUE;
+    }
 }
@@ -0,0 +1,169 @@
+package br.lunavita.totemapi.controller;
+
+import br.lunavita.totemapi.dto.ReceiptLayoutRequest;
+import br.lunavita.totemapi.model.ReceiptLayout;
+import br.lunavita.totemapi.model.ReceiptLogo;
+import br.lunavita.totemapi.security.UserContext;
+import br.lunavita.totemapi.service.receipt.ReceiptField;
+import br.lunavita.totemapi.service.receipt.ReceiptLogos;
+import br.lunavita.totemapi.service.receipt.ReceiptTemplates;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Controller REST dos layouts de recibo do tenant (PAYMENT, CHECKIN, PIX) e do logo impresso no
+ * topo ({@code @logo}). A sintaxe do layout está em {@link br.lunavita.totemapi.service.receipt.ReceiptTemplate}.
+ */
+@RestController
+@RequestMapping("/api/receipt-layouts")
+@CrossOrigin(origins = "*")
+@RequiredArgsConstructor
+@Slf4j
+public class ReceiptLayoutController {
+
+    private final ReceiptTemplates receiptTemplates;
+    private final ReceiptLogos receiptLogos;
+
+    /**
+     * Logo do tenant como enviado
+     */
+    @GetMapping("/logo")
+    @PreAuthorize("hasAnyRole('ADMINISTRACAO', 'OWNER', 'ADMIN', 'FINANCE')")
+    public ResponseEntity<?> getLogo(@AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        Optional<ReceiptLogo> logo = receiptLogos.find(tenantId);
+        if (logo.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Tenant não tem logo"));
+        }
+        String contentType = logo.get().getContentType();
+        return ResponseEntity.ok()
+                .contentType(contentType != null ? MediaType.parseMediaType(contentType)
+                        : MediaType.APPLICATION_OCTET_STREAM)
+                .body(logo.get().getImage());
+    }
+
+    /**
+     * Envia o logo do tenant (PNG, JPEG, GIF ou BMP até 1 MB). Vale para todos os recibos cujo layout
+     * tem {@code @logo}.
+     */
+    @PutMapping("/logo")
+    @PreAuthorize("hasAnyRole('ADMINISTRACAO', 'OWNER', 'ADMIN', 'FINANCE')")
+    public ResponseEntity<?> saveLogo(@RequestParam("file") MultipartFile file,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        try {
+            ReceiptLogo saved = receiptLogos.save(tenantId, file.getBytes(), file.getContentType());
+            return ResponseEntity.ok(Map.of(
+                    "tenantId", saved.getTenantId(),
+                    "size", saved.getImage().length,
+                    "updatedAt", String.valueOf(saved.getUpdatedAt())));
+        } catch (IllegalArgumentException e) {
+            log.warn("[RECEIPT] Logo rejeitado para o tenant {}: {}", tenantId, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IOException e) {
+            log.error("[RECEIPT] Falha ao ler logo enviado: {}", e.getMessage(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Falha ao ler arquivo"));
+        }
+    }
+
+    /**
+     * Remove o logo: os recibos passam a sair sem logo
+     */
+    @DeleteMapping("/logo")
+    @PreAuthorize("hasAnyRole('ADMINISTRACAO', 'OWNER', 'ADMIN', 'FINANCE')")
+    public ResponseEntity<?> deleteLogo(@AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        if (!receiptLogos.delete(tenantId)) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "Tenant não tem logo"));
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    /**
+     * Layout em uso pelo tenant: o personalizado, ou o padrão ({@code custom=false})
+     */
+    @GetMapping("/{receiptType}")
+    @PreAuthorize("hasAnyRole('ADMINISTRACAO', 'OWNER', 'ADMIN', 'FINANCE')")
+    public ResponseEntity<?> getLayout(@PathVariable String receiptType,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        try {
+            Optional<ReceiptLayout> custom = receiptTemplates.findLayout(tenantId, receiptType);
+            Map<String, Object> body = new LinkedHashMap<>();
+            body.put("receiptType", receiptType.toUpperCase());
+            body.put("custom", custom.isPresent());
+            body.put("layout", custom.map(ReceiptLayout::getLayout)
+                    .orElseGet(() -> receiptTemplates.defaultLayout(receiptType)));
+            body.put("columns", custom.map(ReceiptLayout::getColumns)
+                    .orElse(receiptTemplates.getDefaultColumns()));
+            body.put("codepage", custom.map(ReceiptLayout::getCodepage)
+                    .orElse(receiptTemplates.getDefaultCodepage().name()));
+            body.put("nativeQr", custom.map(ReceiptLayout::getNativeQr)
+                    .orElse(receiptTemplates.isDefaultNativeQr()));
+            body.put("fields", Arrays.stream(ReceiptField.values()).map(ReceiptField::slot).toList());
+            return ResponseEntity.ok(body);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Personaliza o layout do tenant. O layout é compilado antes de gravar: erro de sintaxe volta 400
+     * com a linha do problema.
+     */
+    @PutMapping("/{receiptType}")
+    @PreAuthorize("hasAnyRole('ADMINISTRACAO', 'OWNER', 'ADMIN', 'FINANCE')")
+    public ResponseEntity<?> saveLayout(@PathVariable String receiptType,
+            @RequestBody ReceiptLayoutRequest request,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        try {
+            return ResponseEntity.ok(receiptTemplates.saveLayout(tenantId, receiptType, request));
+        } catch (IllegalArgumentException e) {
+            log.warn("[RECEIPT] Layout {} rejeitado para o tenant {}: {}", receiptType, tenantId, e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Volta o tenant ao layout padrão
+     */
+    @DeleteMapping("/{receiptType}")
+    @PreAuthorize("hasAnyRole('ADMINISTRACAO', 'OWNER', 'ADMIN', 'FINANCE')")
+    public ResponseEntity<?> deleteLayout(@PathVariable String receiptType,
+            @AuthenticationPrincipal UserContext userContext) {
+        String tenantId = requireTenant(userContext);
+        try {
+            if (!receiptTemplates.deleteLayout(tenantId, receiptType)) {
+                return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(Map.of("error", "Tenant não tem layout personalizado"));
+            }
+            return ResponseEntity.noContent().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    private String requireTenant(UserContext userContext) {
+        if (userContext == null || userContext.getTenantId() == null || userContext.getTenantId().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Tenant information missing: authenticate or include tenantId in request");
+        }
+        return userContext.getTenantId();
+    }
+}
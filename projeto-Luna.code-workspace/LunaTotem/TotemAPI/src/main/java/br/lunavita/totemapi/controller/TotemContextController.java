@@ -1,11 +1,23 @@
 package br.lunavita.totemapi.controller;
 
+import br.lunavita.totemapi.dto.PatientByCpfResponse;
+import br.lunavita.totemapi.dto.TotemCheckinResponse;
+import br.lunavita.totemapi.model.Patient;
 import br.lunavita.totemapi.security.UserContext;
+import br.lunavita.totemapi.service.DataAccessAuditService;
+import br.lunavita.totemapi.service.TotemCheckinService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -18,6 +30,14 @@ import java.util.Map;
 @RequestMapping("/api/totem")
 public class TotemContextController {
 
+    private final TotemCheckinService checkinService;
+    private final DataAccessAuditService auditService;
+
+    public TotemContextController(TotemCheckinService checkinService, DataAccessAuditService auditService) {
+        this.checkinService = checkinService;
+        this.auditService = auditService;
+    }
+
     /**
      * Example endpoint showing how to access UserContext
      * via @AuthenticationPrincipal.
@@ -64,4 +84,74 @@ public class TotemContextController {
 
         return ResponseEntity.ok(response);
     }
+
+    /**
+     * Check-in no totem numa única chamada: GET /api/totem/checkin?cpf=XXXXXXXXXXX[&paymentId=...]
+     *
+     * Retorna o paciente, os agendamentos do dia e os não pagos; com {@code paymentId} (PIX em
+     * andamento no totem) inclui também o status do pagamento no LunaPay.
+     */
+    @GetMapping("/checkin")
+    public ResponseEntity<?> checkin(@RequestParam String cpf,
+            @RequestParam(required = false) String paymentId,
+            @AuthenticationPrincipal UserContext userContext,
+            HttpServletRequest request) {
+        String tenantId = requireTenant(userContext);
+        if (cpf.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Missing required parameter: cpf");
+        }
+
+        TotemCheckinService.Checkin checkin = checkinService.lookup(tenantId, cpf.trim(), paymentId, userContext,
+                request.getHeader(HttpHeaders.AUTHORIZATION));
+        if (checkin.isEmpty()) {
+            return ResponseEntity.status(404)
+                    .body(Map.of("error", "Paciente não encontrado para o CPF informado"));
+        }
+
+        PatientByCpfResponse patient = null;
+        if (checkin.patient().isPresent()) {
+            Patient found = checkin.patient().get();
+            auditService.logPatientRead(found.getId(), getUserEmail(), getUserRole(),
+                    getIpAddress(request), getUserAgent(request));
+            patient = new PatientByCpfResponse(found.getId(), found.getName(), found.getEmail(), found.getCpf(),
+                    found.getPhone());
+        }
+
+        return ResponseEntity.ok(new TotemCheckinResponse(patient, checkin.today(), checkin.unpaid(),
+                checkin.payment(), checkin.paymentError()));
+    }
+
+    private String requireTenant(UserContext userContext) {
+        if (userContext == null || userContext.getTenantId() == null || userContext.getTenantId().isBlank()) {
+            throw new ResponseStatusException(HttpStatus.UNAUTHORIZED,
+                    "Tenant information missing: authenticate or include tenantId in request");
+        }
+        return userContext.getTenantId();
+    }
+
+    // Métodos auxiliares para auditoria
+    private String getUserEmail() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        return auth != null ? auth.getName() : "anonymous";
+    }
+
+    private String getUserRole() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.getAuthorities() != null && !auth.getAuthorities().isEmpty()) {
+            return auth.getAuthorities().iterator().next().getAuthority();
+        }
+        return "UNKNOWN";
+    }
+
+    private String getIpAddress(HttpServletRequest request) {
+        String ip = request.getHeader("X-Forwarded-For");
+        if (ip == null || ip.isEmpty()) {
+            ip = request.getRemoteAddr();
+        }
+        return ip;
+    }
+
+    private String getUserAgent(HttpServletRequest request) {
+        return request.getHeader("User-Agent");
+    }
 }
@@ -0,0 +1,41 @@
+package br.lunavita.totemapi.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor opaco da paginação por keyset (scheduled_at, id) dos agendamentos.
+ *
+ * Codificado em Base64 URL-safe para que o cliente apenas o repasse de volta em {@code cursor}.
+ */
+public record AppointmentCursor(LocalDateTime scheduledAt, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static AppointmentCursor of(AppointmentSummary last) {
+        return new AppointmentCursor(last.scheduledAt(), last.id());
+    }
+
+    public String encode() {
+        String raw = scheduledAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o cursor não foi gerado por {@link #encode()}
+     */
+    public static AppointmentCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new AppointmentCursor(LocalDateTime.parse(parts[0]), parts[1]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package br.lunavita.totemapi.dto;
+
+import java.util.List;
+
+/**
+ * Página de agendamentos (paginação por keyset).
+ *
+ * {@code nextCursor} é nulo quando não há mais itens.
+ */
+public record AppointmentPageResponse(List<AppointmentSummary> items, String nextCursor, boolean hasMore, int limit) {
+}
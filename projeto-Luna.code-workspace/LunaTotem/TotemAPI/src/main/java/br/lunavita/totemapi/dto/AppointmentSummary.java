@@ -0,0 +1,36 @@
+package br.lunavita.totemapi.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+
+import br.lunavita.totemapi.model.Appointment;
+
+/**
+ * Projeção leve de agendamento para listagens paginadas e exportação
+ * (sem e-mail, foto e demais campos que só a tela de detalhe usa).
+ */
+public record AppointmentSummary(
+        String id,
+        String patientId,
+        String patient,
+        String cpf,
+        String doctorId,
+        String doctor,
+        String specialty,
+        String type,
+        @JsonFormat(pattern = "yyyy-MM-dd") LocalDate date,
+        String time,
+        LocalDateTime scheduledAt,
+        String status,
+        boolean paid,
+        BigDecimal amount) {
+
+    public static AppointmentSummary of(Appointment a) {
+        return new AppointmentSummary(a.getId(), a.getPatientId(), a.getPatient(), a.getCpf(), a.getDoctorId(),
+                a.getDoctor(), a.getSpecialty(), a.getType(), a.getDate(), a.getTime(), a.getScheduledAt(),
+                a.getStatus(), a.isPaid(), a.getAmount());
+    }
+}
@@ -0,0 +1,39 @@
+package br.lunavita.totemapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+
+/**
+ * Uma linha da importação em lote (NDJSON ou CSV).
+ *
+ * Os campos chegam como texto e são validados pelo {@code BulkImportService}. Uma linha pode
+ * trazer só o paciente (sem {@code date}), só o agendamento (paciente já existente, localizado
+ * pelo CPF) ou ambos. Com {@code id}, o agendamento é atualizado se já existir no tenant.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record BulkImportRow(
+        String id,
+        String cpf,
+        String name,
+        String phone,
+        String email,
+        String birthDate,
+        String address,
+        String healthPlan,
+        String date,
+        String time,
+        String type,
+        String amount,
+        String paid,
+        String status,
+        String doctorId,
+        String doctor,
+        String specialty) {
+
+    public boolean hasPatientData() {
+        return name != null && !name.isBlank();
+    }
+
+    public boolean hasAppointmentData() {
+        return date != null && !date.isBlank();
+    }
+}
@@ -0,0 +1,13 @@
+package br.lunavita.totemapi.dto;
+
+/**
+ * Erro de uma linha da importação em lote (a linha é descartada, as demais seguem).
+ *
+ * @param line número da linha no arquivo (1 = primeira linha; no CSV conta o cabeçalho)
+ */
+public record BulkImportRowError(String type, long line, String message) {
+
+    public static BulkImportRowError of(long line, String message) {
+        return new BulkImportRowError("error", line, message);
+    }
+}
@@ -0,0 +1,17 @@
+package br.lunavita.totemapi.dto;
+
+/**
+ * Progresso (a cada lote) e resumo final da importação em lote.
+ *
+ * @param type "progress" ou "summary"
+ */
+public record BulkImportStatus(
+        String type,
+        long rows,
+        long patientsCreated,
+        long patientsUpdated,
+        long appointmentsCreated,
+        long appointmentsUpdated,
+        long errors,
+        long elapsedMs) {
+}
@@ -1,5 +1,6 @@
 package br.lunavita.totemapi.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -34,6 +35,12 @@ public class CreatePrintJobRequest {
      */
     private String payload;
 
+    /**
+     * Conteúdo ESC/POS em bytes, para enfileiramento interno (dispensa o Base64; tem precedência sobre payload)
+     */
+    @JsonIgnore
+    private byte[] payloadBytes;
+
     /**
      * Referência ao agendamento (opcional)
      */
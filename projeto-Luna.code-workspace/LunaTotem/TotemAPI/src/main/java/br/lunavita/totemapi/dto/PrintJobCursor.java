@@ -0,0 +1,41 @@
+package br.lunavita.totemapi.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Cursor opaco da paginação por keyset (created_at, id) do histórico de impressão.
+ *
+ * Codificado em Base64 URL-safe para que o cliente apenas o repasse de volta em {@code cursor}.
+ */
+public record PrintJobCursor(Instant createdAt, String id) {
+
+    private static final String SEPARATOR = "|";
+
+    public static PrintJobCursor of(PrintJobSummary last) {
+        return new PrintJobCursor(last.createdAt(), last.id());
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException se o cursor não foi gerado por {@link #encode()}
+     */
+    public static PrintJobCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+            return new PrintJobCursor(Instant.parse(parts[0]), parts[1]);
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Cursor inválido", e);
+        }
+    }
+}
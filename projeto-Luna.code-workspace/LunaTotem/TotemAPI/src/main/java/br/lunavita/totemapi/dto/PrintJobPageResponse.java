@@ -0,0 +1,11 @@
+package br.lunavita.totemapi.dto;
+
+import java.util.List;
+
+/**
+ * Página do histórico de impressão (paginação por keyset, fila e arquivo juntos).
+ *
+ * {@code nextCursor} é nulo quando não há mais itens.
+ */
+public record PrintJobPageResponse(List<PrintJobSummary> items, String nextCursor, boolean hasMore, int limit) {
+}
@@ -21,7 +21,15 @@ public class PrintJobResponse {
     private String tenantId;
     private String receiptType;
     private String status;
+    /**
+     * ESC/POS em Base64; null quando o agent pediu inlineMax menor que payloadSize
+     * (baixar por GET /api/print-queue/{id}/payload)
+     */
     private String payload;
+    private Integer payloadSize;
+    /**
+     * Tentativa atual; no claim identifica a reserva e volta no resultado ({@code PrintResultRequest.attempt})
+     */
     private Integer attempts;
     private Integer maxAttempts;
     private String error;
@@ -33,4 +41,6 @@ public class PrintJobResponse {
     private Instant updatedAt;
     private Instant printedAt;
     private Instant lastAttemptAt;
+    private Instant leaseExpiresAt;
+    private Instant nextAttemptAt;
 }
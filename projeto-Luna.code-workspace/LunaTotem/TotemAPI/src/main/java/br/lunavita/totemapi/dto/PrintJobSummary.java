@@ -0,0 +1,26 @@
+package br.lunavita.totemapi.dto;
+
+import java.time.Instant;
+
+import br.lunavita.totemapi.model.PrintJob.PrintJobStatus;
+
+/**
+ * Projeção de job de impressão para o histórico paginado (sem o conteúdo ESC/POS).
+ *
+ * {@code archived} indica que o job já saiu da fila (print_jobs_archive).
+ */
+public record PrintJobSummary(
+        String id,
+        String terminalId,
+        String receiptType,
+        PrintJobStatus status,
+        Integer attempts,
+        Integer maxAttempts,
+        String error,
+        String appointmentId,
+        String paymentId,
+        Integer payloadSize,
+        Instant createdAt,
+        Instant printedAt,
+        boolean archived) {
+}
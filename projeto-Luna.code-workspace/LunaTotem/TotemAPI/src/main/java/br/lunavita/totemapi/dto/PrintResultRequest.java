@@ -19,6 +19,12 @@ public class PrintResultRequest {
      */
     private String jobId;
 
+    /**
+     * Tentativa recebida no claim ({@code attempts} do job entregue). O resultado só é aplicado se o job
+     * ainda estiver reservado nessa tentativa; ausente (agents antigos), só o status PRINTING é conferido.
+     */
+    private Integer attempt;
+
     /**
      * Se a impressão foi bem-sucedida
      */
@@ -28,4 +34,12 @@ public class PrintResultRequest {
      * Mensagem de erro (se houver)
      */
     private String errorMessage;
+
+    /**
+     * Tempos locais do agent, em ms (opcionais; usados só nas métricas):
+     * decodificação/download do conteúdo, gravação no spool e escrita na impressora
+     */
+    private Long decodeMs;
+    private Long spoolMs;
+    private Long printMs;
 }
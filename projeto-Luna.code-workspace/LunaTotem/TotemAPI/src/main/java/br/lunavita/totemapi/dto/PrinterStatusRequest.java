@@ -0,0 +1,37 @@
+package br.lunavita.totemapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Request do Print Agent com o estado da impressora do terminal
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrinterStatusRequest {
+
+    private String terminalId;
+
+    /**
+     * Impressora resolvida pelo agent (nula se nenhuma foi encontrada)
+     */
+    private String printerName;
+
+    private boolean available;
+
+    private Boolean acceptingJobs;
+
+    private Integer queuedJobs;
+
+    private Instant lastSuccessAt;
+
+    private Instant lastErrorAt;
+
+    private String lastError;
+}
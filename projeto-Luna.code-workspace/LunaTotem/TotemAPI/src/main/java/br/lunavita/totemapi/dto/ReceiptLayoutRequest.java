@@ -0,0 +1,36 @@
+package br.lunavita.totemapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Request para personalizar o layout de um tipo de recibo do tenant
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptLayoutRequest {
+
+    /**
+     * Texto do layout (opcional: sem ele vale o layout padrão)
+     */
+    private String layout;
+
+    /**
+     * Colunas do papel em fonte normal (opcional: padrão da instalação)
+     */
+    private Integer columns;
+
+    /**
+     * Página de código: CP860 ou CP850 (opcional: padrão da instalação)
+     */
+    private String codepage;
+
+    /**
+     * Se a impressora gera QR Code nativamente (opcional: padrão da instalação); false = QR rasterizado
+     */
+    private Boolean nativeQr;
+}
@@ -0,0 +1,23 @@
+package br.lunavita.totemapi.dto;
+
+import java.util.List;
+
+import br.lunavita.totemapi.integration.lunapay.dto.LunaPayPaymentStatusResponse;
+
+/**
+ * Resposta do check-in no totem: tudo que a tela de identificação precisa numa única chamada.
+ *
+ * @param patient      paciente do tenant com o CPF informado (nulo se só existir agendamento)
+ * @param today        agendamentos do dia, em ordem de horário
+ * @param unpaid       agendamentos não pagos (qualquer data), em ordem de horário
+ * @param payment      status no LunaPay do pagamento informado em {@code paymentId} (nulo se não
+ *                     informado ou indisponível)
+ * @param paymentError motivo de {@code payment} estar ausente quando {@code paymentId} foi informado
+ */
+public record TotemCheckinResponse(
+        PatientByCpfResponse patient,
+        List<AppointmentSummary> today,
+        List<AppointmentSummary> unpaid,
+        LunaPayPaymentStatusResponse payment,
+        String paymentError) {
+}
@@ -0,0 +1,33 @@
+package br.lunavita.totemapi.event;
+
+import br.lunavita.totemapi.model.Appointment;
+
+/**
+ * Evento publicado sempre que um agendamento é criado, alterado ou removido.
+ *
+ * Carrega uma cópia desacoplada da entidade (nunca a instância gerenciada pelo
+ * Hibernate), para que possa ser consumida com segurança após o commit.
+ */
+public record AppointmentChangedEvent(Type type, Appointment appointment) {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    public String tenantId() {
+        return appointment.getTenantId();
+    }
+
+    public String appointmentId() {
+        return appointment.getId();
+    }
+
+    public static AppointmentChangedEvent saved(Appointment appointment) {
+        return new AppointmentChangedEvent(Type.SAVED, appointment.copy());
+    }
+
+    public static AppointmentChangedEvent deleted(Appointment appointment) {
+        return new AppointmentChangedEvent(Type.DELETED, appointment.copy());
+    }
+}
@@ -0,0 +1,35 @@
+package br.lunavita.totemapi.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import br.lunavita.totemapi.model.Appointment;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Listener JPA que transforma o ciclo de vida de {@link Appointment} em eventos Spring.
+ *
+ * Captura todos os caminhos de escrita (DataStoreService, webhooks GHL/CRM, seed, scheduler)
+ * sem que cada serviço precise lembrar de notificar os índices em memória.
+ * Instanciado pelo Hibernate via SpringBeanContainer (injeção por construtor).
+ */
+public class AppointmentEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public AppointmentEntityListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Appointment appointment) {
+        publisher.publishEvent(AppointmentChangedEvent.saved(appointment));
+    }
+
+    @PostRemove
+    public void onRemoved(Appointment appointment) {
+        publisher.publishEvent(AppointmentChangedEvent.deleted(appointment));
+    }
+}
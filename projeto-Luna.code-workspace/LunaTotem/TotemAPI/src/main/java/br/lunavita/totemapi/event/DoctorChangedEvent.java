@@ -0,0 +1,13 @@
+package br.lunavita.totemapi.event;
+
+import br.lunavita.totemapi.model.Doctor;
+
+/**
+ * Evento publicado sempre que um médico é criado, alterado ou removido.
+ */
+public record DoctorChangedEvent(String tenantId, String doctorId) {
+
+    public static DoctorChangedEvent of(Doctor doctor) {
+        return new DoctorChangedEvent(doctor.getTenantId(), doctor.getId());
+    }
+}
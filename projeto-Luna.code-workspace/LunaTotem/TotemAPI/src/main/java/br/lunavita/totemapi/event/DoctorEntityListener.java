@@ -0,0 +1,28 @@
+package br.lunavita.totemapi.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import br.lunavita.totemapi.model.Doctor;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Listener JPA que publica {@link DoctorChangedEvent} em qualquer escrita de {@link Doctor}
+ * (DataStoreService, seed), mantendo o cache de médicos coerente.
+ */
+public class DoctorEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public DoctorEntityListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChanged(Doctor doctor) {
+        publisher.publishEvent(DoctorChangedEvent.of(doctor));
+    }
+}
@@ -0,0 +1,26 @@
+package br.lunavita.totemapi.event;
+
+import br.lunavita.totemapi.model.Patient;
+
+/**
+ * Evento publicado sempre que um paciente é criado, alterado ou removido.
+ *
+ * Contém apenas os campos usados pelos índices em memória (nome e CPF).
+ */
+public record PatientChangedEvent(Type type, String tenantId, String patientId, String name, String cpf) {
+
+    public enum Type {
+        SAVED,
+        DELETED
+    }
+
+    public static PatientChangedEvent saved(Patient patient) {
+        return new PatientChangedEvent(Type.SAVED, patient.getTenantId(), patient.getId(),
+                patient.getName(), patient.getCpf());
+    }
+
+    public static PatientChangedEvent deleted(Patient patient) {
+        return new PatientChangedEvent(Type.DELETED, patient.getTenantId(), patient.getId(),
+                patient.getName(), patient.getCpf());
+    }
+}
@@ -0,0 +1,31 @@
+package br.lunavita.totemapi.event;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import br.lunavita.totemapi.model.Patient;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * Listener JPA que publica {@link PatientChangedEvent} a cada escrita de {@link Patient}.
+ */
+public class PatientEntityListener {
+
+    private final ApplicationEventPublisher publisher;
+
+    public PatientEntityListener(ApplicationEventPublisher publisher) {
+        this.publisher = publisher;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onSaved(Patient patient) {
+        publisher.publishEvent(PatientChangedEvent.saved(patient));
+    }
+
+    @PostRemove
+    public void onRemoved(Patient patient) {
+        publisher.publishEvent(PatientChangedEvent.deleted(patient));
+    }
+}
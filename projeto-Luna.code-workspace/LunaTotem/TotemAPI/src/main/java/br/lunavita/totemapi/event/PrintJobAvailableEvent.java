@@ -0,0 +1,16 @@
+package br.lunavita.totemapi.event;
+
+import java.time.Instant;
+
+/**
+ * Evento publicado quando um terminal passa a ter job pendente (novo job, retry após falha
+ * ou job travado liberado). Acorda os Print Agents aguardando em long-poll.
+ *
+ * {@code availableAt} é o momento em que o job pode ser reservado (retry com backoff); nulo = já.
+ */
+public record PrintJobAvailableEvent(String terminalId, Instant availableAt) {
+
+    public PrintJobAvailableEvent(String terminalId) {
+        this(terminalId, null);
+    }
+}
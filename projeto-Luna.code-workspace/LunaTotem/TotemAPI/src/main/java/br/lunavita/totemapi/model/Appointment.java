@@ -1,15 +1,35 @@
 package br.lunavita.totemapi.model;
 
 import java.math.BigDecimal;
+import java.time.DateTimeException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 
+import org.hibernate.annotations.DynamicUpdate;
+
+import br.lunavita.totemapi.event.AppointmentEntityListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
-@Table(name = "appointments")
+@Table(name = "appointments", indexes = {
+        @Index(name = "idx_appointments_tenant_scheduled", columnList = "tenant_id, scheduled_at, id"),
+        @Index(name = "idx_appointments_tenant_paid_scheduled", columnList = "tenant_id, paid, scheduled_at"),
+        @Index(name = "idx_appointments_tenant_patient_scheduled", columnList = "tenant_id, patient_id, scheduled_at"),
+        @Index(name = "idx_appointments_tenant_status_scheduled", columnList = "tenant_id, status, scheduled_at"),
+        @Index(name = "idx_appointments_tenant_cpf", columnList = "tenant_id, cpf"),
+        @Index(name = "idx_appointments_scheduled", columnList = "scheduled_at")
+})
+@EntityListeners(AppointmentEntityListener.class)
+@DynamicUpdate
 public class Appointment {
 
     @Id
@@ -45,6 +65,13 @@ public class Appointment {
     @Column(nullable = false)
     private String time;
 
+    /**
+     * Data + horário tipados (derivado de {@code date}/{@code time}; horário ilegível = início do dia).
+     * É a coluna usada para ordenar e filtrar por período: {@code time} é texto livre.
+     */
+    @Column(name = "scheduled_at")
+    private LocalDateTime scheduledAt;
+
     @Column(nullable = false)
     private String status;
 
@@ -60,6 +87,14 @@ public class Appointment {
     @Column(name = "photo_url")
     private String photoUrl;
 
+    /**
+     * Versão para lock otimista: todo UPDATE confere e incrementa (escritas concorrentes não se sobrescrevem).
+     * UPDATEs em lote fora da JPA também devem incrementar. Nula apenas antes do primeiro INSERT.
+     */
+    @Version
+    @Column(name = "version", nullable = false, columnDefinition = "bigint default 0")
+    private Long version;
+
     public Appointment() {
     }
 
@@ -74,6 +109,7 @@ public class Appointment {
         this.specialty = specialty;
         this.date = date;
         this.time = time;
+        this.scheduledAt = scheduledAtOf(date, time);
         this.status = status;
         this.paid = paid;
         this.amount = amount;
@@ -144,6 +180,7 @@ public class Appointment {
 
     public void setDate(LocalDate date) {
         this.date = date;
+        this.scheduledAt = scheduledAtOf(date, time);
     }
 
     public String getTime() {
@@ -152,6 +189,11 @@ public class Appointment {
 
     public void setTime(String time) {
         this.time = time;
+        this.scheduledAt = scheduledAtOf(date, time);
+    }
+
+    public LocalDateTime getScheduledAt() {
+        return scheduledAt;
     }
 
     public String getStatus() {
@@ -202,6 +244,10 @@ public class Appointment {
         this.patientEmail = patientEmail;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
     public String getDoctorId() {
         return doctorId;
     }
@@ -209,4 +255,47 @@ public class Appointment {
     public void setDoctorId(String doctorId) {
         this.doctorId = doctorId;
     }
+
+    @PrePersist
+    @PreUpdate
+    public void syncScheduledAt() {
+        this.scheduledAt = scheduledAtOf(date, time);
+    }
+
+    /**
+     * Combina data e horário ("HH:mm" ou "HH:mm:ss"). Horário ausente ou ilegível vira o início do dia,
+     * para que o agendamento continue aparecendo na data certa.
+     */
+    public static LocalDateTime scheduledAtOf(LocalDate date, String time) {
+        if (date == null) {
+            return null;
+        }
+        if (time == null || time.isBlank()) {
+            return date.atStartOfDay();
+        }
+        String[] parts = time.trim().split(":");
+        if (parts.length < 2 || parts.length > 3) {
+            return date.atStartOfDay();
+        }
+        try {
+            int hour = Integer.parseInt(parts[0]);
+            int minute = Integer.parseInt(parts[1]);
+            int second = parts.length > 2 ? Integer.parseInt(parts[2]) : 0;
+            return LocalDateTime.of(date, LocalTime.of(hour, minute, second));
+        } catch (NumberFormatException | DateTimeException e) {
+            return date.atStartOfDay();
+        }
+    }
+
+    /**
+     * Cópia rasa e desacoplada do Hibernate (usada por eventos e índices em memória).
+     */
+    public Appointment copy() {
+        Appointment copy = new Appointment(id, tenantId, patient, patientId, doctor, specialty, date, time, status,
+                paid, amount, cpf, type, patientEmail);
+        copy.setDoctorId(doctorId);
+        copy.setPhotoUrl(photoUrl);
+        copy.version = version;
+        return copy;
+    }
 }
@@ -0,0 +1,68 @@
+package br.lunavita.totemapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Foto atual do agendamento e o estado das variantes (original normalizado, relatório, miniatura)
+ * geradas após o upload. Sem linha (fotos anteriores ao pipeline), vale o arquivo enviado.
+ */
+@Entity
+@Table(name = "appointment_photos", indexes = {
+        @Index(name = "idx_appointment_photos_status", columnList = "status")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AppointmentPhoto {
+
+    public static final String PENDING = "PENDING";
+    public static final String READY = "READY";
+    public static final String FAILED = "FAILED";
+
+    @Id
+    private String appointmentId;
+
+    @Column(nullable = false)
+    private String tenantId;
+
+    /**
+     * URL do arquivo enviado ({@code Appointment.photoUrl}); as variantes ficam ao lado
+     */
+    @Column(nullable = false)
+    private String photoUrl;
+
+    /**
+     * PENDING (variantes em geração), READY ou FAILED (vale o arquivo enviado)
+     */
+    @Column(nullable = false)
+    private String status;
+
+    /**
+     * Formato detectado no upload (jpeg, png...)
+     */
+    private String format;
+
+    /**
+     * Dimensões da foto já na orientação correta (EXIF aplicado)
+     */
+    private Integer width;
+    private Integer height;
+
+    private Long uploadBytes;
+    private Long originalBytes;
+    private Long reportBytes;
+    private Long thumbBytes;
+
+    private String error;
+
+    @UpdateTimestamp
+    private Instant updatedAt;
+}
@@ -2,6 +2,8 @@ package br.lunavita.totemapi.model;
 
 public class AppointmentStatusUpdate {
     private String status;
+    /** Optional: only applies the change if the current status is this one (compare-and-set). */
+    private String expectedStatus;
 
     public String getStatus() {
         return status;
@@ -10,4 +12,12 @@ public class AppointmentStatusUpdate {
     public void setStatus(String status) {
         this.status = status;
     }
+
+    public String getExpectedStatus() {
+        return expectedStatus;
+    }
+
+    public void setExpectedStatus(String expectedStatus) {
+        this.expectedStatus = expectedStatus;
+    }
 }
@@ -1,12 +1,15 @@
 package br.lunavita.totemapi.model;
 
+import br.lunavita.totemapi.event.DoctorEntityListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
 
 @Entity
 @Table(name = "doctors")
+@EntityListeners(DoctorEntityListener.class)
 public class Doctor {
     @Id
     private String id;
@@ -1,12 +1,19 @@
 package br.lunavita.totemapi.model;
 
+import br.lunavita.totemapi.event.PatientEntityListener;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityListeners;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "patients")
+@Table(name = "patients", indexes = {
+        @Index(name = "idx_patients_tenant_cpf", columnList = "tenant_id, cpf"),
+        @Index(name = "idx_patients_tenant_ghl_contact", columnList = "tenant_id, ghl_contact_id")
+})
+@EntityListeners(PatientEntityListener.class)
 public class Patient {
 
     @Id
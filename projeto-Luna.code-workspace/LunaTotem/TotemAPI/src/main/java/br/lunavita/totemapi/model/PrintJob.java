@@ -15,7 +15,17 @@ import java.time.Instant;
  * Garante que nenhum recibo seja perdido e permite reprocessamento.
  */
 @Entity
-@Table(name = "print_jobs")
+@Table(name = "print_jobs", indexes = {
+        @Index(name = "idx_print_jobs_terminal_status_priority",
+                columnList = "terminal_id, status, priority, created_at"),
+        @Index(name = "idx_print_jobs_terminal_status_updated", columnList = "terminal_id, status, updated_at"),
+        @Index(name = "idx_print_jobs_tenant_created", columnList = "tenant_id, created_at"),
+        @Index(name = "idx_print_jobs_status_last_attempt", columnList = "status, last_attempt_at"),
+        @Index(name = "idx_print_jobs_appointment", columnList = "appointment_id, created_at"),
+        @Index(name = "idx_print_jobs_payment", columnList = "payment_id"),
+        @Index(name = "idx_print_jobs_status_updated", columnList = "status, updated_at"),
+        @Index(name = "idx_print_jobs_status_lease", columnList = "status, lease_expires_at")
+})
 @Data
 @Builder
 @NoArgsConstructor
@@ -52,12 +62,23 @@ public class PrintJob {
     private PrintJobStatus status;
 
     /**
-     * Conteúdo ESC/POS do recibo (comandos de impressão em bytes codificados em Base64)
+     * Conteúdo ESC/POS do recibo em Base64 (formato legado: apenas jobs criados antes de payloadData)
      */
     @Lob
-    @Column(nullable = false, columnDefinition = "TEXT")
+    @Column(columnDefinition = "TEXT")
     private String payload;
 
+    /**
+     * Conteúdo ESC/POS do recibo comprimido com gzip
+     */
+    @Column(name = "payload_gz", columnDefinition = "bytea")
+    private byte[] payloadData;
+
+    /**
+     * Tamanho do conteúdo ESC/POS descomprimido, em bytes
+     */
+    private Integer payloadSize;
+
     /**
      * Número de tentativas de impressão já realizadas
      */
@@ -109,6 +130,16 @@ public class PrintJob {
      */
     private Instant lastAttemptAt;
 
+    /**
+     * Vencimento da posse do job pelo agent (apenas em PRINTING; renovado por heartbeat)
+     */
+    private Instant leaseExpiresAt;
+
+    /**
+     * Quando um job que falhou pode ser reservado de novo (backoff; nulo = imediatamente)
+     */
+    private Instant nextAttemptAt;
+
     /**
      * Prioridade do job (menor número = maior prioridade)
      */
@@ -145,17 +176,23 @@ public class PrintJob {
         this.status = PrintJobStatus.PRINTED;
         this.printedAt = Instant.now();
         this.error = null;
+        this.leaseExpiresAt = null;
     }
 
     /**
      * Marca como falha com mensagem de erro
+     *
+     * @param retryAt quando o job pode ser reservado de novo, se ainda houver tentativas
      */
-    public void markFailed(String errorMessage) {
+    public void markFailed(String errorMessage, Instant retryAt) {
         this.error = errorMessage;
+        this.leaseExpiresAt = null;
         if (attempts >= maxAttempts) {
             this.status = PrintJobStatus.FAILED;
+            this.nextAttemptAt = null;
         } else {
             this.status = PrintJobStatus.PENDING; // Permite retry
+            this.nextAttemptAt = retryAt;
         }
     }
 
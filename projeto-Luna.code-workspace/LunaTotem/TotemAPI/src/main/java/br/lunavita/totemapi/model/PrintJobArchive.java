@@ -0,0 +1,75 @@
+package br.lunavita.totemapi.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Job de impressão finalizado (PRINTED, CANCELED ou FAILED) movido para fora da fila.
+ *
+ * Mantém só os dados de histórico/auditoria, sem o conteúdo ESC/POS. As linhas são gravadas e removidas
+ * em lote pelo PrintJobRetentionService (SQL direto); a entidade existe para leitura e para o DDL.
+ */
+@Entity
+@Table(name = "print_jobs_archive", indexes = {
+        @Index(name = "idx_print_jobs_archive_tenant_created", columnList = "tenant_id, created_at, id"),
+        @Index(name = "idx_print_jobs_archive_archived", columnList = "archived_at")
+})
+@Data
+@NoArgsConstructor
+public class PrintJobArchive {
+
+    @Id
+    private String id;
+
+    @Column(nullable = false)
+    private String terminalId;
+
+    @Column(nullable = false)
+    private String tenantId;
+
+    @Column(nullable = false)
+    private String receiptType;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private PrintJob.PrintJobStatus status;
+
+    private Integer attempts;
+
+    private Integer maxAttempts;
+
+    @Column(columnDefinition = "TEXT")
+    private String error;
+
+    private String appointmentId;
+
+    private String paymentId;
+
+    private Integer priority;
+
+    @Column(columnDefinition = "TEXT")
+    private String metadata;
+
+    /**
+     * Tamanho do conteúdo ESC/POS que foi impresso (o conteúdo em si não é arquivado)
+     */
+    private Integer payloadSize;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    private Instant updatedAt;
+
+    private Instant printedAt;
+
+    private Instant lastAttemptAt;
+
+    /**
+     * Quando o job saiu da fila para o arquivo
+     */
+    @Column(nullable = false)
+    private Instant archivedAt;
+}
@@ -0,0 +1,55 @@
+package br.lunavita.totemapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Último estado da impressora de um terminal, informado periodicamente pelo Print Agent.
+ * Uma linha por terminal (sobrescrita a cada relatório).
+ */
+@Entity
+@Table(name = "printer_status")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class PrinterStatus {
+
+    @Id
+    private String terminalId;
+
+    /**
+     * Impressora resolvida pelo agent (nula se nenhuma foi encontrada)
+     */
+    private String printerName;
+
+    private boolean available;
+
+    /**
+     * Se o spooler do sistema aceita jobs (nulo se o driver não informa)
+     */
+    private Boolean acceptingJobs;
+
+    /**
+     * Jobs na fila do spooler do sistema (nulo se o driver não informa)
+     */
+    private Integer queuedJobs;
+
+    private Instant lastSuccessAt;
+
+    private Instant lastErrorAt;
+
+    @Column(columnDefinition = "TEXT")
+    private String lastError;
+
+    /**
+     * Quando o backend recebeu o relatório (relatório antigo = agent fora do ar)
+     */
+    @Column(nullable = false)
+    private Instant reportedAt;
+}
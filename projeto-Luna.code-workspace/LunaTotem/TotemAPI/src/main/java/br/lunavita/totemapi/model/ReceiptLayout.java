@@ -0,0 +1,61 @@
+package br.lunavita.totemapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Layout de recibo personalizado de um tenant, por tipo de recibo (PAYMENT, CHECKIN).
+ * Sem linha para o tenant, vale o layout padrão.
+ */
+@Entity
+@Table(name = "receipt_layouts", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_receipt_layouts_tenant_type", columnNames = {"tenant_id", "receipt_type"})
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptLayout {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private String id;
+
+    @Column(nullable = false)
+    private String tenantId;
+
+    @Column(nullable = false)
+    private String receiptType;
+
+    /**
+     * Texto do layout (nulo = layout padrão, só com colunas/página de código próprias)
+     */
+    @Column(columnDefinition = "TEXT")
+    private String layout;
+
+    /**
+     * Colunas do papel em fonte normal (32 para 58 mm, 48 para 80 mm)
+     */
+    @Column(nullable = false)
+    private Integer columns;
+
+    /**
+     * Página de código da impressora (CP860 ou CP850)
+     */
+    @Column(nullable = false)
+    private String codepage;
+
+    /**
+     * Se a impressora gera QR Code ({@code GS ( k}); nulo = padrão da instalação
+     */
+    private Boolean nativeQr;
+
+    @UpdateTimestamp
+    private Instant updatedAt;
+}
@@ -0,0 +1,33 @@
+package br.lunavita.totemapi.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.Instant;
+
+/**
+ * Logo impresso nos recibos do tenant (imagem original; o raster para a impressora fica em cache)
+ */
+@Entity
+@Table(name = "receipt_logos")
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ReceiptLogo {
+
+    @Id
+    private String tenantId;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] image;
+
+    private String contentType;
+
+    @UpdateTimestamp
+    private Instant updatedAt;
+}
@@ -0,0 +1,18 @@
+package br.lunavita.totemapi.repository;
+
+import java.time.LocalDate;
+
+/**
+ * Projeção mínima de um agendamento aguardando chegada, usada para montar a fila
+ * de cancelamento automático sem carregar a entidade inteira.
+ */
+public interface AppointmentDeadlineRow {
+
+    String getId();
+
+    String getTenantId();
+
+    LocalDate getDate();
+
+    String getTime();
+}
@@ -0,0 +1,20 @@
+package br.lunavita.totemapi.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import br.lunavita.totemapi.model.AppointmentPhoto;
+
+/**
+ * Repositório das fotos de agendamento e suas variantes
+ */
+@Repository
+public interface AppointmentPhotoRepository extends JpaRepository<AppointmentPhoto, String> {
+
+    /**
+     * Fotos por estado (PENDING na subida: variantes interrompidas por um restart)
+     */
+    List<AppointmentPhoto> findByStatus(String status);
+}
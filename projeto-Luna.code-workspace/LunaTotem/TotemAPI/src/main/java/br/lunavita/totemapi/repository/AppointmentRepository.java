@@ -1,14 +1,20 @@
 package br.lunavita.totemapi.repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import br.lunavita.totemapi.dto.AppointmentSummary;
 import br.lunavita.totemapi.model.Appointment;
 
 @Repository
@@ -28,30 +34,53 @@ public interface AppointmentRepository extends JpaRepository<Appointment, String
 
     /**
      * Busca agendamentos futuros do tenant, ordenados por data/hora
+     * (índice tenant_id, scheduled_at)
      */
-    List<Appointment> findByTenantIdAndDateGreaterThanEqualOrderByDateAscTimeAscPatientAsc(
-            String tenantId, LocalDate from);
+    List<Appointment> findByTenantIdAndScheduledAtGreaterThanEqualOrderByScheduledAtAscPatientAsc(
+            String tenantId, LocalDateTime from);
 
     /**
      * Busca agendamentos futuros filtrando por nome de paciente
      */
-    List<Appointment> findByTenantIdAndDateGreaterThanEqualAndPatientIgnoreCaseContainingOrderByDateAscTimeAscPatientAsc(
-            String tenantId, LocalDate from, String patientPart);
+    List<Appointment> findByTenantIdAndScheduledAtGreaterThanEqualAndPatientIgnoreCaseContainingOrderByScheduledAtAscPatientAsc(
+            String tenantId, LocalDateTime from, String patientPart);
 
     /**
      * Busca agendamentos por status dentro do tenant
+     * (índice tenant_id, status, scheduled_at)
      */
-    List<Appointment> findByTenantIdAndStatusOrderByDateAscTimeAsc(String tenantId, String status);
+    List<Appointment> findByTenantIdAndStatusOrderByScheduledAtAsc(String tenantId, String status);
 
     /**
-     * Busca agendamentos de uma data específica do tenant
+     * Busca agendamentos de um período [start, end) do tenant (ex.: um dia)
      */
-    List<Appointment> findByTenantIdAndDateOrderByTimeAsc(String tenantId, LocalDate date);
+    List<Appointment> findByTenantIdAndScheduledAtGreaterThanEqualAndScheduledAtLessThanOrderByScheduledAtAsc(
+            String tenantId, LocalDateTime start, LocalDateTime end);
 
     /**
      * Busca agendamentos de um paciente específico
+     * (índice tenant_id, patient_id, scheduled_at)
      */
-    List<Appointment> findByTenantIdAndPatientIdOrderByDateDescTimeDesc(String tenantId, String patientId);
+    List<Appointment> findByTenantIdAndPatientIdOrderByScheduledAtDesc(String tenantId, String patientId);
+
+    /**
+     * Lista agendamentos NÃO pagos do tenant (carga do índice em memória de busca;
+     * índice tenant_id, paid, scheduled_at)
+     */
+    List<Appointment> findByTenantIdAndPaidFalse(String tenantId);
+
+    /**
+     * Projeção leve de todos os agendamentos do tenant (carga dos agregados do dashboard)
+     */
+    @Query("SELECT a.id AS id, a.date AS date, a.time AS time, a.patientId AS patientId, " +
+            "a.paid AS paid, a.amount AS amount FROM Appointment a WHERE a.tenantId = :tenantId")
+    List<AppointmentRollupRow> findRollupRowsByTenantId(@Param("tenantId") String tenantId);
+
+    /**
+     * Tenants com agendamentos (visão global do dashboard, somada a partir dos agregados por tenant)
+     */
+    @Query("SELECT DISTINCT a.tenantId FROM Appointment a")
+    List<String> findDistinctTenantIds();
 
     /**
      * Conta agendamentos não pagos do tenant
@@ -91,18 +120,171 @@ public interface AppointmentRepository extends JpaRepository<Appointment, String
             @Param("q") String q,
             @Param("cpfPart") String cpfPart);
 
+    /**
+     * Página de agendamentos do tenant por keyset (scheduled_at, id) em ordem crescente
+     * (índice tenant_id, scheduled_at, id).
+     *
+     * Filtros opcionais (nulos = sem filtro): período [fromAt, toAt) e status (comparado em minúsculas).
+     * Quando {@code afterAt} é nulo retorna a primeira página. Linhas ainda sem {@code scheduled_at}
+     * (gravadas fora da JPA e não preenchidas pelo backfill) ficam fora: não teriam posição no keyset.
+     */
+    @Query("SELECT new br.lunavita.totemapi.dto.AppointmentSummary(a.id, a.patientId, a.patient, a.cpf, " +
+            "a.doctorId, a.doctor, a.specialty, a.type, a.date, a.time, a.scheduledAt, a.status, a.paid, a.amount) " +
+            "FROM Appointment a " +
+            "WHERE a.tenantId = :tenantId " +
+            "AND a.scheduledAt IS NOT NULL " +
+            "AND (:fromAt IS NULL OR a.scheduledAt >= :fromAt) " +
+            "AND (:toAt IS NULL OR a.scheduledAt < :toAt) " +
+            "AND (:status IS NULL OR LOWER(a.status) = :status) " +
+            "AND (:afterAt IS NULL OR a.scheduledAt > :afterAt OR (a.scheduledAt = :afterAt AND a.id > :afterId)) " +
+            "ORDER BY a.scheduledAt ASC, a.id ASC")
+    List<AppointmentSummary> findPageAscending(
+            @Param("tenantId") String tenantId,
+            @Param("fromAt") LocalDateTime fromAt,
+            @Param("toAt") LocalDateTime toAt,
+            @Param("status") String status,
+            @Param("afterAt") LocalDateTime afterAt,
+            @Param("afterId") String afterId,
+            Pageable pageable);
+
+    /**
+     * Mesma paginação por keyset em ordem decrescente (histórico, mais recentes primeiro).
+     */
+    @Query("SELECT new br.lunavita.totemapi.dto.AppointmentSummary(a.id, a.patientId, a.patient, a.cpf, " +
+            "a.doctorId, a.doctor, a.specialty, a.type, a.date, a.time, a.scheduledAt, a.status, a.paid, a.amount) " +
+            "FROM Appointment a " +
+            "WHERE a.tenantId = :tenantId " +
+            "AND a.scheduledAt IS NOT NULL " +
+            "AND (:fromAt IS NULL OR a.scheduledAt >= :fromAt) " +
+            "AND (:toAt IS NULL OR a.scheduledAt < :toAt) " +
+            "AND (:status IS NULL OR LOWER(a.status) = :status) " +
+            "AND (:beforeAt IS NULL OR a.scheduledAt < :beforeAt OR (a.scheduledAt = :beforeAt AND a.id < :beforeId)) " +
+            "ORDER BY a.scheduledAt DESC, a.id DESC")
+    List<AppointmentSummary> findPageDescending(
+            @Param("tenantId") String tenantId,
+            @Param("fromAt") LocalDateTime fromAt,
+            @Param("toAt") LocalDateTime toAt,
+            @Param("status") String status,
+            @Param("beforeAt") LocalDateTime beforeAt,
+            @Param("beforeId") String beforeId,
+            Pageable pageable);
+
+    /**
+     * Agendamentos do check-in no totem: os do dia [dayStart, dayEnd) e os não pagos (qualquer data)
+     * do CPF informado, numa única consulta. Casa pelo CPF gravado no agendamento ou pelo paciente
+     * do tenant com esse CPF (índices tenant_id, cpf e tenant_id, patient_id, scheduled_at).
+     */
+    @Query("SELECT new br.lunavita.totemapi.dto.AppointmentSummary(a.id, a.patientId, a.patient, a.cpf, " +
+            "a.doctorId, a.doctor, a.specialty, a.type, a.date, a.time, a.scheduledAt, a.status, a.paid, a.amount) " +
+            "FROM Appointment a " +
+            "WHERE a.tenantId = :tenantId " +
+            "AND (a.cpf = :cpf OR a.patientId IN " +
+            "     (SELECT p.id FROM Patient p WHERE p.tenantId = :tenantId AND p.cpf = :cpf)) " +
+            "AND (a.paid = false OR (a.scheduledAt >= :dayStart AND a.scheduledAt < :dayEnd)) " +
+            "ORDER BY a.scheduledAt ASC, a.id ASC")
+    List<AppointmentSummary> findCheckinCandidates(
+            @Param("tenantId") String tenantId,
+            @Param("cpf") String cpf,
+            @Param("dayStart") LocalDateTime dayStart,
+            @Param("dayEnd") LocalDateTime dayEnd);
+
+    /**
+     * Transição de status compare-and-set: um único UPDATE condicional, sem SELECT prévio.
+     * {@code expectedStatus} deve vir em maiúsculas (comparado com o status atual sem espaços).
+     * Não dispara os listeners JPA; o chamador é responsável por publicar o evento.
+     *
+     * @return 1 se a transição ocorreu; 0 se o agendamento não existe ou o status era outro
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = :newStatus, a.version = a.version + 1 " +
+            "WHERE a.tenantId = :tenantId AND a.id = :id " +
+            "AND UPPER(TRIM(a.status)) = :expectedStatus")
+    int compareAndSetStatus(
+            @Param("tenantId") String tenantId,
+            @Param("id") String id,
+            @Param("expectedStatus") String expectedStatus,
+            @Param("newStatus") String newStatus);
+
+    /**
+     * Grava o status num único UPDATE, sem ler nem conferir a versão (a última escrita vence): alterações
+     * de campo único nunca falham por conflito. A versão é incrementada, então quem salvar a partir de
+     * uma leitura anterior recebe conflito. Não dispara os listeners JPA; o chamador publica o evento.
+     *
+     * @return 1 se gravou; 0 se o agendamento não existe no tenant
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = :status, a.version = a.version + 1 " +
+            "WHERE a.tenantId = :tenantId AND a.id = :id")
+    int updateStatus(
+            @Param("tenantId") String tenantId,
+            @Param("id") String id,
+            @Param("status") String status);
+
+    /**
+     * Grava o pagamento num único UPDATE, nas mesmas condições de {@link #updateStatus}.
+     */
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Transactional
+    @Query("UPDATE Appointment a SET a.paid = :paid, a.version = a.version + 1 " +
+            "WHERE a.tenantId = :tenantId AND a.id = :id")
+    int updatePaid(
+            @Param("tenantId") String tenantId,
+            @Param("id") String id,
+            @Param("paid") boolean paid);
+
+    // ===== MANUTENÇÃO (TODOS OS TENANTS) =====
+
+    /**
+     * Agendamentos não pagos, marcados a partir de {@code since}, ainda aguardando chegada (status vazio
+     * ou em {@code waitingStatuses}, comparado em maiúsculas). Carga da fila de cancelamento automático
+     * (índice scheduled_at: só a janela recente é lida, nunca o histórico).
+     */
+    @Query("SELECT a.id AS id, a.tenantId AS tenantId, a.date AS date, a.time AS time " +
+            "FROM Appointment a " +
+            "WHERE a.scheduledAt >= :since AND a.paid = false " +
+            "AND (a.status IS NULL OR TRIM(a.status) = '' OR UPPER(TRIM(a.status)) IN :waitingStatuses)")
+    List<AppointmentDeadlineRow> findAwaitingArrival(
+            @Param("since") LocalDateTime since,
+            @Param("waitingStatuses") Collection<String> waitingStatuses);
+
+    /**
+     * Cancela em lote os agendamentos informados que AINDA estão aguardando chegada e não foram pagos.
+     *
+     * Status e pagamento são reavaliados no UPDATE: um check-in ou pagamento concorrente nunca é
+     * sobrescrito.
+     * Não dispara os listeners JPA; o chamador é responsável por publicar os eventos.
+     *
+     * @return quantidade de linhas alteradas
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE Appointment a SET a.status = :newStatus, a.version = a.version + 1 " +
+            "WHERE a.id IN :ids AND a.paid = false " +
+            "AND (a.status IS NULL OR TRIM(a.status) = '' OR UPPER(TRIM(a.status)) IN :waitingStatuses)")
+    int updateStatusIfAwaitingArrival(
+            @Param("ids") Collection<String> ids,
+            @Param("waitingStatuses") Collection<String> waitingStatuses,
+            @Param("newStatus") String newStatus);
+
+    /**
+     * Lote de agendamentos sem {@code scheduled_at} (linhas anteriores à coluna, ainda não migradas)
+     */
+    List<Appointment> findTop500ByScheduledAtIsNull();
+
     // ===== MÉTODOS DEPRECADOS (NÃO USAR - SEM FILTRO DE TENANT) =====
 
     /**
      * @deprecated Use
-     *             findByTenantIdAndDateGreaterThanEqualOrderByDateAscTimeAscPatientAsc()
+     *             findByTenantIdAndScheduledAtGreaterThanEqualOrderByScheduledAtAscPatientAsc()
      */
     @Deprecated
     List<Appointment> findByDateGreaterThanEqualOrderByDateAscTimeAscPatientAsc(LocalDate from);
 
     /**
      * @deprecated Use
-     *             findByTenantIdAndDateGreaterThanEqualAndPatientIgnoreCaseContainingOrderByDateAscTimeAscPatientAsc()
+     *             findByTenantIdAndScheduledAtGreaterThanEqualAndPatientIgnoreCaseContainingOrderByScheduledAtAscPatientAsc()
      */
     @Deprecated
     List<Appointment> findByDateGreaterThanEqualAndPatientIgnoreCaseContainingOrderByDateAscTimeAscPatientAsc(
@@ -0,0 +1,23 @@
+package br.lunavita.totemapi.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Projeção mínima de um agendamento para montar os agregados do dashboard
+ * sem carregar a entidade inteira.
+ */
+public interface AppointmentRollupRow {
+
+    String getId();
+
+    LocalDate getDate();
+
+    String getTime();
+
+    String getPatientId();
+
+    boolean isPaid();
+
+    BigDecimal getAmount();
+}
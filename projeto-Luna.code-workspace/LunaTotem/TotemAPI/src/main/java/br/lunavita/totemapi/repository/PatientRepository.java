@@ -1,5 +1,6 @@
 package br.lunavita.totemapi.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -23,6 +24,11 @@ public interface PatientRepository extends JpaRepository<Patient, String> {
      */
     Optional<Patient> findByTenantIdAndId(String tenantId, String id);
 
+    /**
+     * Busca pacientes por lista de IDs dentro do tenant
+     */
+    List<Patient> findByTenantIdAndIdIn(String tenantId, Collection<String> ids);
+
     /**
      * Lista todos os pacientes do tenant
      */
@@ -48,6 +54,14 @@ public interface PatientRepository extends JpaRepository<Patient, String> {
      */
     Optional<Patient> findByGhlContactId(String ghlContactId);
 
+    /**
+     * Busca pacientes por lista de CPFs em QUALQUER tenant.
+     *
+     * Uso restrito à importação em lote: a coluna cpf é única globalmente, então um CPF de outro
+     * tenant precisa ser detectado antes do INSERT (o paciente encontrado nunca é exposto).
+     */
+    List<Patient> findByCpfIn(Collection<String> cpfs);
+
     // ===== MÉTODOS DEPRECADOS (NÃO USAR - SEM FILTRO DE TENANT) =====
 
     /**
@@ -0,0 +1,38 @@
+package br.lunavita.totemapi.repository;
+
+import java.time.Instant;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import br.lunavita.totemapi.dto.PrintJobSummary;
+import br.lunavita.totemapi.model.PrintJobArchive;
+
+/**
+ * Repositório do arquivo de jobs de impressão finalizados
+ */
+@Repository
+public interface PrintJobArchiveRepository extends JpaRepository<PrintJobArchive, String> {
+
+    /**
+     * Histórico arquivado do tenant, do mais recente para o mais antigo (keyset por createdAt, id)
+     */
+    @Query("SELECT new br.lunavita.totemapi.dto.PrintJobSummary(pj.id, pj.terminalId, pj.receiptType, pj.status, " +
+           "pj.attempts, pj.maxAttempts, pj.error, pj.appointmentId, pj.paymentId, pj.payloadSize, " +
+           "pj.createdAt, pj.printedAt, true) " +
+           "FROM PrintJobArchive pj " +
+           "WHERE pj.tenantId = :tenantId " +
+           "AND (:terminalId IS NULL OR pj.terminalId = :terminalId) " +
+           "AND (:beforeAt IS NULL OR pj.createdAt < :beforeAt OR (pj.createdAt = :beforeAt AND pj.id < :beforeId)) " +
+           "ORDER BY pj.createdAt DESC, pj.id DESC")
+    List<PrintJobSummary> findHistory(
+            @Param("tenantId") String tenantId,
+            @Param("terminalId") String terminalId,
+            @Param("beforeAt") Instant beforeAt,
+            @Param("beforeId") String beforeId,
+            Pageable pageable);
+}
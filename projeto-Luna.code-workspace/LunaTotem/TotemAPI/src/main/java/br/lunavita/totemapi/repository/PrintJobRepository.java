@@ -4,11 +4,13 @@ import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import br.lunavita.totemapi.dto.PrintJobSummary;
 import br.lunavita.totemapi.model.PrintJob;
 import br.lunavita.totemapi.model.PrintJob.PrintJobStatus;
 
@@ -28,17 +30,22 @@ public interface PrintJobRepository extends JpaRepository<PrintJob, String> {
     List<PrintJob> findPendingByTerminal(@Param("terminalId") String terminalId);
 
     /**
-     * Busca o próximo job pendente de um terminal (apenas 1)
+     * Histórico do tenant ainda na fila, do mais recente para o mais antigo (keyset por createdAt, id)
      */
-    @Query("SELECT pj FROM PrintJob pj WHERE pj.terminalId = :terminalId " +
-           "AND pj.status = 'PENDING' " +
-           "ORDER BY pj.priority ASC, pj.createdAt ASC")
-    Optional<PrintJob> findNextPendingByTerminal(@Param("terminalId") String terminalId);
-
-    /**
-     * Busca todos os jobs de um tenant específico
-     */
-    List<PrintJob> findByTenantIdOrderByCreatedAtDesc(String tenantId);
+    @Query("SELECT new br.lunavita.totemapi.dto.PrintJobSummary(pj.id, pj.terminalId, pj.receiptType, pj.status, " +
+           "pj.attempts, pj.maxAttempts, pj.error, pj.appointmentId, pj.paymentId, pj.payloadSize, " +
+           "pj.createdAt, pj.printedAt, false) " +
+           "FROM PrintJob pj " +
+           "WHERE pj.tenantId = :tenantId " +
+           "AND (:terminalId IS NULL OR pj.terminalId = :terminalId) " +
+           "AND (:beforeAt IS NULL OR pj.createdAt < :beforeAt OR (pj.createdAt = :beforeAt AND pj.id < :beforeId)) " +
+           "ORDER BY pj.createdAt DESC, pj.id DESC")
+    List<PrintJobSummary> findHistory(
+            @Param("tenantId") String tenantId,
+            @Param("terminalId") String terminalId,
+            @Param("beforeAt") Instant beforeAt,
+            @Param("beforeId") String beforeId,
+            Pageable pageable);
 
     /**
      * Busca jobs por status e terminal
@@ -55,13 +62,6 @@ public interface PrintJobRepository extends JpaRepository<PrintJob, String> {
      */
     List<PrintJob> findByAppointmentIdOrderByCreatedAtDesc(String appointmentId);
 
-    /**
-     * Busca jobs travados há muito tempo (possível falha do agent)
-     */
-    @Query("SELECT pj FROM PrintJob pj WHERE pj.status = 'PRINTING' " +
-           "AND pj.lastAttemptAt < :threshold")
-    List<PrintJob> findStalledJobs(@Param("threshold") Instant threshold);
-
     /**
      * Conta jobs pendentes de um terminal
      */
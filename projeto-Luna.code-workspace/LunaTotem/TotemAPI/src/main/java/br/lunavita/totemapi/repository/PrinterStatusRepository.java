@@ -0,0 +1,13 @@
+package br.lunavita.totemapi.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import br.lunavita.totemapi.model.PrinterStatus;
+
+/**
+ * Repositório do último estado da impressora de cada terminal
+ */
+@Repository
+public interface PrinterStatusRepository extends JpaRepository<PrinterStatus, String> {
+}
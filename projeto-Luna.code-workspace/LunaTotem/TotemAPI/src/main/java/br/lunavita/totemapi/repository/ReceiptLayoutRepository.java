@@ -0,0 +1,17 @@
+package br.lunavita.totemapi.repository;
+
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import br.lunavita.totemapi.model.ReceiptLayout;
+
+/**
+ * Repositório dos layouts de recibo personalizados por tenant
+ */
+@Repository
+public interface ReceiptLayoutRepository extends JpaRepository<ReceiptLayout, String> {
+
+    Optional<ReceiptLayout> findByTenantIdAndReceiptType(String tenantId, String receiptType);
+}
@@ -0,0 +1,13 @@
+package br.lunavita.totemapi.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import br.lunavita.totemapi.model.ReceiptLogo;
+
+/**
+ * Repositório dos logos de recibo por tenant
+ */
+@Repository
+public interface ReceiptLogoRepository extends JpaRepository<ReceiptLogo, String> {
+}
@@ -0,0 +1,130 @@
+package br.lunavita.totemapi.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Locale;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import br.lunavita.totemapi.dto.AppointmentCursor;
+import br.lunavita.totemapi.dto.AppointmentPageResponse;
+import br.lunavita.totemapi.dto.AppointmentSummary;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+
+/**
+ * Listagem paginada (keyset em scheduled_at, id) e exportação em streaming dos agendamentos.
+ *
+ * Diferente de {@code GET /api/appointments}, nunca materializa a lista inteira do tenant:
+ * cada página é uma query com LIMIT sobre a projeção {@link AppointmentSummary}.
+ */
+@Service
+public class AppointmentListingService {
+
+    private static final int EXPORT_BATCH_SIZE = 500;
+
+    private final AppointmentRepository appointmentRepository;
+    private final ObjectWriter summaryWriter;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public AppointmentListingService(AppointmentRepository appointmentRepository,
+            ObjectMapper objectMapper,
+            @Value("${totem.appointments.page.default-size:50}") int defaultPageSize,
+            @Value("${totem.appointments.page.max-size:500}") int maxPageSize) {
+        this.appointmentRepository = appointmentRepository;
+        this.summaryWriter = objectMapper.writerFor(AppointmentSummary.class).withRootValueSeparator("\n");
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * Filtros da listagem. Todos opcionais.
+     *
+     * @param descending true para mais recentes primeiro
+     */
+    public record Filter(LocalDate from, LocalDate to, String status, boolean descending) {
+
+        String normalizedStatus() {
+            return status == null || status.isBlank() ? null : status.trim().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /**
+     * Busca uma página de agendamentos do tenant.
+     *
+     * @param cursor cursor retornado pela página anterior (nulo = primeira página)
+     * @param limit  tamanho da página (nulo = padrão; limitado ao máximo configurado)
+     * @throws IllegalArgumentException se o cursor for inválido
+     */
+    public AppointmentPageResponse page(String tenantId, Filter filter, String cursor, Integer limit) {
+        int size = resolvePageSize(limit);
+        AppointmentCursor after = (cursor == null || cursor.isBlank()) ? null : AppointmentCursor.decode(cursor);
+
+        // Busca um item a mais para saber se existe próxima página sem um COUNT
+        List<AppointmentSummary> rows = fetch(tenantId, filter, after, size + 1);
+        boolean hasMore = rows.size() > size;
+        List<AppointmentSummary> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? AppointmentCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new AppointmentPageResponse(List.copyOf(items), nextCursor, hasMore, size);
+    }
+
+    /**
+     * Exporta todos os agendamentos que batem com o filtro em NDJSON (um objeto por linha),
+     * percorrendo o keyset em lotes: memória constante independentemente do tamanho do histórico.
+     *
+     * @return quantidade de agendamentos escritos
+     */
+    public long exportNdjson(String tenantId, Filter filter, OutputStream out) throws IOException {
+        long written = 0;
+        AppointmentCursor after = null;
+        try (JsonGenerator generator = summaryWriter.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            while (true) {
+                List<AppointmentSummary> batch = fetch(tenantId, filter, after, EXPORT_BATCH_SIZE);
+                for (AppointmentSummary summary : batch) {
+                    summaryWriter.writeValue(generator, summary);
+                    written++;
+                }
+                generator.flush();
+                if (batch.size() < EXPORT_BATCH_SIZE) {
+                    break;
+                }
+                after = AppointmentCursor.of(batch.get(batch.size() - 1));
+            }
+            if (written > 0) {
+                generator.writeRaw('\n');
+            }
+        }
+        return written;
+    }
+
+    private List<AppointmentSummary> fetch(String tenantId, Filter filter, AppointmentCursor after, int size) {
+        PageRequest pageable = PageRequest.of(0, size);
+        LocalDateTime fromAt = filter.from() != null ? filter.from().atStartOfDay() : null;
+        LocalDateTime toAt = filter.to() != null ? filter.to().plusDays(1).atStartOfDay() : null;
+        LocalDateTime afterAt = after != null ? after.scheduledAt() : null;
+        String afterId = after != null ? after.id() : null;
+        if (filter.descending()) {
+            return appointmentRepository.findPageDescending(tenantId, fromAt, toAt,
+                    filter.normalizedStatus(), afterAt, afterId, pageable);
+        }
+        return appointmentRepository.findPageAscending(tenantId, fromAt, toAt,
+                filter.normalizedStatus(), afterAt, afterId, pageable);
+    }
+
+    private int resolvePageSize(Integer limit) {
+        if (limit == null || limit <= 0) {
+            return defaultPageSize;
+        }
+        return Math.min(limit, maxPageSize);
+    }
+}
@@ -0,0 +1,469 @@
+package br.lunavita.totemapi.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import br.lunavita.totemapi.model.AppointmentPhoto;
+import br.lunavita.totemapi.repository.AppointmentPhotoRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Pipeline das fotos de agendamento.
+ *
+ * No upload (thread da requisição) só o cabeçalho da imagem é lido: formato e dimensões são validados
+ * sem decodificar os pixels, o arquivo é gravado como veio e a foto fica PENDING. Num pool separado a
+ * imagem é decodificada uma única vez, girada conforme a orientação EXIF e regravada em JPEG (sem
+ * EXIF: localização e dados da câmera não saem do backend) em três variantes ao lado do arquivo
+ * enviado: {@code -original} (resolução cheia), {@code -report} (PDF) e {@code -thumb} (listas).
+ * Com as variantes prontas o arquivo enviado é apagado; até lá (ou se a geração falhar) ele é
+ * servido no lugar.
+ *
+ * Só JPEG: o JDK não tem codificador WebP.
+ */
+@Service
+public class AppointmentPhotoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentPhotoService.class);
+
+    private static final List<String> ACCEPTED_FORMATS = List.of("jpeg", "png", "bmp", "gif");
+    private static final int MAX_ERROR_LENGTH = 255;
+
+    /**
+     * Variantes geradas para cada foto. {@code maxSide} 0 = sem redução.
+     */
+    public enum Variant {
+        ORIGINAL("original", 0, 0.90f),
+        /** Tamanho impresso no relatório PDF (400 pt a ~144 dpi) */
+        REPORT("report", 800, 0.85f),
+        /** Listas e telas do totem */
+        THUMB("thumb", 320, 0.80f);
+
+        private final String suffix;
+        private final int maxSide;
+        private final float quality;
+
+        Variant(String suffix, int maxSide, float quality) {
+            this.suffix = suffix;
+            this.maxSide = maxSide;
+            this.quality = quality;
+        }
+
+        public String suffix() {
+            return suffix;
+        }
+
+        /**
+         * @throws IllegalArgumentException se a variante não existe
+         */
+        public static Variant of(String name) {
+            for (Variant variant : values()) {
+                if (variant.suffix.equalsIgnoreCase(name.trim())) {
+                    return variant;
+                }
+            }
+            throw new IllegalArgumentException("Variante inválida (use original, report ou thumb): " + name);
+        }
+    }
+
+    private final FileStorageService storage;
+    private final AppointmentPhotoRepository photoRepository;
+    private final long maxUploadBytes;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+
+    public AppointmentPhotoService(FileStorageService storage, AppointmentPhotoRepository photoRepository,
+            @Value("${totem.photos.max-upload-bytes:15728640}") long maxUploadBytes,
+            @Value("${totem.photos.max-pixels:40000000}") long maxPixels,
+            @Value("${totem.photos.threads:1}") int threads) {
+        this.storage = storage;
+        this.photoRepository = photoRepository;
+        this.maxUploadBytes = maxUploadBytes;
+        this.maxPixels = maxPixels;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Poucas threads: cada foto decodificada ocupa dezenas de MB; a fila guarda só os ids
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "photo-variants-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Valida e grava a foto enviada e agenda a geração das variantes
+     *
+     * @throws IllegalArgumentException se o arquivo não é uma imagem aceita ou é grande demais
+     */
+    public FileStorageService.PhotoSaveResult accept(String appointmentId, String tenantId, MultipartFile file)
+            throws IOException {
+        if (file.isEmpty()) {
+            throw new IllegalArgumentException("Foto vazia");
+        }
+        if (file.getSize() > maxUploadBytes) {
+            throw new IllegalArgumentException("Foto maior que " + (maxUploadBytes / (1024 * 1024)) + " MB");
+        }
+        String format = probe(file.getBytes());
+
+        FileStorageService.PhotoSaveResult saved = storage.saveAppointmentPhoto(appointmentId, file);
+        // A foto anterior do agendamento (se houver) é substituída: as variantes seguem a foto atual
+        photoRepository.save(AppointmentPhoto.builder()
+                .appointmentId(appointmentId)
+                .tenantId(tenantId)
+                .photoUrl(saved.url())
+                .status(AppointmentPhoto.PENDING)
+                .format(format)
+                .uploadBytes(file.getSize())
+                .build());
+        executor.execute(() -> process(appointmentId));
+        return saved;
+    }
+
+    public Optional<AppointmentPhoto> find(String appointmentId) {
+        return photoRepository.findById(appointmentId);
+    }
+
+    /**
+     * Arquivo a servir para a variante: a variante se já foi gerada, senão o arquivo enviado;
+     * null se nenhum existe
+     */
+    public Path resolve(String photoUrl, Variant variant) {
+        Path generated = storage.resolveVariant(photoUrl, variant.suffix());
+        if (Files.isRegularFile(generated)) {
+            return generated;
+        }
+        Path uploaded = storage.resolveFromUrl(photoUrl);
+        return Files.isRegularFile(uploaded) ? uploaded : null;
+    }
+
+    /**
+     * Variante já gerada, ou null (foto PENDING, FAILED ou anterior ao pipeline)
+     */
+    public Path generated(String photoUrl, Variant variant) {
+        Path generated = storage.resolveVariant(photoUrl, variant.suffix());
+        return Files.isRegularFile(generated) ? generated : null;
+    }
+
+    /**
+     * Retoma fotos que ficaram PENDING (restart no meio da geração)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumePending() {
+        try {
+            List<AppointmentPhoto> pending = photoRepository.findByStatus(AppointmentPhoto.PENDING);
+            pending.forEach(photo -> executor.execute(() -> process(photo.getAppointmentId())));
+            if (!pending.isEmpty()) {
+                logger.info("[PHOTO] {} foto(s) pendente(s) reenviada(s) para geração de variantes", pending.size());
+            }
+        } catch (RuntimeException e) {
+            logger.warn("[PHOTO] Falha ao retomar fotos pendentes: {}", e.getMessage());
+        }
+    }
+
+    void process(String appointmentId) {
+        AppointmentPhoto photo = photoRepository.findById(appointmentId).orElse(null);
+        if (photo == null || !AppointmentPhoto.PENDING.equals(photo.getStatus())) {
+            return;
+        }
+        String photoUrl = photo.getPhotoUrl();
+        Path uploaded = storage.resolveFromUrl(photoUrl);
+        long started = System.nanoTime();
+        try {
+            byte[] bytes = Files.readAllBytes(uploaded);
+            // Cabeçalho conferido de novo antes de decodificar: o arquivo pode ser de antes de um limite menor
+            // (retomado por resumePending), e a decodificação só aloca o que o limite de pixels permite
+            probe(bytes);
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (decoded == null) {
+                throw new IOException("Formato de imagem não suportado");
+            }
+            BufferedImage image = toRgb(orient(decoded, exifOrientation(bytes)));
+
+            // Cada variante é reduzida a partir da anterior (maior → menor): uma decodificação só
+            BufferedImage scaled = image;
+            long[] sizes = new long[Variant.values().length];
+            for (Variant variant : Variant.values()) {
+                scaled = scaleToFit(scaled, variant.maxSide);
+                byte[] jpeg = encodeJpeg(scaled, variant.quality);
+                write(storage.resolveVariant(photoUrl, variant.suffix()), jpeg);
+                sizes[variant.ordinal()] = jpeg.length;
+            }
+
+            // Foto trocada enquanto as variantes eram geradas: descarta o resultado desta
+            AppointmentPhoto latest = photoRepository.findById(appointmentId).orElse(null);
+            if (latest == null || !photoUrl.equals(latest.getPhotoUrl())) {
+                return;
+            }
+            latest.setStatus(AppointmentPhoto.READY);
+            latest.setWidth(image.getWidth());
+            latest.setHeight(image.getHeight());
+            latest.setOriginalBytes(sizes[Variant.ORIGINAL.ordinal()]);
+            latest.setReportBytes(sizes[Variant.REPORT.ordinal()]);
+            latest.setThumbBytes(sizes[Variant.THUMB.ordinal()]);
+            latest.setError(null);
+            photoRepository.save(latest);
+            // O arquivo enviado ainda tem o EXIF: com as variantes no lugar, não é mais servido
+            Files.deleteIfExists(uploaded);
+
+            logger.info("[PHOTO] Variantes da foto do agendamento {} geradas em {} ms ({}x{}, {} → {}/{}/{} bytes)",
+                    appointmentId, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started),
+                    image.getWidth(), image.getHeight(), bytes.length, sizes[Variant.ORIGINAL.ordinal()],
+                    sizes[Variant.REPORT.ordinal()], sizes[Variant.THUMB.ordinal()]);
+        } catch (Exception e) {
+            logger.error("[PHOTO] Falha ao gerar variantes da foto do agendamento {}: {}", appointmentId,
+                    e.getMessage(), e);
+            photoRepository.findById(appointmentId)
+                    .filter(latest -> photoUrl.equals(latest.getPhotoUrl()))
+                    .ifPresent(latest -> {
+                        latest.setStatus(AppointmentPhoto.FAILED);
+                        String message = String.valueOf(e.getMessage());
+                        latest.setError(message.length() > MAX_ERROR_LENGTH
+                                ? message.substring(0, MAX_ERROR_LENGTH) : message);
+                        photoRepository.save(latest);
+                    });
+        }
+    }
+
+    /**
+     * Formato da imagem pelo cabeçalho, sem decodificar os pixels
+     *
+     * @throws IllegalArgumentException se não é uma imagem aceita ou tem pixels demais
+     */
+    private String probe(byte[] bytes) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(bytes))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                throw new IllegalArgumentException("Arquivo não é uma imagem (use JPEG ou PNG)");
+            }
+            ImageReader reader = readers.next();
+            try {
+                String format = reader.getFormatName().toLowerCase(Locale.ROOT);
+                if (!ACCEPTED_FORMATS.contains(format)) {
+                    throw new IllegalArgumentException("Formato de imagem não suportado: " + format);
+                }
+                reader.setInput(input, true, true);
+                long pixels = (long) reader.getWidth(0) * reader.getHeight(0);
+                if (pixels <= 0 || pixels > maxPixels) {
+                    throw new IllegalArgumentException("Resolução da foto fora do limite ("
+                            + reader.getWidth(0) + "x" + reader.getHeight(0) + ")");
+                }
+                return format;
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Imagem inválida: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reduz a imagem para caber em {@code maxSide} × {@code maxSide} (0 = sem redução). Reduções
+     * grandes são feitas pela metade em etapas: bilinear direto para 1/10 do tamanho serrilha.
+     */
+    public static BufferedImage scaleToFit(BufferedImage source, int maxSide) {
+        int longest = Math.max(source.getWidth(), source.getHeight());
+        if (maxSide <= 0 || longest <= maxSide) {
+            return source;
+        }
+        double scale = (double) maxSide / longest;
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                        RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    /**
+     * JPEG sem metadados na qualidade informada (0–1)
+     */
+    public static byte[] encodeJpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(image.getWidth() * image.getHeight() / 4);
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * RGB com fundo branco: JPEG não tem transparência
+     */
+    public static BufferedImage toRgb(BufferedImage source) {
+        if (source.getType() == BufferedImage.TYPE_INT_RGB) {
+            return source;
+        }
+        BufferedImage rgb = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = rgb.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, source.getWidth(), source.getHeight());
+            graphics.drawImage(source, 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return rgb;
+    }
+
+    private static void write(Path target, byte[] bytes) throws IOException {
+        // Grava ao lado e renomeia: quem serve a variante nunca lê um arquivo pela metade
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, bytes);
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Aplica a orientação EXIF (1–8) aos pixels
+     */
+    private static BufferedImage orient(BufferedImage image, int orientation) {
+        if (orientation <= 1 || orientation > 8) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean swap = orientation >= 5;
+        AffineTransform transform = new AffineTransform();
+        switch (orientation) {
+            case 2 -> transform.setTransform(-1, 0, 0, 1, width, 0);       // Espelhada
+            case 3 -> transform.setTransform(-1, 0, 0, -1, width, height); // 180°
+            case 4 -> transform.setTransform(1, 0, 0, -1, 0, height);      // Espelhada vertical
+            case 5 -> transform.setTransform(0, 1, 1, 0, 0, 0);            // Transposta
+            case 6 -> transform.setTransform(0, 1, -1, 0, height, 0);      // 90° horário
+            case 7 -> transform.setTransform(0, -1, -1, 0, height, width); // Transversa
+            case 8 -> transform.setTransform(0, -1, 1, 0, 0, width);       // 90° anti-horário
+            default -> {
+            }
+        }
+        BufferedImage oriented = new BufferedImage(swap ? height : width, swap ? width : height,
+                BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = oriented.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, oriented.getWidth(), oriented.getHeight());
+            graphics.drawImage(image, transform, null);
+        } finally {
+            graphics.dispose();
+        }
+        return oriented;
+    }
+
+    /**
+     * Tag de orientação (0x0112) do EXIF de um JPEG; 1 (normal) se não há EXIF
+     */
+    static int exifOrientation(byte[] jpeg) {
+        if (jpeg.length < 4 || (jpeg[0] & 0xFF) != 0xFF || (jpeg[1] & 0xFF) != 0xD8) {
+            return 1;
+        }
+        int offset = 2;
+        while (offset + 4 <= jpeg.length && (jpeg[offset] & 0xFF) == 0xFF) {
+            int marker = jpeg[offset + 1] & 0xFF;
+            int length = ((jpeg[offset + 2] & 0xFF) << 8) | (jpeg[offset + 3] & 0xFF);
+            if (marker == 0xDA || length < 2) {
+                break; // Início dos dados da imagem: sem EXIF antes disso
+            }
+            int segment = offset + 4;
+            if (marker == 0xE1 && segment + 14 <= jpeg.length && jpeg[segment] == 'E' && jpeg[segment + 1] == 'x'
+                    && jpeg[segment + 2] == 'i' && jpeg[segment + 3] == 'f') {
+                return tiffOrientation(jpeg, segment + 6, Math.min(jpeg.length, offset + 2 + length));
+            }
+            offset += 2 + length;
+        }
+        return 1;
+    }
+
+    private static int tiffOrientation(byte[] data, int tiff, int end) {
+        if (tiff + 8 > end) {
+            return 1;
+        }
+        boolean little = data[tiff] == 'I';
+        // Offset do IFD vem do arquivo: em long para não estourar, e só vale dentro do segmento APP1
+        long ifdOffset = tiff + (readInt(data, tiff + 4, little) & 0xFFFFFFFFL);
+        if (ifdOffset < tiff + 8 || ifdOffset + 2 > end) {
+            return 1;
+        }
+        int ifd = (int) ifdOffset;
+        int entries = readShort(data, ifd, little);
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            if (entry + 12 > end) {
+                break;
+            }
+            if (readShort(data, entry, little) == 0x0112) {
+                return readShort(data, entry + 8, little);
+            }
+        }
+        return 1;
+    }
+
+    private static int readShort(byte[] data, int offset, boolean little) {
+        int a = data[offset] & 0xFF;
+        int b = data[offset + 1] & 0xFF;
+        return little ? (b << 8) | a : (a << 8) | b;
+    }
+
+    private static int readInt(byte[] data, int offset, boolean little) {
+        int high = readShort(data, offset + (little ? 2 : 0), little);
+        int low = readShort(data, offset + (little ? 0 : 2), little);
+        return (high << 16) | low;
+    }
+}
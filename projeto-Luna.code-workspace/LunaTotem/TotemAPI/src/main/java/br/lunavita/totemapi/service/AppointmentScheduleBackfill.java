@@ -0,0 +1,55 @@
+package br.lunavita.totemapi.service;
+
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+
+/**
+ * Preenche {@code scheduled_at} de agendamentos antigos na subida da aplicação.
+ *
+ * A migration V002 já faz o backfill em SQL; isto cobre ambientes onde a coluna foi criada
+ * pelo {@code ddl-auto=update} antes da migration rodar. Sem linhas pendentes, custa uma query.
+ */
+@Component
+public class AppointmentScheduleBackfill {
+
+    private static final Logger logger = LoggerFactory.getLogger(AppointmentScheduleBackfill.class);
+
+    private final AppointmentRepository appointmentRepository;
+
+    public AppointmentScheduleBackfill(AppointmentRepository appointmentRepository) {
+        this.appointmentRepository = appointmentRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        long filled = 0;
+        try {
+            while (true) {
+                List<Appointment> batch = appointmentRepository.findTop500ByScheduledAtIsNull();
+                if (batch.isEmpty()) {
+                    break;
+                }
+                batch.forEach(Appointment::syncScheduledAt);
+                appointmentRepository.saveAll(batch);
+                filled += batch.size();
+                if (batch.stream().anyMatch(a -> a.getScheduledAt() == null)) {
+                    // Só acontece sem data (coluna NOT NULL); evita laço infinito
+                    break;
+                }
+            }
+        } catch (RuntimeException e) {
+            logger.warn("[SCHEDULED_AT] Falha no backfill: {}", e.getMessage());
+        }
+        if (filled > 0) {
+            logger.info("[SCHEDULED_AT] Backfill concluído: {} agendamento(s)", filled);
+        }
+    }
+}
@@ -1,51 +1,282 @@
 package br.lunavita.totemapi.service;
 
+import br.lunavita.totemapi.event.AppointmentChangedEvent;
 import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.repository.AppointmentDeadlineRow;
 import br.lunavita.totemapi.repository.AppointmentRepository;
-import jakarta.transaction.Transactional;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import java.time.DateTimeException;
 import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Cancela automaticamente agendamentos cujo paciente não fez check-in até 90 minutos
+ * após o horário marcado.
+ *
+ * Em vez de varrer a tabela inteira periodicamente, mantém em memória apenas os agendamentos
+ * que ainda aguardam chegada, numa fila de prioridade ordenada pelo prazo de cancelamento.
+ * Um único timer fica armado para o prazo mais próximo; ao disparar, todos os vencidos são
+ * cancelados com um UPDATE em lote que reavalia o status (check-in concorrente vence).
+ *
+ * A fila é carregada na subida da aplicação, mantida pelos eventos de
+ * {@link AppointmentChangedEvent} e ressincronizada com o banco periodicamente (cobre escritas
+ * que não passam pela JPA, ex.: outra instância ou SQL direto).
+ *
+ * Só entram agendamentos não pagos marcados a partir de ontem
+ * ({@code totem.appointments.auto-cancel.lookback-days}): o histórico anterior nunca é cancelado
+ * nem lido, e um agendamento pago nunca é cancelado.
+ */
 @Component
 public class AppointmentStatusScheduler {
 
     private static final Logger logger = LoggerFactory.getLogger(AppointmentStatusScheduler.class);
     private static final Duration GRACE_PERIOD = Duration.ofMinutes(90);
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+    private static final int UPDATE_BATCH_SIZE = 500;
+    private static final String CANCELLED_STATUS = "CANCELADA";
     private static final Set<String> WAITING_STATUSES = Set.of(
             "AGUARDANDO_CHEGADA",
             "AGUARDANDO",
             "AGENDADO",
             "SCHEDULED");
 
+    private static final Comparator<Deadline> DEADLINE_ORDER = Comparator
+            .comparing(Deadline::at)
+            .thenComparing(Deadline::appointmentId);
+
     private final AppointmentRepository appointmentRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final int lookbackDays;
+    private final ScheduledThreadPoolExecutor timer;
+
+    // Estado da fila (guardado por queueLock). Entradas do heap que não são mais a entrada
+    // corrente em "pending" estão obsoletas e são descartadas ao chegar no topo.
+    private final Object queueLock = new Object();
+    private final Object reloadMonitor = new Object();
+    private final PriorityQueue<Deadline> heap = new PriorityQueue<>(DEADLINE_ORDER);
+    private final Map<String, Deadline> pending = new HashMap<>();
+    private Set<String> touchedDuringReload;
+    private ScheduledFuture<?> armed;
+    private LocalDateTime armedAt;
 
-    public AppointmentStatusScheduler(AppointmentRepository appointmentRepository) {
+    public AppointmentStatusScheduler(AppointmentRepository appointmentRepository,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${totem.appointments.auto-cancel.enabled:true}") boolean enabled,
+            @Value("${totem.appointments.auto-cancel.lookback-days:1}") int lookbackDays) {
         this.appointmentRepository = appointmentRepository;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.lookbackDays = lookbackDays;
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "appointment-auto-cancel");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.timer.setRemoveOnCancelPolicy(true);
     }
 
-    @Scheduled(fixedDelayString = "${totem.appointments.status-check-ms:60000}")
-    @Transactional
-    public void autoCancelOverdueAppointments() {
-        List<Appointment> appointments = appointmentRepository.findAll();
-        LocalDateTime now = LocalDateTime.now();
-        int updated = 0;
+    /**
+     * Prazo de cancelamento de um agendamento aguardando chegada.
+     */
+    private record Deadline(String appointmentId, String tenantId, LocalDateTime at) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (enabled) {
+            reload();
+        }
+    }
 
-        for (Appointment appointment : appointments) {
-            if (shouldCancel(appointment, now)) {
-                appointment.setStatus("CANCELADA");
-                appointmentRepository.save(appointment);
-                updated++;
+    /**
+     * Reconstrói a fila a partir do banco. Agendamentos alterados por eventos durante a leitura
+     * mantêm o estado vindo do evento (mais recente que o snapshot).
+     */
+    @Scheduled(fixedDelayString = "${totem.appointments.auto-cancel.resync-ms:3600000}",
+            initialDelayString = "${totem.appointments.auto-cancel.resync-ms:3600000}")
+    public void reload() {
+        if (!enabled) {
+            return;
+        }
+        synchronized (reloadMonitor) {
+            synchronized (queueLock) {
+                touchedDuringReload = new HashSet<>();
+            }
+            List<AppointmentDeadlineRow> rows;
+            try {
+                rows = appointmentRepository.findAwaitingArrival(windowStart(), WAITING_STATUSES);
+            } catch (RuntimeException e) {
+                synchronized (queueLock) {
+                    touchedDuringReload = null;
+                }
+                logger.warn("Failed to load appointments awaiting arrival: {}", e.getMessage());
+                return;
+            }
+
+            synchronized (queueLock) {
+                Map<String, Deadline> fresh = new HashMap<>();
+                for (AppointmentDeadlineRow row : rows) {
+                    if (touchedDuringReload.contains(row.getId())) {
+                        continue;
+                    }
+                    LocalDateTime at = deadlineOf(row.getDate(), row.getTime());
+                    if (at != null) {
+                        fresh.put(row.getId(), new Deadline(row.getId(), row.getTenantId(), at));
+                    }
+                }
+                for (String id : touchedDuringReload) {
+                    Deadline current = pending.get(id);
+                    if (current != null) {
+                        fresh.put(id, current);
+                    }
+                }
+                touchedDuringReload = null;
+                pending.clear();
+                pending.putAll(fresh);
+                heap.clear();
+                heap.addAll(fresh.values());
+                rearmLocked();
+                logger.info("Auto-cancel queue loaded with {} appointment(s) awaiting arrival.", pending.size());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (!enabled || event.appointmentId() == null) {
+            return;
+        }
+        Appointment appointment = event.appointment();
+        LocalDateTime at = event.type() == AppointmentChangedEvent.Type.DELETED
+                || appointment.isPaid()
+                || !isWaitingStatus(appointment.getStatus())
+                        ? null
+                        : deadlineOf(appointment.getDate(), appointment.getTime());
+        if (at != null && at.minus(GRACE_PERIOD).isBefore(windowStart())) {
+            at = null; // Edição de um agendamento antigo não o cancela
+        }
+
+        synchronized (queueLock) {
+            if (touchedDuringReload != null) {
+                touchedDuringReload.add(event.appointmentId());
+            }
+            if (at == null) {
+                pending.remove(event.appointmentId());
+            } else {
+                Deadline deadline = new Deadline(event.appointmentId(), event.tenantId(), at);
+                pending.put(deadline.appointmentId(), deadline);
+                heap.add(deadline);
+            }
+            rearmLocked();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /**
+     * Arma o timer para o prazo mais próximo (ou desarma se a fila estiver vazia).
+     */
+    private void rearmLocked() {
+        Deadline head = heap.peek();
+        while (head != null && pending.get(head.appointmentId()) != head) {
+            heap.poll();
+            head = heap.peek();
+        }
+        if (head == null) {
+            if (armed != null) {
+                armed.cancel(false);
+                armed = null;
+                armedAt = null;
+            }
+            return;
+        }
+        if (armed != null && head.at().equals(armedAt)) {
+            return;
+        }
+        if (armed != null) {
+            armed.cancel(false);
+        }
+        long delayMs = Math.max(0, Duration.between(LocalDateTime.now(), head.at()).toMillis());
+        armedAt = head.at();
+        armed = timer.schedule(this::fireDue, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void fireDue() {
+        List<Deadline> due = new ArrayList<>();
+        synchronized (queueLock) {
+            armed = null;
+            armedAt = null;
+            LocalDateTime now = LocalDateTime.now();
+            Deadline head;
+            while ((head = heap.peek()) != null && !head.at().isAfter(now)) {
+                heap.poll();
+                if (pending.get(head.appointmentId()) == head) {
+                    pending.remove(head.appointmentId());
+                    due.add(head);
+                }
+            }
+        }
+
+        try {
+            if (!due.isEmpty()) {
+                cancel(due);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to auto-cancel {} appointment(s), retrying in {}: {}",
+                    due.size(), RETRY_DELAY, e.getMessage());
+            requeue(due, LocalDateTime.now().plus(RETRY_DELAY));
+        } finally {
+            synchronized (queueLock) {
+                rearmLocked();
+            }
+        }
+    }
+
+    private void cancel(List<Deadline> due) {
+        int updated = 0;
+        for (int i = 0; i < due.size(); i += UPDATE_BATCH_SIZE) {
+            List<String> ids = due.subList(i, Math.min(i + UPDATE_BATCH_SIZE, due.size())).stream()
+                    .map(Deadline::appointmentId)
+                    .toList();
+            int batchUpdated = appointmentRepository.updateStatusIfAwaitingArrival(ids, WAITING_STATUSES,
+                    CANCELLED_STATUS);
+            updated += batchUpdated;
+            if (batchUpdated > 0) {
+                // O UPDATE em lote não passa pelos listeners JPA: publica os eventos manualmente
+                // para que índices e agregados em memória vejam o novo status.
+                for (Appointment appointment : appointmentRepository.findAllById(ids)) {
+                    if (CANCELLED_STATUS.equalsIgnoreCase(appointment.getStatus())) {
+                        eventPublisher.publishEvent(AppointmentChangedEvent.saved(appointment));
+                    }
+                }
             }
         }
 
@@ -54,20 +285,33 @@ public class AppointmentStatusScheduler {
         }
     }
 
-    private boolean shouldCancel(Appointment appointment, LocalDateTime now) {
-        if (appointment == null) {
-            return false;
+    private void requeue(List<Deadline> deadlines, LocalDateTime retryAt) {
+        synchronized (queueLock) {
+            for (Deadline deadline : deadlines) {
+                // Um evento recebido no meio tempo tem precedência sobre a nova tentativa
+                if (pending.containsKey(deadline.appointmentId())) {
+                    continue;
+                }
+                Deadline retry = new Deadline(deadline.appointmentId(), deadline.tenantId(), retryAt);
+                pending.put(retry.appointmentId(), retry);
+                heap.add(retry);
+            }
         }
-        LocalDate date = appointment.getDate();
-        LocalTime time = parseTime(appointment.getTime());
+    }
+
+    /**
+     * Início da janela de agendamentos considerados (ontem 00:00 com o padrão de 1 dia)
+     */
+    private LocalDateTime windowStart() {
+        return LocalDate.now().minusDays(lookbackDays).atStartOfDay();
+    }
+
+    private LocalDateTime deadlineOf(LocalDate date, String rawTime) {
+        LocalTime time = parseTime(rawTime);
         if (date == null || time == null) {
-            return false;
-        }
-        if (!isWaitingStatus(appointment.getStatus())) {
-            return false;
+            return null;
         }
-        LocalDateTime scheduledDateTime = LocalDateTime.of(date, time);
-        return scheduledDateTime.plus(GRACE_PERIOD).isBefore(now);
+        return LocalDateTime.of(date, time).plus(GRACE_PERIOD);
     }
 
     private boolean isWaitingStatus(String status) {
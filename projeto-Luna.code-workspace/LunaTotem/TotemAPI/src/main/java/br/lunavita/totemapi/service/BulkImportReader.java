@@ -0,0 +1,296 @@
+package br.lunavita.totemapi.service;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.text.Normalizer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import br.lunavita.totemapi.dto.BulkImportRow;
+
+/**
+ * Leitura incremental (linha a linha) do arquivo de importação em lote.
+ *
+ * Nunca carrega o arquivo inteiro: cada chamada a {@link #next()} consome apenas o próximo
+ * registro do stream. Linhas malformadas viram {@link ParsedRow} com erro, sem interromper a leitura.
+ */
+public abstract class BulkImportReader implements Closeable {
+
+    /**
+     * Registro lido. Exatamente um entre {@code row} e {@code error} é não nulo.
+     *
+     * @param line linha (1-based) onde o registro começa
+     */
+    public record ParsedRow(long line, BulkImportRow row, String error) {
+    }
+
+    protected final BufferedReader in;
+    protected long lineNumber;
+
+    protected BulkImportReader(Reader reader) {
+        this.in = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader, 64 * 1024);
+    }
+
+    /**
+     * @return próximo registro, ou nulo no fim do arquivo
+     */
+    public abstract ParsedRow next() throws IOException;
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    public static BulkImportReader ndjson(Reader reader, ObjectMapper objectMapper) {
+        return new NdjsonReader(reader, objectMapper.readerFor(BulkImportRow.class));
+    }
+
+    public static BulkImportReader csv(Reader reader, ObjectMapper objectMapper) {
+        return new CsvReader(reader, objectMapper);
+    }
+
+    // ===== NDJSON: um objeto JSON por linha =====
+
+    private static final class NdjsonReader extends BulkImportReader {
+
+        private final ObjectReader rowReader;
+
+        NdjsonReader(Reader reader, ObjectReader rowReader) {
+            super(reader);
+            this.rowReader = rowReader;
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            String line;
+            while ((line = in.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    return new ParsedRow(lineNumber, rowReader.readValue(line), null);
+                } catch (JsonProcessingException e) {
+                    return new ParsedRow(lineNumber, null, "JSON inválido: " + e.getOriginalMessage());
+                }
+            }
+            return null;
+        }
+    }
+
+    // ===== CSV: cabeçalho na primeira linha, separador "," ou ";" (detectado pelo cabeçalho) =====
+
+    private static final class CsvReader extends BulkImportReader {
+
+        // Limites de um registro com aspas abertas: além disso a aspa é considerada sem fechamento
+        private static final int MAX_RECORD_LINES = 50;
+        private static final int MAX_RECORD_CHARS = 64 * 1024;
+
+        // Cabeçalhos aceitos em português (além dos nomes dos campos de BulkImportRow)
+        private static final Map<String, String> ALIASES = Map.ofEntries(
+                Map.entry("nome", "name"),
+                Map.entry("telefone", "phone"),
+                Map.entry("celular", "phone"),
+                Map.entry("data_nascimento", "birthDate"),
+                Map.entry("nascimento", "birthDate"),
+                Map.entry("endereco", "address"),
+                Map.entry("convenio", "healthPlan"),
+                Map.entry("plano_saude", "healthPlan"),
+                Map.entry("data", "date"),
+                Map.entry("hora", "time"),
+                Map.entry("horario", "time"),
+                Map.entry("tipo", "type"),
+                Map.entry("valor", "amount"),
+                Map.entry("pago", "paid"),
+                Map.entry("medico", "doctor"),
+                Map.entry("medico_id", "doctorId"),
+                Map.entry("especialidade", "specialty"));
+
+        private final ObjectMapper objectMapper;
+        private String[] columns;
+        private char separator = ',';
+        // Linhas devolvidas por um registro com aspa sem fechamento, relidas como registros próprios
+        private final Deque<String> pushedBack = new ArrayDeque<>();
+        private boolean unterminatedQuote;
+
+        CsvReader(Reader reader, ObjectMapper objectMapper) {
+            super(reader);
+            this.objectMapper = objectMapper;
+        }
+
+        @Override
+        public ParsedRow next() throws IOException {
+            if (columns == null && !readHeader()) {
+                return null;
+            }
+            while (true) {
+                long startLine = lineNumber + 1;
+                List<String> values = readRecord();
+                if (values == null) {
+                    return null;
+                }
+                if (unterminatedQuote) {
+                    return new ParsedRow(startLine, null, "Aspas sem fechamento em até " + MAX_RECORD_LINES
+                            + " linhas / " + MAX_RECORD_CHARS + " caracteres");
+                }
+                if (values.size() == 1 && values.get(0).isBlank()) {
+                    continue;
+                }
+                if (values.size() > columns.length) {
+                    return new ParsedRow(startLine, null,
+                            "Esperadas " + columns.length + " colunas, encontradas " + values.size());
+                }
+                Map<String, String> fields = new HashMap<>();
+                for (int i = 0; i < values.size(); i++) {
+                    if (columns[i] != null) {
+                        fields.put(columns[i], values.get(i).trim());
+                    }
+                }
+                return new ParsedRow(startLine, objectMapper.convertValue(fields, BulkImportRow.class), null);
+            }
+        }
+
+        private boolean readHeader() throws IOException {
+            String header = in.readLine();
+            if (header == null) {
+                return false;
+            }
+            lineNumber++;
+            if (!header.isEmpty() && header.charAt(0) == '\uFEFF') {
+                header = header.substring(1);
+            }
+            separator = header.indexOf(';') >= 0 && header.indexOf(',') < 0 ? ';' : ',';
+            List<String> names = splitRecord(header);
+            columns = new String[names.size()];
+            for (int i = 0; i < names.size(); i++) {
+                columns[i] = canonicalColumn(names.get(i));
+            }
+            return true;
+        }
+
+        /**
+         * Lê um registro; campos entre aspas podem conter separador, aspas duplicadas ("") e quebras de linha.
+         *
+         * Se a aspa não fecha até o fim do arquivo ou dentro de {@link #MAX_RECORD_LINES} linhas /
+         * {@link #MAX_RECORD_CHARS} caracteres, marca {@link #unterminatedQuote} e devolve as linhas de
+         * continuação ao stream: a leitura segue a partir da linha seguinte ao início do registro.
+         */
+        private List<String> readRecord() throws IOException {
+            unterminatedQuote = false;
+            String line = readLine();
+            if (line == null) {
+                return null;
+            }
+            StringBuilder record = new StringBuilder(line);
+            boolean open = hasOddQuotes(line);
+            List<String> continuations = null;
+            while (open) {
+                String continuation = readLine();
+                if (continuation == null
+                        || (continuations != null && continuations.size() + 1 >= MAX_RECORD_LINES)
+                        || record.length() + 1 + continuation.length() > MAX_RECORD_CHARS) {
+                    if (continuation != null) {
+                        lineNumber--;
+                        pushedBack.addFirst(continuation);
+                    }
+                    resync(continuations);
+                    return List.of();
+                }
+                if (continuations == null) {
+                    continuations = new ArrayList<>();
+                }
+                continuations.add(continuation);
+                record.append('\n').append(continuation);
+                open ^= hasOddQuotes(continuation);
+            }
+            return splitRecord(record);
+        }
+
+        private String readLine() throws IOException {
+            String line = pushedBack.isEmpty() ? in.readLine() : pushedBack.pollFirst();
+            if (line != null) {
+                lineNumber++;
+            }
+            return line;
+        }
+
+        private void resync(List<String> continuations) {
+            unterminatedQuote = true;
+            if (continuations != null) {
+                for (int i = continuations.size() - 1; i >= 0; i--) {
+                    pushedBack.addFirst(continuations.get(i));
+                }
+                lineNumber -= continuations.size();
+            }
+        }
+
+        private static boolean hasOddQuotes(String line) {
+            boolean odd = false;
+            for (int i = 0; i < line.length(); i++) {
+                if (line.charAt(i) == '"') {
+                    odd = !odd;
+                }
+            }
+            return odd;
+        }
+
+        private List<String> splitRecord(CharSequence record) {
+            List<String> values = new ArrayList<>();
+            StringBuilder current = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < record.length(); i++) {
+                char c = record.charAt(i);
+                if (quoted) {
+                    if (c == '"') {
+                        if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                            current.append('"');
+                            i++;
+                        } else {
+                            quoted = false;
+                        }
+                    } else {
+                        current.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == separator) {
+                    values.add(current.toString());
+                    current.setLength(0);
+                } else {
+                    current.append(c);
+                }
+            }
+            values.add(current.toString());
+            return values;
+        }
+
+        private static String canonicalColumn(String raw) {
+            String normalized = Normalizer.normalize(raw.trim(), Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .toLowerCase(Locale.ROOT)
+                    .replace(' ', '_');
+            String alias = ALIASES.get(normalized);
+            if (alias != null) {
+                return alias;
+            }
+            for (var component : BulkImportRow.class.getRecordComponents()) {
+                if (component.getName().equalsIgnoreCase(normalized.replace("_", ""))) {
+                    return component.getName();
+                }
+            }
+            // Coluna desconhecida: ignorada
+            return null;
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package br.lunavita.totemapi.service;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.lunavita.totemapi.dto.BulkImportRow;
+import br.lunavita.totemapi.dto.BulkImportRowError;
+import br.lunavita.totemapi.dto.BulkImportStatus;
+import br.lunavita.totemapi.event.AppointmentChangedEvent;
+import br.lunavita.totemapi.event.PatientChangedEvent;
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.Doctor;
+import br.lunavita.totemapi.model.Patient;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.PatientRepository;
+
+/**
+ * Importação em lote de pacientes e agendamentos (onboarding de clínica).
+ *
+ * O arquivo é consumido em streaming e processado em lotes de {@code totem.import.batch-size} linhas.
+ * Por lote: uma query resolve todos os CPFs, outra os agendamentos com id informado, e a gravação
+ * é feita com JDBC batch numa única transação. Erros de validação descartam apenas a linha; uma falha
+ * de banco descarta o lote inteiro (reportado linha a linha) e a importação segue.
+ *
+ * O JDBC não passa pelos listeners JPA: os eventos {@link PatientChangedEvent} e
+ * {@link AppointmentChangedEvent} são publicados dentro da transação e entregues após o commit.
+ */
+@Service
+public class BulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportService.class);
+
+    private static final String DEFAULT_STATUS = "aguardando";
+    private static final Pattern TIME_PATTERN = Pattern.compile("^([01]?\\d|2[0-3]):[0-5]\\d(:[0-5]\\d)?$");
+    private static final DateTimeFormatter BR_DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final PatientRepository patientRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final DoctorCache doctorCache;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int batchSize;
+
+    private final String insertPatientSql;
+    private final String updatePatientSql;
+    private final String insertAppointmentSql;
+    private final String updateAppointmentSql;
+
+    public BulkImportService(PatientRepository patientRepository,
+            AppointmentRepository appointmentRepository,
+            DoctorCache doctorCache,
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            @Value("${totem.import.batch-size:1000}") int batchSize,
+            @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.patientRepository = patientRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.doctorCache = doctorCache;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.batchSize = Math.max(1, batchSize);
+
+        String prefix = schema == null || schema.isBlank() ? "" : schema + ".";
+        this.insertPatientSql = "INSERT INTO " + prefix + "patients "
+                + "(id, tenant_id, name, cpf, phone, email, birth_date, address, health_plan) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        this.updatePatientSql = "UPDATE " + prefix + "patients "
+                + "SET name = ?, phone = ?, email = ?, birth_date = ?, address = ?, health_plan = ? "
+                + "WHERE id = ? AND tenant_id = ?";
+        this.insertAppointmentSql = "INSERT INTO " + prefix + "appointments "
+                + "(id, tenant_id, patient, patient_id, doctor_id, doctor, specialty, type, patient_email, "
+                + "date, time, scheduled_at, status, paid, amount, cpf, version) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 0)";
+        this.updateAppointmentSql = "UPDATE " + prefix + "appointments "
+                + "SET patient = ?, patient_id = ?, doctor_id = ?, doctor = ?, specialty = ?, type = ?, "
+                + "patient_email = ?, date = ?, time = ?, scheduled_at = ?, status = ?, paid = ?, amount = ?, cpf = ?, "
+                + "version = version + 1 "
+                + "WHERE id = ? AND tenant_id = ?";
+    }
+
+    /**
+     * Recebe erros por linha e o progresso a cada lote gravado.
+     */
+    public interface Listener {
+
+        void onRowError(BulkImportRowError error);
+
+        void onProgress(BulkImportStatus status);
+    }
+
+    /**
+     * Importa todas as linhas do reader para o tenant.
+     *
+     * @return resumo final (type = "summary")
+     */
+    public BulkImportStatus importRows(String tenantId, BulkImportReader reader, Listener listener)
+            throws IOException {
+        Counters counters = new Counters(System.nanoTime());
+        List<BulkImportReader.ParsedRow> chunk = new ArrayList<>(batchSize);
+        BulkImportReader.ParsedRow parsed;
+        while ((parsed = reader.next()) != null) {
+            counters.rows++;
+            if (parsed.error() != null) {
+                counters.error(listener, parsed.line(), parsed.error());
+                continue;
+            }
+            chunk.add(parsed);
+            if (chunk.size() >= batchSize) {
+                processChunk(tenantId, chunk, counters, listener);
+                chunk.clear();
+                listener.onProgress(counters.status("progress"));
+            }
+        }
+        if (!chunk.isEmpty()) {
+            processChunk(tenantId, chunk, counters, listener);
+        }
+        BulkImportStatus summary = counters.status("summary");
+        logger.info("[IMPORT] Tenant {}: {} linha(s), {} paciente(s) criados, {} atualizados, "
+                + "{} agendamento(s) criados, {} atualizados, {} erro(s) em {} ms",
+                tenantId, summary.rows(), summary.patientsCreated(), summary.patientsUpdated(),
+                summary.appointmentsCreated(), summary.appointmentsUpdated(), summary.errors(), summary.elapsedMs());
+        return summary;
+    }
+
+    // ===== Processamento de um lote =====
+
+    private void processChunk(String tenantId, List<BulkImportReader.ParsedRow> chunk, Counters counters,
+            Listener listener) {
+        Set<String> cpfs = new HashSet<>();
+        Set<String> appointmentIds = new HashSet<>();
+        Set<String> doctorIds = new HashSet<>();
+        for (BulkImportReader.ParsedRow parsed : chunk) {
+            BulkImportRow row = parsed.row();
+            String cpf = normalizeCpf(row.cpf());
+            if (!cpf.isEmpty()) {
+                cpfs.add(cpf);
+            }
+            if (!isBlank(row.id())) {
+                appointmentIds.add(row.id().trim());
+            }
+            if (!isBlank(row.doctorId())) {
+                doctorIds.add(row.doctorId().trim());
+            }
+        }
+
+        Map<String, Patient> patientsByCpf = new HashMap<>();
+        patientRepository.findByCpfIn(cpfs).forEach(p -> patientsByCpf.put(p.getCpf(), p));
+        Map<String, Appointment> existingAppointments = new HashMap<>();
+        if (!appointmentIds.isEmpty()) {
+            appointmentRepository.findAllById(appointmentIds).forEach(a -> existingAppointments.put(a.getId(), a));
+        }
+        Map<String, Doctor> doctors = new HashMap<>();
+        for (String doctorId : doctorIds) {
+            doctorCache.findById(tenantId, doctorId).ifPresent(d -> doctors.put(d.getId(), d));
+        }
+
+        Batch batch = new Batch();
+        for (BulkImportReader.ParsedRow parsed : chunk) {
+            String error = stage(tenantId, parsed, batch, patientsByCpf, existingAppointments, doctors);
+            if (error != null) {
+                counters.error(listener, parsed.line(), error);
+            } else {
+                batch.lines.add(parsed.line());
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(tenantId, batch));
+            counters.patientsCreated += batch.patients.values().stream().filter(p -> p.isNew).count();
+            counters.patientsUpdated += batch.patients.values().stream().filter(p -> !p.isNew && p.dirty).count();
+            counters.appointmentsCreated += batch.appointments.values().stream().filter(a -> a.isNew).count();
+            counters.appointmentsUpdated += batch.appointments.values().stream().filter(a -> !a.isNew).count();
+        } catch (DataAccessException e) {
+            String message = "Falha ao gravar o lote: " + e.getMostSpecificCause().getMessage();
+            logger.warn("[IMPORT] Tenant {}: {}", tenantId, message);
+            for (Long line : batch.lines) {
+                counters.error(listener, line, message);
+            }
+        }
+    }
+
+    /**
+     * Valida a linha e acumula o paciente/agendamento no lote.
+     *
+     * @return mensagem de erro, ou nulo se a linha foi aceita
+     */
+    private String stage(String tenantId, BulkImportReader.ParsedRow parsed, Batch batch,
+            Map<String, Patient> patientsByCpf, Map<String, Appointment> existingAppointments,
+            Map<String, Doctor> doctors) {
+        BulkImportRow row = parsed.row();
+        String cpf = normalizeCpf(row.cpf());
+        if (cpf.isEmpty()) {
+            return "CPF é obrigatório";
+        }
+        if (!row.hasPatientData() && !row.hasAppointmentData()) {
+            return "Linha sem dados de paciente (name) nem de agendamento (date)";
+        }
+
+        // Valida o agendamento antes de tocar no paciente: linha inválida não deixa efeito colateral
+        LocalDate date = null;
+        BigDecimal amount = null;
+        Boolean paid = null;
+        Doctor doctor = null;
+        if (row.hasAppointmentData()) {
+            date = parseDate(row.date());
+            if (date == null) {
+                return "Data inválida (use yyyy-MM-dd ou dd/MM/yyyy): " + row.date();
+            }
+            if (isBlank(row.time()) || !TIME_PATTERN.matcher(row.time().trim()).matches()) {
+                return "Horário inválido (use HH:mm): " + row.time();
+            }
+            if (isBlank(row.type())) {
+                return "Tipo da consulta é obrigatório";
+            }
+            amount = parseAmount(row.amount());
+            if (amount == null) {
+                return "Valor inválido: " + row.amount();
+            }
+            paid = parsePaid(row.paid());
+            if (paid == null) {
+                return "Campo paid inválido: " + row.paid();
+            }
+            if (!isBlank(row.doctorId())) {
+                doctor = doctors.get(row.doctorId().trim());
+                if (doctor == null) {
+                    return "Médico não encontrado no tenant: " + row.doctorId();
+                }
+            }
+        }
+
+        PatientState patient = batch.patients.get(cpf);
+        if (patient == null) {
+            Patient existing = patientsByCpf.get(cpf);
+            if (existing != null) {
+                if (!tenantId.equals(existing.getTenantId())) {
+                    return "CPF já cadastrado em outro tenant";
+                }
+                patient = new PatientState(detachedCopy(existing), false);
+            }
+        }
+        if (row.hasPatientData()) {
+            if (patient == null) {
+                if (isBlank(row.phone())) {
+                    return "Telefone é obrigatório para novo paciente";
+                }
+                Patient created = new Patient(UUID.randomUUID().toString(), tenantId, row.name().trim(), cpf,
+                        row.phone().trim(), trimToNull(row.email()), trimToNull(row.birthDate()),
+                        trimToNull(row.address()), trimToNull(row.healthPlan()), null);
+                patient = new PatientState(created, true);
+            } else {
+                patient.apply(row);
+            }
+        } else if (patient == null) {
+            return "Paciente não encontrado para o CPF (inclua name/phone na linha para cadastrá-lo)";
+        }
+
+        if (row.hasAppointmentData()) {
+            String id = isBlank(row.id()) ? UUID.randomUUID().toString() : row.id().trim();
+            AppointmentState appointment = batch.appointments.get(id);
+            if (appointment == null) {
+                Appointment existing = existingAppointments.get(id);
+                if (existing != null && !tenantId.equals(existing.getTenantId())) {
+                    return "Agendamento " + id + " pertence a outro tenant";
+                }
+                appointment = existing != null
+                        ? new AppointmentState(existing.copy(), false)
+                        : new AppointmentState(new Appointment(), true);
+            }
+            Appointment apt = appointment.appointment;
+            Patient p = patient.patient;
+            apt.setId(id);
+            apt.setTenantId(tenantId);
+            apt.setPatientId(p.getId());
+            apt.setPatient(p.getName());
+            apt.setPatientEmail(!isBlank(row.email()) ? row.email().trim() : p.getEmail());
+            apt.setCpf(cpf);
+            apt.setDate(date);
+            apt.setTime(row.time().trim());
+            apt.setType(row.type().trim());
+            apt.setAmount(amount);
+            apt.setPaid(paid);
+            apt.setStatus(!isBlank(row.status()) ? row.status().trim()
+                    : apt.getStatus() != null ? apt.getStatus() : DEFAULT_STATUS);
+            if (doctor != null) {
+                apt.setDoctorId(doctor.getId());
+                apt.setDoctor(doctor.getName());
+                apt.setSpecialty(doctor.getSpecialty());
+            } else {
+                apt.setDoctorId(null);
+                apt.setDoctor(trimToNull(row.doctor()));
+                apt.setSpecialty(trimToNull(row.specialty()));
+            }
+            batch.appointments.put(id, appointment);
+        }
+        batch.patients.put(cpf, patient);
+        return null;
+    }
+
+    private void write(String tenantId, Batch batch) {
+        List<Object[]> patientInserts = new ArrayList<>();
+        List<Object[]> patientUpdates = new ArrayList<>();
+        for (PatientState state : batch.patients.values()) {
+            Patient p = state.patient;
+            if (state.isNew) {
+                patientInserts.add(new Object[] { p.getId(), tenantId, p.getName(), p.getCpf(), p.getPhone(),
+                        p.getEmail(), p.getBirthDate(), p.getAddress(), p.getHealthPlan() });
+            } else if (state.dirty) {
+                patientUpdates.add(new Object[] { p.getName(), p.getPhone(), p.getEmail(), p.getBirthDate(),
+                        p.getAddress(), p.getHealthPlan(), p.getId(), tenantId });
+            }
+        }
+
+        List<Object[]> appointmentInserts = new ArrayList<>();
+        List<Object[]> appointmentUpdates = new ArrayList<>();
+        for (AppointmentState state : batch.appointments.values()) {
+            Appointment a = state.appointment;
+            if (state.isNew) {
+                appointmentInserts.add(new Object[] { a.getId(), tenantId, a.getPatient(), a.getPatientId(),
+                        a.getDoctorId(), a.getDoctor(), a.getSpecialty(), a.getType(), a.getPatientEmail(),
+                        a.getDate(), a.getTime(), a.getScheduledAt(), a.getStatus(), a.isPaid(), a.getAmount(),
+                        a.getCpf() });
+            } else {
+                appointmentUpdates.add(new Object[] { a.getPatient(), a.getPatientId(), a.getDoctorId(),
+                        a.getDoctor(), a.getSpecialty(), a.getType(), a.getPatientEmail(), a.getDate(), a.getTime(),
+                        a.getScheduledAt(), a.getStatus(), a.isPaid(), a.getAmount(), a.getCpf(), a.getId(),
+                        tenantId });
+            }
+        }
+
+        // Pacientes primeiro: agendamentos novos podem referenciar pacientes criados neste lote
+        jdbcTemplate.batchUpdate(insertPatientSql, patientInserts);
+        jdbcTemplate.batchUpdate(updatePatientSql, patientUpdates);
+        jdbcTemplate.batchUpdate(insertAppointmentSql, appointmentInserts);
+        jdbcTemplate.batchUpdate(updateAppointmentSql, appointmentUpdates);
+
+        for (PatientState state : batch.patients.values()) {
+            if (state.isNew || state.dirty) {
+                eventPublisher.publishEvent(PatientChangedEvent.saved(state.patient));
+            }
+        }
+        for (AppointmentState state : batch.appointments.values()) {
+            eventPublisher.publishEvent(AppointmentChangedEvent.saved(state.appointment));
+        }
+    }
+
+    // ===== Estado do lote =====
+
+    private static final class Batch {
+        final Map<String, PatientState> patients = new LinkedHashMap<>();
+        final Map<String, AppointmentState> appointments = new LinkedHashMap<>();
+        final List<Long> lines = new ArrayList<>();
+
+        boolean isEmpty() {
+            return patients.values().stream().noneMatch(p -> p.isNew || p.dirty) && appointments.isEmpty();
+        }
+    }
+
+    private static final class PatientState {
+        final Patient patient;
+        final boolean isNew;
+        boolean dirty;
+
+        PatientState(Patient patient, boolean isNew) {
+            this.patient = patient;
+            this.isNew = isNew;
+        }
+
+        /**
+         * Atualiza os campos informados (vazios mantêm o valor atual).
+         */
+        void apply(BulkImportRow row) {
+            dirty |= set(row.name(), patient.getName(), patient::setName);
+            dirty |= set(row.phone(), patient.getPhone(), patient::setPhone);
+            dirty |= set(row.email(), patient.getEmail(), patient::setEmail);
+            dirty |= set(row.birthDate(), patient.getBirthDate(), patient::setBirthDate);
+            dirty |= set(row.address(), patient.getAddress(), patient::setAddress);
+            dirty |= set(row.healthPlan(), patient.getHealthPlan(), patient::setHealthPlan);
+        }
+
+        private static boolean set(String value, String current, Consumer<String> setter) {
+            if (isBlank(value) || Objects.equals(value.trim(), current)) {
+                return false;
+            }
+            setter.accept(value.trim());
+            return true;
+        }
+    }
+
+    private static final class AppointmentState {
+        final Appointment appointment;
+        final boolean isNew;
+
+        AppointmentState(Appointment appointment, boolean isNew) {
+            this.appointment = appointment;
+            this.isNew = isNew;
+        }
+    }
+
+    private static final class Counters {
+        final long startNanos;
+        long rows;
+        long patientsCreated;
+        long patientsUpdated;
+        long appointmentsCreated;
+        long appointmentsUpdated;
+        long errors;
+
+        Counters(long startNanos) {
+            this.startNanos = startNanos;
+        }
+
+        void error(Listener listener, long line, String message) {
+            errors++;
+            listener.onRowError(BulkImportRowError.of(line, message));
+        }
+
+        BulkImportStatus status(String type) {
+            return new BulkImportStatus(type, rows, patientsCreated, patientsUpdated, appointmentsCreated,
+                    appointmentsUpdated, errors, (System.nanoTime() - startNanos) / 1_000_000);
+        }
+    }
+
+    // ===== Conversões =====
+
+    /**
+     * Cópia fora do contexto de persistência: alterações nela nunca são "flushadas" pelo Hibernate.
+     */
+    private static Patient detachedCopy(Patient p) {
+        Patient copy = new Patient(p.getId(), p.getTenantId(), p.getName(), p.getCpf(), p.getPhone(), p.getEmail(),
+                p.getBirthDate(), p.getAddress(), p.getHealthPlan(), p.getNotes());
+        copy.setGhlContactId(p.getGhlContactId());
+        return copy;
+    }
+
+    private static String normalizeCpf(String raw) {
+        return raw == null ? "" : raw.replaceAll("\\D", "");
+    }
+
+    private static LocalDate parseDate(String raw) {
+        String value = raw.trim();
+        try {
+            return value.contains("/") ? LocalDate.parse(value, BR_DATE) : LocalDate.parse(value);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Aceita "150", "150.50" e "150,50".
+     */
+    private static BigDecimal parseAmount(String raw) {
+        if (isBlank(raw)) {
+            return null;
+        }
+        String value = raw.trim();
+        if (value.contains(",") && !value.contains(".")) {
+            value = value.replace(',', '.');
+        }
+        try {
+            BigDecimal amount = new BigDecimal(value);
+            return amount.signum() < 0 ? null : amount;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Vazio = false; aceita true/false, sim/não, 1/0.
+     */
+    private static Boolean parsePaid(String raw) {
+        if (isBlank(raw)) {
+            return false;
+        }
+        return switch (raw.trim().toLowerCase(Locale.ROOT)) {
+            case "true", "sim", "s", "1", "yes", "pago" -> true;
+            case "false", "nao", "não", "n", "0", "no" -> false;
+            default -> null;
+        };
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private static String trimToNull(String value) {
+        return isBlank(value) ? null : value.trim();
+    }
+}
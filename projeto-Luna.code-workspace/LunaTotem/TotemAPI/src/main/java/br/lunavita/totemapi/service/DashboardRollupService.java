@@ -0,0 +1,462 @@
+package br.lunavita.totemapi.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import br.lunavita.totemapi.event.AppointmentChangedEvent;
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.DashboardSummary;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.AppointmentRollupRow;
+
+/**
+ * Agregados do dashboard mantidos incrementalmente, por tenant. Chamadas sem tenant combinam os
+ * agregados de todos os tenants (não há uma cópia global da tabela em memória).
+ *
+ * Cada agregado é carregado a partir de uma projeção leve e, depois disso, atualizado pelos
+ * {@link AppointmentChangedEvent} (após o commit). Os agregados carregados são reconstruídos do banco
+ * periodicamente ({@code totem.dashboard.rollup.rebuild-ms}), o que cobre escritas de outra instância,
+ * importações e SQL direto. Assim o
+ * {@code /api/dashboard/summary} não carrega mais entidades nem percorre a tabela inteira:
+ * <ul>
+ * <li>contagem por dia (consultas a partir de hoje)</li>
+ * <li>pacientes distintos na janela de 30 dias (exato, pela última data de cada paciente)</li>
+ * <li>soma dos recebíveis (não pagos)</li>
+ * <li>as 10 consultas mais recentes (chaves ordenadas + cópias apenas das primeiras)</li>
+ * </ul>
+ */
+@Service
+public class DashboardRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardRollupService.class);
+
+    private static final int RECENT_LIMIT = 10;
+    private static final int ACTIVE_WINDOW_DAYS = 30;
+
+    private static final Comparator<RecentKey> RECENT_ORDER = Comparator
+            .comparing(RecentKey::date, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder()))
+            .thenComparing(RecentKey::time)
+            .reversed()
+            .thenComparing(RecentKey::id);
+    private static final Comparator<Appointment> RECENT_APPOINTMENT_ORDER = Comparator.comparing(
+            apt -> new RecentKey(apt.getDate(), parseTimeSafe(apt.getTime()), apt.getId()), RECENT_ORDER);
+
+    private final AppointmentRepository appointmentRepository;
+    private final boolean enabled;
+    private final Map<String, Rollup> rollups = new ConcurrentHashMap<>();
+    // Agregados sendo reconstruídos por rebuild(): recebem os eventos junto com o agregado em uso
+    private final Map<String, Rollup> rebuilding = new ConcurrentHashMap<>();
+    // Tenants com agendamentos (visão global): lidos na primeira chamada sem tenant e a cada rebuild;
+    // tenants novos chegam pelos eventos
+    private final Set<String> knownTenants = ConcurrentHashMap.newKeySet();
+    private volatile boolean tenantsLoaded;
+
+    public DashboardRollupService(AppointmentRepository appointmentRepository,
+            @Value("${totem.dashboard.rollup.enabled:true}") boolean enabled) {
+        this.appointmentRepository = appointmentRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Monta o resumo do dashboard a partir dos agregados em memória.
+     *
+     * @param doctorsCount quantidade de médicos (para o cálculo de horários livres)
+     * @return vazio quando os agregados estão desabilitados ou falharam ao carregar
+     */
+    public Optional<DashboardSummary> summarize(String tenantId, long doctorsCount) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        boolean global = tenantId == null || tenantId.isBlank();
+        LocalDate today = LocalDate.now();
+        try {
+            Totals totals = global ? globalTotals(today) : totalsOf(tenantId, today);
+            return Optional.of(totals.toSummary(today, doctorsCount));
+        } catch (RuntimeException e) {
+            logger.warn("[DASHBOARD ROLLUP] Falha ao carregar agregados de {}: {}",
+                    global ? "todos os tenants" : tenantId, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reconstrói do banco cada agregado já carregado. O novo é montado ao lado do atual (que continua
+     * atendendo o dashboard) e o substitui ao terminar; se a leitura falhar, o tenant é descartado e
+     * recarregado na próxima chamada.
+     */
+    @Scheduled(fixedDelayString = "${totem.dashboard.rollup.rebuild-ms:600000}",
+            initialDelayString = "${totem.dashboard.rollup.rebuild-ms:600000}")
+    public void rebuild() {
+        if (tenantsLoaded) {
+            try {
+                knownTenants.addAll(appointmentRepository.findDistinctTenantIds());
+            } catch (RuntimeException e) {
+                logger.warn("[DASHBOARD ROLLUP] Falha ao listar tenants: {}", e.getMessage());
+            }
+        }
+        for (String tenantId : List.copyOf(rollups.keySet())) {
+            Rollup fresh = new Rollup();
+            rebuilding.put(tenantId, fresh);
+            try {
+                fresh.ensureLoaded(tenantId);
+                rollups.replace(tenantId, fresh);
+            } catch (RuntimeException e) {
+                rollups.remove(tenantId);
+                logger.warn("[DASHBOARD ROLLUP] Falha ao reconstruir agregados de {}: {}", tenantId, e.getMessage());
+            } finally {
+                rebuilding.remove(tenantId, fresh);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (event.tenantId() == null) {
+            return;
+        }
+        knownTenants.add(event.tenantId());
+        // O agregado em reconstrução é lido primeiro: se o rebuild terminar entre as duas leituras,
+        // o evento ainda chega ao agregado novo
+        Rollup next = rebuilding.get(event.tenantId());
+        Rollup current = rollups.get(event.tenantId());
+        apply(current, event);
+        if (next != current) {
+            apply(next, event);
+        }
+    }
+
+    private Totals totalsOf(String tenantId, LocalDate today) {
+        Rollup rollup = rollups.computeIfAbsent(tenantId, k -> new Rollup());
+        try {
+            rollup.ensureLoaded(tenantId);
+        } catch (RuntimeException e) {
+            rollups.remove(tenantId, rollup);
+            throw e;
+        }
+        return rollup.totals(today);
+    }
+
+    /**
+     * Visão sem tenant: soma dos agregados de cada tenant. Pacientes ativos também são somados
+     * (o id do paciente é único, cada paciente pertence a um tenant).
+     */
+    private Totals globalTotals(LocalDate today) {
+        if (!tenantsLoaded) {
+            knownTenants.addAll(appointmentRepository.findDistinctTenantIds());
+            tenantsLoaded = true;
+        }
+        Totals total = Totals.EMPTY;
+        for (String tenantId : knownTenants) {
+            total = total.plus(totalsOf(tenantId, today));
+        }
+        return total;
+    }
+
+    private void apply(Rollup rollup, AppointmentChangedEvent event) {
+        if (rollup == null) {
+            return;
+        }
+        if (event.type() == AppointmentChangedEvent.Type.DELETED) {
+            rollup.remove(event.appointmentId());
+        } else {
+            rollup.upsert(event.appointment());
+        }
+    }
+
+    // ===== Estrutura do agregado =====
+
+    private record RecentKey(LocalDate date, LocalTime time, String id) {
+    }
+
+    /**
+     * Números de um tenant (ou a soma de vários) antes do cálculo dos horários livres.
+     */
+    private record Totals(long scheduled, long activePatients, BigDecimal receivables, List<Appointment> recent) {
+
+        static final Totals EMPTY = new Totals(0, 0, BigDecimal.ZERO, List.of());
+
+        Totals plus(Totals other) {
+            List<Appointment> merged = new ArrayList<>(recent);
+            merged.addAll(other.recent());
+            merged.sort(RECENT_APPOINTMENT_ORDER);
+            return new Totals(scheduled + other.scheduled(), activePatients + other.activePatients(),
+                    receivables.add(other.receivables()),
+                    new ArrayList<>(merged.subList(0, Math.min(RECENT_LIMIT, merged.size()))));
+        }
+
+        DashboardSummary toSummary(LocalDate today, long doctorsCount) {
+            // Cálculo simples de horários livres: assume 20 slots/dia por médico para dias
+            // restantes do mês
+            int slotsPerDoctorPerDay = 20;
+            LocalDate monthEnd = today.withDayOfMonth(today.lengthOfMonth());
+            long remainingDays = today.datesUntil(monthEnd.plusDays(1)).count();
+            long potentialSlots = doctorsCount * slotsPerDoctorPerDay * remainingDays;
+            long freeSlots = Math.max(0, potentialSlots - scheduled);
+
+            DashboardSummary s = new DashboardSummary();
+            s.setScheduledCount(scheduled);
+            s.setActivePatients(activePatients);
+            s.setFreeSlots(freeSlots);
+            s.setReceivables(receivables);
+            s.setRecentAppointments(recent);
+            return s;
+        }
+    }
+
+    private record Slot(LocalDate date, LocalTime time, String patientId, boolean paid, BigDecimal amount) {
+
+        RecentKey recentKey(String id) {
+            return new RecentKey(date, time, id);
+        }
+    }
+
+    private final class Rollup {
+
+        private final Object loadMonitor = new Object();
+        private final Map<String, Slot> slots = new HashMap<>();
+        private final TreeMap<LocalDate, Integer> countsByDate = new TreeMap<>();
+        private final Map<String, TreeMap<LocalDate, Integer>> datesByPatient = new HashMap<>();
+        private final TreeMap<LocalDate, Integer> patientsByLatestDate = new TreeMap<>();
+        private final TreeSet<RecentKey> recentKeys = new TreeSet<>(RECENT_ORDER);
+        private final Map<String, Appointment> recentSnapshots = new HashMap<>();
+        private BigDecimal receivables = BigDecimal.ZERO;
+
+        // Ids alterados por eventos durante a carga inicial: a projeção do banco não os sobrescreve
+        private Set<String> touched = new HashSet<>();
+        private volatile boolean ready;
+
+        void ensureLoaded(String tenantId) {
+            if (ready) {
+                return;
+            }
+            synchronized (loadMonitor) {
+                if (ready) {
+                    return;
+                }
+                long start = System.nanoTime();
+                List<AppointmentRollupRow> rows = appointmentRepository.findRollupRowsByTenantId(tenantId);
+                synchronized (this) {
+                    for (AppointmentRollupRow row : rows) {
+                        if (!touched.contains(row.getId())) {
+                            add(row.getId(), new Slot(row.getDate(), parseTimeSafe(row.getTime()),
+                                    row.getPatientId(), row.isPaid(), row.getAmount()));
+                        }
+                    }
+                    touched = null;
+                    ready = true;
+                }
+                logger.info("[DASHBOARD ROLLUP] Agregados de {} carregados: {} agendamentos em {} ms",
+                        tenantId, rows.size(), (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+
+        synchronized void upsert(Appointment apt) {
+            if (touched != null) {
+                touched.add(apt.getId());
+            }
+            subtract(apt.getId());
+            Slot slot = new Slot(apt.getDate(), parseTimeSafe(apt.getTime()), apt.getPatientId(), apt.isPaid(),
+                    apt.getAmount());
+            add(apt.getId(), slot);
+            if (isWithinRecent(slot.recentKey(apt.getId()))) {
+                recentSnapshots.put(apt.getId(), apt);
+                if (recentSnapshots.size() > RECENT_LIMIT * 4) {
+                    pruneSnapshots();
+                }
+            }
+        }
+
+        synchronized void remove(String id) {
+            if (touched != null) {
+                touched.add(id);
+            }
+            subtract(id);
+        }
+
+        Totals totals(LocalDate today) {
+            List<RecentKey> top;
+            long scheduled;
+            long activePatients;
+            BigDecimal totalReceivables;
+            synchronized (this) {
+                scheduled = sum(countsByDate.tailMap(today, true));
+                activePatients = sum(patientsByLatestDate.tailMap(today.minusDays(ACTIVE_WINDOW_DAYS), true));
+                totalReceivables = receivables;
+                top = new ArrayList<>(RECENT_LIMIT);
+                for (RecentKey key : recentKeys) {
+                    if (top.size() == RECENT_LIMIT) {
+                        break;
+                    }
+                    top.add(key);
+                }
+            }
+
+            return new Totals(scheduled, activePatients, totalReceivables, resolveRecent(top));
+        }
+
+        /**
+         * Converte as chaves das consultas recentes em cópias das entidades. Só vai ao banco
+         * quando uma consulta entra no top sem ter passado por um evento (ex.: após remoções
+         * ou logo depois da carga inicial).
+         */
+        private List<Appointment> resolveRecent(List<RecentKey> top) {
+            List<String> missing = new ArrayList<>();
+            synchronized (this) {
+                for (RecentKey key : top) {
+                    if (!recentSnapshots.containsKey(key.id())) {
+                        missing.add(key.id());
+                    }
+                }
+            }
+            if (!missing.isEmpty()) {
+                List<Appointment> loaded = appointmentRepository.findAllById(missing);
+                synchronized (this) {
+                    for (Appointment apt : loaded) {
+                        if (slots.containsKey(apt.getId())) {
+                            recentSnapshots.putIfAbsent(apt.getId(), apt.copy());
+                        }
+                    }
+                    if (recentSnapshots.size() > RECENT_LIMIT * 4) {
+                        pruneSnapshots();
+                    }
+                }
+            }
+            List<Appointment> recent = new ArrayList<>(top.size());
+            synchronized (this) {
+                for (RecentKey key : top) {
+                    Appointment snapshot = recentSnapshots.get(key.id());
+                    if (snapshot != null) {
+                        recent.add(snapshot.copy());
+                    }
+                }
+            }
+            return recent;
+        }
+
+        /**
+         * Mantém apenas as cópias das consultas que ainda estão no top.
+         */
+        private void pruneSnapshots() {
+            Set<String> keep = new HashSet<>();
+            for (RecentKey key : recentKeys) {
+                if (keep.size() == RECENT_LIMIT) {
+                    break;
+                }
+                keep.add(key.id());
+            }
+            recentSnapshots.keySet().retainAll(keep);
+        }
+
+        private boolean isWithinRecent(RecentKey key) {
+            int position = 0;
+            for (RecentKey existing : recentKeys) {
+                if (position++ >= RECENT_LIMIT) {
+                    return false;
+                }
+                if (RECENT_ORDER.compare(key, existing) <= 0) {
+                    return true;
+                }
+            }
+            return true;
+        }
+
+        private void add(String id, Slot slot) {
+            slots.put(id, slot);
+            if (slot.date() != null) {
+                countsByDate.merge(slot.date(), 1, Integer::sum);
+            }
+            if (!slot.paid() && slot.amount() != null) {
+                receivables = receivables.add(slot.amount());
+            }
+            if (slot.patientId() != null && slot.date() != null) {
+                TreeMap<LocalDate, Integer> dates = datesByPatient.computeIfAbsent(slot.patientId(),
+                        k -> new TreeMap<>());
+                LocalDate before = dates.isEmpty() ? null : dates.lastKey();
+                dates.merge(slot.date(), 1, Integer::sum);
+                moveLatest(before, dates.lastKey());
+            }
+            recentKeys.add(slot.recentKey(id));
+        }
+
+        private void subtract(String id) {
+            Slot slot = slots.remove(id);
+            if (slot == null) {
+                return;
+            }
+            if (slot.date() != null) {
+                decrement(countsByDate, slot.date());
+            }
+            if (!slot.paid() && slot.amount() != null) {
+                receivables = receivables.subtract(slot.amount());
+            }
+            if (slot.patientId() != null && slot.date() != null) {
+                TreeMap<LocalDate, Integer> dates = datesByPatient.get(slot.patientId());
+                if (dates != null) {
+                    LocalDate before = dates.lastKey();
+                    decrement(dates, slot.date());
+                    if (dates.isEmpty()) {
+                        datesByPatient.remove(slot.patientId());
+                        moveLatest(before, null);
+                    } else {
+                        moveLatest(before, dates.lastKey());
+                    }
+                }
+            }
+            recentKeys.remove(slot.recentKey(id));
+            recentSnapshots.remove(id);
+        }
+
+        private void moveLatest(LocalDate before, LocalDate after) {
+            if (before != null && before.equals(after)) {
+                return;
+            }
+            if (before != null) {
+                decrement(patientsByLatestDate, before);
+            }
+            if (after != null) {
+                patientsByLatestDate.merge(after, 1, Integer::sum);
+            }
+        }
+    }
+
+    // ===== Helpers =====
+
+    private static void decrement(Map<LocalDate, Integer> counts, LocalDate key) {
+        counts.computeIfPresent(key, (k, v) -> v > 1 ? v - 1 : null);
+    }
+
+    private static long sum(Map<LocalDate, Integer> counts) {
+        long total = 0;
+        for (int value : counts.values()) {
+            total += value;
+        }
+        return total;
+    }
+
+    private static LocalTime parseTimeSafe(String t) {
+        try {
+            return t == null ? LocalTime.MIDNIGHT : LocalTime.parse(t);
+        } catch (Exception e) {
+            return LocalTime.MIDNIGHT;
+        }
+    }
+}
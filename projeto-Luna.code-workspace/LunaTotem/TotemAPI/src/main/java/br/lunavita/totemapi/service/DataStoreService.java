@@ -7,6 +7,7 @@ import java.time.LocalTime;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -14,12 +15,16 @@ import java.util.stream.Collectors;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import br.lunavita.totemapi.event.AppointmentChangedEvent;
 import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.AppointmentPatch;
 import br.lunavita.totemapi.model.AppointmentRequest;
 import br.lunavita.totemapi.model.DashboardSummary;
 import br.lunavita.totemapi.model.Doctor;
@@ -40,19 +45,31 @@ public class DataStoreService {
     private final EmailService emailService;
     private final ResendEmailService resendEmailService;
     private final FileStorageService fileStorageService;
+    private final AppointmentPhotoService appointmentPhotoService;
     private final ObjectMapper objectMapper;
+    private final UnpaidAppointmentIndex unpaidAppointmentIndex;
+    private final DashboardRollupService dashboardRollupService;
+    private final DoctorCache doctorCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     public DataStoreService(AppointmentRepository appointmentRepository, DoctorRepository doctorRepository,
             PatientRepository patientRepository, EmailService emailService,
             ResendEmailService resendEmailService, FileStorageService fileStorageService,
-            ObjectMapper objectMapper) {
+            AppointmentPhotoService appointmentPhotoService, ObjectMapper objectMapper, UnpaidAppointmentIndex unpaidAppointmentIndex,
+            DashboardRollupService dashboardRollupService, DoctorCache doctorCache,
+            ApplicationEventPublisher eventPublisher) {
         this.appointmentRepository = appointmentRepository;
         this.doctorRepository = doctorRepository;
         this.patientRepository = patientRepository;
         this.emailService = emailService;
         this.resendEmailService = resendEmailService;
         this.fileStorageService = fileStorageService;
+        this.appointmentPhotoService = appointmentPhotoService;
         this.objectMapper = objectMapper;
+        this.unpaidAppointmentIndex = unpaidAppointmentIndex;
+        this.dashboardRollupService = dashboardRollupService;
+        this.doctorCache = doctorCache;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Appointment> listAppointments() {
@@ -76,7 +93,8 @@ public class DataStoreService {
         if (tenantId == null || tenantId.isBlank()) {
             return listUpcomingAppointments();
         }
-        return appointmentRepository.findByTenantIdAndDateGreaterThanEqualOrderByDateAscTimeAscPatientAsc(tenantId, today);
+        return appointmentRepository.findByTenantIdAndScheduledAtGreaterThanEqualOrderByScheduledAtAscPatientAsc(
+                tenantId, today.atStartOfDay());
     }
 
     public List<Appointment> searchUpcomingAppointments(String query) {
@@ -98,8 +116,8 @@ public class DataStoreService {
             return searchUpcomingAppointments(query);
         }
         return appointmentRepository
-                .findByTenantIdAndDateGreaterThanEqualAndPatientIgnoreCaseContainingOrderByDateAscTimeAscPatientAsc(
-                        tenantId, today, query.trim());
+                .findByTenantIdAndScheduledAtGreaterThanEqualAndPatientIgnoreCaseContainingOrderByScheduledAtAscPatientAsc(
+                        tenantId, today.atStartOfDay(), query.trim());
     }
 
     /**
@@ -126,6 +144,9 @@ public class DataStoreService {
 
     /**
      * Variante multi-tenant para busca de agendamentos NÃO pagos (qualquer data).
+     *
+     * Atendida pelo {@link UnpaidAppointmentIndex} em memória; a query LIKE no banco
+     * fica apenas como fallback (índice desabilitado ou falha de carga).
      */
     public List<Appointment> searchUnpaidAppointments(String tenantId, String query) {
         if (query == null || query.trim().length() < 2) {
@@ -137,14 +158,12 @@ public class DataStoreService {
             return searchUnpaidAppointments(query);
         }
         String q = query.trim();
-        String cpfPart = q.replaceAll("\\D", "");
-        if (cpfPart.length() < 2) {
-            cpfPart = "";
-        }
-        System.out.println("[UNPAID SEARCH MT] Buscando com tenantId=" + tenantId + ", q=" + q + ", cpfPart=" + cpfPart);
-        List<Appointment> results = appointmentRepository.searchUnpaidByTenantIdAndPatientOrCpf(tenantId, q, cpfPart);
-        System.out.println("[UNPAID SEARCH MT] Encontrados: " + results.size() + " agendamentos não pagos");
-        results.forEach(a -> System.out.println("  - " + a.getPatient() + " | CPF: " + a.getCpf() + " | Paid: " + a.isPaid() + " | TenantId: " + a.getTenantId()));
+        String digits = q.replaceAll("\\D", "");
+        String cpfPart = digits.length() < 2 ? "" : digits;
+        List<Appointment> results = unpaidAppointmentIndex.search(tenantId, q, cpfPart)
+                .orElseGet(() -> appointmentRepository.searchUnpaidByTenantIdAndPatientOrCpf(tenantId, q, cpfPart));
+        logger.debug("[UNPAID SEARCH MT] tenantId={}, q={}, cpfPart={}: {} agendamentos não pagos",
+                tenantId, q, cpfPart, results.size());
         return results;
     }
 
@@ -235,7 +254,7 @@ public class DataStoreService {
         // Se doctorId foi informado, buscar na tabela doctors
         if (doctorId != null && !doctorId.isBlank()) {
             logger.info("Buscando médico com ID: {} (tenant: {})", doctorId, tenantId);
-            Doctor doctor = doctorRepository.findByTenantIdAndId(tenantId, doctorId)
+            Doctor doctor = doctorCache.findById(tenantId, doctorId)
                     .orElseThrow(() -> new IllegalArgumentException(
                         "Médico não encontrado para o ID informado no tenant " + tenantId));
             
@@ -269,10 +288,8 @@ public class DataStoreService {
     @Transactional
     public Optional<Appointment> updateStatus(String id, String status) {
         return appointmentRepository.findById(id)
-                .map(apt -> {
-                    apt.setStatus(status);
-                    return appointmentRepository.save(apt);
-                });
+                .flatMap(apt -> afterFieldUpdate(apt.getTenantId(), id,
+                        appointmentRepository.updateStatus(apt.getTenantId(), id, status)));
     }
 
     @Transactional
@@ -280,20 +297,14 @@ public class DataStoreService {
         if (tenantId == null || tenantId.isBlank()) {
             return updateStatus(id, status);
         }
-        return appointmentRepository.findByTenantIdAndId(tenantId, id)
-                .map(apt -> {
-                    apt.setStatus(status);
-                    return appointmentRepository.save(apt);
-                });
+        return afterFieldUpdate(tenantId, id, appointmentRepository.updateStatus(tenantId, id, status));
     }
 
     @Transactional
     public Optional<Appointment> updatePaid(String id, boolean paid) {
         return appointmentRepository.findById(id)
-                .map(apt -> {
-                    apt.setPaid(paid);
-                    return appointmentRepository.save(apt);
-                });
+                .flatMap(apt -> afterFieldUpdate(apt.getTenantId(), id,
+                        appointmentRepository.updatePaid(apt.getTenantId(), id, paid)));
     }
 
     @Transactional
@@ -301,11 +312,21 @@ public class DataStoreService {
         if (tenantId == null || tenantId.isBlank()) {
             return updatePaid(id, paid);
         }
-        return appointmentRepository.findByTenantIdAndId(tenantId, id)
-                .map(apt -> {
-                    apt.setPaid(paid);
-                    return appointmentRepository.save(apt);
-                });
+        return afterFieldUpdate(tenantId, id, appointmentRepository.updatePaid(tenantId, id, paid));
+    }
+
+    /**
+     * Status e pagamento são gravados por UPDATE direto (sem conflito de versão com escritas
+     * concorrentes); relê o agendamento e publica o evento que os listeners JPA publicariam.
+     */
+    private Optional<Appointment> afterFieldUpdate(String tenantId, String id, int updated) {
+        if (updated == 0) {
+            return Optional.empty();
+        }
+        return appointmentRepository.findByTenantIdAndId(tenantId, id).map(apt -> {
+            eventPublisher.publishEvent(AppointmentChangedEvent.saved(apt));
+            return apt;
+        });
     }
 
     public Optional<Appointment> updateAppointment(String id, AppointmentRequest request) {
@@ -356,6 +377,92 @@ public class DataStoreService {
         });
     }
 
+    /**
+     * Alteração parcial: grava apenas os campos informados (UPDATE dinâmico, só colunas alteradas).
+     *
+     * Com {@code patch.version} informado, rejeita a alteração se o agendamento mudou desde aquela versão;
+     * a versão também é conferida no próprio UPDATE, cobrindo escritas concorrentes entre a leitura e o commit.
+     *
+     * @throws ObjectOptimisticLockingFailureException em conflito de versão
+     */
+    @Transactional
+    public Optional<Appointment> patchAppointment(String id, AppointmentPatch patch, String tenantId) {
+        return appointmentRepository.findByTenantIdAndId(tenantId, id).map(apt -> {
+            if (patch.getVersion() != null && !patch.getVersion().equals(apt.getVersion())) {
+                throw new ObjectOptimisticLockingFailureException(Appointment.class, id);
+            }
+            if (patch.getPatient() != null) {
+                apt.setPatient(patch.getPatient());
+            }
+            if (patch.getPatientId() != null) {
+                apt.setPatientId(patch.getPatientId());
+            }
+            if (patch.getDoctorId() != null) {
+                apt.setDoctorId(patch.getDoctorId());
+            }
+            if (patch.getDoctor() != null) {
+                apt.setDoctor(patch.getDoctor());
+            }
+            if (patch.getSpecialty() != null) {
+                apt.setSpecialty(patch.getSpecialty());
+            }
+            if (patch.getType() != null) {
+                apt.setType(patch.getType());
+            }
+            if (patch.getPatientEmail() != null) {
+                apt.setPatientEmail(patch.getPatientEmail());
+            }
+            if (patch.getDate() != null) {
+                apt.setDate(patch.getDate());
+            }
+            if (patch.getTime() != null) {
+                apt.setTime(patch.getTime());
+            }
+            if (patch.getAmount() != null) {
+                apt.setAmount(patch.getAmount());
+            }
+            if (patch.getCpf() != null) {
+                apt.setCpf(patch.getCpf());
+            }
+            if (patch.getStatus() != null && !patch.getStatus().isBlank()) {
+                apt.setStatus(patch.getStatus());
+            }
+            if (patch.getPaid() != null) {
+                apt.setPaid(patch.getPaid());
+            }
+            return appointmentRepository.saveAndFlush(apt);
+        });
+    }
+
+    /**
+     * Resultado de uma transição de status compare-and-set.
+     *
+     * @param applied     false quando o status atual não era o esperado
+     * @param appointment estado atual do agendamento (após a transição, se aplicada)
+     */
+    public record StatusTransition(boolean applied, Appointment appointment) {
+    }
+
+    /**
+     * Transição de status compare-and-set (ex.: AGUARDANDO → CHECKIN) num único UPDATE condicional,
+     * sem SELECT prévio: dois totens/recepção disputando o mesmo agendamento nunca aplicam ambos.
+     *
+     * @return vazio se o agendamento não existe no tenant
+     */
+    @Transactional
+    public Optional<StatusTransition> compareAndSetStatus(String id, String expectedStatus, String newStatus,
+            String tenantId) {
+        String expected = expectedStatus.trim().toUpperCase(Locale.ROOT);
+        boolean applied = appointmentRepository.compareAndSetStatus(tenantId, id, expected, newStatus) > 0;
+        return appointmentRepository.findByTenantIdAndId(tenantId, id).map(apt -> {
+            if (applied) {
+                // UPDATE em lote não passa pelos listeners JPA (evento entregue após o commit)
+                eventPublisher.publishEvent(AppointmentChangedEvent.saved(apt));
+            }
+            return new StatusTransition(applied, apt);
+        });
+    }
+
     public boolean sendAppointmentNotifications(String id, String patientEmail, String doctorEmail) {
         logger.info("[NOTIFY] Iniciando envio de notificação para consulta id={}, doctorEmail={}", id, doctorEmail);
         return appointmentRepository.findById(id).map(appointment -> {
@@ -363,7 +470,7 @@ public class DataStoreService {
 
             String resolvedDoctorEmail = (doctorEmail != null && !doctorEmail.isBlank())
                     ? doctorEmail
-                    : resolveDoctorEmail(appointment.getDoctor());
+                    : resolveDoctorEmail(appointment.getTenantId(), appointment.getDoctor());
             if (resolvedDoctorEmail != null && !resolvedDoctorEmail.isBlank()) {
                 try {
                     logger.info("[NOTIFY] Enviando email para médico: {}", resolvedDoctorEmail);
@@ -390,10 +497,15 @@ public class DataStoreService {
         });
     }
 
-    private String resolveDoctorEmail(String doctorName) {
+    private String resolveDoctorEmail(String tenantId, String doctorName) {
         if (doctorName == null || doctorName.isBlank()) {
             return null;
         }
+        if (tenantId != null && !tenantId.isBlank()) {
+            return doctorCache.findByName(tenantId, doctorName)
+                    .map(Doctor::getEmail)
+                    .orElse(null);
+        }
         return doctorRepository.findFirstByNameIgnoreCase(doctorName)
                 .map(Doctor::getEmail)
                 .orElse(null);
@@ -419,14 +531,20 @@ public class DataStoreService {
         return true;
     }
 
+    /**
+     * @throws IllegalArgumentException se o arquivo não é uma imagem aceita
+     */
     public Optional<Appointment> uploadAppointmentPhoto(String id, MultipartFile file) {
         return appointmentRepository.findById(id).map(apt -> {
             try {
-                FileStorageService.PhotoSaveResult savedPhoto = fileStorageService.saveAppointmentPhoto(id, file);
+                FileStorageService.PhotoSaveResult savedPhoto = appointmentPhotoService.accept(id, apt.getTenantId(),
+                        file);
                 apt.setPhotoUrl(savedPhoto.url());
                 Appointment saved = appointmentRepository.save(apt);
                 savePhotoAudit(saved, savedPhoto);
                 return saved;
+            } catch (IllegalArgumentException e) {
+                throw e;
             } catch (Exception e) {
                 throw new RuntimeException("Failed to save photo: " + e.getMessage(), e);
             }
@@ -507,7 +625,7 @@ public class DataStoreService {
         if (tenantId == null || tenantId.isBlank()) {
             return listDoctors();
         }
-        return doctorRepository.findAllByTenantId(tenantId);
+        return doctorCache.list(tenantId);
     }
 
     public Doctor createDoctor(Doctor doctor) {
@@ -535,7 +653,7 @@ public class DataStoreService {
         if (tenantId == null || tenantId.isBlank()) {
             return updateDoctor(id, doctor);
         }
-        return doctorRepository.findByTenantIdAndId(tenantId, id).map(existing -> {
+        return doctorCache.findById(tenantId, id).map(existing -> {
             doctor.setId(id);
             doctor.setTenantId(tenantId);
             return doctorRepository.save(doctor);
@@ -554,7 +672,7 @@ public class DataStoreService {
         if (tenantId == null || tenantId.isBlank()) {
             return deleteDoctor(id);
         }
-        boolean exists = doctorRepository.findByTenantIdAndId(tenantId, id).isPresent();
+        boolean exists = doctorCache.findById(tenantId, id).isPresent();
         if (!exists) {
             return false;
         }
@@ -566,7 +684,19 @@ public class DataStoreService {
         return getDashboardSummary(null);
     }
 
+    /**
+     * Resumo do dashboard, servido pelos agregados incrementais do {@link DashboardRollupService}.
+     * O cálculo por varredura completa fica apenas como fallback.
+     */
     public DashboardSummary getDashboardSummary(String tenantId) {
+        long doctorsCount = (tenantId != null && !tenantId.isBlank())
+                ? doctorCache.count(tenantId)
+                : doctorRepository.count();
+        return dashboardRollupService.summarize(tenantId, doctorsCount)
+                .orElseGet(() -> computeDashboardSummary(tenantId, doctorsCount));
+    }
+
+    private DashboardSummary computeDashboardSummary(String tenantId, long doctorsCount) {
         List<Appointment> all = (tenantId != null && !tenantId.isBlank())
                 ? appointmentRepository.findAllByTenantId(tenantId)
                 : appointmentRepository.findAll();
@@ -604,9 +734,6 @@ public class DataStoreService {
 
         // Cálculo simples de horários livres: assume 20 slots/dia por médico para dias
         // restantes do mês
-        int doctorsCount = (int) ((tenantId != null && !tenantId.isBlank())
-            ? doctorRepository.countByTenantId(tenantId)
-            : doctorRepository.count());
         int slotsPerDoctorPerDay = 20;
         LocalDate monthEnd = today.withDayOfMonth(today.lengthOfMonth());
         long remainingDays = today.datesUntil(monthEnd.plusDays(1)).count();
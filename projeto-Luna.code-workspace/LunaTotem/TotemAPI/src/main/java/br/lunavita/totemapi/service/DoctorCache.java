@@ -0,0 +1,160 @@
+package br.lunavita.totemapi.service;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import br.lunavita.totemapi.event.DoctorChangedEvent;
+import br.lunavita.totemapi.model.Doctor;
+import br.lunavita.totemapi.repository.DoctorRepository;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Cache read-through dos médicos, por tenant (por id, nome em minúsculas e CRM).
+ *
+ * Médicos mudam raramente, mas são consultados a cada agendamento criado, notificação enviada
+ * e no dashboard. O tenant inteiro é carregado com uma query na primeira consulta; qualquer escrita
+ * de médico ({@link DoctorChangedEvent}, após o commit) descarta o cache de todos os tenants,
+ * o que também cobre a troca de tenant de um médico. O TTL cobre escritas fora da JPA
+ * ({@code totem.doctors.cache.ttl-ms=0} equivale a desligar o cache).
+ *
+ * Métricas: {@code totem.doctor.cache.gets{result=hit|miss}} e {@code totem.doctor.cache.tenants}.
+ */
+@Component
+public class DoctorCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DoctorCache.class);
+
+    private final DoctorRepository doctorRepository;
+    private final long ttlNanos;
+    private final Map<String, TenantDoctors> tenants = new ConcurrentHashMap<>();
+    // Incrementado a cada invalidação: snapshot lido antes dela não é publicado no cache
+    private final AtomicLong generation = new AtomicLong();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public DoctorCache(DoctorRepository doctorRepository,
+            MeterRegistry meterRegistry,
+            @Value("${totem.doctors.cache.ttl-ms:600000}") long ttlMs) {
+        this.doctorRepository = doctorRepository;
+        this.ttlNanos = ttlMs * 1_000_000L;
+
+        FunctionCounter.builder("totem.doctor.cache.gets", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Consultas de médicos atendidas pelo cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("totem.doctor.cache.gets", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Consultas de médicos que carregaram o tenant do banco")
+                .register(meterRegistry);
+        Gauge.builder("totem.doctor.cache.tenants", tenants, Map::size)
+                .description("Tenants com médicos em cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Snapshot imutável dos médicos de um tenant.
+     */
+    private record TenantDoctors(List<Doctor> all, Map<String, Doctor> byId, Map<String, Doctor> byName,
+            Map<String, Doctor> byCrm, long loadedAt) {
+
+        static TenantDoctors of(List<Doctor> doctors, long loadedAt) {
+            Map<String, Doctor> byId = new HashMap<>();
+            Map<String, Doctor> byName = new HashMap<>();
+            Map<String, Doctor> byCrm = new HashMap<>();
+            for (Doctor doctor : doctors) {
+                byId.put(doctor.getId(), doctor);
+                if (doctor.getName() != null) {
+                    byName.putIfAbsent(normalize(doctor.getName()), doctor);
+                }
+                if (doctor.getCrm() != null) {
+                    byCrm.putIfAbsent(doctor.getCrm().trim(), doctor);
+                }
+            }
+            return new TenantDoctors(List.copyOf(doctors), byId, byName, byCrm, loadedAt);
+        }
+    }
+
+    public List<Doctor> list(String tenantId) {
+        return load(tenantId).all();
+    }
+
+    public long count(String tenantId) {
+        return load(tenantId).all().size();
+    }
+
+    public Optional<Doctor> findById(String tenantId, String id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(load(tenantId).byId().get(id));
+    }
+
+    /**
+     * Busca por nome ignorando maiúsculas/minúsculas (equivalente a {@code findByTenantIdAndNameIgnoreCase}).
+     */
+    public Optional<Doctor> findByName(String tenantId, String name) {
+        if (name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(load(tenantId).byName().get(normalize(name)));
+    }
+
+    public Optional<Doctor> findByCrm(String tenantId, String crm) {
+        if (crm == null || crm.isBlank()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(load(tenantId).byCrm().get(crm.trim()));
+    }
+
+    /**
+     * Descarta o cache de todos os tenants.
+     */
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        tenants.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onDoctorChanged(DoctorChangedEvent event) {
+        invalidateAll();
+        logger.debug("[DOCTOR CACHE] Invalidado após alteração do médico {} (tenant {})",
+                event.doctorId(), event.tenantId());
+    }
+
+    private TenantDoctors load(String tenantId) {
+        TenantDoctors cached = tenants.get(tenantId);
+        long now = System.nanoTime();
+        if (cached != null && now - cached.loadedAt() < ttlNanos) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long observedGeneration = generation.get();
+        TenantDoctors loaded = TenantDoctors.of(doctorRepository.findAllByTenantId(tenantId), now);
+        if (generation.get() == observedGeneration) {
+            tenants.put(tenantId, loaded);
+            if (generation.get() != observedGeneration) {
+                tenants.remove(tenantId, loaded);
+            }
+        }
+        return loaded;
+    }
+
+    private static String normalize(String name) {
+        return name.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -83,6 +83,17 @@ public class FileStorageService {
         return baseDir.resolve(relative).normalize();
     }
 
+    /**
+     * Arquivo derivado de uma foto, ao lado dela: photo-{timestamp}.png → photo-{timestamp}-{suffix}.jpg
+     */
+    public Path resolveVariant(String url, String suffix) {
+        Path original = resolveFromUrl(url);
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String stem = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(stem + "-" + suffix + ".jpg");
+    }
+
     private String getExtensionSafe(String name) {
         if (name == null)
             return "";
@@ -18,7 +18,6 @@ import br.lunavita.totemapi.model.Appointment;
 import br.lunavita.totemapi.model.Doctor;
 import br.lunavita.totemapi.model.Patient;
 import br.lunavita.totemapi.repository.AppointmentRepository;
-import br.lunavita.totemapi.repository.DoctorRepository;
 import br.lunavita.totemapi.repository.PatientRepository;
 
 @Service
@@ -28,14 +27,14 @@ public class GhlWebhookAppointmentService {
 
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
-    private final DoctorRepository doctorRepository;
+    private final DoctorCache doctorCache;
 
     public GhlWebhookAppointmentService(PatientRepository patientRepository,
                                         AppointmentRepository appointmentRepository,
-                                        DoctorRepository doctorRepository) {
+                                        DoctorCache doctorCache) {
         this.patientRepository = patientRepository;
         this.appointmentRepository = appointmentRepository;
-        this.doctorRepository = doctorRepository;
+        this.doctorCache = doctorCache;
     }
 
     @Transactional
@@ -213,7 +212,7 @@ public class GhlWebhookAppointmentService {
     }
 
     private Doctor findDoctor(String doctorId, String tenantId) {
-        Optional<Doctor> doctor = doctorRepository.findByTenantIdAndId(tenantId, doctorId);
+        Optional<Doctor> doctor = doctorCache.findById(tenantId, doctorId);
         return doctor.orElse(null);
     }
 
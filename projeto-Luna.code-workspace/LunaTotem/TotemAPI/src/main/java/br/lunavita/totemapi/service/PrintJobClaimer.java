@@ -0,0 +1,142 @@
+package br.lunavita.totemapi.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reserva (claim) atômica do próximo job pendente de um terminal.
+ *
+ * No PostgreSQL é um único statement: o SELECT interno trava a linha com {@code FOR UPDATE SKIP LOCKED}
+ * (agents concorrentes pulam para o próximo job em vez de esperar) e o UPDATE a marca como PRINTING
+ * na mesma operação. Vale para vários agents por terminal e várias instâncias do backend.
+ *
+ * Em outros bancos (H2 no perfil dev) usa compare-and-set: lê alguns candidatos e tenta
+ * {@code UPDATE ... WHERE status = 'PENDING'} em cada um até um dar certo. Também nunca reserva
+ * o mesmo job duas vezes, só disputa mais sob contenção.
+ *
+ * O claim grava a lease do job ({@link PrintJobLeases}) e ignora jobs com retry agendado para o futuro
+ * ({@code next_attempt_at}).
+ */
+@Component
+@Slf4j
+public class PrintJobClaimer {
+
+    private static final int CAS_CANDIDATES = 8;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PrintJobLeases leases;
+    private final boolean skipLocked;
+    private final String claimSql;
+    private final String claimBatchSql;
+    private final String candidatesSql;
+    private final String casSql;
+
+    public PrintJobClaimer(JdbcTemplate jdbcTemplate, PrintJobLeases leases,
+            @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.leases = leases;
+        String product = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        this.skipLocked = product != null && product.toLowerCase().contains("postgresql");
+
+        String table = (schema == null || schema.isBlank() ? "" : schema + ".") + "print_jobs";
+        String claimSet = "SET status = 'PRINTING', attempts = attempts + 1, "
+                + "last_attempt_at = CURRENT_TIMESTAMP, updated_at = CURRENT_TIMESTAMP, "
+                + "lease_expires_at = ?, next_attempt_at = NULL ";
+        String ready = "WHERE terminal_id = ? AND status = 'PENDING' "
+                + "AND (next_attempt_at IS NULL OR next_attempt_at <= ?) ";
+        this.claimSql = "UPDATE " + table + " " + claimSet
+                + "WHERE id = (SELECT id FROM " + table + " "
+                + ready
+                + "ORDER BY priority ASC, created_at ASC "
+                + "LIMIT 1 FOR UPDATE SKIP LOCKED) "
+                + "RETURNING id";
+        this.claimBatchSql = "UPDATE " + table + " " + claimSet
+                + "WHERE id IN (SELECT id FROM " + table + " "
+                + ready
+                + "ORDER BY priority ASC, created_at ASC "
+                + "LIMIT ? FOR UPDATE SKIP LOCKED) "
+                + "RETURNING id";
+        this.candidatesSql = "SELECT id FROM " + table + " "
+                + ready
+                + "ORDER BY priority ASC, created_at ASC "
+                + "LIMIT ?";
+        this.casSql = "UPDATE " + table + " " + claimSet
+                + "WHERE id = ? AND status = 'PENDING'";
+
+        log.info("[PRINT CLAIM] Estratégia de reserva: {}", skipLocked ? "UPDATE ... SKIP LOCKED" : "compare-and-set");
+    }
+
+    /**
+     * Marca o próximo job pendente do terminal como PRINTING (incrementando as tentativas).
+     *
+     * @return id do job reservado, ou vazio se não há job pendente
+     */
+    public Optional<String> claimNext(String terminalId) {
+        if (skipLocked) {
+            List<String> claimed = jdbcTemplate.queryForList(claimSql, String.class, leaseUntil(), terminalId,
+                    now());
+            return claimed.stream().findFirst();
+        }
+        while (true) {
+            List<String> candidates = jdbcTemplate.queryForList(candidatesSql, String.class, terminalId, now(),
+                    CAS_CANDIDATES);
+            if (candidates.isEmpty()) {
+                return Optional.empty();
+            }
+            for (String id : candidates) {
+                if (jdbcTemplate.update(casSql, leaseUntil(), id) == 1) {
+                    return Optional.of(id);
+                }
+            }
+            // Todos os candidatos foram reservados por outro agent: relê a fila
+        }
+    }
+
+    /**
+     * Reserva até {@code max} jobs pendentes do terminal de uma vez (mesma semântica de {@link #claimNext}).
+     *
+     * @return ids reservados, sem ordem garantida; vazio se não há job pendente
+     */
+    public List<String> claimBatch(String terminalId, int max) {
+        if (skipLocked) {
+            return jdbcTemplate.queryForList(claimBatchSql, String.class, leaseUntil(), terminalId, now(), max);
+        }
+        List<String> claimed = new ArrayList<>();
+        while (claimed.size() < max) {
+            List<String> candidates = jdbcTemplate.queryForList(candidatesSql, String.class, terminalId, now(),
+                    max - claimed.size());
+            if (candidates.isEmpty()) {
+                break;
+            }
+            Timestamp leaseUntil = leaseUntil();
+            int[] updated = jdbcTemplate.batchUpdate(casSql,
+                    candidates.stream().map(id -> new Object[] { leaseUntil, id }).toList());
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] == 1) {
+                    claimed.add(candidates.get(i));
+                }
+            }
+            // Candidatos perdidos para outro agent já saíram de PENDING: a releitura avança
+        }
+        return claimed;
+    }
+
+    private Timestamp leaseUntil() {
+        return Timestamp.from(leases.leaseUntil());
+    }
+
+    private static Timestamp now() {
+        return Timestamp.from(Instant.now());
+    }
+}
@@ -0,0 +1,184 @@
+package br.lunavita.totemapi.service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import br.lunavita.totemapi.event.PrintJobAvailableEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Posse dos jobs em impressão por lease, e backoff dos retries.
+ *
+ * O claim grava {@code lease_expires_at} (agora + {@code duration-seconds}); enquanto imprime, o agent
+ * renova a lease por heartbeat. Leases vencidas são recuperadas automaticamente a cada {@code reclaim-ms}
+ * (índice status, lease_expires_at): o job volta a PENDING, ou vai a FAILED se esgotou as tentativas.
+ * Tudo em UPDATEs em lote, sem carregar entidades.
+ *
+ * Falhas reportadas pelo agent não voltam à fila na hora: {@link #retryAt(int)} agenda a próxima tentativa
+ * com backoff exponencial ({@code next_attempt_at}, respeitado pelo {@link PrintJobClaimer}).
+ */
+@Component
+@Slf4j
+public class PrintJobLeases {
+
+    private static final int RELEASE_BATCH_SIZE = 500;
+    private static final int MAX_BATCHES_PER_RUN = 50;
+    private static final String EXPIRED_ERROR = "Lease expirada: o agent não confirmou a impressão";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final PrintQueueMetrics metrics;
+    private final Duration leaseDuration;
+    private final Duration retryBaseDelay;
+    private final Duration retryMaxDelay;
+
+    private final String table;
+
+    public PrintJobLeases(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ApplicationEventPublisher eventPublisher,
+            PrintQueueMetrics metrics,
+            @Value("${totem.print-queue.lease.duration-seconds:120}") long leaseSeconds,
+            @Value("${totem.print-queue.retry.base-delay-ms:5000}") long retryBaseDelayMs,
+            @Value("${totem.print-queue.retry.max-delay-ms:300000}") long retryMaxDelayMs,
+            @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.metrics = metrics;
+        this.leaseDuration = Duration.ofSeconds(Math.max(1, leaseSeconds));
+        this.retryBaseDelay = Duration.ofMillis(Math.max(0, retryBaseDelayMs));
+        this.retryMaxDelay = Duration.ofMillis(Math.max(retryBaseDelayMs, retryMaxDelayMs));
+        this.table = (schema == null || schema.isBlank() ? "" : schema + ".") + "print_jobs";
+    }
+
+    /**
+     * Vencimento da lease de um job reservado agora.
+     */
+    public Instant leaseUntil() {
+        return Instant.now().plus(leaseDuration);
+    }
+
+    /**
+     * Próxima tentativa após a falha de número {@code attempts}: base * 2^(attempts-1), limitado ao máximo.
+     */
+    public Instant retryAt(int attempts) {
+        int exponent = Math.min(Math.max(attempts - 1, 0), 30);
+        Duration delay = retryBaseDelay.multipliedBy(1L << exponent);
+        if (delay.compareTo(retryMaxDelay) > 0 || delay.isNegative()) {
+            delay = retryMaxDelay;
+        }
+        return Instant.now().plus(delay);
+    }
+
+    /**
+     * Renova a lease dos jobs que continuam em PRINTING.
+     *
+     * @return ids cuja lease não pôde ser renovada (job já finalizado, recuperado ou inexistente)
+     */
+    public List<String> extend(List<String> jobIds) {
+        if (jobIds.isEmpty()) {
+            return List.of();
+        }
+        String in = placeholders(jobIds.size());
+        List<Object> args = new ArrayList<>(jobIds.size() + 1);
+        args.add(Timestamp.from(leaseUntil()));
+        args.addAll(jobIds);
+
+        return transactionTemplate.execute(status -> {
+            jdbcTemplate.update("UPDATE " + table + " SET lease_expires_at = ? "
+                    + "WHERE status = 'PRINTING' AND id IN (" + in + ")", args.toArray());
+            Set<String> extended = new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM " + table + " "
+                    + "WHERE status = 'PRINTING' AND id IN (" + in + ")", String.class, jobIds.toArray()));
+            return jobIds.stream().filter(id -> !extended.contains(id)).distinct().toList();
+        });
+    }
+
+    /**
+     * Recupera jobs com lease vencida. Jobs em PRINTING sem lease (reservados antes das leases)
+     * vencem pela última tentativa.
+     */
+    @Scheduled(fixedDelayString = "${totem.print-queue.lease.reclaim-ms:30000}",
+            initialDelayString = "${totem.print-queue.lease.reclaim-ms:30000}")
+    public void reclaimExpired() {
+        try {
+            Timestamp now = Timestamp.from(Instant.now());
+            Timestamp legacyThreshold = Timestamp.from(Instant.now().minus(leaseDuration));
+            int released = release("(lease_expires_at < ? OR (lease_expires_at IS NULL AND last_attempt_at < ?))",
+                    now, legacyThreshold);
+            metrics.released("lease_expired", released);
+            if (released > 0) {
+                log.warn("[PRINT LEASE] {} jobs com lease vencida recuperados", released);
+            }
+        } catch (DataAccessException e) {
+            log.warn("[PRINT LEASE] Falha ao recuperar leases vencidas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Libera jobs em PRINTING cuja última tentativa é anterior a {@code threshold}, independentemente da lease
+     * (manutenção manual).
+     *
+     * @return quantidade de jobs liberados
+     */
+    public int releaseStale(Instant threshold) {
+        int released = release("last_attempt_at < ?", Timestamp.from(threshold));
+        metrics.released("stale", released);
+        return released;
+    }
+
+    private int release(String condition, Object... params) {
+        String selectSql = "SELECT id, terminal_id FROM " + table + " "
+                + "WHERE status = 'PRINTING' AND " + condition + " "
+                + "ORDER BY last_attempt_at LIMIT " + RELEASE_BATCH_SIZE + " FOR UPDATE";
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            Integer released = transactionTemplate.execute(status -> {
+                List<String> ids = new ArrayList<>();
+                Set<String> terminals = new HashSet<>();
+                jdbcTemplate.query(selectSql, rs -> {
+                    ids.add(rs.getString("id"));
+                    terminals.add(rs.getString("terminal_id"));
+                }, params);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                List<Object> args = new ArrayList<>(ids.size() + 1);
+                args.add(EXPIRED_ERROR);
+                args.addAll(ids);
+                jdbcTemplate.update("UPDATE " + table + " SET "
+                        + "status = CASE WHEN attempts >= max_attempts THEN 'FAILED' ELSE 'PENDING' END, "
+                        + "error = ?, lease_expires_at = NULL, next_attempt_at = NULL, updated_at = CURRENT_TIMESTAMP "
+                        + "WHERE id IN (" + placeholders(ids.size()) + ")", args.toArray());
+                // Publicado dentro da transação: os listeners rodam após o commit
+                terminals.forEach(terminalId -> eventPublisher.publishEvent(new PrintJobAvailableEvent(terminalId)));
+                return ids.size();
+            });
+            total += released;
+            if (released < RELEASE_BATCH_SIZE) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
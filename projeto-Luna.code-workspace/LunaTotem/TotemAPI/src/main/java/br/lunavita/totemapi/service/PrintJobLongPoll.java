@@ -0,0 +1,154 @@
+package br.lunavita.totemapi.service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import br.lunavita.totemapi.dto.PrintJobResponse;
+import br.lunavita.totemapi.event.PrintJobAvailableEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entrega de jobs ao Print Agent por long-poll.
+ *
+ * Sem job pendente, a requisição do agent fica estacionada (sem thread presa, via {@link DeferredResult})
+ * até um {@link PrintJobAvailableEvent} do terminal (após o commit do enqueue/retry) ou até o prazo,
+ * quando responde 204 e o agent reconecta. O claim continua atômico ({@link PrintJobClaimer}):
+ * com vários agents no mesmo terminal, quem não levou o job volta a aguardar.
+ *
+ * Jobs enfileirados por outra instância do backend não geram evento aqui: uma rechecagem periódica
+ * ({@code totem.print-queue.long-poll.recheck-ms}) cobre esse caso.
+ *
+ * Retry com backoff chega com {@code availableAt} no futuro: o aviso é agendado para esse instante.
+ */
+@Component
+@Slf4j
+public class PrintJobLongPoll {
+
+    private final PrintQueueService printQueueService;
+    private final Executor executor;
+    private final TaskScheduler taskScheduler;
+    private final long maxWaitMs;
+    private final Map<String, Queue<Waiter>> waiters = new ConcurrentHashMap<>();
+
+    public PrintJobLongPoll(PrintQueueService printQueueService,
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            TaskScheduler taskScheduler,
+            @Value("${totem.print-queue.long-poll.max-wait-ms:60000}") long maxWaitMs) {
+        this.printQueueService = printQueueService;
+        this.executor = executor;
+        this.taskScheduler = taskScheduler;
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Agent aguardando job de um terminal.
+     *
+     * {@code signals} conta os avisos ainda não atendidos: só uma thread faz claim por vez, e um aviso
+     * recebido durante o claim faz essa mesma thread tentar de novo (o job pode ter sido commitado
+     * depois do SELECT).
+     */
+    private record Waiter(String terminalId, int inlinePayloadMax,
+            DeferredResult<ResponseEntity<PrintJobResponse>> result, AtomicInteger signals) {
+    }
+
+    /**
+     * Reserva o próximo job do terminal, aguardando até {@code waitMs} se não houver nenhum.
+     *
+     * @param inlinePayloadMax ver {@link PrintQueueService#claimNext}
+     */
+    public DeferredResult<ResponseEntity<PrintJobResponse>> claimOrWait(String terminalId, long waitMs,
+            int inlinePayloadMax) {
+        long timeout = Math.max(1, Math.min(waitMs, maxWaitMs));
+        DeferredResult<ResponseEntity<PrintJobResponse>> result = new DeferredResult<>(timeout,
+                () -> ResponseEntity.noContent().build());
+        Waiter waiter = new Waiter(terminalId, inlinePayloadMax, result, new AtomicInteger());
+
+        // Registra antes do primeiro claim: um enqueue concorrente encontra o waiter
+        waiters.compute(terminalId, (id, queue) -> {
+            Queue<Waiter> target = queue != null ? queue : new ConcurrentLinkedQueue<>();
+            target.add(waiter);
+            return target;
+        });
+        result.onCompletion(() -> unregister(waiter));
+
+        tryClaim(waiter);
+        return result;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onJobAvailable(PrintJobAvailableEvent event) {
+        Instant availableAt = event.availableAt();
+        if (availableAt != null && availableAt.isAfter(Instant.now())) {
+            taskScheduler.schedule(() -> wake(event.terminalId()), availableAt);
+        } else {
+            wake(event.terminalId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${totem.print-queue.long-poll.recheck-ms:15000}")
+    public void recheck() {
+        for (String terminalId : List.copyOf(waiters.keySet())) {
+            wake(terminalId);
+        }
+    }
+
+    private void wake(String terminalId) {
+        Queue<Waiter> queue = waiters.get(terminalId);
+        if (queue == null) {
+            return;
+        }
+        for (Waiter waiter : queue) {
+            executor.execute(() -> tryClaim(waiter));
+        }
+    }
+
+    private void tryClaim(Waiter waiter) {
+        if (waiter.signals().getAndIncrement() > 0) {
+            return;
+        }
+        try {
+            do {
+                if (waiter.result().isSetOrExpired()) {
+                    return;
+                }
+                // Avisos anteriores a esta tentativa ficam cobertos por ela
+                waiter.signals().set(1);
+                Optional<PrintJobResponse> job = printQueueService.claimNext(waiter.terminalId(),
+                        waiter.inlinePayloadMax());
+                if (job.isPresent()) {
+                    if (!waiter.result().setResult(ResponseEntity.ok(job.get()))) {
+                        // Prazo expirou entre o claim e a entrega: devolve o job para o próximo agent
+                        printQueueService.releaseClaim(job.get().getId());
+                    }
+                    return;
+                }
+            } while (waiter.signals().decrementAndGet() > 0);
+        } catch (RuntimeException e) {
+            waiter.signals().set(0);
+            log.warn("[PRINT LONG-POLL] Falha ao reservar job do terminal {}: {}", waiter.terminalId(), e.getMessage());
+        }
+    }
+
+    private void unregister(Waiter waiter) {
+        waiters.computeIfPresent(waiter.terminalId(), (id, queue) -> {
+            queue.remove(waiter);
+            return queue.isEmpty() ? null : queue;
+        });
+    }
+}
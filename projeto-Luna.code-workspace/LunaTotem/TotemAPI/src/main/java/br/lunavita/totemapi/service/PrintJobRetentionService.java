@@ -0,0 +1,152 @@
+package br.lunavita.totemapi.service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Retenção da fila de impressão: separa a fila "quente" (print_jobs) do histórico (print_jobs_archive).
+ *
+ * Jobs finalizados (PRINTED, CANCELED, FAILED) sem alteração há {@code hot-days} dias são copiados para o
+ * arquivo sem o conteúdo ESC/POS e removidos da fila. Assim as consultas da fila (claim, pendentes, travados)
+ * só percorrem jobs recentes. O arquivo é expurgado após {@code archive-days} dias (0 = mantém para sempre).
+ *
+ * Tudo em lotes limitados ({@code batch-size} linhas por transação, no máximo {@value #MAX_BATCHES_PER_RUN}
+ * lotes por execução): nenhuma execução segura locks ou a conexão por muito tempo. Os ids de cada lote
+ * são lidos com {@code FOR UPDATE}, então um resultado reportado durante a cópia espera o lote terminar.
+ */
+@Component
+@Slf4j
+public class PrintJobRetentionService {
+
+    private static final int MAX_BATCHES_PER_RUN = 50;
+    private static final String FINISHED_STATUSES = "('PRINTED', 'CANCELED', 'FAILED')";
+    private static final String ARCHIVE_COLUMNS = "id, terminal_id, tenant_id, receipt_type, status, attempts, "
+            + "max_attempts, error, appointment_id, payment_id, priority, metadata, payload_size, "
+            + "created_at, updated_at, printed_at, last_attempt_at";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int hotDays;
+    private final int archiveDays;
+    private final int batchSize;
+
+    private final String hotTable;
+    private final String archiveTable;
+    private final String selectFinishedSql;
+    private final String selectExpiredSql;
+
+    public PrintJobRetentionService(JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${totem.print-queue.retention.enabled:true}") boolean enabled,
+            @Value("${totem.print-queue.retention.hot-days:7}") int hotDays,
+            @Value("${totem.print-queue.retention.archive-days:365}") int archiveDays,
+            @Value("${totem.print-queue.retention.batch-size:500}") int batchSize,
+            @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.hotDays = Math.max(0, hotDays);
+        this.archiveDays = Math.max(0, archiveDays);
+        this.batchSize = Math.max(1, batchSize);
+
+        String prefix = schema == null || schema.isBlank() ? "" : schema + ".";
+        this.hotTable = prefix + "print_jobs";
+        this.archiveTable = prefix + "print_jobs_archive";
+        this.selectFinishedSql = "SELECT id FROM " + hotTable + " "
+                + "WHERE status IN " + FINISHED_STATUSES + " AND updated_at < ? "
+                + "ORDER BY updated_at LIMIT ? FOR UPDATE";
+        this.selectExpiredSql = "SELECT id FROM " + archiveTable + " "
+                + "WHERE archived_at < ? "
+                + "ORDER BY archived_at LIMIT ? FOR UPDATE";
+    }
+
+    @Scheduled(fixedDelayString = "${totem.print-queue.retention.interval-ms:3600000}",
+            initialDelayString = "${totem.print-queue.retention.initial-delay-ms:60000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int archived = archiveFinished(Instant.now().minus(hotDays, ChronoUnit.DAYS));
+            int purged = archiveDays > 0 ? purgeArchive(Instant.now().minus(archiveDays, ChronoUnit.DAYS)) : 0;
+            if (archived > 0 || purged > 0) {
+                log.info("[PRINT RETENTION] {} jobs arquivados, {} removidos do arquivo", archived, purged);
+            }
+        } catch (DataAccessException e) {
+            log.warn("[PRINT RETENTION] Falha na retenção da fila de impressão: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Move para o arquivo os jobs finalizados sem alteração desde {@code before}.
+     *
+     * @return quantidade de jobs arquivados
+     */
+    public int archiveFinished(Instant before) {
+        Timestamp threshold = Timestamp.from(before);
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            Integer moved = transactionTemplate.execute(status -> {
+                List<String> ids = jdbcTemplate.queryForList(selectFinishedSql, String.class, threshold, batchSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                String in = placeholders(ids.size());
+                Object[] args = ids.toArray();
+                jdbcTemplate.update("INSERT INTO " + archiveTable + " (" + ARCHIVE_COLUMNS + ", archived_at) "
+                        + "SELECT " + ARCHIVE_COLUMNS + ", CURRENT_TIMESTAMP FROM " + hotTable + " "
+                        + "WHERE id IN (" + in + ")", args);
+                jdbcTemplate.update("DELETE FROM " + hotTable + " WHERE id IN (" + in + ")", args);
+                return ids.size();
+            });
+            total += moved;
+            if (moved < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Remove do arquivo os jobs arquivados antes de {@code before}.
+     *
+     * @return quantidade de jobs removidos
+     */
+    public int purgeArchive(Instant before) {
+        Timestamp threshold = Timestamp.from(before);
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            Integer removed = transactionTemplate.execute(status -> {
+                List<String> ids = jdbcTemplate.queryForList(selectExpiredSql, String.class, threshold, batchSize);
+                if (ids.isEmpty()) {
+                    return 0;
+                }
+                return jdbcTemplate.update("DELETE FROM " + archiveTable + " WHERE id IN ("
+                        + placeholders(ids.size()) + ")", ids.toArray());
+            });
+            total += removed;
+            if (removed < batchSize) {
+                break;
+            }
+        }
+        return total;
+    }
+
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
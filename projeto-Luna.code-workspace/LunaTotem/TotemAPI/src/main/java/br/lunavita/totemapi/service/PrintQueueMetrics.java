@@ -0,0 +1,173 @@
+package br.lunavita.totemapi.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import br.lunavita.totemapi.dto.PrintResultRequest;
+import br.lunavita.totemapi.model.PrintJob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Métricas da fila de impressão (Micrometer, expostas em /actuator/prometheus).
+ *
+ * <ul>
+ *   <li>{@code totem.print.jobs.enqueued{terminal,receipt_type}}, {@code totem.print.jobs.claimed{terminal}},
+ *       {@code totem.print.jobs.reported{terminal,outcome=printed|retry|failed}} e
+ *       {@code totem.print.jobs.released{reason=lease_expired|stale|undelivered}};</li>
+ *   <li>histogramas por terminal: {@code totem.print.enqueue_to_claim} (primeira tentativa),
+ *       {@code totem.print.claim_to_report{outcome}} e {@code totem.print.end_to_end} (enfileirado → impresso);</li>
+ *   <li>{@code totem.print.agent.stage{terminal,stage=decode|spool|printer_write}}: tempos locais
+ *       informados pelo Print Agent junto com o resultado;</li>
+ *   <li>{@code totem.print.queue.depth{terminal,status=pending|printing}}: lido do banco a cada
+ *       {@code totem.print-queue.metrics.depth-refresh-ms} (vale para todas as instâncias do backend).</li>
+ * </ul>
+ * As séries somam todos os tenants, por isso o endpoint exige um token de administrador (SecurityConfig)
+ * e não há tag de tenant.
+ */
+@Component
+@Slf4j
+public class PrintQueueMetrics {
+
+    private final MeterRegistry registry;
+    private final JdbcTemplate jdbcTemplate;
+    private final MultiGauge queueDepth;
+    private final String depthSql;
+
+    public PrintQueueMetrics(MeterRegistry registry, JdbcTemplate jdbcTemplate,
+            @Value("${spring.jpa.properties.hibernate.default_schema:}") String schema) {
+        this.registry = registry;
+        this.jdbcTemplate = jdbcTemplate;
+        this.queueDepth = MultiGauge.builder("totem.print.queue.depth")
+                .description("Jobs na fila de impressão por terminal")
+                .register(registry);
+        String table = (schema == null || schema.isBlank() ? "" : schema + ".") + "print_jobs";
+        this.depthSql = "SELECT terminal_id, status, COUNT(*) AS total FROM " + table + " "
+                + "WHERE status IN ('PENDING', 'PRINTING') "
+                + "GROUP BY terminal_id, status";
+    }
+
+    public void enqueued(PrintJob job) {
+        Counter.builder("totem.print.jobs.enqueued")
+                .description("Jobs de impressão enfileirados")
+                .tags("terminal", tag(job.getTerminalId()), "receipt_type", tag(job.getReceiptType()))
+                .register(registry)
+                .increment();
+    }
+
+    public void claimed(PrintJob job) {
+        String terminal = tag(job.getTerminalId());
+        Counter.builder("totem.print.jobs.claimed")
+                .description("Jobs de impressão reservados por agents")
+                .tag("terminal", terminal)
+                .register(registry)
+                .increment();
+        // Retries esperam o backoff: só a primeira tentativa mede a espera na fila
+        if (job.getAttempts() != null && job.getAttempts() == 1) {
+            record("totem.print.enqueue_to_claim", "Espera do job na fila até o primeiro claim",
+                    Tags.of("terminal", terminal), job.getCreatedAt(), job.getLastAttemptAt());
+        }
+    }
+
+    /**
+     * Resultado aplicado a um job ({@code outcome}: printed, retry ou failed)
+     */
+    public void reported(PrintJob job, String outcome) {
+        String terminal = tag(job.getTerminalId());
+        Counter.builder("totem.print.jobs.reported")
+                .description("Resultados de impressão reportados pelos agents")
+                .tags("terminal", terminal, "outcome", outcome)
+                .register(registry)
+                .increment();
+        Instant now = Instant.now();
+        record("totem.print.claim_to_report", "Tempo entre o claim e o resultado (impressão no agent)",
+                Tags.of("terminal", terminal, "outcome", outcome), job.getLastAttemptAt(), now);
+        if (job.getPrintedAt() != null) {
+            record("totem.print.end_to_end", "Tempo entre o enfileiramento e a impressão",
+                    Tags.of("terminal", terminal), job.getCreatedAt(), job.getPrintedAt());
+        }
+    }
+
+    /**
+     * Tempos locais do agent (decode, spool, escrita na impressora), quando informados
+     */
+    public void agentTimings(PrintJob job, PrintResultRequest result) {
+        String terminal = tag(job.getTerminalId());
+        agentStage(terminal, "decode", result.getDecodeMs());
+        agentStage(terminal, "spool", result.getSpoolMs());
+        agentStage(terminal, "printer_write", result.getPrintMs());
+    }
+
+    /**
+     * Jobs devolvidos à fila ({@code reason}: lease_expired, stale ou undelivered)
+     */
+    public void released(String reason, int count) {
+        if (count <= 0) {
+            return;
+        }
+        Counter.builder("totem.print.jobs.released")
+                .description("Jobs em impressão devolvidos à fila")
+                .tag("reason", reason)
+                .register(registry)
+                .increment(count);
+    }
+
+    @Scheduled(fixedDelayString = "${totem.print-queue.metrics.depth-refresh-ms:15000}")
+    public void refreshQueueDepth() {
+        try {
+            List<MultiGauge.Row<?>> rows = new ArrayList<>();
+            jdbcTemplate.query(depthSql, rs -> {
+                rows.add(MultiGauge.Row.of(Tags.of(
+                        "terminal", tag(rs.getString("terminal_id")),
+                        "status", rs.getString("status").toLowerCase()),
+                        rs.getLong("total")));
+            });
+            // overwrite: terminais que esvaziaram a fila saem da série
+            queueDepth.register(rows, true);
+        } catch (DataAccessException e) {
+            log.warn("[PRINT METRICS] Falha ao ler a profundidade da fila: {}", e.getMessage());
+        }
+    }
+
+    private void agentStage(String terminal, String stage, Long millis) {
+        if (millis == null || millis < 0) {
+            return;
+        }
+        timer("totem.print.agent.stage", "Tempo de cada etapa local do Print Agent",
+                Tags.of("terminal", terminal, "stage", stage))
+                .record(Duration.ofMillis(millis));
+    }
+
+    private void record(String name, String description, Tags tags, Instant from, Instant to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return;
+        }
+        timer(name, description, tags).record(Duration.between(from, to));
+    }
+
+    private Timer timer(String name, String description, Tags tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofMinutes(10))
+                .register(registry);
+    }
+
+    private static String tag(String value) {
+        return value != null ? value : "unknown";
+    }
+}
@@ -1,19 +1,40 @@
 package br.lunavita.totemapi.service;
 
 import br.lunavita.totemapi.dto.CreatePrintJobRequest;
+import br.lunavita.totemapi.dto.PrintJobCursor;
+import br.lunavita.totemapi.dto.PrintJobPageResponse;
 import br.lunavita.totemapi.dto.PrintJobResponse;
+import br.lunavita.totemapi.dto.PrintJobSummary;
+import br.lunavita.totemapi.dto.PrintResultRequest;
+import br.lunavita.totemapi.dto.PrinterStatusRequest;
+import br.lunavita.totemapi.event.PrintJobAvailableEvent;
 import br.lunavita.totemapi.model.PrintJob;
 import br.lunavita.totemapi.model.PrintJob.PrintJobStatus;
+import br.lunavita.totemapi.model.PrinterStatus;
+import br.lunavita.totemapi.repository.PrintJobArchiveRepository;
 import br.lunavita.totemapi.repository.PrintJobRepository;
+import br.lunavita.totemapi.repository.PrinterStatusRepository;
+import br.lunavita.totemapi.util.GzipCodec;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Serviço de gerenciamento da fila de impressão.
@@ -24,22 +45,74 @@ import java.util.Optional;
 @Slf4j
 public class PrintQueueService {
 
+    /**
+     * Máximo de jobs por claim-batch/report-batch (alinhado ao hibernate.jdbc.batch_size)
+     */
+    public static final int MAX_BATCH_SIZE = 20;
+
+    /**
+     * Máximo de jobs renovados por heartbeat
+     */
+    public static final int MAX_HEARTBEAT_SIZE = 200;
+
+    private static final int DEFAULT_HISTORY_PAGE_SIZE = 50;
+    private static final int MAX_HISTORY_PAGE_SIZE = 200;
+
+    private static final Comparator<PrintJobSummary> HISTORY_ORDER = Comparator
+            .comparing(PrintJobSummary::createdAt, Comparator.reverseOrder())
+            .thenComparing(PrintJobSummary::id, Comparator.reverseOrder());
+
+    private static final Comparator<PrintJob> QUEUE_ORDER = Comparator
+            .comparing(PrintJob::getPriority)
+            .thenComparing(PrintJob::getCreatedAt);
+
     private final PrintJobRepository printJobRepository;
+    private final PrintJobArchiveRepository printJobArchiveRepository;
+    private final PrinterStatusRepository printerStatusRepository;
+    private final PrintJobClaimer printJobClaimer;
+    private final PrintJobLeases printJobLeases;
+    private final PrintQueueMetrics printQueueMetrics;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Terminal (totem) que imprime os recibos do tenant
+     * Por enquanto usa um padrão simples: "TOTEM-" + tenantId
+     */
+    public static String totemTerminalId(String tenantId) {
+        // TODO: Implementar lógica mais sofisticada se houver múltiplos totems
+        return "TOTEM-" + (tenantId != null ? tenantId : "DEFAULT");
+    }
+
+    /**
+     * Conteúdo ESC/POS de um job para download binário.
+     *
+     * @param gzipped true se {@code data} está comprimido com gzip (pode ir como Content-Encoding: gzip)
+     */
+    public record Payload(byte[] data, boolean gzipped) {
+    }
 
     /**
-     * Adiciona um novo job à fila de impressão
+     * Adiciona um novo job à fila de impressão.
+     * O ESC/POS é gravado comprimido (bytea); Base64 só na entrada via API e na resposta para agents antigos.
+     *
+     * @throws IllegalArgumentException se o payload não for Base64 válido
      */
     @Transactional
     public PrintJobResponse enqueue(CreatePrintJobRequest request) {
         log.info("Enfileirando job de impressão - terminal: {}, tipo: {}", 
                  request.getTerminalId(), request.getReceiptType());
 
+        byte[] escPos = request.getPayloadBytes() != null
+                ? request.getPayloadBytes()
+                : Base64.getDecoder().decode(request.getPayload());
+
         PrintJob job = PrintJob.builder()
                 .terminalId(request.getTerminalId())
                 .tenantId(request.getTenantId())
                 .receiptType(request.getReceiptType())
                 .status(PrintJobStatus.PENDING)
-                .payload(request.getPayload())
+                .payloadData(GzipCodec.compress(escPos))
+                .payloadSize(escPos.length)
                 .attempts(0)
                 .maxAttempts(request.getMaxAttempts() != null ? request.getMaxAttempts() : 5)
                 .priority(request.getPriority() != null ? request.getPriority() : 0)
@@ -49,6 +122,8 @@ public class PrintQueueService {
                 .build();
 
         PrintJob saved = printJobRepository.save(job);
+        eventPublisher.publishEvent(new PrintJobAvailableEvent(saved.getTerminalId()));
+        printQueueMetrics.enqueued(saved);
         
         log.info("Job de impressão criado: {} (status: PENDING)", saved.getId());
         
@@ -56,77 +131,180 @@ public class PrintQueueService {
     }
 
     /**
-     * Busca o próximo job pendente para um terminal (claim/lock)
+     * Reserva o próximo job pendente de um terminal (claim/lock).
+     * A reserva é atômica ({@link PrintJobClaimer}): dois agents ou retries HTTP nunca recebem o mesmo job.
+     *
+     * O payload em Base64 só vai na resposta se tiver até {@code inlinePayloadMax} bytes; acima disso
+     * o agent baixa o binário ({@link #findPayload}).
      */
     @Transactional
-    public Optional<PrintJobResponse> claimNext(String terminalId) {
-        Optional<PrintJob> jobOpt = printJobRepository.findNextPendingByTerminal(terminalId);
+    public Optional<PrintJobResponse> claimNext(String terminalId, int inlinePayloadMax) {
+        Optional<PrintJob> claimed = printJobClaimer.claimNext(terminalId)
+                .flatMap(printJobRepository::findById);
 
-        if (jobOpt.isEmpty()) {
-            return Optional.empty();
+        claimed.ifPresent(job -> {
+            log.info("Job {} reservado para impressão no terminal {} (tentativa {}/{})",
+                    job.getId(), terminalId, job.getAttempts(), job.getMaxAttempts());
+            printQueueMetrics.claimed(job);
+        });
+
+        return claimed.map(job -> mapToResponse(job, inlinePayloadMax));
+    }
+
+    /**
+     * Reserva até {@code max} jobs pendentes do terminal numa única transação, na ordem da fila.
+     * Permite ao agent esvaziar um acúmulo (ex.: check-in + pagamento + reimpressão) numa ida ao servidor.
+     */
+    @Transactional
+    public List<PrintJobResponse> claimBatch(String terminalId, int max, int inlinePayloadMax) {
+        int limit = Math.max(1, Math.min(max, MAX_BATCH_SIZE));
+        List<String> ids = printJobClaimer.claimBatch(terminalId, limit);
+        if (ids.isEmpty()) {
+            return List.of();
         }
 
-        PrintJob job = jobOpt.get();
-        
-        // Lock: muda status para PRINTING
-        job.setStatus(PrintJobStatus.PRINTING);
-        job.incrementAttempts();
-        
-        PrintJob updated = printJobRepository.save(job);
-        
-        log.info("Job {} reservado para impressão no terminal {} (tentativa {}/{})",
-                 job.getId(), terminalId, job.getAttempts(), job.getMaxAttempts());
+        List<PrintJob> claimed = new ArrayList<>(printJobRepository.findAllById(ids));
+        claimed.sort(QUEUE_ORDER);
+        claimed.forEach(printQueueMetrics::claimed);
+        log.info("{} jobs reservados para impressão no terminal {}", claimed.size(), terminalId);
 
-        return Optional.of(mapToResponse(updated));
+        return claimed.stream()
+                .map(job -> mapToResponse(job, inlinePayloadMax))
+                .toList();
     }
 
     /**
-     * Marca um job como impresso com sucesso
+     * Resultado de {@link #report}: status atual do job e se o resultado foi aplicado
+     * (falso = resultado obsoleto, o job não está mais reservado para aquela tentativa).
      */
-    @Transactional
-    public boolean markPrinted(String jobId) {
-        Optional<PrintJob> jobOpt = printJobRepository.findById(jobId);
+    public record ReportOutcome(PrintJobStatus status, boolean applied) {
+    }
 
-        if (jobOpt.isEmpty()) {
-            log.warn("Job {} não encontrado para marcar como impresso", jobId);
-            return false;
+    /**
+     * Aplica vários resultados de impressão numa única transação: os jobs são carregados numa consulta
+     * e as alterações saem em UPDATEs agrupados (batch JDBC) no commit.
+     *
+     * @return status resultante de cada job, na ordem do pedido ("NOT_FOUND" se o job não existe,
+     *         "STALE" se o resultado é de uma reserva que não vale mais)
+     */
+    @Transactional
+    public Map<String, String> reportBatch(List<PrintResultRequest> results) {
+        Set<String> ids = results.stream()
+                .map(PrintResultRequest::getJobId)
+                .collect(Collectors.toSet());
+        Map<String, PrintJob> jobs = printJobRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(PrintJob::getId, Function.identity()));
+
+        Map<String, String> outcome = new LinkedHashMap<>();
+        Map<String, Instant> terminalsToWake = new HashMap<>();
+        for (PrintResultRequest result : results) {
+            PrintJob job = jobs.get(result.getJobId());
+            if (job == null) {
+                log.warn("Job {} não encontrado ao reportar resultado", result.getJobId());
+                outcome.put(result.getJobId(), "NOT_FOUND");
+                continue;
+            }
+
+            if (!applyResult(job, result)) {
+                outcome.put(job.getId(), "STALE");
+                continue;
+            }
+            if (job.getStatus() == PrintJobStatus.PENDING) {
+                terminalsToWake.merge(job.getTerminalId(), job.getNextAttemptAt(),
+                        (a, b) -> a.isBefore(b) ? a : b);
+            }
+            outcome.put(job.getId(), job.getStatus().name());
         }
 
-        PrintJob job = jobOpt.get();
-        job.markPrinted();
-        printJobRepository.save(job);
+        printJobRepository.saveAll(jobs.values());
+        terminalsToWake.forEach((terminalId, availableAt) ->
+                eventPublisher.publishEvent(new PrintJobAvailableEvent(terminalId, availableAt)));
 
-        log.info("Job {} marcado como PRINTED", jobId);
-        return true;
+        log.info("Resultado de {} jobs reportado em lote", results.size());
+        return outcome;
     }
 
     /**
-     * Marca um job como falhado
+     * Aplica o resultado de impressão de um job
+     *
+     * @return status resultante (PRINTED, PENDING para retry ou FAILED) ou atual, se o resultado é
+     *         obsoleto; vazio se o job não existe
      */
     @Transactional
-    public boolean markFailed(String jobId, String errorMessage) {
-        Optional<PrintJob> jobOpt = printJobRepository.findById(jobId);
+    public Optional<ReportOutcome> report(PrintResultRequest result) {
+        Optional<PrintJob> jobOpt = printJobRepository.findById(result.getJobId());
 
         if (jobOpt.isEmpty()) {
-            log.warn("Job {} não encontrado para marcar como falhado", jobId);
-            return false;
+            log.warn("Job {} não encontrado ao reportar resultado", result.getJobId());
+            return Optional.empty();
         }
 
         PrintJob job = jobOpt.get();
-        job.markFailed(errorMessage);
+        if (!applyResult(job, result)) {
+            return Optional.of(new ReportOutcome(job.getStatus(), false));
+        }
         printJobRepository.save(job);
 
-        if (job.getStatus() == PrintJobStatus.FAILED) {
-            log.error("Job {} FALHOU permanentemente após {} tentativas: {}", 
-                      jobId, job.getAttempts(), errorMessage);
-        } else {
-            log.warn("Job {} falhou (tentativa {}/{}), será reprocessado: {}", 
-                     jobId, job.getAttempts(), job.getMaxAttempts(), errorMessage);
+        if (job.getStatus() == PrintJobStatus.PENDING) {
+            eventPublisher.publishEvent(new PrintJobAvailableEvent(job.getTerminalId(), job.getNextAttemptAt()));
         }
+        return Optional.of(new ReportOutcome(job.getStatus(), true));
+    }
 
+    /**
+     * Aplica o resultado se ele é da reserva atual: job em PRINTING e, quando o agent informa
+     * {@code attempt}, na mesma tentativa. Resultado atrasado (lease vencida e job reservado de novo,
+     * job cancelado ou já finalizado, replay do agent) não altera o job.
+     *
+     * @return false se o resultado foi descartado por ser obsoleto
+     */
+    private boolean applyResult(PrintJob job, PrintResultRequest result) {
+        if (job.getStatus() != PrintJobStatus.PRINTING
+                || (result.getAttempt() != null && !result.getAttempt().equals(job.getAttempts()))) {
+            log.warn("Resultado obsoleto do job {} descartado (status {}, tentativa {}, reportada {})",
+                    job.getId(), job.getStatus(), job.getAttempts(), result.getAttempt());
+            return false;
+        }
+        if (result.isSuccess()) {
+            job.markPrinted();
+            log.info("Job {} marcado como PRINTED", job.getId());
+            printQueueMetrics.reported(job, "printed");
+        } else {
+            String errorMsg = result.getErrorMessage() != null ? result.getErrorMessage() : "Erro desconhecido";
+            job.markFailed(errorMsg, printJobLeases.retryAt(job.getAttempts()));
+            if (job.getStatus() == PrintJobStatus.FAILED) {
+                log.error("Job {} FALHOU permanentemente após {} tentativas: {}",
+                          job.getId(), job.getAttempts(), errorMsg);
+                printQueueMetrics.reported(job, "failed");
+            } else {
+                log.warn("Job {} falhou (tentativa {}/{}), será reprocessado em {}: {}",
+                         job.getId(), job.getAttempts(), job.getMaxAttempts(), job.getNextAttemptAt(), errorMsg);
+                printQueueMetrics.reported(job, "retry");
+            }
+        }
+        printQueueMetrics.agentTimings(job, result);
         return true;
     }
 
+    /**
+     * Devolve à fila um job reservado que não chegou ao agent (ex.: long-poll expirou no mesmo instante).
+     * A tentativa não é contabilizada.
+     */
+    @Transactional
+    public void releaseClaim(String jobId) {
+        printJobRepository.findById(jobId)
+                .filter(job -> job.getStatus() == PrintJobStatus.PRINTING)
+                .ifPresent(job -> {
+                    job.setStatus(PrintJobStatus.PENDING);
+                    job.setAttempts(Math.max(0, job.getAttempts() - 1));
+                    job.setLeaseExpiresAt(null);
+                    printJobRepository.save(job);
+                    eventPublisher.publishEvent(new PrintJobAvailableEvent(job.getTerminalId()));
+                    printQueueMetrics.released("undelivered", 1);
+                    log.info("Job {} devolvido à fila (não entregue ao agent)", jobId);
+                });
+    }
+
     /**
      * Lista jobs pendentes de um terminal
      */
@@ -139,14 +317,37 @@ public class PrintQueueService {
     }
 
     /**
-     * Lista todos os jobs de um tenant
+     * Histórico de impressão do tenant, do mais recente para o mais antigo: jobs ainda na fila e
+     * arquivados ({@link PrintJobRetentionService}) numa única sequência paginada por keyset.
+     *
+     * @param terminalId filtro opcional
+     * @param cursor     cursor retornado pela página anterior (nulo = primeira página)
+     * @param limit      tamanho da página (nulo = padrão; limitado a {@value #MAX_HISTORY_PAGE_SIZE})
+     * @throws IllegalArgumentException se o cursor for inválido
      */
     @Transactional(readOnly = true)
-    public List<PrintJobResponse> listByTenant(String tenantId) {
-        return printJobRepository.findByTenantIdOrderByCreatedAtDesc(tenantId)
-                .stream()
-                .map(this::mapToResponse)
-                .toList();
+    public PrintJobPageResponse history(String tenantId, String terminalId, String cursor, Integer limit) {
+        int size = limit == null || limit <= 0 ? DEFAULT_HISTORY_PAGE_SIZE : Math.min(limit, MAX_HISTORY_PAGE_SIZE);
+        PrintJobCursor before = (cursor == null || cursor.isBlank()) ? null : PrintJobCursor.decode(cursor);
+        Instant beforeAt = before != null ? before.createdAt() : null;
+        String beforeId = before != null ? before.id() : null;
+        String terminal = terminalId == null || terminalId.isBlank() ? null : terminalId;
+
+        // Um item a mais de cada tabela: o merge ordenado decide a página e se existe a próxima
+        PageRequest pageable = PageRequest.of(0, size + 1);
+        // Um job arquivado entre as duas leituras aparece nas duas tabelas: fica uma cópia por id
+        Map<String, PrintJobSummary> byId = new LinkedHashMap<>();
+        printJobRepository.findHistory(tenantId, terminal, beforeAt, beforeId, pageable)
+                .forEach(row -> byId.putIfAbsent(row.id(), row));
+        printJobArchiveRepository.findHistory(tenantId, terminal, beforeAt, beforeId, pageable)
+                .forEach(row -> byId.putIfAbsent(row.id(), row));
+        List<PrintJobSummary> rows = new ArrayList<>(byId.values());
+        rows.sort(HISTORY_ORDER);
+
+        boolean hasMore = rows.size() > size;
+        List<PrintJobSummary> items = hasMore ? rows.subList(0, size) : rows;
+        String nextCursor = hasMore ? PrintJobCursor.of(items.get(items.size() - 1)).encode() : null;
+        return new PrintJobPageResponse(List.copyOf(items), nextCursor, hasMore, size);
     }
 
     /**
@@ -159,54 +360,124 @@ public class PrintQueueService {
     }
 
     /**
-     * Cancela um job
+     * Conteúdo ESC/POS de um job, para o download binário do agent.
+     * Com {@code acceptGzip}, devolve o gzip armazenado sem descomprimir.
+     */
+    @Transactional(readOnly = true)
+    public Optional<Payload> findPayload(String jobId, boolean acceptGzip) {
+        return printJobRepository.findById(jobId).map(job -> {
+            if (job.getPayloadData() == null) {
+                // Job legado (Base64 em TEXT)
+                return new Payload(Base64.getDecoder().decode(job.getPayload()), false);
+            }
+            return acceptGzip
+                    ? new Payload(job.getPayloadData(), true)
+                    : new Payload(escPosBytes(job), false);
+        });
+    }
+
+    /**
+     * Cancela um job ainda na fila ou em impressão; o resultado que o agent reportar depois é descartado.
+     * Jobs já finalizados (PRINTED, FAILED) não mudam.
+     *
+     * @return status após o pedido (CANCELED, ou o status final que impediu o cancelamento);
+     *         vazio se o job não existe
      */
     @Transactional
-    public boolean cancel(String jobId) {
+    public Optional<PrintJobStatus> cancel(String jobId) {
         Optional<PrintJob> jobOpt = printJobRepository.findById(jobId);
 
         if (jobOpt.isEmpty()) {
-            return false;
+            return Optional.empty();
         }
 
         PrintJob job = jobOpt.get();
+        if (job.getStatus() != PrintJobStatus.PENDING && job.getStatus() != PrintJobStatus.PRINTING) {
+            return Optional.of(job.getStatus());
+        }
         job.setStatus(PrintJobStatus.CANCELED);
+        job.setLeaseExpiresAt(null);
         printJobRepository.save(job);
 
         log.info("Job {} cancelado", jobId);
-        return true;
+        return Optional.of(PrintJobStatus.CANCELED);
     }
 
     /**
-     * Libera jobs travados (que estão em PRINTING há muito tempo)
-     * Útil para casos onde o Print Agent morreu durante impressão
+     * Renova a lease dos jobs que o agent ainda está imprimindo (heartbeat).
+     *
+     * @return ids cuja lease foi perdida (job recuperado por lease vencida, finalizado ou inexistente)
+     */
+    public List<String> heartbeat(List<String> jobIds) {
+        List<String> lost = printJobLeases.extend(jobIds);
+        if (!lost.isEmpty()) {
+            log.warn("Heartbeat: {} de {} jobs sem lease ativa: {}", lost.size(), jobIds.size(), lost);
+        }
+        return lost;
+    }
+
+    /**
+     * Grava o estado da impressora informado pelo agent do terminal (substitui o anterior)
      */
     @Transactional
-    public int releaseStaleJobs(int minutesThreshold) {
-        Instant threshold = Instant.now().minus(minutesThreshold, ChronoUnit.MINUTES);
-        List<PrintJob> stalledJobs = printJobRepository.findStalledJobs(threshold);
+    public PrinterStatus updatePrinterStatus(PrinterStatusRequest request) {
+        PrinterStatus status = PrinterStatus.builder()
+                .terminalId(request.getTerminalId())
+                .printerName(request.getPrinterName())
+                .available(request.isAvailable())
+                .acceptingJobs(request.getAcceptingJobs())
+                .queuedJobs(request.getQueuedJobs())
+                .lastSuccessAt(request.getLastSuccessAt())
+                .lastErrorAt(request.getLastErrorAt())
+                .lastError(request.getLastError())
+                .reportedAt(Instant.now())
+                .build();
+        return printerStatusRepository.save(status);
+    }
 
-        for (PrintJob job : stalledJobs) {
-            log.warn("Liberando job travado: {} (última tentativa: {})", 
-                     job.getId(), job.getLastAttemptAt());
-            job.setStatus(PrintJobStatus.PENDING);
-            printJobRepository.save(job);
-        }
+    @Transactional(readOnly = true)
+    public Optional<PrinterStatus> findPrinterStatus(String terminalId) {
+        return printerStatusRepository.findById(terminalId);
+    }
 
-        return stalledJobs.size();
+    /**
+     * Libera jobs travados (que estão em PRINTING há muito tempo), mesmo com lease ativa.
+     * Útil para casos onde o Print Agent morreu durante impressão; leases vencidas já são
+     * recuperadas automaticamente pelo {@link PrintJobLeases}.
+     */
+    public int releaseStaleJobs(int minutesThreshold) {
+        Instant threshold = Instant.now().minus(minutesThreshold, ChronoUnit.MINUTES);
+        int released = printJobLeases.releaseStale(threshold);
+        log.warn("{} jobs travados liberados (última tentativa antes de {})", released, threshold);
+        return released;
     }
 
     /**
      * Mapeia entidade para DTO de resposta
      */
     private PrintJobResponse mapToResponse(PrintJob job) {
+        return mapToResponse(job, Integer.MAX_VALUE);
+    }
+
+    private PrintJobResponse mapToResponse(PrintJob job, int inlinePayloadMax) {
+        Integer payloadSize = job.getPayloadSize();
+        String payload;
+        if (job.getPayloadData() == null) {
+            payload = job.getPayload();
+        } else if (payloadSize != null && payloadSize > inlinePayloadMax) {
+            payload = null;
+        } else {
+            payload = Base64.getEncoder().encodeToString(escPosBytes(job));
+        }
+
         return PrintJobResponse.builder()
                 .id(job.getId())
                 .terminalId(job.getTerminalId())
                 .tenantId(job.getTenantId())
                 .receiptType(job.getReceiptType())
                 .status(job.getStatus().name())
-                .payload(job.getPayload())
+                .payload(payload)
+                .payloadSize(payloadSize)
                 .attempts(job.getAttempts())
                 .maxAttempts(job.getMaxAttempts())
                 .error(job.getError())
@@ -218,9 +489,16 @@ public class PrintQueueService {
                 .updatedAt(job.getUpdatedAt())
                 .printedAt(job.getPrintedAt())
                 .lastAttemptAt(job.getLastAttemptAt())
+                .leaseExpiresAt(job.getLeaseExpiresAt())
+                .nextAttemptAt(job.getNextAttemptAt())
                 .build();
     }
 
+    private static byte[] escPosBytes(PrintJob job) {
+        int sizeHint = job.getPayloadSize() != null ? job.getPayloadSize() : 0;
+        return GzipCodec.decompress(job.getPayloadData(), sizeHint);
+    }
+
     /**
      * Conta jobs pendentes de um terminal
      */
@@ -1,51 +1,35 @@
 package br.lunavita.totemapi.service;
 
-import lombok.extern.slf4j.Slf4j;
-import org.springframework.stereotype.Service;
-
-import java.io.ByteArrayOutputStream;
 import java.math.BigDecimal;
-import java.nio.charset.StandardCharsets;
 import java.time.Instant;
-import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
-import java.util.Base64;
+
+import org.springframework.stereotype.Service;
+
+import br.lunavita.totemapi.service.receipt.ReceiptData;
+import br.lunavita.totemapi.service.receipt.ReceiptField;
+import br.lunavita.totemapi.service.receipt.ReceiptTemplates;
+import lombok.RequiredArgsConstructor;
 
 /**
  * Serviço para gerar recibos no formato ESC/POS.
  * ESC/POS é o protocolo padrão para impressoras térmicas.
+ *
+ * O layout vem de {@link ReceiptTemplates} (personalizado do tenant ou padrão), já compilado:
+ * aqui só são preenchidos os campos.
  */
 @Service
-@Slf4j
+@RequiredArgsConstructor
 public class ReceiptGeneratorService {
 
-    // Comandos ESC/POS
-    private static final byte ESC = 0x1B;
-    private static final byte GS = 0x1D;
-    private static final byte LF = 0x0A;
-    private static final byte CR = 0x0D;
-
-    // Comandos de formatação
-    private static final byte[] CMD_INIT = {ESC, '@'};                    // Inicializar impressora
-    private static final byte[] CMD_ALIGN_LEFT = {ESC, 'a', 0};          // Alinhar à esquerda
-    private static final byte[] CMD_ALIGN_CENTER = {ESC, 'a', 1};        // Alinhar ao centro
-    private static final byte[] CMD_ALIGN_RIGHT = {ESC, 'a', 2};         // Alinhar à direita
-    private static final byte[] CMD_BOLD_ON = {ESC, 'E', 1};             // Negrito ON
-    private static final byte[] CMD_BOLD_OFF = {ESC, 'E', 0};            // Negrito OFF
-    private static final byte[] CMD_DOUBLE_HEIGHT = {ESC, '!', 0x10};    // Altura dupla
-    private static final byte[] CMD_DOUBLE_WIDTH = {ESC, '!', 0x20};     // Largura dupla
-    private static final byte[] CMD_DOUBLE_SIZE = {ESC, '!', 0x30};      // Tamanho duplo (altura + largura)
-    private static final byte[] CMD_NORMAL_SIZE = {ESC, '!', 0x00};      // Tamanho normal
-    private static final byte[] CMD_CUT = {GS, 'V', 66, 0};              // Cortar papel
-    private static final byte[] CMD_FEED = {ESC, 'd', 3};                // Avançar 3 linhas
+    public static final String DEFAULT_CLINIC_NAME = "Luna Vita";
 
-    private static final DateTimeFormatter DATE_FORMATTER = 
-            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss").withZone(ZoneId.of("America/Sao_Paulo"));
+    private final ReceiptTemplates receiptTemplates;
 
     /**
      * Gera um recibo de pagamento em formato ESC/POS
      */
-    public String generatePaymentReceipt(
+    public byte[] generatePaymentReceipt(
+            String tenantId,
             String clinicName,
             String patientName,
             String cpf,
@@ -56,217 +40,70 @@ public class ReceiptGeneratorService {
             String doctorName,
             String specialty) {
 
-        try {
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-
-            // Inicializa impressora
-            output.write(CMD_INIT);
-
-            // Cabeçalho - Nome da clínica (centralizado, tamanho duplo)
-            output.write(CMD_ALIGN_CENTER);
-            output.write(CMD_DOUBLE_SIZE);
-            output.write(CMD_BOLD_ON);
-            writeLine(output, clinicName != null ? clinicName : "Luna Vita");
-            output.write(CMD_NORMAL_SIZE);
-            output.write(CMD_BOLD_OFF);
-
-            // Subtítulo
-            writeLine(output, "RECIBO DE PAGAMENTO");
-            output.write(LF);
-
-            // Data/Hora da impressão
-            output.write(CMD_ALIGN_CENTER);
-            writeLine(output, DATE_FORMATTER.format(Instant.now()));
-            output.write(LF);
-
-            // Linha separadora
-            output.write(CMD_ALIGN_LEFT);
-            writeLine(output, "================================");
-
-            // Dados do paciente
-            output.write(CMD_BOLD_ON);
-            writeLine(output, "DADOS DO PACIENTE");
-            output.write(CMD_BOLD_OFF);
-            writeLine(output, "Nome: " + (patientName != null ? patientName : "N/A"));
-            writeLine(output, "CPF: " + formatCpf(cpf));
-            output.write(LF);
-
-            // Dados do agendamento
-            if (appointmentDate != null || doctorName != null) {
-                output.write(CMD_BOLD_ON);
-                writeLine(output, "AGENDAMENTO");
-                output.write(CMD_BOLD_OFF);
-                if (appointmentDate != null) {
-                    writeLine(output, "Data: " + appointmentDate);
-                }
-                if (appointmentTime != null) {
-                    writeLine(output, "Horario: " + appointmentTime);
-                }
-                if (doctorName != null) {
-                    writeLine(output, "Medico: " + doctorName);
-                }
-                if (specialty != null) {
-                    writeLine(output, "Especialidade: " + specialty);
-                }
-                output.write(LF);
-            }
-
-            // Linha separadora
-            writeLine(output, "================================");
-
-            // Valor pago (destacado)
-            output.write(CMD_ALIGN_CENTER);
-            output.write(CMD_DOUBLE_HEIGHT);
-            output.write(CMD_BOLD_ON);
-            writeLine(output, "VALOR PAGO");
-            output.write(CMD_DOUBLE_SIZE);
-            writeLine(output, formatCurrency(amount));
-            output.write(CMD_NORMAL_SIZE);
-            output.write(CMD_BOLD_OFF);
-            output.write(LF);
-
-            // Forma de pagamento
-            output.write(CMD_ALIGN_CENTER);
-            writeLine(output, "Forma: " + formatPaymentMethod(paymentMethod));
-            output.write(LF);
-
-            // Linha separadora
-            output.write(CMD_ALIGN_LEFT);
-            writeLine(output, "================================");
-
-            // Mensagem de rodapé
-            output.write(CMD_ALIGN_CENTER);
-            writeLine(output, "PAGAMENTO CONFIRMADO");
-            writeLine(output, "Aguarde ser chamado");
-            output.write(LF);
-            writeLine(output, "Obrigado pela preferencia!");
-            output.write(LF);
-
-            // Avança papel e corta
-            output.write(CMD_FEED);
-            output.write(CMD_CUT);
-
-            // Converte para Base64
-            byte[] escPosBytes = output.toByteArray();
-            return Base64.getEncoder().encodeToString(escPosBytes);
-
-        } catch (Exception e) {
-            log.error("Erro ao gerar recibo ESC/POS", e);
-            throw new RuntimeException("Erro ao gerar recibo", e);
-        }
+        ReceiptData data = new ReceiptData()
+                .set(ReceiptField.CLINIC, clinicName != null ? clinicName : DEFAULT_CLINIC_NAME)
+                .set(ReceiptField.PATIENT, patientName)
+                .set(ReceiptField.CPF, cpf)
+                .set(ReceiptField.AMOUNT, amount != null ? amount : BigDecimal.ZERO)
+                .set(ReceiptField.PAYMENT_METHOD, paymentMethod)
+                .set(ReceiptField.APPOINTMENT_DATE, appointmentDate)
+                .set(ReceiptField.APPOINTMENT_TIME, appointmentTime)
+                .set(ReceiptField.DOCTOR, doctorName)
+                .set(ReceiptField.SPECIALTY, specialty)
+                .set(ReceiptField.PRINTED_AT, Instant.now());
+
+        return receiptTemplates.render(tenantId, ReceiptTemplates.PAYMENT, data);
     }
 
     /**
      * Gera um recibo simplificado de check-in
+     *
+     * @param ticketCode código impresso em código de barras (ex.: id do agendamento), opcional
      */
-    public String generateCheckInReceipt(
+    public byte[] generateCheckInReceipt(
+            String tenantId,
             String clinicName,
             String patientName,
             String appointmentDate,
             String appointmentTime,
-            String queueNumber) {
-
-        try {
-            ByteArrayOutputStream output = new ByteArrayOutputStream();
-
-            output.write(CMD_INIT);
-
-            // Cabeçalho
-            output.write(CMD_ALIGN_CENTER);
-            output.write(CMD_DOUBLE_SIZE);
-            output.write(CMD_BOLD_ON);
-            writeLine(output, clinicName != null ? clinicName : "Luna Vita");
-            output.write(CMD_NORMAL_SIZE);
-            output.write(CMD_BOLD_OFF);
-            writeLine(output, "CHECK-IN REALIZADO");
-            output.write(LF);
-
-            // Data/Hora
-            writeLine(output, DATE_FORMATTER.format(Instant.now()));
-            output.write(LF);
-
-            // Dados
-            output.write(CMD_ALIGN_LEFT);
-            writeLine(output, "Paciente: " + (patientName != null ? patientName : "N/A"));
-            writeLine(output, "Data: " + (appointmentDate != null ? appointmentDate : "N/A"));
-            writeLine(output, "Horario: " + (appointmentTime != null ? appointmentTime : "N/A"));
-            output.write(LF);
-
-            // Número na fila (se houver)
-            if (queueNumber != null) {
-                output.write(CMD_ALIGN_CENTER);
-                output.write(CMD_DOUBLE_SIZE);
-                output.write(CMD_BOLD_ON);
-                writeLine(output, "SENHA: " + queueNumber);
-                output.write(CMD_NORMAL_SIZE);
-                output.write(CMD_BOLD_OFF);
-                output.write(LF);
-            }
-
-            // Mensagem
-            output.write(CMD_ALIGN_CENTER);
-            writeLine(output, "Aguarde ser chamado");
-            output.write(LF);
-
-            output.write(CMD_FEED);
-            output.write(CMD_CUT);
-
-            byte[] escPosBytes = output.toByteArray();
-            return Base64.getEncoder().encodeToString(escPosBytes);
-
-        } catch (Exception e) {
-            log.error("Erro ao gerar recibo de check-in", e);
-            throw new RuntimeException("Erro ao gerar recibo", e);
-        }
-    }
-
-    /**
-     * Escreve uma linha de texto seguida de quebra de linha
-     */
-    private void writeLine(ByteArrayOutputStream output, String text) throws Exception {
-        if (text != null) {
-            output.write(text.getBytes(StandardCharsets.UTF_8));
-        }
-        output.write(LF);
-    }
-
-    /**
-     * Formata CPF: 123.456.789-00
-     */
-    private String formatCpf(String cpf) {
-        if (cpf == null || cpf.length() != 11) {
-            return cpf != null ? cpf : "N/A";
-        }
-        return cpf.substring(0, 3) + "." + 
-               cpf.substring(3, 6) + "." + 
-               cpf.substring(6, 9) + "-" + 
-               cpf.substring(9, 11);
-    }
-
-    /**
-     * Formata valor monetário: R$ 150,00
-     */
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) {
-            return "R$ 0,00";
-        }
-        return String.format("R$ %.2f", amount).replace('.', ',');
+            String queueNumber,
+            String ticketCode) {
+
+        ReceiptData data = new ReceiptData()
+                .set(ReceiptField.CLINIC, clinicName != null ? clinicName : DEFAULT_CLINIC_NAME)
+                .set(ReceiptField.PATIENT, patientName)
+                .set(ReceiptField.APPOINTMENT_DATE, appointmentDate)
+                .set(ReceiptField.APPOINTMENT_TIME, appointmentTime)
+                .set(ReceiptField.QUEUE_NUMBER, queueNumber)
+                .set(ReceiptField.TICKET_CODE, ticketCode)
+                .set(ReceiptField.PRINTED_AT, Instant.now());
+
+        return receiptTemplates.render(tenantId, ReceiptTemplates.CHECKIN, data);
     }
 
     /**
-     * Formata método de pagamento
+     * Gera a cobrança PIX impressa: valor, QR Code e o PIX copia e cola
      */
-    private String formatPaymentMethod(String method) {
-        if (method == null) {
-            return "N/A";
-        }
-        return switch (method.toUpperCase()) {
-            case "PIX" -> "PIX";
-            case "CREDIT_CARD" -> "Cartao de Credito";
-            case "DEBIT_CARD" -> "Cartao de Debito";
-            case "CASH" -> "Dinheiro";
-            case "BOLETO" -> "Boleto";
-            default -> method;
-        };
+    public byte[] generatePixReceipt(
+            String tenantId,
+            String clinicName,
+            String patientName,
+            BigDecimal amount,
+            String appointmentDate,
+            String appointmentTime,
+            String doctorName,
+            String pixCode) {
+
+        ReceiptData data = new ReceiptData()
+                .set(ReceiptField.CLINIC, clinicName != null ? clinicName : DEFAULT_CLINIC_NAME)
+                .set(ReceiptField.PATIENT, patientName)
+                .set(ReceiptField.AMOUNT, amount != null ? amount : BigDecimal.ZERO)
+                .set(ReceiptField.APPOINTMENT_DATE, appointmentDate)
+                .set(ReceiptField.APPOINTMENT_TIME, appointmentTime)
+                .set(ReceiptField.DOCTOR, doctorName)
+                .set(ReceiptField.PIX_CODE, pixCode)
+                .set(ReceiptField.PRINTED_AT, Instant.now());
+
+        return receiptTemplates.render(tenantId, ReceiptTemplates.PIX, data);
     }
 }
@@ -0,0 +1,110 @@
+package br.lunavita.totemapi.service;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Fotos dos agendamentos já reduzidas para o relatório PDF, para fotos sem a variante {@code report}
+ * (enviadas antes do {@link AppointmentPhotoService}, ou com a geração pendente ou falha).
+ *
+ * A foto original (vários MB vindos da câmera) é lida, reduzida ao tamanho impresso e recomprimida em
+ * JPEG uma vez; o relatório só embute os bytes (o OpenPDF não decodifica JPEG). O cache é LRU por
+ * caminho e invalidado quando o arquivo muda (data de modificação ou tamanho). Acertos e faltas em
+ * {@code totem.reports.photo.cache{result=hit|miss}}.
+ */
+@Service
+public class ReportPhotos {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportPhotos.class);
+
+    // Foto ocupa até 400 pt no A4; 2 px por ponto (~144 dpi) basta para impressão
+    private static final int MAX_PIXELS = 800;
+    private static final float JPEG_QUALITY = 0.85f;
+
+    private final int maxEntries;
+    private final Counter hits;
+    private final Counter misses;
+
+    // Ordem de acesso: o mais antigo é descartado ao passar de maxEntries
+    private final LinkedHashMap<Path, CachedPhoto> photos = new LinkedHashMap<>(64, 0.75f, true);
+
+    private record CachedPhoto(byte[] jpeg, long modifiedAt, long size) {
+    }
+
+    public ReportPhotos(MeterRegistry meterRegistry,
+            @Value("${totem.reports.photo-cache-size:256}") int maxEntries) {
+        this.maxEntries = maxEntries;
+        this.hits = Counter.builder("totem.reports.photo.cache")
+                .description("Consultas ao cache de fotos dos relatórios")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("totem.reports.photo.cache")
+                .description("Consultas ao cache de fotos dos relatórios")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * JPEG reduzido da foto, ou null se o arquivo não existe
+     *
+     * @throws IOException se a foto não pode ser lida
+     */
+    public byte[] scaled(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long modifiedAt = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        CachedPhoto cached;
+        synchronized (photos) {
+            cached = photos.get(path);
+        }
+        if (cached != null && cached.modifiedAt() == modifiedAt && cached.size() == size) {
+            hits.increment();
+            return cached.jpeg();
+        }
+        misses.increment();
+
+        // Fora do lock: decodificar a foto leva dezenas de milissegundos
+        byte[] jpeg = scale(path);
+        synchronized (photos) {
+            photos.put(path, new CachedPhoto(jpeg, modifiedAt, size));
+            Iterator<Map.Entry<Path, CachedPhoto>> eldest = photos.entrySet().iterator();
+            while (photos.size() > maxEntries && eldest.hasNext()) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return jpeg;
+    }
+
+    private static byte[] scale(Path path) throws IOException {
+        BufferedImage source = ImageIO.read(path.toFile());
+        if (source == null) {
+            throw new IOException("Formato de imagem não suportado: " + path.getFileName());
+        }
+        BufferedImage scaled = AppointmentPhotoService.scaleToFit(AppointmentPhotoService.toRgb(source), MAX_PIXELS);
+        byte[] jpeg = AppointmentPhotoService.encodeJpeg(scaled, JPEG_QUALITY);
+        logger.debug("[REPORT] Foto {} reduzida para {}x{} ({} bytes)", path.getFileName(), scaled.getWidth(),
+                scaled.getHeight(), jpeg.length);
+        return jpeg;
+    }
+}
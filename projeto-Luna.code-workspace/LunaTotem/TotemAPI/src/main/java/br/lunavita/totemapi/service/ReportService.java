@@ -1,92 +1,358 @@
 package br.lunavita.totemapi.service;
 
 import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.repository.AppointmentRepository;
 import com.lowagie.text.*;
+import com.lowagie.text.pdf.BaseFont;
 import com.lowagie.text.pdf.PdfWriter;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
+/**
+ * Relatórios de atendimento em PDF.
+ *
+ * O PDF é escrito direto no {@link OutputStream} (o OpenPDF descarrega cada página pronta), com fontes
+ * e textos fixos criados uma vez e a variante {@code report} da foto, gerada no upload por
+ * {@link AppointmentPhotoService} (fotos sem variante passam por {@link ReportPhotos}). O modo em lote
+ * gera os relatórios de um período num PDF único ou num ZIP com um PDF por agendamento; o trabalho pesado
+ * (fotos, PDFs do ZIP) roda num pool limitado, com no máximo {@code 2 × threads} itens em andamento
+ * por requisição, e a saída sai na ordem dos agendamentos.
+ */
 @Service
 public class ReportService {
 
-    private final FileStorageService storage;
+    private static final Logger logger = LoggerFactory.getLogger(ReportService.class);
+
+    private static final Font H1;
+    private static final Font H2;
+    private static final Font P;
 
-    @Value("${clinic.name:Totem Lunavita}")
-    private String clinicName;
+    static {
+        try {
+            BaseFont regular = BaseFont.createFont(BaseFont.HELVETICA, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+            BaseFont bold = BaseFont.createFont(BaseFont.HELVETICA_BOLD, BaseFont.WINANSI, BaseFont.NOT_EMBEDDED);
+            H1 = new Font(bold, 16);
+            H2 = new Font(bold, 12);
+            P = new Font(regular, 11);
+        } catch (DocumentException | IOException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
 
-    @Value("${clinic.address:Rua das Flores, 123 - Fortaleza - CE}")
-    private String clinicAddress;
+    // Foto que existe mas não pôde ser lida (o relatório sai com um aviso no lugar)
+    private static final byte[] PHOTO_FAILED = new byte[0];
 
-    @Value("${clinic.phone:(85) 4002-8922}")
-    private String clinicPhone;
+    /**
+     * Formato do relatório em lote
+     */
+    public enum BatchFormat {
+        /** Um PDF com uma página por agendamento */
+        PDF,
+        /** Um ZIP com um PDF por agendamento */
+        ZIP;
+
+        /**
+         * @throws IllegalArgumentException se o formato não existe
+         */
+        public static BatchFormat of(String format) {
+            try {
+                return valueOf(format.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException | NullPointerException e) {
+                throw new IllegalArgumentException("Formato inválido (use pdf ou zip): " + format);
+            }
+        }
+    }
 
-    public ReportService(FileStorageService storage) {
+    private final FileStorageService storage;
+    private final ReportPhotos reportPhotos;
+    private final AppointmentPhotoService appointmentPhotoService;
+    private final AppointmentRepository appointmentRepository;
+    private final String clinicHeader;
+    private final String observations;
+    private final int batchWindow;
+    private final int batchMaxAppointments;
+    private final int batchMaxDays;
+    private final ThreadPoolExecutor batchExecutor;
+
+    public ReportService(FileStorageService storage, ReportPhotos reportPhotos,
+            AppointmentPhotoService appointmentPhotoService, AppointmentRepository appointmentRepository,
+            @Value("${clinic.name:Totem Lunavita}") String clinicName,
+            @Value("${clinic.address:Rua das Flores, 123 - Fortaleza - CE}") String clinicAddress,
+            @Value("${clinic.phone:(85) 4002-8922}") String clinicPhone,
+            @Value("${totem.reports.batch.threads:2}") int batchThreads,
+            @Value("${totem.reports.batch.max-appointments:500}") int batchMaxAppointments,
+            @Value("${totem.reports.batch.max-days:31}") int batchMaxDays) {
         this.storage = storage;
+        this.reportPhotos = reportPhotos;
+        this.appointmentPhotoService = appointmentPhotoService;
+        this.appointmentRepository = appointmentRepository;
+        this.clinicHeader = clinicName + "\n" + clinicAddress + "\n" + clinicPhone;
+        this.observations = "- Comparecer com 10 minutos de antecedência.\n- Em caso de dúvidas, contate: " + clinicPhone;
+        this.batchWindow = batchThreads * 2;
+        this.batchMaxAppointments = batchMaxAppointments;
+        this.batchMaxDays = batchMaxDays;
+
+        AtomicInteger threadCount = new AtomicInteger();
+        // Fila limitada: com o pool cheio (vários lotes ao mesmo tempo) a thread da requisição faz o trabalho
+        this.batchExecutor = new ThreadPoolExecutor(batchThreads, batchThreads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(batchWindow * 4), runnable -> {
+                    Thread thread = new Thread(runnable, "report-batch-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        batchExecutor.shutdownNow();
     }
 
     public byte[] generateAppointmentReport(Appointment apt) {
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            Document doc = new Document(PageSize.A4, 36, 36, 48, 36);
-            PdfWriter.getInstance(doc, baos);
-            doc.open();
-
-            Font h1 = new Font(Font.HELVETICA, 16, Font.BOLD);
-            Font h2 = new Font(Font.HELVETICA, 12, Font.BOLD);
-            Font p = new Font(Font.HELVETICA, 11, Font.NORMAL);
-
-            Paragraph title = new Paragraph("Relatório de Atendimento", h1);
-            title.setAlignment(Element.ALIGN_CENTER);
-            doc.add(title);
-            doc.add(Chunk.NEWLINE);
+            ByteArrayOutputStream baos = new ByteArrayOutputStream(64 * 1024);
+            writeAppointmentReport(apt, baos);
+            return baos.toByteArray();
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to build report: " + e.getMessage(), e);
+        }
+    }
 
-            Paragraph clinic = new Paragraph(clinicName + "\n" + clinicAddress + "\n" + clinicPhone, p);
-            clinic.setAlignment(Element.ALIGN_CENTER);
-            doc.add(clinic);
-            doc.add(Chunk.NEWLINE);
+    /**
+     * Escreve o relatório do agendamento em {@code out} (que não é fechado)
+     */
+    public void writeAppointmentReport(Appointment apt, OutputStream out) throws IOException {
+        Document doc = open(out);
+        try {
+            addReport(doc, apt, loadPhoto(apt));
+        } catch (DocumentException e) {
+            throw new IOException("Failed to build report: " + e.getMessage(), e);
+        } finally {
+            doc.close();
+        }
+    }
 
-            doc.add(new Paragraph("Dados da Consulta", h2));
-            doc.add(new Paragraph("Paciente: " + apt.getPatient(), p));
-            doc.add(new Paragraph("CPF: " + (apt.getCpf() == null ? "-" : apt.getCpf()), p));
-            doc.add(new Paragraph("E-mail: " + (apt.getPatientEmail() == null ? "-" : apt.getPatientEmail()), p));
-            doc.add(new Paragraph("Profissional: " + apt.getDoctor(), p));
-            doc.add(new Paragraph("Especialidade: " + apt.getSpecialty(), p));
-            doc.add(new Paragraph("Tipo: " + apt.getType(), p));
-            doc.add(new Paragraph("Data/Hora: " + apt.getDate() + " " + apt.getTime(), p));
-            doc.add(new Paragraph("Valor: R$ " + apt.getAmount(), p));
-            doc.add(new Paragraph("Status: " + apt.getStatus() + (apt.isPaid() ? " (Pagamento confirmado)" : ""), p));
-            doc.add(Chunk.NEWLINE);
+    /**
+     * Agendamentos do tenant no período [from, to] (datas inclusivas), na ordem de horário
+     *
+     * @throws IllegalArgumentException se o período é inválido ou tem agendamentos demais
+     */
+    public List<Appointment> findBatch(String tenantId, LocalDate from, LocalDate to) {
+        if (from == null) {
+            throw new IllegalArgumentException("Parâmetro 'from' é obrigatório");
+        }
+        LocalDate end = to != null ? to : from;
+        if (end.isBefore(from)) {
+            throw new IllegalArgumentException("'to' anterior a 'from'");
+        }
+        if (ChronoUnit.DAYS.between(from, end) >= batchMaxDays) {
+            throw new IllegalArgumentException("Período maior que " + batchMaxDays + " dias");
+        }
+        List<Appointment> appointments = appointmentRepository
+                .findByTenantIdAndScheduledAtGreaterThanEqualAndScheduledAtLessThanOrderByScheduledAtAsc(
+                        tenantId, from.atStartOfDay(), end.plusDays(1).atStartOfDay());
+        if (appointments.size() > batchMaxAppointments) {
+            throw new IllegalArgumentException("Período tem " + appointments.size()
+                    + " agendamentos (máximo " + batchMaxAppointments + "): reduza o intervalo");
+        }
+        return appointments;
+    }
 
-            if (apt.getPhotoUrl() != null && !apt.getPhotoUrl().isBlank()) {
+    /**
+     * Relatórios em lote num PDF único, uma página (ou mais, com foto) por agendamento.
+     * As fotos são preparadas em paralelo enquanto as páginas anteriores são escritas.
+     */
+    public void writeBatchPdf(List<Appointment> appointments, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        Document doc = open(out);
+        try {
+            boolean[] first = {true};
+            forEachOrdered(appointments, this::loadPhoto, (apt, photo) -> {
                 try {
-                    Path path = storage.resolveFromUrl(apt.getPhotoUrl());
-                    if (Files.exists(path)) {
-                        Image img = Image.getInstance(path.toAbsolutePath().toString());
-                        img.scaleToFit(400, 400);
-                        img.setAlignment(Image.MIDDLE);
-                        doc.add(new Paragraph("Foto Anexada:", h2));
-                        doc.add(Chunk.NEWLINE);
-                        doc.add(img);
-                        doc.add(Chunk.NEWLINE);
+                    if (!first[0]) {
+                        doc.newPage();
                     }
-                } catch (Exception e) {
-                    doc.add(new Paragraph("(Não foi possível carregar a foto anexada)", p));
-                    doc.add(Chunk.NEWLINE);
+                    first[0] = false;
+                    addReport(doc, apt, photo);
+                } catch (DocumentException e) {
+                    throw new IOException("Failed to build report: " + e.getMessage(), e);
+                }
+            });
+        } finally {
+            doc.close();
+        }
+        logger.info("[REPORT] Lote PDF com {} relatórios em {} ms", appointments.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    /**
+     * Relatórios em lote num ZIP, um PDF por agendamento. Os PDFs são gerados em paralelo e gravados
+     * sem recompressão (o conteúdo do PDF já é comprimido).
+     */
+    public void writeBatchZip(List<Appointment> appointments, OutputStream out) throws IOException {
+        long started = System.nanoTime();
+        ZipOutputStream zip = new ZipOutputStream(out);
+        forEachOrdered(appointments, this::generateAppointmentReport, (apt, pdf) -> {
+            CRC32 crc = new CRC32();
+            crc.update(pdf);
+            ZipEntry entry = new ZipEntry(entryName(apt));
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(pdf.length);
+            entry.setCompressedSize(pdf.length);
+            entry.setCrc(crc.getValue());
+            zip.putNextEntry(entry);
+            zip.write(pdf);
+            zip.closeEntry();
+        });
+        zip.finish();
+        zip.flush();
+        logger.info("[REPORT] Lote ZIP com {} relatórios em {} ms", appointments.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    private interface OrderedSink<T> {
+        void accept(Appointment apt, T result) throws IOException;
+    }
+
+    /**
+     * Executa {@code task} no pool para cada agendamento, com no máximo {@link #batchWindow} em andamento,
+     * e entrega os resultados ao {@code sink} na ordem da lista (memória limitada pela janela)
+     */
+    private <T> void forEachOrdered(List<Appointment> appointments, Function<Appointment, T> task,
+            OrderedSink<T> sink) throws IOException {
+        Deque<Future<T>> inFlight = new ArrayDeque<>(batchWindow);
+        int next = 0;
+        int done = 0;
+        try {
+            while (done < appointments.size()) {
+                while (next < appointments.size() && inFlight.size() < batchWindow) {
+                    Appointment apt = appointments.get(next++);
+                    inFlight.addLast(batchExecutor.submit(() -> task.apply(apt)));
                 }
+                sink.accept(appointments.get(done++), await(inFlight.removeFirst()));
             }
+        } finally {
+            // Cliente desconectou ou falha: descarta o que ainda não foi entregue
+            inFlight.forEach(future -> future.cancel(true));
+        }
+    }
 
-            doc.add(new Paragraph("Observações:", h2));
-            doc.add(new Paragraph(
-                    "- Comparecer com 10 minutos de antecedência.\n- Em caso de dúvidas, contate: " + clinicPhone, p));
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Geração do lote interrompida", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
 
-            doc.close();
-            return baos.toByteArray();
+    private static Document open(OutputStream out) {
+        Document doc = new Document(PageSize.A4, 36, 36, 48, 36);
+        PdfWriter writer = PdfWriter.getInstance(doc, out);
+        // Quem abriu o stream (servlet, ZIP) decide quando fechar
+        writer.setCloseStream(false);
+        doc.open();
+        return doc;
+    }
+
+    private void addReport(Document doc, Appointment apt, byte[] photo) throws DocumentException {
+        Paragraph title = new Paragraph("Relatório de Atendimento", H1);
+        title.setAlignment(Element.ALIGN_CENTER);
+        doc.add(title);
+        doc.add(Chunk.NEWLINE);
+
+        Paragraph clinic = new Paragraph(clinicHeader, P);
+        clinic.setAlignment(Element.ALIGN_CENTER);
+        doc.add(clinic);
+        doc.add(Chunk.NEWLINE);
+
+        doc.add(new Paragraph("Dados da Consulta", H2));
+        doc.add(new Paragraph("Paciente: " + apt.getPatient(), P));
+        doc.add(new Paragraph("CPF: " + (apt.getCpf() == null ? "-" : apt.getCpf()), P));
+        doc.add(new Paragraph("E-mail: " + (apt.getPatientEmail() == null ? "-" : apt.getPatientEmail()), P));
+        doc.add(new Paragraph("Profissional: " + apt.getDoctor(), P));
+        doc.add(new Paragraph("Especialidade: " + apt.getSpecialty(), P));
+        doc.add(new Paragraph("Tipo: " + apt.getType(), P));
+        doc.add(new Paragraph("Data/Hora: " + apt.getDate() + " " + apt.getTime(), P));
+        doc.add(new Paragraph("Valor: R$ " + apt.getAmount(), P));
+        doc.add(new Paragraph("Status: " + apt.getStatus() + (apt.isPaid() ? " (Pagamento confirmado)" : ""), P));
+        doc.add(Chunk.NEWLINE);
+
+        if (photo == PHOTO_FAILED) {
+            doc.add(new Paragraph("(Não foi possível carregar a foto anexada)", P));
+            doc.add(Chunk.NEWLINE);
+        } else if (photo != null) {
+            try {
+                Image img = Image.getInstance(photo);
+                img.scaleToFit(400, 400);
+                img.setAlignment(Image.MIDDLE);
+                doc.add(new Paragraph("Foto Anexada:", H2));
+                doc.add(Chunk.NEWLINE);
+                doc.add(img);
+                doc.add(Chunk.NEWLINE);
+            } catch (IOException e) {
+                doc.add(new Paragraph("(Não foi possível carregar a foto anexada)", P));
+                doc.add(Chunk.NEWLINE);
+            }
+        }
+
+        doc.add(new Paragraph("Observações:", H2));
+        doc.add(new Paragraph(observations, P));
+    }
+
+    /**
+     * Foto do agendamento no tamanho do relatório; null se não tem foto, {@link #PHOTO_FAILED} se não pôde ser lida
+     */
+    private byte[] loadPhoto(Appointment apt) {
+        if (apt.getPhotoUrl() == null || apt.getPhotoUrl().isBlank()) {
+            return null;
+        }
+        try {
+            Path report = appointmentPhotoService.generated(apt.getPhotoUrl(), AppointmentPhotoService.Variant.REPORT);
+            if (report != null) {
+                // Já no tamanho do relatório: embutida como está, sem decodificar
+                return Files.readAllBytes(report);
+            }
+            Path path = storage.resolveFromUrl(apt.getPhotoUrl());
+            return reportPhotos.scaled(path);
         } catch (Exception e) {
-            throw new RuntimeException("Failed to build report: " + e.getMessage(), e);
+            logger.warn("[REPORT] Foto do agendamento {} não pôde ser lida: {}", apt.getId(), e.getMessage());
+            return PHOTO_FAILED;
         }
     }
+
+    private static String entryName(Appointment apt) {
+        String time = apt.getTime() == null ? "" : apt.getTime().replaceAll("[^0-9]", "");
+        return "relatorio-" + apt.getDate() + (time.isEmpty() ? "" : "-" + time) + "-" + apt.getId() + ".pdf";
+    }
 }
@@ -0,0 +1,379 @@
+package br.lunavita.totemapi.service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import br.lunavita.totemapi.dto.AppointmentSummary;
+import br.lunavita.totemapi.event.AppointmentChangedEvent;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Agenda do dia por tenant, enviada por SSE às telas da recepção.
+ *
+ * Cada tenant com ao menos uma tela conectada tem um snapshot em memória dos agendamentos de hoje,
+ * carregado uma vez e atualizado pelos {@link AppointmentChangedEvent} (após o commit). Ao conectar,
+ * a tela recebe {@code snapshot}; depois, apenas {@code upsert} (agendamento criado/alterado no dia)
+ * e {@code remove} (removido, ou remarcado para outro dia). Tela ociosa custa só o heartbeat.
+ *
+ * Toda mutação e carga do banco acontece numa única thread ("today-agenda"): preserva a ordem dos
+ * eventos, dispensa locks e não prende a thread que fez o commit. O envio não: cada tela tem uma fila
+ * própria, esvaziada em ordem pelo executor de envio ("today-agenda-send"), de modo que uma tela
+ * lenta não atrasa as outras nem os demais tenants. Tela cuja fila passa de
+ * {@link #MAX_PENDING_EVENTS} eventos não está lendo e é desconectada (reconecta e recebe novo
+ * snapshot). O snapshot do tenant é descartado quando a última tela desconecta, e recarregado na
+ * virada do dia.
+ */
+@Service
+public class TodayAgendaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TodayAgendaService.class);
+
+    private static final Comparator<AppointmentSummary> AGENDA_ORDER = Comparator
+            .comparing(AppointmentSummary::scheduledAt, Comparator.nullsLast(Comparator.<LocalDateTime>naturalOrder()))
+            .thenComparing(AppointmentSummary::id);
+
+    private static final int MAX_PENDING_EVENTS = 64;
+
+    private final AppointmentRepository appointmentRepository;
+    private final long streamTimeoutMs;
+    private final ExecutorService dispatcher;
+    private final ExecutorService sender;
+
+    // Acessado apenas pela thread do dispatcher
+    private final Map<String, Agenda> agendas = new HashMap<>();
+
+    public TodayAgendaService(AppointmentRepository appointmentRepository,
+            @Value("${totem.agenda.stream.timeout-ms:1800000}") long streamTimeoutMs,
+            @Value("${totem.agenda.stream.send-threads:4}") int sendThreads) {
+        this.appointmentRepository = appointmentRepository;
+        this.streamTimeoutMs = streamTimeoutMs;
+        this.dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "today-agenda");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.sender = Executors.newFixedThreadPool(sendThreads, runnable -> {
+            Thread thread = new Thread(runnable, "today-agenda-send");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Mensagem inicial: todos os agendamentos do dia, em ordem de horário.
+     */
+    public record Snapshot(long seq, LocalDate date, List<AppointmentSummary> appointments) {
+    }
+
+    /**
+     * Agendamento criado ou alterado no dia.
+     */
+    public record Upsert(long seq, AppointmentSummary appointment) {
+    }
+
+    /**
+     * Agendamento que saiu da agenda do dia (removido ou remarcado).
+     */
+    public record Remove(long seq, String id) {
+    }
+
+    private static final class Agenda {
+
+        private final String tenantId;
+        private final List<Subscriber> subscribers = new ArrayList<>();
+        private Map<String, AppointmentSummary> appointments = new HashMap<>();
+        private LocalDate date;
+        private long seq;
+
+        Agenda(String tenantId) {
+            this.tenantId = tenantId;
+        }
+
+        Snapshot snapshot() {
+            List<AppointmentSummary> sorted = new ArrayList<>(appointments.values());
+            sorted.sort(AGENDA_ORDER);
+            return new Snapshot(seq, date, sorted);
+        }
+    }
+
+    /**
+     * Tela conectada. O dispatcher enfileira os eventos; uma única tarefa por vez no executor de envio
+     * os escreve em ordem. Estado da fila guardado pelo monitor do próprio objeto.
+     */
+    private final class Subscriber {
+
+        private final String tenantId;
+        private final SseEmitter emitter;
+        private final Deque<Set<DataWithMediaType>> pending = new ArrayDeque<>();
+        private boolean draining;
+        private boolean closed;
+
+        Subscriber(String tenantId, SseEmitter emitter) {
+            this.tenantId = tenantId;
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return false se a tela já foi fechada ou não está lendo (fila cheia); deve ser removida
+         */
+        synchronized boolean offer(Set<DataWithMediaType> event) {
+            if (closed) {
+                return false;
+            }
+            if (pending.size() >= MAX_PENDING_EVENTS) {
+                logger.debug("[TODAY AGENDA] Tela do tenant {} não está lendo; desconectada", tenantId);
+                close();
+                return false;
+            }
+            pending.add(event);
+            scheduleDrainLocked();
+            return true;
+        }
+
+        /**
+         * Descarta os eventos pendentes; a conexão é encerrada no executor de envio, nunca no
+         * dispatcher (complete() espera um envio em andamento).
+         */
+        synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            pending.clear();
+            scheduleDrainLocked();
+        }
+
+        private void scheduleDrainLocked() {
+            if (draining) {
+                return;
+            }
+            draining = true;
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                // Aplicação encerrando
+            }
+        }
+
+        private void drain() {
+            while (true) {
+                Set<DataWithMediaType> event;
+                boolean complete;
+                synchronized (this) {
+                    complete = closed;
+                    event = closed ? null : pending.poll();
+                    if (event == null) {
+                        draining = false;
+                    }
+                }
+                if (event == null) {
+                    if (complete) {
+                        completeQuietly();
+                    }
+                    return;
+                }
+                try {
+                    emitter.send(event);
+                } catch (IOException | IllegalStateException e) {
+                    close();
+                    submit(() -> unsubscribe(this));
+                }
+            }
+        }
+
+        private void completeQuietly() {
+            try {
+                emitter.complete();
+            } catch (RuntimeException e) {
+                // Conexão já encerrada
+            }
+        }
+    }
+
+    /**
+     * Conecta uma tela à agenda do tenant. O snapshot é enviado assim que a agenda estiver carregada.
+     */
+    public SseEmitter subscribe(String tenantId) {
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        Subscriber subscriber = new Subscriber(tenantId, emitter);
+        Runnable unsubscribe = () -> submit(() -> unsubscribe(subscriber));
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(error -> unsubscribe.run());
+
+        submit(() -> {
+            Agenda agenda = agendas.get(tenantId);
+            if (agenda == null) {
+                agenda = new Agenda(tenantId);
+                try {
+                    load(agenda, LocalDate.now());
+                } catch (RuntimeException e) {
+                    logger.warn("[TODAY AGENDA] Falha ao carregar agenda do tenant {}: {}", tenantId, e.getMessage());
+                    emitter.completeWithError(e);
+                    return;
+                }
+                agendas.put(tenantId, agenda);
+            }
+            agenda.subscribers.add(subscriber);
+            if (!subscriber.offer(event("snapshot", agenda.seq, agenda.snapshot()))) {
+                agenda.subscribers.remove(subscriber);
+                dropIfIdle(agenda);
+            }
+        });
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (event.tenantId() == null || event.appointmentId() == null) {
+            return;
+        }
+        submit(() -> {
+            Agenda agenda = agendas.get(event.tenantId());
+            if (agenda == null) {
+                return;
+            }
+            if (rolloverIfNeeded(agenda)) {
+                // O snapshot recarregado já reflete a alteração
+                return;
+            }
+            AppointmentSummary summary = AppointmentSummary.of(event.appointment());
+            boolean today = event.type() != AppointmentChangedEvent.Type.DELETED
+                    && agenda.date.equals(summary.date());
+            if (today) {
+                agenda.appointments.put(summary.id(), summary);
+                agenda.seq++;
+                broadcast(agenda, "upsert", new Upsert(agenda.seq, summary));
+            } else if (agenda.appointments.remove(summary.id()) != null) {
+                agenda.seq++;
+                broadcast(agenda, "remove", new Remove(agenda.seq, summary.id()));
+            }
+        });
+    }
+
+    /**
+     * Heartbeat das conexões (mantém proxies abertos e detecta telas desconectadas) e virada do dia.
+     */
+    @Scheduled(fixedDelayString = "${totem.agenda.stream.heartbeat-ms:20000}")
+    public void heartbeat() {
+        submit(() -> {
+            for (Agenda agenda : List.copyOf(agendas.values())) {
+                if (rolloverIfNeeded(agenda)) {
+                    continue;
+                }
+                Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+                agenda.subscribers.removeIf(subscriber -> !subscriber.offer(ping));
+                dropIfIdle(agenda);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        sender.shutdownNow();
+    }
+
+    private void load(Agenda agenda, LocalDate date) {
+        List<AppointmentSummary> rows = appointmentRepository.findPageAscending(agenda.tenantId,
+                date.atStartOfDay(), date.plusDays(1).atStartOfDay(), null, null, null, Pageable.unpaged());
+        Map<String, AppointmentSummary> loaded = new HashMap<>();
+        for (AppointmentSummary row : rows) {
+            loaded.put(row.id(), row);
+        }
+        agenda.appointments = loaded;
+        agenda.date = date;
+        agenda.seq++;
+    }
+
+    /**
+     * Recarrega a agenda quando o dia virou e reenvia o snapshot.
+     *
+     * @return true se recarregou (ou descartou a agenda por falha)
+     */
+    private boolean rolloverIfNeeded(Agenda agenda) {
+        LocalDate today = LocalDate.now();
+        if (today.equals(agenda.date)) {
+            return false;
+        }
+        try {
+            load(agenda, today);
+        } catch (RuntimeException e) {
+            logger.warn("[TODAY AGENDA] Falha ao recarregar agenda do tenant {}: {}", agenda.tenantId, e.getMessage());
+            // As telas reconectam e recarregam do zero
+            agenda.subscribers.forEach(Subscriber::close);
+            agenda.subscribers.clear();
+            agendas.remove(agenda.tenantId);
+            return true;
+        }
+        broadcast(agenda, "snapshot", agenda.snapshot());
+        return true;
+    }
+
+    private void broadcast(Agenda agenda, String name, Object data) {
+        // Montado uma vez e compartilhado: cada tela serializa o mesmo evento
+        Set<DataWithMediaType> event = event(name, agenda.seq, data);
+        agenda.subscribers.removeIf(subscriber -> !subscriber.offer(event));
+        dropIfIdle(agenda);
+    }
+
+    private static Set<DataWithMediaType> event(String name, long seq, Object data) {
+        return SseEmitter.event()
+                .id(Long.toString(seq))
+                .name(name)
+                .data(data, MediaType.APPLICATION_JSON)
+                .build();
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.close();
+        Agenda agenda = agendas.get(subscriber.tenantId);
+        if (agenda != null && agenda.subscribers.remove(subscriber)) {
+            dropIfIdle(agenda);
+        }
+    }
+
+    private void dropIfIdle(Agenda agenda) {
+        if (agenda.subscribers.isEmpty()) {
+            agendas.remove(agenda.tenantId, agenda);
+        }
+    }
+
+    private void submit(Runnable task) {
+        try {
+            dispatcher.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    logger.warn("[TODAY AGENDA] Falha ao processar atualização: {}", e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // Aplicação encerrando
+        }
+    }
+}
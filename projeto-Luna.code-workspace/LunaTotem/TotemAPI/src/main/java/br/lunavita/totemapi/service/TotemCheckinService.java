@@ -0,0 +1,115 @@
+package br.lunavita.totemapi.service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import br.lunavita.totemapi.dto.AppointmentSummary;
+import br.lunavita.totemapi.integration.lunapay.dto.LunaPayPaymentStatusResponse;
+import br.lunavita.totemapi.model.Patient;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.PatientRepository;
+import br.lunavita.totemapi.security.UserContext;
+import br.lunavita.totemapi.service.payment.PaymentProxyService;
+
+/**
+ * Identificação do paciente no totem numa única ida ao servidor.
+ *
+ * Substitui a sequência by-cpf → unpaid/upcoming → status do pagamento. Paciente e agendamentos
+ * (uma consulta cobre os do dia e os não pagos) são lidos na thread da requisição enquanto só o
+ * status no LunaPay, a única chamada lenta, corre no executor. O LunaPay tem prazo próprio
+ * ({@code totem.checkin.payment-timeout-ms}); se estourar, a resposta sai sem o status do pagamento
+ * em vez de atrasar a tela.
+ */
+@Service
+public class TotemCheckinService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TotemCheckinService.class);
+
+    private final PatientRepository patientRepository;
+    private final AppointmentRepository appointmentRepository;
+    private final PaymentProxyService paymentProxyService;
+    private final Executor executor;
+    private final long paymentTimeoutMs;
+
+    public TotemCheckinService(PatientRepository patientRepository,
+            AppointmentRepository appointmentRepository,
+            PaymentProxyService paymentProxyService,
+            @Qualifier("applicationTaskExecutor") Executor executor,
+            @Value("${totem.checkin.payment-timeout-ms:1500}") long paymentTimeoutMs) {
+        this.patientRepository = patientRepository;
+        this.appointmentRepository = appointmentRepository;
+        this.paymentProxyService = paymentProxyService;
+        this.executor = executor;
+        this.paymentTimeoutMs = paymentTimeoutMs;
+    }
+
+    /**
+     * Resultado bruto do check-in; o controller monta a resposta e registra a auditoria LGPD.
+     */
+    public record Checkin(Optional<Patient> patient, List<AppointmentSummary> today,
+            List<AppointmentSummary> unpaid, LunaPayPaymentStatusResponse payment, String paymentError) {
+
+        public boolean isEmpty() {
+            return patient.isEmpty() && today.isEmpty() && unpaid.isEmpty();
+        }
+    }
+
+    public Checkin lookup(String tenantId, String cpf, String paymentId, UserContext userContext,
+            String authorizationHeader) {
+        CompletableFuture<LunaPayPaymentStatusResponse> paymentFuture = null;
+        if (paymentId != null && !paymentId.isBlank()) {
+            paymentFuture = CompletableFuture
+                    .supplyAsync(() -> paymentProxyService.getPaymentStatus(paymentId, userContext,
+                            authorizationHeader), executor)
+                    .orTimeout(paymentTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+
+        // Banco na própria thread da requisição, enquanto o LunaPay responde
+        Optional<Patient> patient = patientRepository.findByTenantIdAndCpf(tenantId, cpf);
+        LocalDate today = LocalDate.now();
+        LocalDateTime dayStart = today.atStartOfDay();
+        LocalDateTime dayEnd = today.plusDays(1).atStartOfDay();
+        List<AppointmentSummary> todayAppointments = new ArrayList<>();
+        List<AppointmentSummary> unpaidAppointments = new ArrayList<>();
+        for (AppointmentSummary appointment : appointmentRepository.findCheckinCandidates(tenantId, cpf,
+                dayStart, dayEnd)) {
+            LocalDateTime at = appointment.scheduledAt();
+            if (at != null && !at.isBefore(dayStart) && at.isBefore(dayEnd)) {
+                todayAppointments.add(appointment);
+            }
+            if (!appointment.paid()) {
+                unpaidAppointments.add(appointment);
+            }
+        }
+
+        LunaPayPaymentStatusResponse payment = null;
+        String paymentError = null;
+        if (paymentFuture != null) {
+            try {
+                payment = paymentFuture.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                paymentError = cause instanceof TimeoutException
+                        ? "LunaPay não respondeu em " + paymentTimeoutMs + " ms"
+                        : cause.getMessage();
+                logger.warn("[CHECKIN] Status do pagamento {} indisponível: {}", paymentId, paymentError);
+            }
+        }
+
+        return new Checkin(patient, todayAppointments, unpaidAppointments, payment, paymentError);
+    }
+}
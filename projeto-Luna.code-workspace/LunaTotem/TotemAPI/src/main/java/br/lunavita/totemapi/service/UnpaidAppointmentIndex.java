@@ -0,0 +1,497 @@
+package br.lunavita.totemapi.service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import br.lunavita.totemapi.event.AppointmentChangedEvent;
+import br.lunavita.totemapi.event.PatientChangedEvent;
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.Patient;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.PatientRepository;
+
+/**
+ * Índice em memória (n-gramas) dos agendamentos NÃO pagos, por tenant.
+ *
+ * Substitui a query {@code LOWER(..) LIKE '%q%'} do fluxo de pagamento do totem, que nenhum
+ * índice B-tree consegue atender. Cada tenant é carregado sob demanda na primeira busca e
+ * mantido em sincronia pelos eventos de {@link AppointmentChangedEvent} e
+ * {@link PatientChangedEvent} (aplicados após o commit). Os tenants carregados são relidos do banco
+ * periodicamente ({@code totem.search.unpaid-index.refresh-ms}), o que cobre escritas feitas por
+ * outra instância ou por SQL direto.
+ *
+ * Semântica idêntica a {@link AppointmentRepository#searchUnpaidByTenantIdAndPatientOrCpf}:
+ * nome (do agendamento ou do paciente) contém {@code q}, ou CPF (do agendamento ou do paciente)
+ * contém {@code cpfPart}; ordenado por data desc, horário desc, paciente asc.
+ */
+@Component
+public class UnpaidAppointmentIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(UnpaidAppointmentIndex.class);
+
+    private static final int MIN_GRAM = 2;
+    private static final int MAX_GRAM = 3;
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    static final Comparator<Appointment> SEARCH_ORDER = Comparator
+            .comparing(Appointment::getDate, Comparator.nullsFirst(Comparator.<LocalDate>reverseOrder()))
+            .thenComparing(Appointment::getTime, Comparator.nullsFirst(Comparator.<String>reverseOrder()))
+            .thenComparing(Appointment::getPatient, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+            .thenComparing(Appointment::getId, Comparator.nullsLast(Comparator.<String>naturalOrder()));
+
+    private final AppointmentRepository appointmentRepository;
+    private final PatientRepository patientRepository;
+    private final boolean enabled;
+    private final Map<String, TenantIndex> tenants = new ConcurrentHashMap<>();
+    // Índices sendo recarregados por refresh(): recebem os eventos junto com o índice em uso
+    private final Map<String, TenantIndex> reloading = new ConcurrentHashMap<>();
+
+    public UnpaidAppointmentIndex(AppointmentRepository appointmentRepository,
+            PatientRepository patientRepository,
+            @Value("${totem.search.unpaid-index.enabled:true}") boolean enabled) {
+        this.appointmentRepository = appointmentRepository;
+        this.patientRepository = patientRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Busca agendamentos não pagos do tenant.
+     *
+     * @return vazio quando o índice está desabilitado ou não pôde ser carregado
+     *         (o chamador deve cair para a query no banco)
+     */
+    public Optional<List<Appointment>> search(String tenantId, String q, String cpfPart) {
+        if (!enabled || tenantId == null || tenantId.isBlank()) {
+            return Optional.empty();
+        }
+        TenantIndex index = tenants.computeIfAbsent(tenantId, k -> new TenantIndex());
+        try {
+            index.ensureLoaded(tenantId);
+        } catch (RuntimeException e) {
+            tenants.remove(tenantId, index);
+            logger.warn("[UNPAID INDEX] Falha ao carregar tenant {}: {}", tenantId, e.getMessage());
+            return Optional.empty();
+        }
+        return Optional.of(index.search(q.toLowerCase(Locale.ROOT), cpfPart));
+    }
+
+    /**
+     * Descarta o índice de um tenant (será recarregado na próxima busca).
+     */
+    public void invalidate(String tenantId) {
+        if (tenantId != null) {
+            tenants.remove(tenantId);
+        }
+    }
+
+    /**
+     * Relê do banco cada tenant já carregado. O índice novo é montado ao lado do atual (que continua
+     * atendendo as buscas) e o substitui ao terminar; se a leitura falhar, o tenant é descartado e
+     * as buscas caem para a query até a próxima carga.
+     */
+    @Scheduled(fixedDelayString = "${totem.search.unpaid-index.refresh-ms:300000}",
+            initialDelayString = "${totem.search.unpaid-index.refresh-ms:300000}")
+    public void refresh() {
+        for (String tenantId : List.copyOf(tenants.keySet())) {
+            TenantIndex fresh = new TenantIndex();
+            reloading.put(tenantId, fresh);
+            try {
+                fresh.ensureLoaded(tenantId);
+                tenants.replace(tenantId, fresh);
+            } catch (RuntimeException e) {
+                invalidate(tenantId);
+                logger.warn("[UNPAID INDEX] Falha ao recarregar tenant {}: {}", tenantId, e.getMessage());
+            } finally {
+                reloading.remove(tenantId, fresh);
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        for (TenantIndex index : indexesOf(event.tenantId())) {
+            if (event.type() == AppointmentChangedEvent.Type.DELETED) {
+                index.remove(event.appointmentId());
+            } else {
+                index.upsert(event.appointment());
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPatientChanged(PatientChangedEvent event) {
+        for (TenantIndex index : indexesOf(event.tenantId())) {
+            if (event.type() == PatientChangedEvent.Type.DELETED) {
+                index.removePatient(event.patientId());
+            } else {
+                index.putPatient(event.patientId(), event.name(), event.cpf());
+            }
+        }
+    }
+
+    /**
+     * Índice em uso e, durante um refresh, o que está sendo montado. O recarregado é lido primeiro:
+     * se o refresh terminar entre as duas leituras, o evento ainda chega ao índice novo.
+     */
+    private List<TenantIndex> indexesOf(String tenantId) {
+        if (tenantId == null) {
+            return List.of();
+        }
+        TenantIndex next = reloading.get(tenantId);
+        TenantIndex current = tenants.get(tenantId);
+        List<TenantIndex> out = new ArrayList<>(2);
+        if (current != null) {
+            out.add(current);
+        }
+        if (next != null && next != current) {
+            out.add(next);
+        }
+        return out;
+    }
+
+    // ===== Estrutura por tenant =====
+
+    private record PatientInfo(String name, String cpf) {
+    }
+
+    private static final class Entry {
+        final Appointment appointment;
+        final List<String> names = new ArrayList<>(2);
+        final List<String> cpfs = new ArrayList<>(2);
+        final Set<String> nameGrams = new HashSet<>();
+        final Set<String> cpfGrams = new HashSet<>();
+
+        Entry(Appointment appointment) {
+            this.appointment = appointment;
+        }
+
+        boolean nameContains(String q) {
+            for (String name : names) {
+                if (name.contains(q)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean cpfContains(String part) {
+            for (String cpf : cpfs) {
+                if (cpf.contains(part)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private final class TenantIndex {
+
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Object loadMonitor = new Object();
+        private final Map<String, Entry> entries = new HashMap<>();
+        private final Map<String, Set<String>> nameIndex = new HashMap<>();
+        private final Map<String, Set<String>> cpfIndex = new HashMap<>();
+        private final Map<String, PatientInfo> patients = new HashMap<>();
+        private final Map<String, Set<String>> byPatient = new HashMap<>();
+
+        // Ids alterados por eventos durante a carga inicial: o snapshot do banco não os sobrescreve
+        private Set<String> touchedAppointments = new HashSet<>();
+        private Set<String> touchedPatients = new HashSet<>();
+        private volatile boolean ready;
+
+        void ensureLoaded(String tenantId) {
+            if (ready) {
+                return;
+            }
+            synchronized (loadMonitor) {
+                if (ready) {
+                    return;
+                }
+                long start = System.nanoTime();
+                List<Appointment> unpaid = appointmentRepository.findByTenantIdAndPaidFalse(tenantId);
+                List<String> patientIds = unpaid.stream()
+                        .map(Appointment::getPatientId)
+                        .filter(id -> id != null && !id.isBlank())
+                        .distinct()
+                        .toList();
+                List<Patient> referenced = new ArrayList<>(patientIds.size());
+                for (int i = 0; i < patientIds.size(); i += LOAD_BATCH_SIZE) {
+                    List<String> batch = patientIds.subList(i, Math.min(i + LOAD_BATCH_SIZE, patientIds.size()));
+                    referenced.addAll(patientRepository.findByTenantIdAndIdIn(tenantId, batch));
+                }
+
+                lock.writeLock().lock();
+                try {
+                    for (Patient p : referenced) {
+                        if (!touchedPatients.contains(p.getId())) {
+                            patients.put(p.getId(), new PatientInfo(p.getName(), p.getCpf()));
+                        }
+                    }
+                    for (Appointment apt : unpaid) {
+                        if (!touchedAppointments.contains(apt.getId())) {
+                            index(apt.copy());
+                        }
+                    }
+                    touchedAppointments = null;
+                    touchedPatients = null;
+                    ready = true;
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                logger.info("[UNPAID INDEX] Tenant {} carregado: {} agendamentos não pagos em {} ms",
+                        tenantId, entries.size(), (System.nanoTime() - start) / 1_000_000);
+            }
+        }
+
+        List<Appointment> search(String q, String cpfPart) {
+            lock.readLock().lock();
+            try {
+                Set<Entry> matches = new LinkedHashSet<>();
+                collect(nameIndex, q, e -> e.nameContains(q), matches);
+                if (cpfPart != null && !cpfPart.isEmpty()) {
+                    collect(cpfIndex, cpfPart, e -> e.cpfContains(cpfPart), matches);
+                }
+                List<Appointment> results = new ArrayList<>(matches.size());
+                for (Entry e : matches) {
+                    results.add(e.appointment.copy());
+                }
+                results.sort(SEARCH_ORDER);
+                return results;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        /**
+         * Usa a lista de postagem mais curta entre os n-gramas do termo e confirma cada candidato
+         * com {@code contains} (o índice só elimina candidatos, nunca decide sozinho).
+         */
+        private void collect(Map<String, Set<String>> gramIndex, String term,
+                Predicate<Entry> verify, Set<Entry> out) {
+            Collection<String> candidates;
+            if (term.length() < MIN_GRAM) {
+                candidates = entries.keySet();
+            } else {
+                candidates = null;
+                for (String gram : grams(term)) {
+                    Set<String> posting = gramIndex.get(gram);
+                    if (posting == null) {
+                        return;
+                    }
+                    if (candidates == null || posting.size() < candidates.size()) {
+                        candidates = posting;
+                    }
+                }
+                if (candidates == null) {
+                    return;
+                }
+            }
+            for (String id : candidates) {
+                Entry e = entries.get(id);
+                if (e != null && verify.test(e)) {
+                    out.add(e);
+                }
+            }
+        }
+
+        void upsert(Appointment apt) {
+            PatientInfo patient = apt.isPaid() ? null : findUnknownPatient(apt);
+            lock.writeLock().lock();
+            try {
+                if (touchedAppointments != null) {
+                    touchedAppointments.add(apt.getId());
+                }
+                unindex(apt.getId());
+                if (!apt.isPaid()) {
+                    if (patient != null) {
+                        // Evento do paciente chegado durante a consulta prevalece
+                        patients.putIfAbsent(apt.getPatientId(), patient);
+                    }
+                    index(apt);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String appointmentId) {
+            lock.writeLock().lock();
+            try {
+                if (touchedAppointments != null) {
+                    touchedAppointments.add(appointmentId);
+                }
+                unindex(appointmentId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void putPatient(String patientId, String name, String cpf) {
+            lock.writeLock().lock();
+            try {
+                if (touchedPatients != null) {
+                    touchedPatients.add(patientId);
+                }
+                patients.put(patientId, new PatientInfo(name, cpf));
+                reindexPatient(patientId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void removePatient(String patientId) {
+            lock.writeLock().lock();
+            try {
+                if (touchedPatients != null) {
+                    touchedPatients.add(patientId);
+                }
+                patients.remove(patientId);
+                reindexPatient(patientId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        /**
+         * Paciente do agendamento ainda fora do índice, lido do banco sem segurar o lock
+         * (as buscas do totem não esperam essa consulta)
+         */
+        private PatientInfo findUnknownPatient(Appointment apt) {
+            String patientId = apt.getPatientId();
+            if (patientId == null || patientId.isBlank()) {
+                return null;
+            }
+            lock.readLock().lock();
+            try {
+                if (patients.containsKey(patientId)) {
+                    return null;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return patientRepository.findByTenantIdAndId(apt.getTenantId(), patientId)
+                    .map(p -> new PatientInfo(p.getName(), p.getCpf()))
+                    .orElse(null);
+        }
+
+        private void reindexPatient(String patientId) {
+            Set<String> ids = byPatient.get(patientId);
+            if (ids == null) {
+                return;
+            }
+            for (String id : new ArrayList<>(ids)) {
+                Entry e = entries.get(id);
+                if (e != null) {
+                    unindex(id);
+                    index(e.appointment);
+                }
+            }
+        }
+
+        private void index(Appointment apt) {
+            Entry e = new Entry(apt);
+            addText(e.names, apt.getPatient() != null ? apt.getPatient().toLowerCase(Locale.ROOT) : null);
+            addText(e.cpfs, apt.getCpf());
+            PatientInfo patient = apt.getPatientId() != null ? patients.get(apt.getPatientId()) : null;
+            if (patient != null) {
+                addText(e.names, patient.name() != null ? patient.name().toLowerCase(Locale.ROOT) : null);
+                addText(e.cpfs, patient.cpf());
+            }
+            for (String name : e.names) {
+                e.nameGrams.addAll(grams(name));
+            }
+            for (String cpf : e.cpfs) {
+                e.cpfGrams.addAll(grams(cpf));
+            }
+            post(nameIndex, e.nameGrams, apt.getId());
+            post(cpfIndex, e.cpfGrams, apt.getId());
+            entries.put(apt.getId(), e);
+            if (apt.getPatientId() != null) {
+                byPatient.computeIfAbsent(apt.getPatientId(), k -> new HashSet<>()).add(apt.getId());
+            }
+        }
+
+        private void unindex(String appointmentId) {
+            Entry e = entries.remove(appointmentId);
+            if (e == null) {
+                return;
+            }
+            unpost(nameIndex, e.nameGrams, appointmentId);
+            unpost(cpfIndex, e.cpfGrams, appointmentId);
+            String patientId = e.appointment.getPatientId();
+            if (patientId != null) {
+                Set<String> ids = byPatient.get(patientId);
+                if (ids != null) {
+                    ids.remove(appointmentId);
+                    if (ids.isEmpty()) {
+                        byPatient.remove(patientId);
+                    }
+                }
+            }
+        }
+    }
+
+    // ===== Helpers =====
+
+    private static void addText(List<String> target, String value) {
+        if (value != null && !value.isEmpty() && !target.contains(value)) {
+            target.add(value);
+        }
+    }
+
+    /**
+     * Bigramas para termos de 2 caracteres, trigramas para os demais.
+     * Textos indexados geram ambos, para atender buscas de qualquer tamanho.
+     */
+    private static Set<String> grams(String text) {
+        Set<String> out = new HashSet<>();
+        if (text.length() == MIN_GRAM) {
+            out.add(text);
+            return out;
+        }
+        for (int n = MIN_GRAM; n <= MAX_GRAM; n++) {
+            for (int i = 0; i + n <= text.length(); i++) {
+                out.add(text.substring(i, i + n));
+            }
+        }
+        return out;
+    }
+
+    private static void post(Map<String, Set<String>> gramIndex, Set<String> grams, String id) {
+        for (String gram : grams) {
+            gramIndex.computeIfAbsent(gram, k -> new HashSet<>()).add(id);
+        }
+    }
+
+    private static void unpost(Map<String, Set<String>> gramIndex, Set<String> grams, String id) {
+        for (String gram : grams) {
+            Set<String> posting = gramIndex.get(gram);
+            if (posting != null) {
+                posting.remove(id);
+                if (posting.isEmpty()) {
+                    gramIndex.remove(gram);
+                }
+            }
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package br.lunavita.totemapi.service.payment;
 
+import br.lunavita.totemapi.dto.CreatePrintJobRequest;
 import br.lunavita.totemapi.integration.lunapay.LunaPayClient;
 import br.lunavita.totemapi.integration.lunapay.dto.LunaPayCreatePaymentRequest;
 import br.lunavita.totemapi.integration.lunapay.dto.LunaPayPaymentResponse;
@@ -9,25 +10,46 @@ import br.lunavita.totemapi.model.Patient;
 import br.lunavita.totemapi.repository.PatientRepository;
 import br.lunavita.totemapi.security.UserContext;
 import br.lunavita.totemapi.service.DataStoreService;
+import br.lunavita.totemapi.service.PrintQueueService;
+import br.lunavita.totemapi.service.ReceiptGeneratorService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.format.DateTimeFormatter;
 import java.util.Objects;
 
 @Service
 public class PaymentProxyService {
 
+    private static final Logger log = LoggerFactory.getLogger(PaymentProxyService.class);
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
     private final DataStoreService store;
     private final PatientRepository patientRepository;
     private final LunaPayClient lunaPayClient;
+    private final ReceiptGeneratorService receiptGenerator;
+    private final PrintQueueService printQueueService;
 
-    public PaymentProxyService(DataStoreService store, PatientRepository patientRepository, LunaPayClient lunaPayClient) {
+    public PaymentProxyService(DataStoreService store, PatientRepository patientRepository, LunaPayClient lunaPayClient,
+            ReceiptGeneratorService receiptGenerator, PrintQueueService printQueueService) {
         this.store = store;
         this.patientRepository = patientRepository;
         this.lunaPayClient = lunaPayClient;
+        this.receiptGenerator = receiptGenerator;
+        this.printQueueService = printQueueService;
     }
 
     public PixInitResponse createPixForAppointment(String appointmentId, UserContext userContext, String authorizationHeader) {
+        return createPixForAppointment(appointmentId, userContext, authorizationHeader, false);
+    }
+
+    /**
+     * @param print se true, também enfileira a cobrança impressa (QR Code + copia e cola) no totem do tenant
+     */
+    public PixInitResponse createPixForAppointment(String appointmentId, UserContext userContext,
+            String authorizationHeader, boolean print) {
         requireLunaPayModule(userContext);
         Objects.requireNonNull(authorizationHeader, "authorizationHeader");
 
@@ -62,6 +84,10 @@ public class PaymentProxyService {
             throw new IllegalArgumentException("Falha ao criar pagamento no LunaPay");
         }
 
+        if (print && created.getPixCopyPaste() != null) {
+            enqueuePixReceipt(appointment, cust.getName(), amount, created.getPixCopyPaste());
+        }
+
         return new PixInitResponse(
                 created.getId(),
                 created.getPixQrCodeBase64(),
@@ -76,6 +102,36 @@ public class PaymentProxyService {
         return lunaPayClient.getPaymentStatus(paymentId, authorizationHeader, true);
     }
 
+    /**
+     * Enfileira a cobrança PIX impressa. Best-effort: falha na impressão não desfaz a cobrança.
+     */
+    private void enqueuePixReceipt(Appointment appointment, String patientName, BigDecimal amount, String pixCode) {
+        try {
+            byte[] escPosPayload = receiptGenerator.generatePixReceipt(
+                    appointment.getTenantId(),
+                    ReceiptGeneratorService.DEFAULT_CLINIC_NAME,
+                    patientName,
+                    amount,
+                    appointment.getDate() != null ? DATE_FORMATTER.format(appointment.getDate()) : null,
+                    appointment.getTime(),
+                    appointment.getDoctor(),
+                    pixCode);
+
+            // Mesmo terminal dos recibos de pagamento
+            printQueueService.enqueue(CreatePrintJobRequest.builder()
+                    .terminalId(PrintQueueService.totemTerminalId(appointment.getTenantId()))
+                    .tenantId(appointment.getTenantId())
+                    .receiptType("PIX")
+                    .payloadBytes(escPosPayload)
+                    .appointmentId(appointment.getId())
+                    .priority(0)
+                    .maxAttempts(5)
+                    .build());
+        } catch (Exception e) {
+            log.error("Falha ao gerar/enfileirar cobrança PIX impressa: {}", e.getMessage(), e);
+        }
+    }
+
     private void requireLunaPayModule(UserContext userContext) {
         if (userContext == null) {
             throw new SecurityException("Usuário não autenticado");
@@ -0,0 +1,96 @@
+package br.lunavita.totemapi.service.receipt;
+
+import java.nio.charset.Charset;
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Páginas de código das impressoras térmicas para português.
+ *
+ * Cada página tem uma tabela char → byte (64 KB) montada uma vez: codificar um caractere é uma leitura
+ * de array, sem {@code getBytes} nem {@code CharsetEncoder} por linha. Caracteres que a página não tem
+ * caem para a letra sem acento (ex.: "ã" no CP850 vira "a"); o resto vira '?'.
+ */
+public enum EscPosCodepage {
+
+    /** Multilingual Latin-1 (ESC t 2) */
+    CP850(2, "IBM850"),
+    /** Português (ESC t 3): padrão das impressoras vendidas no Brasil */
+    CP860(3, "IBM860");
+
+    private static final byte UNMAPPED = '?';
+
+    private final byte[] selectCommand;
+    private final byte[] table;
+
+    EscPosCodepage(int escPosTable, String charsetName) {
+        this.selectCommand = new byte[] {0x1B, 't', (byte) escPosTable};
+        this.table = buildTable(Charset.forName(charsetName));
+    }
+
+    /**
+     * Comando ESC/POS que seleciona esta página na impressora
+     */
+    public byte[] selectCommand() {
+        return selectCommand.clone();
+    }
+
+    /**
+     * Byte do caractere nesta página (controles viram espaço)
+     */
+    public byte encode(char c) {
+        if (c < 0x80) {
+            return c < 0x20 ? (byte) ' ' : (byte) c;
+        }
+        return table[c];
+    }
+
+    /**
+     * Página pelo nome ("CP860", "cp850", "IBM860"...)
+     *
+     * @throws IllegalArgumentException se não for uma página suportada
+     */
+    public static EscPosCodepage of(String name) {
+        if (name != null) {
+            String normalized = name.trim().toUpperCase().replace("IBM", "CP");
+            for (EscPosCodepage codepage : values()) {
+                if (codepage.name().equals(normalized)) {
+                    return codepage;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Página de código não suportada: " + name + " (use CP860 ou CP850)");
+    }
+
+    private static byte[] buildTable(Charset charset) {
+        byte[] built = new byte[Character.MAX_VALUE + 1];
+        Arrays.fill(built, UNMAPPED);
+        for (int c = 0; c < 0x80; c++) {
+            built[c] = (byte) c;
+        }
+        // Caracteres nativos da página (0x80-0xFF)
+        byte[] high = new byte[0x80];
+        for (int i = 0; i < high.length; i++) {
+            high[i] = (byte) (0x80 + i);
+        }
+        String decoded = new String(high, charset);
+        for (int i = 0; i < decoded.length(); i++) {
+            char c = decoded.charAt(i);
+            if (c != '\uFFFD') {
+                built[c] = high[i];
+            }
+        }
+        // Sem o caractere na página: letra base (NFD sem o acento), se ela existir
+        for (char c = 0x80; c < 0x250; c++) {
+            if (built[c] != UNMAPPED) {
+                continue;
+            }
+            String decomposed = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = decomposed.charAt(0);
+            if (base != c && built[base] != UNMAPPED) {
+                built[c] = built[base];
+            }
+        }
+        return built;
+    }
+}
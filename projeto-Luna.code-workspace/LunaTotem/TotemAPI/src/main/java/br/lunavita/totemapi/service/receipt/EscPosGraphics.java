@@ -0,0 +1,189 @@
+package br.lunavita.totemapi.service.receipt;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import com.google.zxing.BarcodeFormat;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.common.BitMatrix;
+import com.google.zxing.qrcode.QRCodeWriter;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+
+/**
+ * Gráficos ESC/POS dos recibos: QR Code (nativo {@code GS ( k} ou rasterizado), código de barras CODE128
+ * ({@code GS k}) e imagens monocromáticas ({@code GS v 0}) com dithering Floyd–Steinberg.
+ *
+ * Larguras em pontos: 12 por coluna da fonte A, ou seja 384 pontos no papel de 58 mm (32 colunas)
+ * e 576 no de 80 mm (48 colunas).
+ */
+public final class EscPosGraphics {
+
+    public static final int DOTS_PER_COLUMN = 12;
+
+    // Faixas de GS v 0: impressoras com buffer pequeno descartam rasters altos num comando só
+    private static final int RASTER_BAND_ROWS = 128;
+    // Logo não ocupa mais que ~30 mm de papel
+    private static final int MAX_LOGO_HEIGHT = 240;
+    // Largura do QR em relação ao papel
+    private static final int QR_WIDTH_PERCENT = 60;
+
+    private static final Map<EncodeHintType, Object> QR_HINTS = Map.of(
+            EncodeHintType.ERROR_CORRECTION, ErrorCorrectionLevel.M,
+            EncodeHintType.MARGIN, 0,
+            EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+
+    private EscPosGraphics() {
+    }
+
+    /**
+     * Pontos imprimíveis para a largura do papel em colunas
+     */
+    public static int dotsFor(int columns) {
+        return columns * DOTS_PER_COLUMN;
+    }
+
+    /**
+     * QR Code gerado pela própria impressora (modelo 2, correção M): poucos bytes e nenhum processamento
+     * no backend
+     */
+    public static byte[] nativeQr(String data, int paperDots) {
+        byte[] content = data.getBytes(StandardCharsets.UTF_8);
+        int moduleSize = Math.max(3, Math.min(8, paperDots / 96));
+        int storeLength = content.length + 3;
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(content.length + 32);
+        out.writeBytes(new byte[] {0x1D, '(', 'k', 4, 0, 49, 65, 50, 0});            // Modelo 2
+        out.writeBytes(new byte[] {0x1D, '(', 'k', 3, 0, 49, 67, (byte) moduleSize}); // Tamanho do módulo
+        out.writeBytes(new byte[] {0x1D, '(', 'k', 3, 0, 49, 69, 49});                // Correção M
+        out.writeBytes(new byte[] {0x1D, '(', 'k', (byte) storeLength, (byte) (storeLength >> 8), 49, 80, 48});
+        out.writeBytes(content);
+        out.writeBytes(new byte[] {0x1D, '(', 'k', 3, 0, 49, 81, 48});                // Imprime
+        return out.toByteArray();
+    }
+
+    /**
+     * QR Code rasterizado no backend, para impressoras sem {@code GS ( k}
+     */
+    public static byte[] rasterQr(String data, int paperDots) {
+        BitMatrix matrix;
+        try {
+            matrix = new QRCodeWriter().encode(data, BarcodeFormat.QR_CODE, 0, 0, QR_HINTS);
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("Conteúdo grande demais para QR Code", e);
+        }
+        int modules = matrix.getWidth();
+        int scale = Math.max(2, Math.min(8, paperDots * QR_WIDTH_PERCENT / 100 / modules));
+        int size = modules * scale;
+        int bytesPerRow = (size + 7) / 8;
+
+        byte[] bits = new byte[bytesPerRow * size];
+        for (int y = 0; y < size; y++) {
+            int row = y * bytesPerRow;
+            for (int x = 0; x < size; x++) {
+                if (matrix.get(x / scale, y / scale)) {
+                    bits[row + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+                }
+            }
+        }
+        return raster(bits, bytesPerRow, size);
+    }
+
+    /**
+     * Código de barras CODE128 (conjunto B) com o texto abaixo, gerado pela impressora
+     */
+    public static byte[] barcode128(String data) {
+        // No GS k 73, '{' inicia um comando de conjunto: o caractere literal vai como "{{", e o
+        // tamanho n conta os bytes já escapados (sem partir um "{{" no limite de 250)
+        ByteArrayOutputStream symbols = new ByteArrayOutputStream(Math.min(data.length(), 250));
+        for (int i = 0; i < data.length(); i++) {
+            char c = data.charAt(i);
+            if (symbols.size() + (c == '{' ? 2 : 1) > 250) {
+                break;
+            }
+            if (c == '{') {
+                symbols.write('{');
+            }
+            symbols.write(c >= 0x20 && c < 0x7F ? c : '?');
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(symbols.size() + 16);
+        out.writeBytes(new byte[] {0x1D, 'h', 80});   // Altura (pontos)
+        out.writeBytes(new byte[] {0x1D, 'w', 2});    // Largura da barra
+        out.writeBytes(new byte[] {0x1D, 'H', 2});    // Texto abaixo
+        out.writeBytes(new byte[] {0x1D, 'k', 73, (byte) (symbols.size() + 2), '{', 'B'});
+        out.writeBytes(symbols.toByteArray());
+        return out.toByteArray();
+    }
+
+    /**
+     * Imagem em raster monocromático: reduzida para caber na largura do papel (e em ~30 mm de altura),
+     * transparência vira branco e os tons de cinza viram pontos por dithering Floyd–Steinberg
+     */
+    public static byte[] rasterImage(BufferedImage image, int paperDots) {
+        double scale = Math.min(1.0, Math.min((double) paperDots / image.getWidth(),
+                (double) MAX_LOGO_HEIGHT / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage gray = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = gray.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        int[] luminance = new int[width * height];
+        gray.getRaster().getPixels(0, 0, width, height, luminance);
+
+        int bytesPerRow = (width + 7) / 8;
+        byte[] bits = new byte[bytesPerRow * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int index = y * width + x;
+                int old = luminance[index];
+                int value = old < 128 ? 0 : 255;
+                if (value == 0) {
+                    bits[y * bytesPerRow + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+                }
+                int error = old - value;
+                if (x + 1 < width) {
+                    luminance[index + 1] += error * 7 / 16;
+                }
+                if (y + 1 < height) {
+                    if (x > 0) {
+                        luminance[index + width - 1] += error * 3 / 16;
+                    }
+                    luminance[index + width] += error * 5 / 16;
+                    if (x + 1 < width) {
+                        luminance[index + width + 1] += error / 16;
+                    }
+                }
+            }
+        }
+        return raster(bits, bytesPerRow, height);
+    }
+
+    /**
+     * Comandos GS v 0 em faixas de até {@link #RASTER_BAND_ROWS} linhas
+     */
+    private static byte[] raster(byte[] bits, int bytesPerRow, int rows) {
+        int bands = (rows + RASTER_BAND_ROWS - 1) / RASTER_BAND_ROWS;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bits.length + bands * 8);
+        for (int start = 0; start < rows; start += RASTER_BAND_ROWS) {
+            int bandRows = Math.min(RASTER_BAND_ROWS, rows - start);
+            out.writeBytes(new byte[] {0x1D, 'v', '0', 0,
+                    (byte) bytesPerRow, (byte) (bytesPerRow >> 8), (byte) bandRows, (byte) (bandRows >> 8)});
+            out.write(bits, start * bytesPerRow, bandRows * bytesPerRow);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,98 @@
+package br.lunavita.totemapi.service.receipt;
+
+import java.util.Arrays;
+
+/**
+ * Buffer de renderização reaproveitado por thread: bytes ESC/POS, texto da linha em montagem e o estado
+ * de formatação já enviado à impressora (para só emitir comandos quando o estilo muda).
+ */
+final class ReceiptBuffer {
+
+    private static final int INITIAL_SIZE = 2048;
+    // Recibos anormais (layout enorme) não ficam presos no pool da thread
+    private static final int MAX_RETAINED = 64 * 1024;
+
+    private static final ThreadLocal<ReceiptBuffer> POOL = ThreadLocal.withInitial(ReceiptBuffer::new);
+
+    static final int ALIGN_KEEP = -1;
+
+    final StringBuilder text = new StringBuilder(256);
+    private byte[] bytes = new byte[INITIAL_SIZE];
+    private int size;
+    private int align;
+    private int mode;
+    private boolean bold;
+
+    static ReceiptBuffer acquire() {
+        ReceiptBuffer buffer = POOL.get();
+        buffer.reset();
+        return buffer;
+    }
+
+    void release() {
+        if (bytes.length > MAX_RETAINED) {
+            bytes = new byte[INITIAL_SIZE];
+        }
+        if (text.capacity() > MAX_RETAINED) {
+            text.setLength(0);
+            text.trimToSize();
+        }
+    }
+
+    /**
+     * Estado logo após ESC @ (início do recibo)
+     */
+    void reset() {
+        size = 0;
+        align = 0;
+        mode = 0;
+        bold = false;
+        text.setLength(0);
+    }
+
+    void write(byte b) {
+        ensure(1);
+        bytes[size++] = b;
+    }
+
+    void write(byte[] data) {
+        ensure(data.length);
+        System.arraycopy(data, 0, bytes, size, data.length);
+        size += data.length;
+    }
+
+    /**
+     * Aplica alinhamento (ESC a), tamanho (ESC !) e negrito (ESC E), emitindo só o que mudou
+     */
+    void style(int newAlign, int newMode, boolean newBold) {
+        if (newAlign != ALIGN_KEEP && newAlign != align) {
+            command((byte) 'a', newAlign);
+            align = newAlign;
+        }
+        if (newMode != mode) {
+            command((byte) '!', newMode);
+            mode = newMode;
+        }
+        if (newBold != bold) {
+            command((byte) 'E', newBold ? 1 : 0);
+            bold = newBold;
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(bytes, size);
+    }
+
+    private void command(byte command, int value) {
+        ensure(3);
+        bytes[size++] = 0x1B;
+        bytes[size++] = command;
+        bytes[size++] = (byte) value;
+    }
+
+    private void ensure(int extra) {
+        if (size + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + extra));
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package br.lunavita.totemapi.service.receipt;
+
+/**
+ * Valores de um recibo, indexados pelo {@link ReceiptField} (sem mapa nem boxing por campo)
+ */
+public class ReceiptData {
+
+    private static final ReceiptField[] FIELDS = ReceiptField.values();
+
+    private final Object[] values = new Object[FIELDS.length];
+
+    /**
+     * Define o valor de um campo (null = ausente)
+     *
+     * @throws IllegalArgumentException se o valor não é do tipo do campo
+     */
+    public ReceiptData set(ReceiptField field, Object value) {
+        if (value != null && !field.kind().type().isInstance(value)) {
+            throw new IllegalArgumentException("Campo " + field.slot() + " espera "
+                    + field.kind().type().getSimpleName() + ", recebeu " + value.getClass().getSimpleName());
+        }
+        values[field.ordinal()] = value;
+        return this;
+    }
+
+    public Object get(ReceiptField field) {
+        return values[field.ordinal()];
+    }
+
+    /**
+     * Se o campo tem valor (texto em branco conta como ausente)
+     */
+    public boolean has(ReceiptField field) {
+        Object value = values[field.ordinal()];
+        return value != null && !(value instanceof String text && text.isBlank());
+    }
+}
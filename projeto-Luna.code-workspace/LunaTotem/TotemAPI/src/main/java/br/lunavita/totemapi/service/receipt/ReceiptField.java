@@ -0,0 +1,84 @@
+package br.lunavita.totemapi.service.receipt;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Campos que um layout de recibo pode usar ({@code {nome}} no layout), com o tipo do valor
+ * e a formatação aplicada na impressão.
+ */
+public enum ReceiptField {
+
+    CLINIC("clinic", Kind.TEXT),
+    PATIENT("patient", Kind.TEXT),
+    CPF("cpf", Kind.CPF),
+    AMOUNT("amount", Kind.MONEY),
+    PAYMENT_METHOD("paymentMethod", Kind.PAYMENT_METHOD),
+    APPOINTMENT_DATE("appointmentDate", Kind.TEXT),
+    APPOINTMENT_TIME("appointmentTime", Kind.TEXT),
+    DOCTOR("doctor", Kind.TEXT),
+    SPECIALTY("specialty", Kind.TEXT),
+    QUEUE_NUMBER("queueNumber", Kind.TEXT),
+    /** Código da senha/agendamento (código de barras do check-in) */
+    TICKET_CODE("ticketCode", Kind.TEXT),
+    /** PIX copia e cola (QR Code da cobrança) */
+    PIX_CODE("pixCode", Kind.TEXT),
+    PRINTED_AT("printedAt", Kind.DATE_TIME);
+
+    /**
+     * Tipo do valor: define a classe aceita e a formatação
+     */
+    public enum Kind {
+        /** Texto livre */
+        TEXT(String.class),
+        /** 12345678900 → 123.456.789-00 */
+        CPF(String.class),
+        /** BigDecimal → R$ 1.234,56 */
+        MONEY(BigDecimal.class),
+        /** PIX, CREDIT_CARD... → nome para o paciente */
+        PAYMENT_METHOD(String.class),
+        /** Instant → dd/MM/yyyy HH:mm:ss (America/Sao_Paulo) */
+        DATE_TIME(Instant.class);
+
+        private final Class<?> type;
+
+        Kind(Class<?> type) {
+            this.type = type;
+        }
+
+        public Class<?> type() {
+            return type;
+        }
+    }
+
+    private final String slot;
+    private final Kind kind;
+
+    ReceiptField(String slot, Kind kind) {
+        this.slot = slot;
+        this.kind = kind;
+    }
+
+    /**
+     * Nome usado no layout
+     */
+    public String slot() {
+        return slot;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+
+    /**
+     * Campo pelo nome usado no layout, ou null se não existe
+     */
+    public static ReceiptField bySlot(String slot) {
+        for (ReceiptField field : values()) {
+            if (field.slot.equals(slot)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
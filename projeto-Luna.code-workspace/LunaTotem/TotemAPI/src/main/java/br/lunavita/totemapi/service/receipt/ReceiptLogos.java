@@ -0,0 +1,147 @@
+package br.lunavita.totemapi.service.receipt;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import br.lunavita.totemapi.model.ReceiptLogo;
+import br.lunavita.totemapi.repository.ReceiptLogoRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Logos dos recibos por tenant.
+ *
+ * Rasterizar (escala + dithering) custa milissegundos por imagem, então o raster ESC/POS fica em cache
+ * por tenant e largura do papel; tenants sem logo também ficam em cache (sem consultar o banco a cada
+ * recibo). Acertos e faltas em {@code totem.receipts.logo.cache{result=hit|miss}}.
+ */
+@Service
+@Slf4j
+public class ReceiptLogos {
+
+    private static final int MAX_IMAGE_BYTES = 1024 * 1024;
+    private static final byte[] NO_LOGO = new byte[0];
+
+    private final ReceiptLogoRepository receiptLogoRepository;
+    private final long cacheTtlMs;
+    private final Counter hits;
+    private final Counter misses;
+
+    private final Map<String, CachedRaster> rasters = new ConcurrentHashMap<>();
+
+    private record CachedRaster(byte[] raster, long loadedAt) {
+    }
+
+    public ReceiptLogos(ReceiptLogoRepository receiptLogoRepository, MeterRegistry meterRegistry,
+            @Value("${totem.receipts.layout-cache-seconds:60}") long cacheTtlSeconds) {
+        this.receiptLogoRepository = receiptLogoRepository;
+        this.cacheTtlMs = cacheTtlSeconds * 1000;
+        this.hits = Counter.builder("totem.receipts.logo.cache")
+                .description("Consultas ao cache de logos rasterizados")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("totem.receipts.logo.cache")
+                .description("Consultas ao cache de logos rasterizados")
+                .tag("result", "miss")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Logo do tenant em raster ESC/POS para a largura do papel, ou null se o tenant não tem logo
+     */
+    public byte[] raster(String tenantId, int paperDots) {
+        if (tenantId == null) {
+            return null;
+        }
+        String key = tenantId + ":" + paperDots;
+        CachedRaster cached = rasters.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() <= cacheTtlMs) {
+            hits.increment();
+        } else {
+            misses.increment();
+            cached = new CachedRaster(load(tenantId, paperDots), System.currentTimeMillis());
+            rasters.put(key, cached);
+        }
+        return cached.raster().length > 0 ? cached.raster() : null;
+    }
+
+    public Optional<ReceiptLogo> find(String tenantId) {
+        return receiptLogoRepository.findById(tenantId);
+    }
+
+    /**
+     * Grava o logo do tenant (PNG, JPEG, GIF ou BMP até 1 MB)
+     *
+     * @throws IllegalArgumentException se a imagem é grande demais ou não pode ser lida
+     */
+    public ReceiptLogo save(String tenantId, byte[] image, String contentType) {
+        if (image == null || image.length == 0) {
+            throw new IllegalArgumentException("Imagem vazia");
+        }
+        if (image.length > MAX_IMAGE_BYTES) {
+            throw new IllegalArgumentException("Imagem maior que 1 MB");
+        }
+        // Valida antes de gravar: a rasterização não pode falhar na hora de imprimir
+        decode(image);
+
+        ReceiptLogo saved = receiptLogoRepository.save(ReceiptLogo.builder()
+                .tenantId(tenantId)
+                .image(image)
+                .contentType(contentType)
+                .build());
+        evict(tenantId);
+        log.info("[RECEIPT] Logo do tenant {} atualizado ({} bytes)", tenantId, image.length);
+        return saved;
+    }
+
+    /**
+     * @return false se o tenant não tinha logo
+     */
+    public boolean delete(String tenantId) {
+        boolean existed = receiptLogoRepository.existsById(tenantId);
+        if (existed) {
+            receiptLogoRepository.deleteById(tenantId);
+        }
+        evict(tenantId);
+        return existed;
+    }
+
+    private byte[] load(String tenantId, int paperDots) {
+        Optional<ReceiptLogo> logo = receiptLogoRepository.findById(tenantId);
+        if (logo.isEmpty()) {
+            return NO_LOGO;
+        }
+        try {
+            return EscPosGraphics.rasterImage(decode(logo.get().getImage()), paperDots);
+        } catch (IllegalArgumentException e) {
+            log.error("[RECEIPT] Logo do tenant {} inválido, recibos sairão sem logo: {}", tenantId, e.getMessage());
+            return NO_LOGO;
+        }
+    }
+
+    private void evict(String tenantId) {
+        rasters.keySet().removeIf(key -> key.startsWith(tenantId + ":"));
+    }
+
+    private static BufferedImage decode(byte[] image) {
+        try {
+            BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+            if (decoded == null) {
+                throw new IllegalArgumentException("Formato de imagem não suportado (use PNG, JPEG, GIF ou BMP)");
+            }
+            return decoded;
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Imagem inválida: " + e.getMessage(), e);
+        }
+    }
+}
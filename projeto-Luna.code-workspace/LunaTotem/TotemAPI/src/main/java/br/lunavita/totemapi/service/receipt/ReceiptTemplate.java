@@ -0,0 +1,521 @@
+package br.lunavita.totemapi.service.receipt;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layout de recibo compilado para ESC/POS.
+ *
+ * O layout é texto, uma linha impressa por linha do layout:
+ * <pre>
+ * # comentário
+ * &#64;center &#64;double &#64;bold {clinic}
+ * Nome: {patient}
+ * &#64;opt Médico: {doctor}
+ * ===
+ * &#64;if appointmentDate doctor
+ * ...
+ * &#64;end
+ * </pre>
+ * <ul>
+ *   <li>modificadores no início da linha: {@code @left @center @right @bold @tall @wide @double} e
+ *       {@code @opt} (linha omitida se algum campo dela estiver vazio);</li>
+ *   <li>{@code {campo}}: valor de um {@link ReceiptField}, formatado pelo tipo (campo vazio sai "N/A");</li>
+ *   <li>{@code ---} / {@code ===}: linha separadora na largura do papel; linha em branco: avanço de linha;</li>
+ *   <li>{@code @if campo...} / {@code @end}: bloco impresso se algum dos campos tiver valor;</li>
+ *   <li>gráficos, uma linha cada (omitida sem valor): {@code @qr {campo}} (QR Code nativo da impressora ou
+ *       rasterizado), {@code @barcode {campo}} (CODE128) e {@code @logo} (logo do tenant).</li>
+ * </ul>
+ *
+ * Compilar resolve tudo que não depende dos dados: linhas sem campos já ficam quebradas na largura
+ * (32/48 colunas, metade com {@code @wide}/{@code @double}) e codificadas na página de código. Na
+ * renderização só as linhas com campos são montadas, num {@link ReceiptBuffer} reaproveitado pela
+ * thread; a única alocação proporcional ao recibo é o array final.
+ */
+public final class ReceiptTemplate {
+
+    private static final byte LF = 0x0A;
+    private static final byte[] CMD_INIT = {0x1B, '@'};
+    private static final byte[] CMD_FEED_AND_CUT = {0x1B, 'd', 3, 0x1D, 'V', 66, 0};
+
+    private static final int ALIGN_LEFT = 0;
+    private static final int ALIGN_CENTER = 1;
+    private static final int ALIGN_RIGHT = 2;
+    private static final int MODE_TALL = 0x10;
+    private static final int MODE_WIDE = 0x20;
+
+    private static final int MAX_LAYOUT_LENGTH = 16 * 1024;
+    private static final String MISSING = "N/A";
+
+    private static final DateTimeFormatter DATE_FORMATTER =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss").withZone(ZoneId.of("America/Sao_Paulo"));
+
+    private final int columns;
+    private final EscPosCodepage codepage;
+    private final boolean nativeQr;
+    private final byte[] header;
+    private final Node[] nodes;
+    private final boolean usesLogo;
+
+    private ReceiptTemplate(int columns, EscPosCodepage codepage, boolean nativeQr, Compiler compiler, Node[] nodes) {
+        this.columns = columns;
+        this.codepage = codepage;
+        this.nativeQr = nativeQr;
+        this.nodes = nodes;
+        this.usesLogo = compiler.usesLogo;
+        byte[] select = codepage.selectCommand();
+        this.header = new byte[CMD_INIT.length + select.length];
+        System.arraycopy(CMD_INIT, 0, header, 0, CMD_INIT.length);
+        System.arraycopy(select, 0, header, CMD_INIT.length, select.length);
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public EscPosCodepage getCodepage() {
+        return codepage;
+    }
+
+    /**
+     * Largura imprimível em pontos
+     */
+    public int getDots() {
+        return EscPosGraphics.dotsFor(columns);
+    }
+
+    /**
+     * Se o layout tem {@code @logo} (só então vale buscar o logo do tenant)
+     */
+    public boolean usesLogo() {
+        return usesLogo;
+    }
+
+    /**
+     * Compila um layout
+     *
+     * @param columns colunas do papel em fonte normal (32 para 58 mm, 48 para 80 mm)
+     * @param nativeQr se a impressora gera QR Code ({@code GS ( k}); senão o QR é rasterizado
+     * @throws IllegalArgumentException com a linha do erro, se o layout é inválido
+     */
+    public static ReceiptTemplate compile(String layout, int columns, EscPosCodepage codepage, boolean nativeQr) {
+        if (layout == null || layout.isBlank()) {
+            throw new IllegalArgumentException("Layout vazio");
+        }
+        if (layout.length() > MAX_LAYOUT_LENGTH) {
+            throw new IllegalArgumentException("Layout maior que " + MAX_LAYOUT_LENGTH + " caracteres");
+        }
+        if (columns < 16 || columns > 64) {
+            throw new IllegalArgumentException("Colunas devem estar entre 16 e 64: " + columns);
+        }
+        Compiler compiler = new Compiler(columns, codepage);
+        Node[] nodes = compiler.compile(layout);
+        return new ReceiptTemplate(columns, codepage, nativeQr, compiler, nodes);
+    }
+
+    /**
+     * Gera os bytes ESC/POS do recibo (inicialização, página de código, linhas, avanço e corte)
+     */
+    public byte[] render(ReceiptData data) {
+        return render(data, null);
+    }
+
+    /**
+     * @param logo raster do logo do tenant para esta largura (null = linhas {@code @logo} omitidas)
+     */
+    public byte[] render(ReceiptData data, byte[] logo) {
+        ReceiptBuffer buffer = ReceiptBuffer.acquire();
+        try {
+            buffer.write(header);
+            renderNodes(nodes, data, logo, buffer);
+            buffer.style(ALIGN_LEFT, 0, false);
+            buffer.write(CMD_FEED_AND_CUT);
+            return buffer.toByteArray();
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private void renderNodes(Node[] children, ReceiptData data, byte[] logo, ReceiptBuffer buffer) {
+        for (Node node : children) {
+            if (node instanceof Block block) {
+                if (block.anyPresent(data)) {
+                    renderNodes(block.children, data, logo, buffer);
+                }
+            } else if (node instanceof Graphic graphic) {
+                renderGraphic(graphic, data, logo, buffer);
+            } else {
+                renderLine((Line) node, data, buffer);
+            }
+        }
+    }
+
+    private void renderGraphic(Graphic graphic, ReceiptData data, byte[] logo, ReceiptBuffer buffer) {
+        if (graphic.field != null && !data.has(graphic.field)) {
+            return;
+        }
+        String value = graphic.field != null ? data.get(graphic.field).toString() : null;
+        byte[] bytes = switch (graphic.type) {
+            case QR -> nativeQr ? EscPosGraphics.nativeQr(value, getDots()) : EscPosGraphics.rasterQr(value, getDots());
+            case BARCODE -> EscPosGraphics.barcode128(value);
+            case LOGO -> logo;
+        };
+        if (bytes != null) {
+            buffer.style(graphic.align, 0, false);
+            buffer.write(bytes);
+        }
+    }
+
+    private void renderLine(Line line, ReceiptData data, ReceiptBuffer buffer) {
+        if (line.optional && !line.allPresent(data)) {
+            return;
+        }
+        buffer.style(line.align, line.mode, line.bold);
+        if (line.compiled != null) {
+            buffer.write(line.compiled);
+            return;
+        }
+        StringBuilder text = buffer.text;
+        text.setLength(0);
+        for (Object part : line.parts) {
+            if (part instanceof ReceiptField field) {
+                appendValue(text, field, data);
+            } else {
+                text.append((String) part);
+            }
+        }
+        wrap(text, line.width, codepage, buffer);
+    }
+
+    /**
+     * Quebra o texto por palavra na largura e codifica cada linha, terminada em LF
+     */
+    private static void wrap(CharSequence text, int width, EscPosCodepage codepage, ReceiptBuffer out) {
+        int length = text.length();
+        if (length == 0) {
+            out.write(LF);
+            return;
+        }
+        int start = 0;
+        while (start < length) {
+            if (start > 0) {
+                // Continuação: sem os espaços do ponto de quebra
+                while (start < length && text.charAt(start) == ' ') {
+                    start++;
+                }
+                if (start == length) {
+                    break;
+                }
+            }
+            int end = Math.min(start + width, length);
+            if (end < length) {
+                for (int i = end; i > start; i--) {
+                    if (text.charAt(i) == ' ') {
+                        end = i;
+                        break;
+                    }
+                }
+            }
+            for (int i = start; i < end; i++) {
+                out.write(codepage.encode(text.charAt(i)));
+            }
+            out.write(LF);
+            start = end;
+        }
+    }
+
+    private static void appendValue(StringBuilder text, ReceiptField field, ReceiptData data) {
+        if (!data.has(field)) {
+            text.append(MISSING);
+            return;
+        }
+        Object value = data.get(field);
+        switch (field.kind()) {
+            case TEXT -> text.append((String) value);
+            case CPF -> appendCpf(text, (String) value);
+            case MONEY -> appendMoney(text, (BigDecimal) value);
+            case PAYMENT_METHOD -> text.append(paymentMethod((String) value));
+            case DATE_TIME -> DATE_FORMATTER.formatTo((Instant) value, text);
+        }
+    }
+
+    /**
+     * 12345678900 → 123.456.789-00 (outros formatos saem como vieram)
+     */
+    private static void appendCpf(StringBuilder text, String cpf) {
+        if (cpf.length() != 11) {
+            text.append(cpf);
+            return;
+        }
+        for (int i = 0; i < 11; i++) {
+            if (i == 3 || i == 6) {
+                text.append('.');
+            } else if (i == 9) {
+                text.append('-');
+            }
+            text.append(cpf.charAt(i));
+        }
+    }
+
+    /**
+     * R$ 1.234,56
+     */
+    private static void appendMoney(StringBuilder text, BigDecimal amount) {
+        long cents = amount.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+        text.append("R$ ");
+        if (cents < 0) {
+            text.append('-');
+            cents = -cents;
+        }
+        appendGrouped(text, cents / 100);
+        text.append(',');
+        long fraction = cents % 100;
+        if (fraction < 10) {
+            text.append('0');
+        }
+        text.append(fraction);
+    }
+
+    private static void appendGrouped(StringBuilder text, long value) {
+        if (value < 1000) {
+            text.append(value);
+            return;
+        }
+        appendGrouped(text, value / 1000);
+        text.append('.');
+        long group = value % 1000;
+        if (group < 100) {
+            text.append('0');
+        }
+        if (group < 10) {
+            text.append('0');
+        }
+        text.append(group);
+    }
+
+    private static String paymentMethod(String method) {
+        return switch (method.toUpperCase()) {
+            case "PIX" -> "PIX";
+            case "CREDIT_CARD" -> "Cartão de Crédito";
+            case "DEBIT_CARD" -> "Cartão de Débito";
+            case "CASH" -> "Dinheiro";
+            case "BOLETO" -> "Boleto";
+            default -> method;
+        };
+    }
+
+    private sealed interface Node permits Line, Block, Graphic {
+    }
+
+    private enum GraphicType { QR, BARCODE, LOGO }
+
+    /**
+     * Linha gráfica: QR Code, código de barras ou logo
+     */
+    private record Graphic(GraphicType type, ReceiptField field, int align) implements Node {
+    }
+
+    /**
+     * Linha do layout. {@code compiled} já tem os bytes quando a linha não usa campos.
+     */
+    private record Line(int align, int mode, boolean bold, int width, boolean optional,
+                        Object[] parts, ReceiptField[] fields, byte[] compiled) implements Node {
+
+        boolean allPresent(ReceiptData data) {
+            for (ReceiptField field : fields) {
+                if (!data.has(field)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Bloco {@code @if}: impresso se algum dos campos tiver valor
+     */
+    private record Block(ReceiptField[] anyOf, Node[] children) implements Node {
+
+        boolean anyPresent(ReceiptData data) {
+            for (ReceiptField field : anyOf) {
+                if (data.has(field)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Parser do layout (usado só na compilação)
+     */
+    private static final class Compiler {
+
+        private final int columns;
+        private final EscPosCodepage codepage;
+        private int lineNumber;
+        private boolean usesLogo;
+
+        Compiler(int columns, EscPosCodepage codepage) {
+            this.columns = columns;
+            this.codepage = codepage;
+        }
+
+        Node[] compile(String layout) {
+            String[] lines = layout.split("\r?\n", -1);
+            int count = lines.length;
+            // A quebra de linha final do arquivo não é uma linha em branco
+            if (count > 0 && lines[count - 1].isEmpty()) {
+                count--;
+            }
+
+            List<List<Node>> stack = new ArrayList<>();
+            List<ReceiptField[]> conditions = new ArrayList<>();
+            stack.add(new ArrayList<>());
+            for (lineNumber = 1; lineNumber <= count; lineNumber++) {
+                String source = lines[lineNumber - 1].stripTrailing();
+                if (source.startsWith("#")) {
+                    continue;
+                }
+                if (source.equals("@end")) {
+                    if (conditions.isEmpty()) {
+                        throw error("@end sem @if");
+                    }
+                    Node[] children = stack.remove(stack.size() - 1).toArray(Node[]::new);
+                    stack.get(stack.size() - 1).add(new Block(conditions.remove(conditions.size() - 1), children));
+                } else if (source.startsWith("@if ") || source.equals("@if")) {
+                    conditions.add(parseCondition(source.substring(3).trim()));
+                    stack.add(new ArrayList<>());
+                } else {
+                    stack.get(stack.size() - 1).add(parseLine(source));
+                }
+            }
+            if (!conditions.isEmpty()) {
+                throw new IllegalArgumentException("@if sem @end no fim do layout");
+            }
+            return stack.get(0).toArray(Node[]::new);
+        }
+
+        private ReceiptField[] parseCondition(String names) {
+            if (names.isEmpty()) {
+                throw error("@if sem campos");
+            }
+            String[] tokens = names.split("\\s+");
+            ReceiptField[] fields = new ReceiptField[tokens.length];
+            for (int i = 0; i < tokens.length; i++) {
+                fields[i] = field(tokens[i]);
+            }
+            return fields;
+        }
+
+        private Node parseLine(String source) {
+            int align = ALIGN_LEFT;
+            int mode = 0;
+            boolean bold = false;
+            boolean optional = false;
+            GraphicType graphic = null;
+
+            String rest = source;
+            while (rest.startsWith("@")) {
+                int space = rest.indexOf(' ');
+                String modifier = space < 0 ? rest : rest.substring(0, space);
+                rest = space < 0 ? "" : rest.substring(space + 1);
+                switch (modifier) {
+                    case "@left" -> align = ALIGN_LEFT;
+                    case "@center" -> align = ALIGN_CENTER;
+                    case "@right" -> align = ALIGN_RIGHT;
+                    case "@bold" -> bold = true;
+                    case "@tall" -> mode |= MODE_TALL;
+                    case "@wide" -> mode |= MODE_WIDE;
+                    case "@double" -> mode |= MODE_TALL | MODE_WIDE;
+                    case "@opt" -> optional = true;
+                    case "@qr" -> graphic = GraphicType.QR;
+                    case "@barcode" -> graphic = GraphicType.BARCODE;
+                    case "@logo" -> graphic = GraphicType.LOGO;
+                    default -> throw error("modificador desconhecido " + modifier);
+                }
+                if (graphic != null) {
+                    break;
+                }
+            }
+            if (graphic != null) {
+                return parseGraphic(graphic, align, rest.trim());
+            }
+
+            int width = (mode & MODE_WIDE) != 0 ? columns / 2 : columns;
+            if (rest.isEmpty()) {
+                // Linha em branco: só o avanço, sem mexer no alinhamento
+                return new Line(ReceiptBuffer.ALIGN_KEEP, mode, bold, width, false,
+                        new Object[0], new ReceiptField[0], new byte[] {LF});
+            }
+            if (rest.length() >= 3 && (rest.chars().allMatch(c -> c == '-') || rest.chars().allMatch(c -> c == '='))) {
+                rest = String.valueOf(rest.charAt(0)).repeat(width);
+            }
+
+            List<Object> parts = new ArrayList<>();
+            List<ReceiptField> fields = new ArrayList<>();
+            int from = 0;
+            while (from < rest.length()) {
+                int open = rest.indexOf('{', from);
+                if (open < 0) {
+                    parts.add(rest.substring(from));
+                    break;
+                }
+                int close = rest.indexOf('}', open);
+                if (close < 0) {
+                    throw error("'{' sem '}'");
+                }
+                if (open > from) {
+                    parts.add(rest.substring(from, open));
+                }
+                ReceiptField field = field(rest.substring(open + 1, close).trim());
+                parts.add(field);
+                fields.add(field);
+                from = close + 1;
+            }
+            if (optional && fields.isEmpty()) {
+                throw error("@opt numa linha sem campos");
+            }
+
+            byte[] compiled = null;
+            if (fields.isEmpty()) {
+                ReceiptBuffer scratch = new ReceiptBuffer();
+                wrap(String.join("", parts.stream().map(String.class::cast).toList()), width, codepage, scratch);
+                compiled = scratch.toByteArray();
+            }
+            return new Line(align, mode, bold, width, optional, parts.toArray(),
+                    fields.toArray(ReceiptField[]::new), compiled);
+        }
+
+        private Graphic parseGraphic(GraphicType type, int align, String rest) {
+            if (type == GraphicType.LOGO) {
+                if (!rest.isEmpty()) {
+                    throw error("@logo não aceita texto na linha");
+                }
+                usesLogo = true;
+                return new Graphic(type, null, align);
+            }
+            if (!rest.startsWith("{") || !rest.endsWith("}")) {
+                throw error("@" + type.name().toLowerCase() + " espera só um campo, ex.: {pixCode}");
+            }
+            return new Graphic(type, field(rest.substring(1, rest.length() - 1).trim()), align);
+        }
+
+        private ReceiptField field(String name) {
+            ReceiptField field = ReceiptField.bySlot(name);
+            if (field == null) {
+                throw error("campo desconhecido {" + name + "}");
+            }
+            return field;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException("Linha " + lineNumber + " do layout: " + message);
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package br.lunavita.totemapi.service.receipt;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Service;
+
+import br.lunavita.totemapi.dto.ReceiptLayoutRequest;
+import br.lunavita.totemapi.model.ReceiptLayout;
+import br.lunavita.totemapi.repository.ReceiptLayoutRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Layouts de recibo compilados, por tenant e tipo de recibo.
+ *
+ * Os layouts padrão ({@code classpath:receipts/<tipo>.layout}) são compilados na inicialização; o layout
+ * personalizado de um tenant é compilado na primeira impressão e fica em cache por
+ * {@code totem.receipts.layout-cache-seconds} (alterações feitas em outra instância valem após esse tempo).
+ * O logo entra na renderização vindo de {@link ReceiptLogos}, já rasterizado para a largura do papel.
+ */
+@Service
+@Slf4j
+public class ReceiptTemplates {
+
+    public static final String PAYMENT = "PAYMENT";
+    public static final String CHECKIN = "CHECKIN";
+    public static final String PIX = "PIX";
+
+    private final ReceiptLayoutRepository receiptLayoutRepository;
+    private final ReceiptLogos receiptLogos;
+    private final int defaultColumns;
+    private final EscPosCodepage defaultCodepage;
+    private final boolean defaultNativeQr;
+    private final long cacheTtlMs;
+
+    private final Map<String, String> defaultLayouts = new LinkedHashMap<>();
+    private final Map<String, ReceiptTemplate> defaultTemplates = new ConcurrentHashMap<>();
+    private final Map<String, CachedTemplate> tenantTemplates = new ConcurrentHashMap<>();
+
+    /**
+     * Template compilado de um tenant (null = o tenant usa o padrão)
+     */
+    private record CachedTemplate(ReceiptTemplate template, long loadedAt) {
+    }
+
+    public ReceiptTemplates(ReceiptLayoutRepository receiptLayoutRepository,
+            ReceiptLogos receiptLogos,
+            @Value("${totem.receipts.columns:32}") int defaultColumns,
+            @Value("${totem.receipts.codepage:CP860}") String defaultCodepage,
+            @Value("${totem.receipts.native-qr:true}") boolean defaultNativeQr,
+            @Value("${totem.receipts.layout-cache-seconds:60}") long cacheTtlSeconds) {
+        this.receiptLayoutRepository = receiptLayoutRepository;
+        this.receiptLogos = receiptLogos;
+        this.defaultColumns = defaultColumns;
+        this.defaultCodepage = EscPosCodepage.of(defaultCodepage);
+        this.defaultNativeQr = defaultNativeQr;
+        this.cacheTtlMs = cacheTtlSeconds * 1000;
+
+        for (String receiptType : new String[] {PAYMENT, CHECKIN, PIX}) {
+            String layout = readDefaultLayout(receiptType);
+            defaultLayouts.put(receiptType, layout);
+            defaultTemplates.put(receiptType,
+                    ReceiptTemplate.compile(layout, defaultColumns, this.defaultCodepage, defaultNativeQr));
+        }
+    }
+
+    /**
+     * Renderiza o recibo com o template e o logo do tenant
+     */
+    public byte[] render(String tenantId, String receiptType, ReceiptData data) {
+        ReceiptTemplate template = template(tenantId, receiptType);
+        byte[] logo = template.usesLogo() ? receiptLogos.raster(tenantId, template.getDots()) : null;
+        return template.render(data, logo);
+    }
+
+    /**
+     * Template do recibo para o tenant: o personalizado, se houver, senão o padrão
+     *
+     * @throws IllegalArgumentException se o tipo de recibo não existe
+     */
+    public ReceiptTemplate template(String tenantId, String receiptType) {
+        String type = normalizeType(receiptType);
+        if (tenantId != null) {
+            String key = tenantId + ":" + type;
+            CachedTemplate cached = tenantTemplates.get(key);
+            if (cached == null || System.currentTimeMillis() - cached.loadedAt() > cacheTtlMs) {
+                cached = new CachedTemplate(loadTenantTemplate(tenantId, type), System.currentTimeMillis());
+                tenantTemplates.put(key, cached);
+            }
+            if (cached.template() != null) {
+                return cached.template();
+            }
+        }
+        return defaultTemplates.get(type);
+    }
+
+    /**
+     * Layout padrão de um tipo de recibo (texto)
+     */
+    public String defaultLayout(String receiptType) {
+        return defaultLayouts.get(normalizeType(receiptType));
+    }
+
+    public int getDefaultColumns() {
+        return defaultColumns;
+    }
+
+    public EscPosCodepage getDefaultCodepage() {
+        return defaultCodepage;
+    }
+
+    public boolean isDefaultNativeQr() {
+        return defaultNativeQr;
+    }
+
+    public Optional<ReceiptLayout> findLayout(String tenantId, String receiptType) {
+        return receiptLayoutRepository.findByTenantIdAndReceiptType(tenantId, normalizeType(receiptType));
+    }
+
+    /**
+     * Grava o layout personalizado do tenant, depois de compilá-lo
+     *
+     * @throws IllegalArgumentException se o layout, as colunas ou a página de código são inválidos
+     */
+    public ReceiptLayout saveLayout(String tenantId, String receiptType, ReceiptLayoutRequest request) {
+        String type = normalizeType(receiptType);
+        int columns = request.getColumns() != null ? request.getColumns() : defaultColumns;
+        EscPosCodepage codepage = request.getCodepage() != null
+                ? EscPosCodepage.of(request.getCodepage())
+                : defaultCodepage;
+        boolean nativeQr = request.getNativeQr() != null ? request.getNativeQr() : defaultNativeQr;
+        String layout = request.getLayout() != null && !request.getLayout().isBlank() ? request.getLayout() : null;
+
+        // Valida antes de gravar: um layout inválido nunca chega à impressão
+        ReceiptTemplate template = ReceiptTemplate.compile(layout != null ? layout : defaultLayouts.get(type),
+                columns, codepage, nativeQr);
+
+        ReceiptLayout saved = receiptLayoutRepository.findByTenantIdAndReceiptType(tenantId, type)
+                .orElseGet(() -> ReceiptLayout.builder().tenantId(tenantId).receiptType(type).build());
+        saved.setLayout(layout);
+        saved.setColumns(columns);
+        saved.setCodepage(codepage.name());
+        saved.setNativeQr(nativeQr);
+        saved = receiptLayoutRepository.save(saved);
+
+        tenantTemplates.put(tenantId + ":" + type, new CachedTemplate(template, System.currentTimeMillis()));
+        log.info("[RECEIPT] Layout {} do tenant {} atualizado ({} colunas, {})", type, tenantId, columns, codepage);
+        return saved;
+    }
+
+    /**
+     * Remove o layout personalizado (o tenant volta ao padrão)
+     *
+     * @return false se o tenant não tinha layout personalizado
+     */
+    public boolean deleteLayout(String tenantId, String receiptType) {
+        String type = normalizeType(receiptType);
+        Optional<ReceiptLayout> layout = receiptLayoutRepository.findByTenantIdAndReceiptType(tenantId, type);
+        layout.ifPresent(receiptLayoutRepository::delete);
+        tenantTemplates.remove(tenantId + ":" + type);
+        return layout.isPresent();
+    }
+
+    private ReceiptTemplate loadTenantTemplate(String tenantId, String type) {
+        Optional<ReceiptLayout> layout = receiptLayoutRepository.findByTenantIdAndReceiptType(tenantId, type);
+        if (layout.isEmpty()) {
+            return null;
+        }
+        ReceiptLayout custom = layout.get();
+        try {
+            return ReceiptTemplate.compile(custom.getLayout() != null ? custom.getLayout() : defaultLayouts.get(type),
+                    custom.getColumns(), EscPosCodepage.of(custom.getCodepage()),
+                    custom.getNativeQr() != null ? custom.getNativeQr() : defaultNativeQr);
+        } catch (IllegalArgumentException e) {
+            // Gravado por outra versão ou direto no banco: imprime com o padrão em vez de falhar
+            log.error("[RECEIPT] Layout {} do tenant {} inválido, usando o padrão: {}", type, tenantId, e.getMessage());
+            return null;
+        }
+    }
+
+    private String normalizeType(String receiptType) {
+        String type = receiptType != null ? receiptType.trim().toUpperCase() : "";
+        if (!defaultLayouts.containsKey(type)) {
+            throw new IllegalArgumentException("Tipo de recibo desconhecido: " + receiptType
+                    + " (use " + String.join(", ", defaultLayouts.keySet()) + ")");
+        }
+        return type;
+    }
+
+    private static String readDefaultLayout(String receiptType) {
+        String path = "receipts/" + receiptType.toLowerCase() + ".layout";
+        try (InputStream in = new ClassPathResource(path).getInputStream()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Layout padrão não encontrado: " + path, e);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package br.lunavita.totemapi.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressão gzip em memória (payloads de impressão).
+ * Formato gzip para poder ser servido direto com {@code Content-Encoding: gzip}.
+ */
+public final class GzipCodec {
+
+    private GzipCodec() {
+    }
+
+    public static byte[] compress(byte[] data) {
+        ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, data.length / 2));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+            gzip.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao comprimir payload", e);
+        }
+        return output.toByteArray();
+    }
+
+    /**
+     * @param sizeHint tamanho esperado descomprimido (apenas dimensiona o buffer; pode ser 0)
+     */
+    public static byte[] decompress(byte[] data, int sizeHint) {
+        try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream(Math.max(64, sizeHint));
+            gzip.transferTo(output);
+            return output.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao descomprimir payload", e);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+-- Migration: Adicionar coluna tipada scheduled_at (date + time)
+-- Objetivo: Ordenar e filtrar agendamentos por período sem depender do texto livre em "time"
+--           ("9:00" > "10:00" na ordenação por string)
+-- Data: 2026-10-17
+
+-- 1) Nova coluna
+ALTER TABLE luna.appointments ADD COLUMN IF NOT EXISTS scheduled_at TIMESTAMP;
+
+-- 2) Backfill: horário "H:mm" / "HH:mm" / "HH:mm:ss" válido; qualquer outro valor vira o início do dia
+--    (mesma regra de Appointment.scheduledAtOf)
+UPDATE luna.appointments
+SET scheduled_at = date + CASE
+        WHEN TRIM(time) ~ '^([01]?[0-9]|2[0-3]):[0-5][0-9](:[0-5][0-9])?$' THEN CAST(TRIM(time) AS TIME)
+        ELSE TIME '00:00'
+    END
+WHERE scheduled_at IS NULL;
+
+-- 3) Comentário na coluna para documentação
+COMMENT ON COLUMN luna.appointments.scheduled_at IS 'Data/hora do agendamento (derivada de date + time; horário inválido = 00:00)';
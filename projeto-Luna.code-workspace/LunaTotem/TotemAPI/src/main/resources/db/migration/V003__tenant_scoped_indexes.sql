@@ -0,0 +1,62 @@
+-- Migration: Índices compostos para as queries por tenant
+-- Objetivo: Cada método dos repositórios (AppointmentRepository, PatientRepository, PrintJobRepository)
+--           atendido por um índice, em vez de seq scan filtrando tenant_id
+-- Data: 2026-10-17
+-- Os nomes batem com os @Index das entidades (ddl-auto=update não recria).
+
+-- ===== appointments =====
+
+-- Próximos agendamentos, agenda do dia e paginação por keyset (scheduled_at, id)
+CREATE INDEX IF NOT EXISTS idx_appointments_tenant_scheduled
+ON luna.appointments(tenant_id, scheduled_at, id);
+
+-- Não pagos (índice de busca do totem, contagem do dashboard)
+CREATE INDEX IF NOT EXISTS idx_appointments_tenant_paid_scheduled
+ON luna.appointments(tenant_id, paid, scheduled_at);
+
+-- Histórico do paciente
+CREATE INDEX IF NOT EXISTS idx_appointments_tenant_patient_scheduled
+ON luna.appointments(tenant_id, patient_id, scheduled_at);
+
+-- Agendamentos por status
+CREATE INDEX IF NOT EXISTS idx_appointments_tenant_status_scheduled
+ON luna.appointments(tenant_id, status, scheduled_at);
+
+-- Busca por CPF exato
+CREATE INDEX IF NOT EXISTS idx_appointments_tenant_cpf
+ON luna.appointments(tenant_id, cpf);
+
+-- Carga da fila de cancelamento automático (UPPER(TRIM(status)) IN (...)); removido em V013
+CREATE INDEX IF NOT EXISTS idx_appointments_status_normalized
+ON luna.appointments((UPPER(TRIM(status))));
+
+-- ===== patients =====
+
+CREATE INDEX IF NOT EXISTS idx_patients_tenant_cpf
+ON luna.patients(tenant_id, cpf);
+
+CREATE INDEX IF NOT EXISTS idx_patients_tenant_ghl_contact
+ON luna.patients(tenant_id, ghl_contact_id);
+
+-- ===== print_jobs =====
+
+-- Próximo job do terminal (claim): WHERE terminal_id AND status ORDER BY priority, created_at
+CREATE INDEX IF NOT EXISTS idx_print_jobs_terminal_status_priority
+ON luna.print_jobs(terminal_id, status, priority, created_at);
+
+-- Jobs falhados do terminal (ORDER BY updated_at)
+CREATE INDEX IF NOT EXISTS idx_print_jobs_terminal_status_updated
+ON luna.print_jobs(terminal_id, status, updated_at);
+
+CREATE INDEX IF NOT EXISTS idx_print_jobs_tenant_created
+ON luna.print_jobs(tenant_id, created_at);
+
+-- Jobs travados em PRINTING
+CREATE INDEX IF NOT EXISTS idx_print_jobs_status_last_attempt
+ON luna.print_jobs(status, last_attempt_at);
+
+CREATE INDEX IF NOT EXISTS idx_print_jobs_appointment
+ON luna.print_jobs(appointment_id, created_at);
+
+CREATE INDEX IF NOT EXISTS idx_print_jobs_payment
+ON luna.print_jobs(payment_id);
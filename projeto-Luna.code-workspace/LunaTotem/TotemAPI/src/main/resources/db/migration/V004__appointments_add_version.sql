@@ -0,0 +1,10 @@
+-- Migration: Coluna de versão para lock otimista em appointments
+-- Objetivo: PATCH parcial e transições de status compare-and-set sem que escritas concorrentes
+--           (totem: status/pago; recepção: dados) se sobrescrevam
+-- Data: 2026-10-17
+
+-- 1) Nova coluna (linhas existentes começam na versão 0)
+ALTER TABLE luna.appointments ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+-- 2) Comentário na coluna para documentação
+COMMENT ON COLUMN luna.appointments.version IS 'Versão para lock otimista (incrementada a cada UPDATE, inclusive em lote)';
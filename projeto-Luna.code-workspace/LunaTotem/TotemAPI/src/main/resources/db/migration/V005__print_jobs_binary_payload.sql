@@ -0,0 +1,16 @@
+-- Migration: Payload binário comprimido nos jobs de impressão
+-- Objetivo: Guardar o ESC/POS como bytea (gzip) em vez de Base64 em TEXT (~33% maior, encode/decode a cada etapa)
+-- Data: 2026-10-17
+-- Jobs existentes continuam com o Base64 em payload (lido como fallback); novos jobs gravam só payload_gz.
+
+-- 1) Novas colunas
+ALTER TABLE luna.print_jobs ADD COLUMN IF NOT EXISTS payload_gz BYTEA;
+ALTER TABLE luna.print_jobs ADD COLUMN IF NOT EXISTS payload_size INTEGER;
+
+-- 2) payload (Base64) deixa de ser obrigatório
+ALTER TABLE luna.print_jobs ALTER COLUMN payload DROP NOT NULL;
+
+-- 3) Comentários nas colunas para documentação
+COMMENT ON COLUMN luna.print_jobs.payload_gz IS 'Conteúdo ESC/POS comprimido com gzip';
+COMMENT ON COLUMN luna.print_jobs.payload_size IS 'Tamanho do ESC/POS descomprimido (bytes)';
+COMMENT ON COLUMN luna.print_jobs.payload IS 'Legado: ESC/POS em Base64 (jobs anteriores a payload_gz)';
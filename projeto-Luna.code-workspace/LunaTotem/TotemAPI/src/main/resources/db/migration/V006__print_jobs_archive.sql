@@ -0,0 +1,41 @@
+-- Migration: Arquivo de jobs de impressão finalizados
+-- Objetivo: Manter print_jobs só com a fila "quente"; jobs PRINTED/CANCELED/FAILED antigos vão para
+--           print_jobs_archive (sem o conteúdo ESC/POS) pelo PrintJobRetentionService
+-- Data: 2026-10-17
+-- Os nomes dos índices batem com os @Index das entidades (ddl-auto=update não recria).
+
+-- 1) Tabela de arquivo
+CREATE TABLE IF NOT EXISTS luna.print_jobs_archive (
+    id VARCHAR(255) PRIMARY KEY,
+    terminal_id VARCHAR(255) NOT NULL,
+    tenant_id VARCHAR(255) NOT NULL,
+    receipt_type VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    attempts INTEGER,
+    max_attempts INTEGER,
+    error TEXT,
+    appointment_id VARCHAR(255),
+    payment_id VARCHAR(255),
+    priority INTEGER,
+    metadata TEXT,
+    payload_size INTEGER,
+    created_at TIMESTAMP(6) WITH TIME ZONE NOT NULL,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    printed_at TIMESTAMP(6) WITH TIME ZONE,
+    last_attempt_at TIMESTAMP(6) WITH TIME ZONE,
+    archived_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+-- 2) Histórico paginado por tenant (keyset created_at, id)
+CREATE INDEX IF NOT EXISTS idx_print_jobs_archive_tenant_created
+ON luna.print_jobs_archive(tenant_id, created_at, id);
+
+-- 3) Expurgo por idade no arquivo
+CREATE INDEX IF NOT EXISTS idx_print_jobs_archive_archived
+ON luna.print_jobs_archive(archived_at);
+
+-- 4) Seleção dos jobs finalizados a arquivar na fila
+CREATE INDEX IF NOT EXISTS idx_print_jobs_status_updated
+ON luna.print_jobs(status, updated_at);
+
+COMMENT ON TABLE luna.print_jobs_archive IS 'Jobs de impressão finalizados movidos da fila (sem payload)';
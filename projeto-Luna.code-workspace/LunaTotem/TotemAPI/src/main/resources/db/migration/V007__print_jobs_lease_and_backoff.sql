@@ -0,0 +1,15 @@
+-- Migration: Lease dos jobs em impressão e backoff de retry
+-- Objetivo: Recuperar automaticamente jobs de agents que morreram (lease renovada por heartbeat)
+--           e espaçar as novas tentativas de jobs que falharam
+-- Data: 2026-10-17
+
+-- 1) Novas colunas
+ALTER TABLE luna.print_jobs ADD COLUMN IF NOT EXISTS lease_expires_at TIMESTAMP(6) WITH TIME ZONE;
+ALTER TABLE luna.print_jobs ADD COLUMN IF NOT EXISTS next_attempt_at TIMESTAMP(6) WITH TIME ZONE;
+
+-- 2) Índice da recuperação de leases vencidas (status = 'PRINTING' AND lease_expires_at < agora)
+CREATE INDEX IF NOT EXISTS idx_print_jobs_status_lease ON luna.print_jobs (status, lease_expires_at);
+
+-- 3) Comentários nas colunas para documentação
+COMMENT ON COLUMN luna.print_jobs.lease_expires_at IS 'Vencimento da posse do job pelo Print Agent (PRINTING)';
+COMMENT ON COLUMN luna.print_jobs.next_attempt_at IS 'Próxima tentativa permitida após falha (backoff exponencial)';
@@ -0,0 +1,19 @@
+-- Migration: Estado das impressoras dos terminais
+-- Objetivo: Guardar o último estado da impressora informado pelo Print Agent (disponível, fila do spooler,
+--           último sucesso/erro), uma linha por terminal
+-- Data: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS luna.printer_status (
+    terminal_id VARCHAR(255) PRIMARY KEY,
+    printer_name VARCHAR(255),
+    available BOOLEAN NOT NULL,
+    accepting_jobs BOOLEAN,
+    queued_jobs INTEGER,
+    last_success_at TIMESTAMP(6) WITH TIME ZONE,
+    last_error_at TIMESTAMP(6) WITH TIME ZONE,
+    last_error TEXT,
+    reported_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
+
+COMMENT ON TABLE luna.printer_status IS 'Último estado da impressora de cada terminal (informado pelo Print Agent)';
+COMMENT ON COLUMN luna.printer_status.reported_at IS 'Recebimento do último relatório (antigo = agent fora do ar)';
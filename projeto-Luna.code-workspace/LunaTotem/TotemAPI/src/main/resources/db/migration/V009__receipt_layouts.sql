@@ -0,0 +1,18 @@
+-- Migration: Layouts de recibo por tenant
+-- Objetivo: Permitir que cada tenant personalize o layout dos recibos térmicos (texto do layout,
+--           largura do papel e página de código), um por tipo de recibo
+-- Data: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS luna.receipt_layouts (
+    id VARCHAR(255) PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    receipt_type VARCHAR(255) NOT NULL,
+    layout TEXT,
+    columns INTEGER NOT NULL,
+    codepage VARCHAR(255) NOT NULL,
+    updated_at TIMESTAMP(6) WITH TIME ZONE,
+    CONSTRAINT uk_receipt_layouts_tenant_type UNIQUE (tenant_id, receipt_type)
+);
+
+COMMENT ON TABLE luna.receipt_layouts IS 'Layouts de recibo personalizados por tenant (sem linha = layout padrão)';
+COMMENT ON COLUMN luna.receipt_layouts.layout IS 'Texto do layout; nulo = layout padrão com colunas/página próprias';
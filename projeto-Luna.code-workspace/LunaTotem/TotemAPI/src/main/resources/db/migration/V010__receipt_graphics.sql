@@ -0,0 +1,16 @@
+-- Migration: Gráficos nos recibos térmicos
+-- Objetivo: Logo por tenant (imagem original; o raster para a impressora fica em cache no backend) e
+--           indicação de impressora sem QR Code nativo (GS ( k) no layout do tenant
+-- Data: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS luna.receipt_logos (
+    tenant_id VARCHAR(255) PRIMARY KEY,
+    image BYTEA NOT NULL,
+    content_type VARCHAR(255),
+    updated_at TIMESTAMP(6) WITH TIME ZONE
+);
+
+ALTER TABLE luna.receipt_layouts ADD COLUMN IF NOT EXISTS native_qr BOOLEAN;
+
+COMMENT ON TABLE luna.receipt_logos IS 'Logo impresso nos recibos de cada tenant';
+COMMENT ON COLUMN luna.receipt_layouts.native_qr IS 'Impressora gera QR Code (GS ( k); nulo = padrão da instalação, false = QR rasterizado';
@@ -0,0 +1,25 @@
+-- Migration: Variantes das fotos de agendamento
+-- Objetivo: Estado e dimensões das variantes (original normalizado, relatório, miniatura) geradas
+--           depois do upload da foto
+-- Data: 2026-10-17
+
+CREATE TABLE IF NOT EXISTS luna.appointment_photos (
+    appointment_id VARCHAR(255) PRIMARY KEY,
+    tenant_id VARCHAR(255) NOT NULL,
+    photo_url VARCHAR(255) NOT NULL,
+    status VARCHAR(255) NOT NULL,
+    format VARCHAR(255),
+    width INTEGER,
+    height INTEGER,
+    upload_bytes BIGINT,
+    original_bytes BIGINT,
+    report_bytes BIGINT,
+    thumb_bytes BIGINT,
+    error VARCHAR(255),
+    updated_at TIMESTAMP(6) WITH TIME ZONE
+);
+
+CREATE INDEX IF NOT EXISTS idx_appointment_photos_status ON luna.appointment_photos (status);
+
+COMMENT ON TABLE luna.appointment_photos IS 'Foto atual de cada agendamento e o estado das variantes geradas no upload';
+COMMENT ON COLUMN luna.appointment_photos.status IS 'PENDING (gerando variantes), READY ou FAILED (serve o arquivo enviado)';
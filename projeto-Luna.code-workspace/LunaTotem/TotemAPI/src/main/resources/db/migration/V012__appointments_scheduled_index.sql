@@ -0,0 +1,8 @@
+-- Migration: Índice em scheduled_at para a fila de cancelamento automático
+-- Objetivo: A carga e a ressincronização da fila leem apenas a janela recente (não pagos a partir de
+--           ontem, de todos os tenants) em vez de percorrer a tabela inteira
+-- Data: 2026-10-17
+-- O nome bate com o @Index da entidade Appointment (ddl-auto=update não recria).
+
+CREATE INDEX IF NOT EXISTS idx_appointments_scheduled
+ON luna.appointments(scheduled_at);
@@ -0,0 +1,7 @@
+-- Migration: Remove o índice de expressão sobre o status dos agendamentos
+-- Objetivo: idx_appointments_status_normalized (UPPER(TRIM(status))) nunca atende a carga da fila de
+--           cancelamento automático: o predicado é um OR com "status IS NULL" e "TRIM(status) = ''",
+--           que o índice não cobre. A carga agora é limitada por scheduled_at (V012).
+-- Data: 2026-10-17
+
+DROP INDEX IF EXISTS luna.idx_appointments_status_normalized;
@@ -0,0 +1,133 @@
+package br.lunavita.totemapi.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.AppointmentPatch;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.DoctorRepository;
+import br.lunavita.totemapi.repository.PatientRepository;
+import br.lunavita.totemapi.security.UserContext;
+import br.lunavita.totemapi.service.AppointmentListingService;
+import br.lunavita.totemapi.service.AppointmentPhotoService;
+import br.lunavita.totemapi.service.DashboardRollupService;
+import br.lunavita.totemapi.service.DataStoreService;
+import br.lunavita.totemapi.service.DoctorCache;
+import br.lunavita.totemapi.service.EmailService;
+import br.lunavita.totemapi.service.FileStorageService;
+import br.lunavita.totemapi.service.ReportService;
+import br.lunavita.totemapi.service.ResendEmailService;
+import br.lunavita.totemapi.service.TodayAgendaService;
+import br.lunavita.totemapi.service.UnpaidAppointmentIndex;
+import jakarta.persistence.EntityManager;
+
+/**
+ * PATCH de agendamento contra o banco do perfil de teste: conflito de versão e campos omitidos.
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentControllerTest {
+
+    private static final String TENANT = "tenant-patch";
+    private static final UserContext USER = new UserContext("user-1", TENANT, "ADMIN", List.of());
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private AppointmentController controller;
+
+    @BeforeEach
+    void setUp() {
+        DataStoreService store = new DataStoreService(appointmentRepository, mock(DoctorRepository.class),
+                patientRepository, mock(EmailService.class), mock(ResendEmailService.class),
+                mock(FileStorageService.class), mock(AppointmentPhotoService.class), objectMapper,
+                mock(UnpaidAppointmentIndex.class), mock(DashboardRollupService.class), mock(DoctorCache.class),
+                mock(ApplicationEventPublisher.class));
+        controller = new AppointmentController(store, mock(ReportService.class),
+                mock(AppointmentListingService.class), mock(TodayAgendaService.class),
+                mock(AppointmentPhotoService.class));
+        appointmentRepository.saveAndFlush(new Appointment("apt-1", TENANT, "Maria Souza", "p-1", "Dr. Ana",
+                "Cardiologia", LocalDate.of(2026, 10, 20), "09:00", "AGENDADO", false, BigDecimal.valueOf(150),
+                "12345678901", "consulta", "maria@example.com"));
+        entityManager.clear();
+    }
+
+    @Test
+    void staleVersionIsRejectedWithConflictAndLeavesTheRowUntouched() throws Exception {
+        Long readVersion = appointmentRepository.findById("apt-1").orElseThrow().getVersion();
+        entityManager.clear();
+
+        // Recepção altera o horário depois da leitura do totem
+        ResponseEntity<Appointment> first = controller.patch("apt-1", patch("{\"time\":\"10:00\",\"version\":%d}",
+                readVersion), USER);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.OK);
+        entityManager.clear();
+
+        ResponseEntity<Appointment> stale = controller.patch("apt-1",
+                patch("{\"time\":\"11:00\",\"doctor\":\"Dr. Bruno\",\"version\":%d}", readVersion), USER);
+
+        assertThat(stale.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(stale.getBody().getTime()).isEqualTo("10:00");
+        assertThat(stale.getBody().getVersion()).isEqualTo(readVersion + 1);
+        assertThat(row()).containsEntry("time", "10:00").containsEntry("doctor", "Dr. Ana")
+                .containsEntry("version", readVersion + 1);
+    }
+
+    @Test
+    void nullOrMissingFieldsKeepTheirColumns() throws Exception {
+        Map<String, Object> before = row();
+
+        ResponseEntity<Appointment> response = controller.patch("apt-1",
+                patch("{\"time\":\"10:30\",\"patient\":null,\"amount\":null,\"paid\":null}"), USER);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        Map<String, Object> after = row();
+        assertThat(after.get("time")).isEqualTo("10:30");
+        for (String column : List.of("patient", "patient_id", "doctor", "specialty", "date", "status", "paid",
+                "amount", "cpf", "type", "patient_email")) {
+            assertThat(after.get(column)).as(column).isEqualTo(before.get(column));
+        }
+    }
+
+    private AppointmentPatch patch(String json, Object... args) throws Exception {
+        return objectMapper.readValue(json.formatted(args), AppointmentPatch.class);
+    }
+
+    /**
+     * Linha como está no banco, sem passar pelo contexto de persistência
+     */
+    private Map<String, Object> row() {
+        return jdbcTemplate.queryForMap("SELECT * FROM appointments WHERE id = 'apt-1'");
+    }
+}
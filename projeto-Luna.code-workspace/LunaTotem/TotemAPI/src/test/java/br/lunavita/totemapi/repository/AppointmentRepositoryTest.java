@@ -0,0 +1,115 @@
+package br.lunavita.totemapi.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.lunavita.totemapi.model.Appointment;
+import jakarta.persistence.EntityManager;
+
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentRepositoryTest {
+
+    private static final Set<String> WAITING_STATUSES = Set.of("AGUARDANDO_CHEGADA", "AGENDADO");
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void autoCancelSkipsHistoryAndPaidAppointments() {
+        LocalDate today = LocalDate.now();
+        save("recent", today.minusDays(1), " ", false);
+        save("today", today, "agendado ", false);
+        save("paid", today, "AGUARDANDO_CHEGADA", true);
+        save("old", today.minusDays(30), "AGUARDANDO_CHEGADA", false);
+        save("done", today, "CONCLUIDA", false);
+
+        List<String> loaded = appointmentRepository
+                .findAwaitingArrival(today.minusDays(1).atStartOfDay(), WAITING_STATUSES).stream()
+                .map(AppointmentDeadlineRow::getId)
+                .toList();
+        assertThat(loaded).containsExactlyInAnyOrder("recent", "today");
+
+        // Pago entre a carga da fila e o disparo do timer: o UPDATE não cancela
+        int updated = appointmentRepository.updateStatusIfAwaitingArrival(List.of("today", "paid"),
+                WAITING_STATUSES, "CANCELADA");
+        entityManager.clear();
+        assertThat(updated).isEqualTo(1);
+        assertThat(appointmentRepository.findById("today").orElseThrow().getStatus()).isEqualTo("CANCELADA");
+        assertThat(appointmentRepository.findById("paid").orElseThrow().getStatus()).isEqualTo("AGUARDANDO_CHEGADA");
+    }
+
+    @Test
+    void fieldUpdatesIgnoreTheReadVersionButBumpIt() {
+        save("apt", LocalDate.now(), "AGUARDANDO_CHEGADA", false);
+        long version = appointmentRepository.findById("apt").orElseThrow().getVersion();
+
+        // Duas gravações seguidas sem releitura: nenhuma falha por versão
+        assertThat(appointmentRepository.updatePaid("tenant-repo", "apt", true)).isEqualTo(1);
+        assertThat(appointmentRepository.updateStatus("tenant-repo", "apt", "CONFIRMADA")).isEqualTo(1);
+        assertThat(appointmentRepository.updateStatus("outro-tenant", "apt", "CANCELADA")).isZero();
+
+        Appointment current = appointmentRepository.findById("apt").orElseThrow();
+        assertThat(current.isPaid()).isTrue();
+        assertThat(current.getStatus()).isEqualTo("CONFIRMADA");
+        assertThat(current.getVersion()).isEqualTo(version + 2);
+    }
+
+    /**
+     * Regressão de plano: cada acesso por tenant continua atendido pelo seu índice composto (H2 indica o
+     * índice escolhido como comentário no EXPLAIN). As tabelas recebem algumas linhas para o otimizador
+     * não preferir a varredura de uma tabela vazia.
+     */
+    @Test
+    void tenantScopedQueriesUseTheirIndexes() {
+        LocalDate today = LocalDate.now();
+        for (int i = 0; i < 200; i++) {
+            save("e-" + i, today.plusDays(i % 30), "AGUARDANDO_CHEGADA", i % 3 == 0);
+        }
+
+        assertThat(explain("SELECT * FROM appointments WHERE tenant_id = 't' "
+                + "AND scheduled_at >= TIMESTAMP '2026-01-01 00:00:00' ORDER BY scheduled_at, id"))
+                .contains("IDX_APPOINTMENTS_TENANT_SCHEDULED");
+        assertThat(explain("SELECT * FROM appointments WHERE tenant_id = 't' AND paid = FALSE"))
+                .contains("IDX_APPOINTMENTS_TENANT_PAID_SCHEDULED");
+        assertThat(explain("SELECT * FROM appointments WHERE tenant_id = 't' AND patient_id = 'p' "
+                + "ORDER BY scheduled_at DESC"))
+                .contains("IDX_APPOINTMENTS_TENANT_PATIENT_SCHEDULED");
+        assertThat(explain("SELECT * FROM appointments WHERE tenant_id = 't' AND status = 'CONCLUIDA' "
+                + "ORDER BY scheduled_at"))
+                .contains("IDX_APPOINTMENTS_TENANT_STATUS_SCHEDULED");
+        assertThat(explain("SELECT * FROM appointments WHERE tenant_id = 't' AND cpf = '12345678901'"))
+                .contains("IDX_APPOINTMENTS_TENANT_CPF");
+        assertThat(explain("SELECT id FROM appointments WHERE scheduled_at >= TIMESTAMP '2026-01-01 00:00:00' "
+                + "AND paid = FALSE AND (status IS NULL OR UPPER(TRIM(status)) IN ('AGENDADO'))"))
+                .contains("IDX_APPOINTMENTS_SCHEDULED");
+        // Tabela vazia: o H2 escolhe qualquer um dos índices com prefixo (terminal_id, status)
+        assertThat(explain("SELECT * FROM print_jobs WHERE terminal_id = 'T' AND status = 'PENDING' "
+                + "ORDER BY priority, created_at"))
+                .contains("IDX_PRINT_JOBS_TERMINAL_STATUS_");
+    }
+
+    private String explain(String sql) {
+        return String.valueOf(entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult());
+    }
+
+    private void save(String id, LocalDate date, String status, boolean paid) {
+        appointmentRepository.saveAndFlush(new Appointment(id, "tenant-repo", "Paciente " + id, "p-" + id,
+                "Dr. Ana", "Clínica", date, "09:00", status, paid, BigDecimal.valueOf(100), "12345678901",
+                "consulta", null));
+    }
+}
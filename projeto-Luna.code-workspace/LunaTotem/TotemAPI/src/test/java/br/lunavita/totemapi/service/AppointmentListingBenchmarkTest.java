@@ -0,0 +1,128 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import br.lunavita.totemapi.dto.AppointmentCursor;
+import br.lunavita.totemapi.dto.AppointmentPageResponse;
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Listagem antiga (lista inteira de entidades do tenant, como {@code GET /api/appointments}) contra a
+ * página por keyset, a primeira e a última do histórico, e a exportação NDJSON completa. Tempos em
+ * medianas e tamanho da resposta JSON impressos no log do teste; nenhum limite de tempo é verificado.
+ */
+@Tag("benchmark")
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentListingBenchmarkTest {
+
+    private static final String TENANT = "tenant-listing-bench";
+    private static final int[] SIZES = { 2_000, 8_000, 20_000 };
+    private static final int PAGE_SIZE = 50;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void keysetPageAgainstFullListByHistorySize() throws IOException {
+        AppointmentListingService service = new AppointmentListingService(appointmentRepository, objectMapper,
+                PAGE_SIZE, 500);
+        AppointmentListingService.Filter ascending = new AppointmentListingService.Filter(null, null, null, false);
+        AppointmentListingService.Filter descending = new AppointmentListingService.Filter(null, null, null, true);
+
+        System.out.println("[LISTING BENCH] linhas | lista inteira (ms / KB) | 1a pagina (ms / KB) "
+                + "| ultima pagina (ms) | export NDJSON (ms)");
+        int inserted = 0;
+        for (int size : SIZES) {
+            insert(inserted, size);
+            inserted = size;
+            entityManager.flush();
+            entityManager.clear();
+
+            int fullBytes = objectMapper.writeValueAsBytes(appointmentRepository.findAllByTenantId(TENANT)).length;
+            double fullMs = median(5, () -> {
+                objectMapper.writeValueAsBytes(appointmentRepository.findAllByTenantId(TENANT));
+                entityManager.clear();
+            });
+
+            AppointmentPageResponse first = service.page(TENANT, ascending, null, PAGE_SIZE);
+            assertThat(first.items()).hasSize(PAGE_SIZE);
+            int pageBytes = objectMapper.writeValueAsBytes(first).length;
+            double firstMs = median(50, () -> objectMapper.writeValueAsBytes(
+                    service.page(TENANT, ascending, null, PAGE_SIZE)));
+
+            // Cursor do fim do histórico: a página por keyset custa o mesmo em qualquer posição
+            String deepCursor = lastPageCursor(service, descending);
+            double lastMs = median(50, () -> service.page(TENANT, ascending, deepCursor, PAGE_SIZE));
+
+            ByteArrayOutputStream export = new ByteArrayOutputStream();
+            assertThat(service.exportNdjson(TENANT, ascending, export)).isEqualTo(size);
+            double exportMs = median(3, () -> service.exportNdjson(TENANT, ascending, new ByteArrayOutputStream()));
+
+            System.out.printf("[LISTING BENCH] %6d | %13.1f / %7d | %11.2f / %4d | %17.2f | %18.1f%n", size,
+                    fullMs, fullBytes / 1024, firstMs, pageBytes / 1024, lastMs, exportMs);
+        }
+    }
+
+    /**
+     * Cursor cuja página crescente seguinte são os PAGE_SIZE agendamentos mais recentes
+     */
+    private static String lastPageCursor(AppointmentListingService service,
+            AppointmentListingService.Filter descending) {
+        AppointmentPageResponse newest = service.page(TENANT, descending, null, PAGE_SIZE + 1);
+        return AppointmentCursor.of(newest.items().get(PAGE_SIZE)).encode();
+    }
+
+    private void insert(int from, int to) {
+        List<Appointment> appointments = new ArrayList<>(to - from);
+        LocalDate base = LocalDate.of(2020, 1, 1);
+        for (int i = from; i < to; i++) {
+            appointments.add(new Appointment(String.format("apt-%06d", i), TENANT, "Paciente " + i, "p-" + (i % 900),
+                    "Dr. Ana", "Clínica", base.plusDays(i / 16), String.format("%02d:%02d", 8 + (i % 16) / 2,
+                            (i % 2) * 30),
+                    "AGENDADO", i % 3 == 0, BigDecimal.valueOf(150), String.format("%011d", i), "consulta", null));
+        }
+        appointmentRepository.saveAll(appointments);
+    }
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private static double median(int runs, Action action) throws IOException {
+        double[] times = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            action.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+}
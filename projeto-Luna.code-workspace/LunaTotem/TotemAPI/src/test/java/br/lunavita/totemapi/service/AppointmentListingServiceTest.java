@@ -0,0 +1,71 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import br.lunavita.totemapi.dto.AppointmentPageResponse;
+import br.lunavita.totemapi.dto.AppointmentSummary;
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import jakarta.persistence.EntityManager;
+
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class AppointmentListingServiceTest {
+
+    private static final String TENANT = "tenant-listing";
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void pagesSkipRowsWithoutScheduledAtInsteadOfEmittingABrokenCursor() {
+        for (int i = 0; i < 7; i++) {
+            appointmentRepository.save(new Appointment("apt-" + i, TENANT, "Paciente " + i, "p-" + i, "Dr. Ana",
+                    "Clínica", LocalDate.of(2026, 10, 20), String.format("%02d:00", 8 + i / 2), "AGENDADO", false,
+                    BigDecimal.TEN, "1234567890" + i, "consulta", null));
+        }
+        appointmentRepository.flush();
+        // Linha gravada por SQL direto, ainda não preenchida pelo backfill
+        entityManager.createNativeQuery("UPDATE appointments SET scheduled_at = NULL WHERE id = 'apt-3'")
+                .executeUpdate();
+        entityManager.clear();
+
+        AppointmentListingService service = new AppointmentListingService(appointmentRepository,
+                new ObjectMapper().registerModule(new JavaTimeModule()), 50, 500);
+        for (boolean descending : new boolean[] { false, true }) {
+            AppointmentListingService.Filter filter = new AppointmentListingService.Filter(null, null, null,
+                    descending);
+            List<String> seen = new ArrayList<>();
+            String cursor = null;
+            do {
+                AppointmentPageResponse page = service.page(TENANT, filter, cursor, 2);
+                page.items().stream().map(AppointmentSummary::id).forEach(seen::add);
+                cursor = page.nextCursor();
+            } while (cursor != null);
+
+            List<String> expected = new ArrayList<>(List.of("apt-0", "apt-1", "apt-2", "apt-4", "apt-5", "apt-6"));
+            if (descending) {
+                expected = expected.reversed();
+            }
+            assertThat(seen).as("descending=%s", descending).containsExactlyElementsOf(expected);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class AppointmentPhotoServiceTest {
+
+    @Test
+    void readsOrientationFromLittleAndBigEndianExif() {
+        assertThat(AppointmentPhotoService.exifOrientation(jpeg(true, 8, 6))).isEqualTo(6);
+        assertThat(AppointmentPhotoService.exifOrientation(jpeg(false, 8, 3))).isEqualTo(3);
+    }
+
+    @Test
+    void ifdOffsetOutsideTheSegmentFallsBackToNormal() {
+        // Offsets negativos, antes do IFD0, além do segmento e perto de Integer.MAX_VALUE
+        for (long offset : new long[] { 0xFFFFFFF8L, 0x80000000L, 0x7FFFFFFFL, 2, 4096 }) {
+            assertThat(AppointmentPhotoService.exifOrientation(jpeg(true, offset, 6))).as("offset %d", offset)
+                    .isEqualTo(1);
+        }
+    }
+
+    @Test
+    void truncatedTiffHeaderFallsBackToNormal() {
+        byte[] jpeg = jpeg(true, 8, 6);
+        // Segmento APP1 declarado com só "Exif\0\0" + 4 bytes de cabeçalho TIFF
+        jpeg[4] = 0;
+        jpeg[5] = 12;
+        assertThat(AppointmentPhotoService.exifOrientation(Arrays.copyOf(jpeg, 16))).isEqualTo(1);
+    }
+
+    /**
+     * JPEG com só o APP1 "Exif": cabeçalho TIFF, IFD0 no offset informado e uma entrada 0x0112
+     */
+    private static byte[] jpeg(boolean little, long ifdOffset, int orientation) {
+        byte[] tiff = new byte[8 + 2 + 12 + 4];
+        tiff[0] = tiff[1] = (byte) (little ? 'I' : 'M');
+        put(tiff, 2, 42, 2, little);
+        put(tiff, 4, ifdOffset, 4, little);
+        put(tiff, 8, 1, 2, little);
+        put(tiff, 10, 0x0112, 2, little);
+        put(tiff, 12, 3, 2, little);
+        put(tiff, 14, 1, 4, little);
+        put(tiff, 18, orientation, 2, little);
+
+        int length = 2 + 6 + tiff.length;
+        byte[] jpeg = new byte[4 + length + 2];
+        jpeg[0] = (byte) 0xFF;
+        jpeg[1] = (byte) 0xD8;
+        jpeg[2] = (byte) 0xFF;
+        jpeg[3] = (byte) 0xE1;
+        jpeg[4] = (byte) (length >> 8);
+        jpeg[5] = (byte) length;
+        System.arraycopy("Exif\0\0".getBytes(), 0, jpeg, 6, 6);
+        System.arraycopy(tiff, 0, jpeg, 12, tiff.length);
+        jpeg[jpeg.length - 2] = (byte) 0xFF;
+        jpeg[jpeg.length - 1] = (byte) 0xD9;
+        return jpeg;
+    }
+
+    private static void put(byte[] data, int offset, long value, int size, boolean little) {
+        for (int i = 0; i < size; i++) {
+            int shift = 8 * (little ? i : size - 1 - i);
+            data[offset + i] = (byte) (value >> shift);
+        }
+    }
+}
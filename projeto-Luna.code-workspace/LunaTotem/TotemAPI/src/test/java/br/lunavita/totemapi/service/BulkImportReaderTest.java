@@ -0,0 +1,66 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.lunavita.totemapi.service.BulkImportReader.ParsedRow;
+
+class BulkImportReaderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void quotedFieldMaySpanLines() throws IOException {
+        List<ParsedRow> rows = readAll("nome;endereco\nAna;\"Rua A\nApto 2\"\nBia;Rua B\n");
+
+        assertThat(rows).extracting(ParsedRow::line).containsExactly(2L, 4L);
+        assertThat(rows.get(0).row().address()).isEqualTo("Rua A\nApto 2");
+        assertThat(rows.get(1).row().name()).isEqualTo("Bia");
+    }
+
+    @Test
+    void unterminatedQuoteBecomesRowErrorAndReadingResumesOnNextLine() throws IOException {
+        StringBuilder csv = new StringBuilder("nome;endereco\nAna;\"Rua A\n");
+        for (int i = 0; i < 100; i++) {
+            csv.append("Paciente ").append(i).append(";Rua ").append(i).append('\n');
+        }
+
+        List<ParsedRow> rows = readAll(csv.toString());
+
+        assertThat(rows).hasSize(101);
+        assertThat(rows.get(0).line()).isEqualTo(2);
+        assertThat(rows.get(0).error()).startsWith("Aspas sem fechamento");
+        assertThat(rows.get(1).line()).isEqualTo(3);
+        assertThat(rows.get(1).row().name()).isEqualTo("Paciente 0");
+        assertThat(rows.get(100).line()).isEqualTo(102);
+        assertThat(rows.get(100).row().name()).isEqualTo("Paciente 99");
+    }
+
+    @Test
+    void unterminatedQuoteAtEndOfFileKeepsFollowingRows() throws IOException {
+        List<ParsedRow> rows = readAll("nome;endereco\nAna;\"Rua A\nBia;Rua B\n");
+
+        assertThat(rows).extracting(ParsedRow::line).containsExactly(2L, 3L);
+        assertThat(rows.get(0).error()).isNotNull();
+        assertThat(rows.get(1).row().name()).isEqualTo("Bia");
+    }
+
+    private List<ParsedRow> readAll(String csv) throws IOException {
+        List<ParsedRow> rows = new ArrayList<>();
+        try (BulkImportReader reader = BulkImportReader.csv(new StringReader(csv), objectMapper)) {
+            ParsedRow row;
+            while ((row = reader.next()) != null) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,64 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.DashboardSummary;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import jakarta.persistence.EntityManager;
+
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DashboardRollupServiceTest {
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void globalSummaryAddsUpTenantsAndRebuildPicksUpExternalWrites() {
+        LocalDate tomorrow = LocalDate.now().plusDays(1);
+        save("a-1", "tenant-a", "p-1", tomorrow, "09:00", 100);
+        save("a-2", "tenant-a", "p-2", tomorrow, "10:00", 50);
+        save("b-1", "tenant-b", "p-3", tomorrow, "08:00", 30);
+        DashboardRollupService service = new DashboardRollupService(appointmentRepository, true);
+
+        DashboardSummary tenantA = service.summarize("tenant-a", 0).orElseThrow();
+        assertThat(tenantA.getScheduledCount()).isEqualTo(2);
+        assertThat(tenantA.getReceivables()).isEqualByComparingTo("150");
+
+        DashboardSummary global = service.summarize(null, 0).orElseThrow();
+        assertThat(global.getScheduledCount()).isEqualTo(3);
+        assertThat(global.getActivePatients()).isEqualTo(3);
+        assertThat(global.getReceivables()).isEqualByComparingTo("180");
+        assertThat(global.getRecentAppointments()).extracting(Appointment::getId)
+                .containsExactly("a-2", "a-1", "b-1");
+
+        // Pagamento gravado por outra instância: nenhum evento chega a este serviço
+        entityManager.createNativeQuery("UPDATE appointments SET paid = true WHERE id = 'a-1'").executeUpdate();
+        entityManager.clear();
+        assertThat(service.summarize("tenant-a", 0).orElseThrow().getReceivables()).isEqualByComparingTo("150");
+
+        service.rebuild();
+        assertThat(service.summarize("tenant-a", 0).orElseThrow().getReceivables()).isEqualByComparingTo("50");
+        assertThat(service.summarize(null, 0).orElseThrow().getReceivables()).isEqualByComparingTo("80");
+    }
+
+    private void save(String id, String tenantId, String patientId, LocalDate date, String time, int amount) {
+        appointmentRepository.saveAndFlush(new Appointment(id, tenantId, "Paciente " + id, patientId, "Dr. Ana",
+                "Clínica", date, time, "AGUARDANDO_CHEGADA", false, BigDecimal.valueOf(amount),
+                "1234567890" + id.charAt(id.length() - 1), "consulta", null));
+    }
+}
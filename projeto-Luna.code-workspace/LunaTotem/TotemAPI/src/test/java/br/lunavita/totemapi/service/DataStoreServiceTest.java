@@ -0,0 +1,106 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import br.lunavita.totemapi.event.AppointmentChangedEvent;
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.DoctorRepository;
+import br.lunavita.totemapi.repository.PatientRepository;
+
+/**
+ * Check-in disputado: dois totens (ou totem e recepção) aplicando AGUARDANDO → CHECKIN ao mesmo tempo.
+ * Sem transação do teste: cada chamada commita na sua própria conexão.
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class DataStoreServiceTest {
+
+    private static final String TENANT = "tenant-checkin";
+    private static final int ROUNDS = 50;
+    private static final int CALLERS = 2;
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @AfterEach
+    void cleanUp() {
+        appointmentRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentCheckInAppliesExactlyOnce() throws Exception {
+        ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+        DataStoreService store = new DataStoreService(appointmentRepository, mock(DoctorRepository.class),
+                patientRepository, mock(EmailService.class), mock(ResendEmailService.class),
+                mock(FileStorageService.class), mock(AppointmentPhotoService.class), new ObjectMapper(),
+                mock(UnpaidAppointmentIndex.class), mock(DashboardRollupService.class), mock(DoctorCache.class),
+                eventPublisher);
+
+        ExecutorService pool = Executors.newFixedThreadPool(CALLERS);
+        try {
+            // Várias rodadas: cada uma é uma disputa nova pelo mesmo tipo de transição
+            for (int round = 0; round < ROUNDS; round++) {
+                String id = "apt-" + round;
+                Appointment saved = appointmentRepository.save(new Appointment(id, TENANT, "Paciente " + round,
+                        "p-" + round, "Dr. Ana", "Clínica", LocalDate.of(2026, 10, 20), "09:00", "AGUARDANDO",
+                        false, BigDecimal.TEN, "12345678901", "consulta", null));
+
+                CyclicBarrier start = new CyclicBarrier(CALLERS);
+                List<Future<DataStoreService.StatusTransition>> results = new ArrayList<>();
+                for (int caller = 0; caller < CALLERS; caller++) {
+                    results.add(pool.submit(() -> {
+                        start.await(10, TimeUnit.SECONDS);
+                        return store.compareAndSetStatus(id, "aguardando", "CHECKIN", TENANT).orElseThrow();
+                    }));
+                }
+                int applied = 0;
+                for (Future<DataStoreService.StatusTransition> result : results) {
+                    DataStoreService.StatusTransition transition = result.get(30, TimeUnit.SECONDS);
+                    assertThat(transition.appointment().getStatus()).isEqualTo("CHECKIN");
+                    applied += transition.applied() ? 1 : 0;
+                }
+
+                assertThat(applied).as("round %d", round).isEqualTo(1);
+                Appointment current = appointmentRepository.findById(id).orElseThrow();
+                assertThat(current.getStatus()).isEqualTo("CHECKIN");
+                assertThat(current.getVersion()).isEqualTo(saved.getVersion() + 1);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        // Um evento por transição aplicada, nenhum pela perdedora
+        verify(eventPublisher, times(ROUNDS)).publishEvent(any(AppointmentChangedEvent.class));
+    }
+}
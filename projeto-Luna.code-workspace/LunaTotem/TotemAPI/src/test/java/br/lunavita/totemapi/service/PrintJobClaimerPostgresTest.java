@@ -0,0 +1,161 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import br.lunavita.totemapi.model.PrintJob;
+import br.lunavita.totemapi.model.PrintJob.PrintJobStatus;
+import br.lunavita.totemapi.repository.PrintJobRepository;
+
+/**
+ * A mesma disputa de agents do {@link PrintJobClaimerTest}, mas num PostgreSQL real: aqui o claimer usa
+ * {@code UPDATE ... (SELECT ... FOR UPDATE SKIP LOCKED) RETURNING id}, um por vez e em lotes. Cada job é
+ * reservado exatamente uma vez; a vazão (claims/s) sob contenção sai no log do teste, sem limite verificado.
+ *
+ * Fora do build normal: {@code mvn test -Ppostgres} (precisa de Docker; sem ele o teste é pulado).
+ */
+@Tag("postgres")
+@Testcontainers(disabledWithoutDocker = true)
+@DataJpaTest(showSql = false, properties = {
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.PostgreSQLDialect",
+        "spring.jpa.properties.hibernate.default_schema=public",
+        // Uma conexão por agent: a disputa é pelas linhas, não pelo pool
+        "spring.datasource.hikari.maximum-pool-size=10" })
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PrintJobClaimerPostgresTest {
+
+    private static final String TERMINAL = "TOTEM-claim-pg";
+    private static final int JOBS = 3_000;
+    private static final int AGENTS = 8;
+    private static final int BATCH = 10;
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired
+    private PrintJobRepository printJobRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void cleanUp() {
+        printJobRepository.deleteAll();
+    }
+
+    @Test
+    void skipLockedClaimsEachJobExactlyOnce() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        // A estratégia é escolhida pelo produto do banco: PostgreSQL = SKIP LOCKED
+        assertThat(jdbcTemplate.execute((ConnectionCallback<String>) c -> c.getMetaData().getDatabaseProductName()))
+                .isEqualTo("PostgreSQL");
+        PrintJobLeases leases = mock(PrintJobLeases.class);
+        when(leases.leaseUntil()).thenAnswer(invocation -> Instant.now().plusSeconds(120));
+        PrintJobClaimer claimer = new PrintJobClaimer(jdbcTemplate, leases, "");
+
+        System.out.println("[PRINT CLAIM PG] modo | agents | jobs | claims/s");
+        for (String mode : new String[] { "claimNext", "claimBatch(" + BATCH + ")" }) {
+            List<String> ids = seed();
+            long start = System.nanoTime();
+            List<String> claimed = race(agent -> {
+                List<String> mine = new ArrayList<>();
+                while (true) {
+                    List<String> batch = mode.equals("claimNext")
+                            ? claimer.claimNext(TERMINAL).map(List::of).orElse(List.of())
+                            : claimer.claimBatch(TERMINAL, BATCH);
+                    if (batch.isEmpty()) {
+                        return mine;
+                    }
+                    mine.addAll(batch);
+                }
+            });
+            double seconds = (System.nanoTime() - start) / 1e9;
+
+            assertThat(claimed).hasSize(JOBS).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(ids);
+            assertThat(printJobRepository.findAll()).allSatisfy(job -> {
+                assertThat(job.getStatus()).isEqualTo(PrintJobStatus.PRINTING);
+                assertThat(job.getAttempts()).isEqualTo(1);
+                assertThat(job.getLeaseExpiresAt()).isNotNull();
+            });
+            System.out.printf("[PRINT CLAIM PG] %-14s | %6d | %4d | %8.0f%n", mode, AGENTS, JOBS, JOBS / seconds);
+            printJobRepository.deleteAll();
+        }
+    }
+
+    private List<String> race(AgentTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(AGENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int agent = 0; agent < AGENTS; agent++) {
+                int id = agent;
+                Callable<List<String>> call = () -> {
+                    start.await();
+                    return task.run(id);
+                };
+                results.add(pool.submit(call));
+            }
+            start.countDown();
+            List<String> all = new ArrayList<>();
+            for (Future<List<String>> result : results) {
+                all.addAll(result.get(120, TimeUnit.SECONDS));
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<String> seed() {
+        List<PrintJob> jobs = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            jobs.add(PrintJob.builder()
+                    .terminalId(TERMINAL)
+                    .tenantId("tenant-claim-pg")
+                    .receiptType("PAYMENT")
+                    .status(PrintJobStatus.PENDING)
+                    .attempts(0)
+                    .maxAttempts(5)
+                    .priority(i % 3)
+                    .build());
+        }
+        return printJobRepository.saveAll(jobs).stream().map(PrintJob::getId).toList();
+    }
+
+    @FunctionalInterface
+    private interface AgentTask {
+        List<String> run(int agent) throws Exception;
+    }
+}
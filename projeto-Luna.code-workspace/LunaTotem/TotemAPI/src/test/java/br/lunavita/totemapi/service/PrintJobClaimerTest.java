@@ -0,0 +1,135 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.lunavita.totemapi.model.PrintJob;
+import br.lunavita.totemapi.model.PrintJob.PrintJobStatus;
+import br.lunavita.totemapi.repository.PrintJobRepository;
+
+/**
+ * Vários agents disputando a fila do mesmo terminal: cada job é reservado exatamente uma vez.
+ * Roda no H2 do perfil de teste, ou seja, pelo caminho compare-and-set. Sem transação do teste:
+ * os jobs precisam estar commitados para as threads dos agents.
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PrintJobClaimerTest {
+
+    private static final String TERMINAL = "TOTEM-claim";
+    private static final int JOBS = 300;
+    private static final int AGENTS = 8;
+
+    @Autowired
+    private PrintJobRepository printJobRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void cleanUp() {
+        printJobRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentAgentsClaimEachJobExactlyOnce() throws Exception {
+        List<String> ids = seed();
+        PrintJobClaimer claimer = claimer();
+
+        List<String> claimed = race(agent -> {
+            List<String> mine = new ArrayList<>();
+            // Metade dos agents reserva um por vez, a outra metade em lotes
+            while (true) {
+                List<String> batch = agent % 2 == 0
+                        ? claimer.claimNext(TERMINAL).map(List::of).orElse(List.of())
+                        : claimer.claimBatch(TERMINAL, 5);
+                if (batch.isEmpty()) {
+                    return mine;
+                }
+                mine.addAll(batch);
+            }
+        });
+
+        assertThat(claimed).hasSize(JOBS).doesNotHaveDuplicates().containsExactlyInAnyOrderElementsOf(ids);
+        assertThat(printJobRepository.findAll()).allSatisfy(job -> {
+            assertThat(job.getStatus()).isEqualTo(PrintJobStatus.PRINTING);
+            assertThat(job.getAttempts()).isEqualTo(1);
+        });
+    }
+
+    private List<String> race(AgentTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(AGENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>();
+            for (int agent = 0; agent < AGENTS; agent++) {
+                int id = agent;
+                Callable<List<String>> call = () -> {
+                    start.await();
+                    return task.run(id);
+                };
+                results.add(pool.submit(call));
+            }
+            start.countDown();
+            List<String> all = new ArrayList<>();
+            for (Future<List<String>> result : results) {
+                all.addAll(result.get(60, TimeUnit.SECONDS));
+            }
+            return all;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<String> seed() {
+        List<PrintJob> jobs = new ArrayList<>();
+        for (int i = 0; i < JOBS; i++) {
+            jobs.add(PrintJob.builder()
+                    .terminalId(TERMINAL)
+                    .tenantId("tenant-claim")
+                    .receiptType("PAYMENT")
+                    .status(PrintJobStatus.PENDING)
+                    .attempts(0)
+                    .maxAttempts(5)
+                    .priority(i % 3)
+                    .build());
+        }
+        return printJobRepository.saveAll(jobs).stream().map(PrintJob::getId).toList();
+    }
+
+    private PrintJobClaimer claimer() {
+        PrintJobLeases leases = mock(PrintJobLeases.class);
+        when(leases.leaseUntil()).thenAnswer(invocation -> Instant.now().plusSeconds(120));
+        return new PrintJobClaimer(new JdbcTemplate(dataSource), leases, "");
+    }
+
+    @FunctionalInterface
+    private interface AgentTask {
+        List<String> run(int agent) throws Exception;
+    }
+}
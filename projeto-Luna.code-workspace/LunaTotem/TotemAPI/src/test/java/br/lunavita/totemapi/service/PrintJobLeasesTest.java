@@ -0,0 +1,140 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.lunavita.totemapi.event.PrintJobAvailableEvent;
+import br.lunavita.totemapi.model.PrintJob;
+import br.lunavita.totemapi.model.PrintJob.PrintJobStatus;
+import br.lunavita.totemapi.repository.PrintJobRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Lease vencida volta à fila (ou a FAILED sem tentativas) e retry agendado para o futuro não é reservado.
+ * Mesmo H2 do {@link PrintJobClaimerTest}, sem transação do teste: claim e reclaim commitam sozinhos.
+ */
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PrintJobLeasesTest {
+
+    private static final String TERMINAL = "TOTEM-lease";
+
+    @Autowired
+    private PrintJobRepository printJobRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private final ApplicationEventPublisher eventPublisher = mock(ApplicationEventPublisher.class);
+    private JdbcTemplate jdbcTemplate;
+    private PrintJobLeases leases;
+    private PrintJobClaimer claimer;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        // Lease de 120 s e retry a partir de 60 s: nada vence sozinho durante o teste
+        leases = new PrintJobLeases(jdbcTemplate, transactionManager, eventPublisher,
+                new PrintQueueMetrics(new SimpleMeterRegistry(), jdbcTemplate, ""), 120, 60_000, 300_000, "");
+        claimer = new PrintJobClaimer(jdbcTemplate, leases, "");
+    }
+
+    @AfterEach
+    void cleanUp() {
+        printJobRepository.deleteAll();
+    }
+
+    @Test
+    void expiredLeaseIsReclaimedAndClaimedAgain() {
+        String expired = seed(0, 5);
+        String exhausted = seed(1, 1);
+        String alive = seed(2, 5);
+        assertThat(claimer.claimBatch(TERMINAL, 3)).containsExactlyInAnyOrder(expired, exhausted, alive);
+
+        // Agents de expired e exhausted pararam de renovar a lease
+        expireLease(expired);
+        expireLease(exhausted);
+        leases.reclaimExpired();
+
+        PrintJob requeued = printJobRepository.findById(expired).orElseThrow();
+        assertThat(requeued.getStatus()).isEqualTo(PrintJobStatus.PENDING);
+        assertThat(requeued.getLeaseExpiresAt()).isNull();
+        assertThat(requeued.getError()).startsWith("Lease expirada");
+        assertThat(printJobRepository.findById(exhausted).orElseThrow().getStatus())
+                .isEqualTo(PrintJobStatus.FAILED);
+        assertThat(printJobRepository.findById(alive).orElseThrow().getStatus())
+                .isEqualTo(PrintJobStatus.PRINTING);
+        verify(eventPublisher).publishEvent(argThat((Object event) ->
+                event instanceof PrintJobAvailableEvent available && TERMINAL.equals(available.terminalId())));
+
+        assertThat(claimer.claimNext(TERMINAL)).contains(expired);
+        assertThat(printJobRepository.findById(expired).orElseThrow().getAttempts()).isEqualTo(2);
+        assertThat(claimer.claimNext(TERMINAL)).isEmpty();
+    }
+
+    @Test
+    void failedJobWaitsForItsRetryTime() {
+        String failed = seed(0, 5);
+        String next = seed(1, 5);
+        assertThat(claimer.claimNext(TERMINAL)).contains(failed);
+
+        // Falha reportada pelo agent: volta a PENDING com a próxima tentativa daqui a 60 s
+        PrintJob job = printJobRepository.findById(failed).orElseThrow();
+        job.markFailed("Sem papel", leases.retryAt(job.getAttempts()));
+        printJobRepository.save(job);
+        assertThat(job.getStatus()).isEqualTo(PrintJobStatus.PENDING);
+        assertThat(job.getNextAttemptAt()).isAfter(Instant.now().plusSeconds(50));
+
+        // Com prioridade melhor, mas ainda em backoff: o claim passa para o próximo job
+        assertThat(claimer.claimNext(TERMINAL)).contains(next);
+        assertThat(claimer.claimNext(TERMINAL)).isEmpty();
+        assertThat(claimer.claimBatch(TERMINAL, 5)).isEmpty();
+
+        jdbcTemplate.update("UPDATE print_jobs SET next_attempt_at = ? WHERE id = ?",
+                Timestamp.from(Instant.now().minusSeconds(1)), failed);
+        assertThat(claimer.claimNext(TERMINAL)).contains(failed);
+        assertThat(printJobRepository.findById(failed).orElseThrow().getNextAttemptAt()).isNull();
+    }
+
+    private String seed(int priority, int maxAttempts) {
+        return printJobRepository.save(PrintJob.builder()
+                .terminalId(TERMINAL)
+                .tenantId("tenant-lease")
+                .receiptType("PAYMENT")
+                .status(PrintJobStatus.PENDING)
+                .attempts(0)
+                .maxAttempts(maxAttempts)
+                .priority(priority)
+                .build()).getId();
+    }
+
+    private void expireLease(String jobId) {
+        jdbcTemplate.update("UPDATE print_jobs SET lease_expires_at = ? WHERE id = ?",
+                Timestamp.from(Instant.now().minusSeconds(1)), jobId);
+    }
+}
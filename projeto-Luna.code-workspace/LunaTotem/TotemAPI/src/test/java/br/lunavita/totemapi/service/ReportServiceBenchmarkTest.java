@@ -0,0 +1,165 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.withSettings;
+
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.ZipInputStream;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Relatório PDF de agendamento com foto de 3000x2000 (JPEG e PNG): primeiro relatório (foto decodificada
+ * e reduzida) contra os seguintes (foto do cache), e o modo em lote com 100 agendamentos em PDF único e
+ * em ZIP. Tempos em medianas e tamanhos impressos no log do teste; nenhum limite de tempo é verificado.
+ */
+@Tag("benchmark")
+class ReportServiceBenchmarkTest {
+
+    private static final int BATCH_SIZE = 100;
+    private static final int BATCH_PHOTOS = 10;
+
+    @TempDir
+    Path uploads;
+
+    @Test
+    void singleReportColdAndCachedAndBatchModes() throws IOException {
+        FileStorageService storage = new FileStorageService(uploads.toString());
+        String jpeg = photo("apt-jpeg", "jpg");
+        String png = photo("apt-png", "png");
+
+        System.out.println("[REPORT BENCH] foto | 1o relatorio (ms) | com cache (ms) | PDF (KB)");
+        for (String url : new String[] { jpeg, png }) {
+            Appointment apt = appointment("apt-single", url);
+            double coldMs = median(3, () -> {
+                ReportService fresh = service(storage);
+                try {
+                    fresh.generateAppointmentReport(apt);
+                } finally {
+                    fresh.shutdown();
+                }
+            });
+
+            ReportService service = service(storage);
+            try {
+                byte[] pdf = service.generateAppointmentReport(apt);
+                assertThat(new String(pdf, 0, 4)).isEqualTo("%PDF");
+                double cachedMs = median(20, () -> service.generateAppointmentReport(apt));
+                String format = url.substring(url.lastIndexOf('.') + 1);
+                System.out.printf("[REPORT BENCH] %4s | %17.1f | %14.2f | %8d%n", format, coldMs, cachedMs,
+                        pdf.length / 1024);
+            } finally {
+                service.shutdown();
+            }
+        }
+
+        List<Appointment> batch = new ArrayList<>(BATCH_SIZE);
+        List<String> photos = new ArrayList<>(BATCH_PHOTOS);
+        for (int i = 0; i < BATCH_PHOTOS; i++) {
+            photos.add(photo("apt-batch-" + i, "jpg"));
+        }
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch.add(appointment(String.format("apt-%03d", i), i % 2 == 0 ? photos.get(i % BATCH_PHOTOS) : null));
+        }
+
+        ReportService service = service(storage);
+        try {
+            ByteArrayOutputStream zip = new ByteArrayOutputStream();
+            service.writeBatchZip(batch, zip);
+            assertThat(zipEntries(zip.toByteArray())).isEqualTo(BATCH_SIZE);
+            ByteArrayOutputStream pdf = new ByteArrayOutputStream();
+            service.writeBatchPdf(batch, pdf);
+            assertThat(new String(pdf.toByteArray(), 0, 4)).isEqualTo("%PDF");
+
+            double pdfMs = median(5, () -> service.writeBatchPdf(batch, OutputStream.nullOutputStream()));
+            double zipMs = median(5, () -> service.writeBatchZip(batch, OutputStream.nullOutputStream()));
+            System.out.println("[REPORT BENCH] lote de " + BATCH_SIZE + " | PDF unico (ms / KB) | ZIP (ms / KB)");
+            System.out.printf("[REPORT BENCH] %10s | %11.1f / %6d | %6.1f / %6d%n", "", pdfMs, pdf.size() / 1024,
+                    zipMs, zip.size() / 1024);
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    private static ReportService service(FileStorageService storage) {
+        // Sem variantes geradas (generated() devolve null): a foto passa pelo cache do ReportPhotos
+        AppointmentPhotoService photoService = mock(AppointmentPhotoService.class, withSettings().stubOnly());
+        return new ReportService(storage, new ReportPhotos(new SimpleMeterRegistry(), 256), photoService,
+                mock(AppointmentRepository.class), "Clínica Luna Vita", "Rua das Flores, 123 - Fortaleza - CE",
+                "(85) 4002-8922", 2, 500, 31);
+    }
+
+    private static Appointment appointment(String id, String photoUrl) {
+        Appointment apt = new Appointment(id, "tenant-report-bench", "Paciente " + id, "p-" + id, "Dra. Ana",
+                "Cardiologia", LocalDate.of(2026, 10, 17), "09:30", "CONCLUIDA", true, BigDecimal.valueOf(150),
+                "12345678901", "consulta", null);
+        apt.setPhotoUrl(photoUrl);
+        return apt;
+    }
+
+    /**
+     * Foto 3000x2000 gravada como o upload faria; devolve a URL
+     */
+    private String photo(String appointmentId, String format) throws IOException {
+        BufferedImage image = new BufferedImage(3000, 2000, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setPaint(new GradientPaint(0, 0, new Color(30, 60, 120), 3000, 2000, new Color(240, 200, 160)));
+        g.fillRect(0, 0, 3000, 2000);
+        g.setColor(Color.WHITE);
+        for (int i = 0; i < 40; i++) {
+            g.fillOval(i * 73 % 2800, i * 131 % 1800, 200, 200);
+        }
+        g.dispose();
+        Path dir = Files.createDirectories(uploads.resolve("appointments").resolve(appointmentId));
+        ImageIO.write(image, format.equals("jpg") ? "jpeg" : format, dir.resolve("photo." + format).toFile());
+        return "/files/appointments/" + appointmentId + "/photo." + format;
+    }
+
+    private static int zipEntries(byte[] zip) throws IOException {
+        int entries = 0;
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            while (in.getNextEntry() != null) {
+                entries++;
+            }
+        }
+        return entries;
+    }
+
+    private interface Action {
+        void run() throws IOException;
+    }
+
+    private static double median(int runs, Action action) throws IOException {
+        double[] times = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            action.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+}
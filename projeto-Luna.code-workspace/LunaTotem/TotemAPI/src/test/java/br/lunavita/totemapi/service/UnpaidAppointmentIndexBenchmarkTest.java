@@ -0,0 +1,130 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.Patient;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+
+/**
+ * Latência da busca de não pagos do totem conforme a tabela cresce: query LIKE (H2) contra o
+ * {@link UnpaidAppointmentIndex}. Confere também que os dois devolvem os mesmos agendamentos na
+ * mesma ordem. Tempos impressos no log do teste (medianas); nenhum limite de tempo é verificado.
+ */
+@Tag("benchmark")
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class UnpaidAppointmentIndexBenchmarkTest {
+
+    private static final String TENANT = "tenant-bench";
+    private static final int[] SIZES = { 1_000, 4_000, 16_000 };
+    private static final String[] FIRST_NAMES = { "ana", "maria", "joao", "pedro", "lucas", "julia", "carla",
+            "rafael", "bruno", "camila", "fernanda", "gabriel", "larissa", "marcos", "paula", "tiago" };
+    private static final String[] LAST_NAMES = { "silva", "souza", "oliveira", "santos", "lima", "pereira",
+            "costa", "rodrigues", "almeida", "nascimento", "carvalho", "gomes", "martins", "rocha" };
+    // Termos típicos digitados no totem (nome parcial, sobrenome, trecho de CPF)
+    private static final String[][] QUERIES = { { "ana", "" }, { "silva", "" }, { "maria so", "" },
+            { "123", "123" }, { "98765", "98765" }, { "zz", "" } };
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void searchLatencyByTableSize() {
+        Random random = new Random(42);
+        int inserted = 0;
+        System.out.println("[UNPAID INDEX BENCH] linhas | LIKE no banco (ms) | indice (ms) | carga do indice (ms)");
+        for (int size : SIZES) {
+            insert(inserted, size, random);
+            inserted = size;
+            entityManager.flush();
+            entityManager.clear();
+
+            UnpaidAppointmentIndex index = new UnpaidAppointmentIndex(appointmentRepository, patientRepository, true);
+            long loadStart = System.nanoTime();
+            index.search(TENANT, "warmup", "");
+            double loadMs = (System.nanoTime() - loadStart) / 1e6;
+
+            double sqlMs = 0;
+            double indexMs = 0;
+            for (String[] query : QUERIES) {
+                List<Appointment> fromSql = appointmentRepository.searchUnpaidByTenantIdAndPatientOrCpf(TENANT,
+                        query[0], query[1]);
+                List<Appointment> fromIndex = index.search(TENANT, query[0], query[1]).orElseThrow();
+                assertThat(ids(fromIndex)).as("q=%s", query[0]).isEqualTo(ids(fromSql));
+
+                sqlMs += median(20, () -> appointmentRepository.searchUnpaidByTenantIdAndPatientOrCpf(TENANT,
+                        query[0], query[1]));
+                indexMs += median(200, () -> index.search(TENANT, query[0], query[1]));
+                entityManager.clear();
+            }
+            System.out.printf("[UNPAID INDEX BENCH] %6d | %18.3f | %11.4f | %20.1f%n", size,
+                    sqlMs / QUERIES.length, indexMs / QUERIES.length, loadMs);
+        }
+    }
+
+    /**
+     * Agendamentos [from, to): ~70% não pagos, um paciente cadastrado a cada dois, data+horário únicos
+     * (o desempate da ordenação não depende do id).
+     */
+    private void insert(int from, int to, Random random) {
+        List<Appointment> appointments = new ArrayList<>();
+        List<Patient> patients = new ArrayList<>();
+        LocalDate base = LocalDate.of(2024, 1, 1);
+        for (int i = from; i < to; i++) {
+            String name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                    + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+            String cpf = String.format("%011d", Math.floorMod(random.nextLong(), 100_000_000_000L));
+            String patientId = "p-" + (i / 2);
+            if (i % 2 == 0) {
+                patients.add(new Patient(patientId, TENANT, name + " " + LAST_NAMES[i % LAST_NAMES.length],
+                        cpf, "85999990000", null, null, null, null, null));
+            }
+            String time = String.format("%02d:%02d", 7 + (i % 20) / 2, (i % 2) * 30);
+            Appointment apt = new Appointment("a-" + i, TENANT, name, patientId, "Dr. Ana", "Clínica",
+                    base.plusDays(i / 20), time, "AGUARDANDO_CHEGADA", random.nextInt(10) < 3,
+                    BigDecimal.valueOf(150), cpf, "consulta", null);
+            appointments.add(apt);
+        }
+        patientRepository.saveAll(patients);
+        appointmentRepository.saveAll(appointments);
+    }
+
+    private static List<String> ids(List<Appointment> appointments) {
+        return appointments.stream().map(Appointment::getId).toList();
+    }
+
+    private static double median(int runs, Runnable action) {
+        double[] times = new double[runs];
+        for (int i = 0; i < runs; i++) {
+            long start = System.nanoTime();
+            action.run();
+            times[i] = (System.nanoTime() - start) / 1e6;
+        }
+        Arrays.sort(times);
+        return times[runs / 2];
+    }
+}
@@ -0,0 +1,118 @@
+package br.lunavita.totemapi.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import br.lunavita.totemapi.model.Appointment;
+import br.lunavita.totemapi.model.Patient;
+import br.lunavita.totemapi.repository.AppointmentRepository;
+import br.lunavita.totemapi.repository.PatientRepository;
+import jakarta.persistence.EntityManager;
+
+@DataJpaTest(showSql = false)
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(UnpaidAppointmentIndex.class)
+class UnpaidAppointmentIndexTest {
+
+    private static final String TENANT = "tenant-index";
+
+    @Autowired
+    private AppointmentRepository appointmentRepository;
+
+    @Autowired
+    private PatientRepository patientRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // Bean do contexto: recebe os eventos publicados pelos listeners JPA após cada commit
+    @Autowired
+    private UnpaidAppointmentIndex liveIndex;
+
+    @AfterEach
+    void cleanUp() {
+        appointmentRepository.deleteAll();
+        patientRepository.deleteAll();
+    }
+
+    @Test
+    void refreshPicksUpWritesMadeOutsideThisInstance() {
+        appointmentRepository.saveAndFlush(new Appointment("apt-1", TENANT, "Maria Souza", "p-1", "Dr. Ana",
+                "Clínica", LocalDate.of(2026, 10, 20), "09:00", "AGUARDANDO_CHEGADA", false,
+                BigDecimal.valueOf(150), "12345678901", "consulta", null));
+        UnpaidAppointmentIndex index = new UnpaidAppointmentIndex(appointmentRepository, patientRepository, true);
+        assertThat(index.search(TENANT, "maria", "").orElseThrow()).hasSize(1);
+
+        // Pagamento registrado por outra instância: nenhum evento chega a este índice
+        entityManager.createNativeQuery("UPDATE appointments SET paid = true WHERE id = 'apt-1'").executeUpdate();
+        entityManager.clear();
+        assertThat(index.search(TENANT, "maria", "").orElseThrow()).hasSize(1);
+
+        index.refresh();
+        assertThat(index.search(TENANT, "maria", "").orElseThrow()).isEmpty();
+    }
+
+    // Os testes abaixo rodam sem a transação do teste: cada save faz commit e dispara o evento
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void paymentEventDropsTheAppointment() {
+        Appointment apt = appointmentRepository.save(appointment("apt-paid", "p-paid", "Maria Souza"));
+        assertThat(liveIndex.search(TENANT, "maria", "").orElseThrow()).hasSize(1);
+
+        apt.setPaid(true);
+        appointmentRepository.save(apt);
+
+        assertThat(liveIndex.search(TENANT, "maria", "").orElseThrow()).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void patientRenameEventChangesTheMatch() {
+        Patient patient = patientRepository.save(new Patient("p-rename", TENANT, "Joana Lima", "98765432100",
+                "85999990000", null, null, null, null, null));
+        appointmentRepository.save(appointment("apt-rename", "p-rename", "Joana Lima"));
+        assertThat(liveIndex.search(TENANT, "carvalho", "").orElseThrow()).isEmpty();
+        assertThat(liveIndex.search(TENANT, "987654", "987654").orElseThrow()).hasSize(1);
+
+        patient.setName("Joana Carvalho");
+        patient.setCpf("11122233344");
+        patientRepository.save(patient);
+
+        assertThat(liveIndex.search(TENANT, "carvalho", "").orElseThrow())
+                .extracting(Appointment::getId).containsExactly("apt-rename");
+        assertThat(liveIndex.search(TENANT, "111222", "111222").orElseThrow()).hasSize(1);
+        assertThat(liveIndex.search(TENANT, "987654", "987654").orElseThrow()).isEmpty();
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    void deleteEventDropsTheAppointment() {
+        appointmentRepository.save(appointment("apt-kept", "p-kept", "Maria Souza"));
+        Appointment deleted = appointmentRepository.save(appointment("apt-deleted", "p-deleted", "Maria Lopes"));
+        assertThat(liveIndex.search(TENANT, "maria", "").orElseThrow()).hasSize(2);
+
+        appointmentRepository.delete(deleted);
+
+        assertThat(liveIndex.search(TENANT, "maria", "").orElseThrow())
+                .extracting(Appointment::getId).containsExactly("apt-kept");
+    }
+
+    private static Appointment appointment(String id, String patientId, String patient) {
+        return new Appointment(id, TENANT, patient, patientId, "Dr. Ana", "Clínica", LocalDate.of(2026, 10, 20),
+                "09:00", "AGUARDANDO_CHEGADA", false, BigDecimal.valueOf(150), "12345678901", "consulta", null);
+    }
+}
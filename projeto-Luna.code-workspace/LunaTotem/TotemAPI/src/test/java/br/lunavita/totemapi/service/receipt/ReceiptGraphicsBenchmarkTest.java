@@ -0,0 +1,157 @@
+package br.lunavita.totemapi.service.receipt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.Optional;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import br.lunavita.totemapi.model.ReceiptLogo;
+import br.lunavita.totemapi.repository.ReceiptLayoutRepository;
+import br.lunavita.totemapi.repository.ReceiptLogoRepository;
+import br.lunavita.totemapi.service.ReceiptGeneratorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Cobrança PIX impressa em 48 colunas: QR Code nativo ({@code GS ( k}) contra rasterizado, com o logo
+ * do tenant em cache, e o logo rasterizado a cada recibo (sem cache). Vazão em medianas e bytes por
+ * recibo impressos no log do teste; nenhum limite de tempo é verificado.
+ */
+@Tag("benchmark")
+class ReceiptGraphicsBenchmarkTest {
+
+    private static final String TENANT = "tenant-graphics-bench";
+    private static final int COLUMNS = 48;
+    private static final int RUNS = 5;
+    private static final String PIX_CODE = "00020101021226900014br.gov.bcb.pix2568qrpix.bradesco.com.br/qr/v2/"
+            + "cobv/9d36b84f-c70b-478f-b95c-12729b90ca255204000053039865406123.455802BR5905LUNA6009FORTALEZA"
+            + "62070503***6304ABCD";
+    private static final byte[] NATIVE_QR = { 0x1D, '(', 'k' };
+    private static final byte[] RASTER = { 0x1D, 'v', '0' };
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void nativeAndRasterQrWithCachedAndUncachedLogo() throws IOException {
+        ReceiptLogoRepository logoRepository = mock(ReceiptLogoRepository.class, withSettings().stubOnly());
+        when(logoRepository.findById(TENANT)).thenReturn(Optional.of(ReceiptLogo.builder()
+                .tenantId(TENANT).image(logo()).contentType("image/png").build()));
+
+        ReceiptGeneratorService nativeQr = generator(logoRepository, true, 60);
+        ReceiptGeneratorService rasterQr = generator(logoRepository, false, 60);
+        // TTL negativo: toda consulta ao cache é miss, o logo é decodificado e rasterizado a cada recibo
+        ReceiptGeneratorService uncachedLogo = generator(logoRepository, true, -1);
+
+        byte[] nativeReceipt = pix(nativeQr);
+        byte[] rasterReceipt = pix(rasterQr);
+        assertThat(indexOf(nativeReceipt, NATIVE_QR)).isPositive();
+        assertThat(indexOf(nativeReceipt, RASTER)).isPositive(); // logo
+        assertThat(indexOf(rasterReceipt, NATIVE_QR)).isNegative();
+        // Com ou sem cache, o mesmo logo (só o horário de impressão muda)
+        assertThat(pix(uncachedLogo)).hasSameSizeAs(nativeReceipt);
+
+        System.out.println("[RECEIPT GRAPHICS BENCH] variante | recibos/s | bytes alocados | tamanho (bytes)");
+        print("QR nativo + logo em cache", measure(5_000, () -> pix(nativeQr)), nativeReceipt.length);
+        print("QR rasterizado + logo em cache", measure(100, () -> pix(rasterQr)), rasterReceipt.length);
+        print("QR nativo + logo a cada recibo", measure(30, () -> pix(uncachedLogo)), nativeReceipt.length);
+    }
+
+    private static ReceiptGeneratorService generator(ReceiptLogoRepository logoRepository, boolean nativeQr,
+            long cacheSeconds) {
+        ReceiptLogos logos = new ReceiptLogos(logoRepository, new SimpleMeterRegistry(), cacheSeconds);
+        return new ReceiptGeneratorService(new ReceiptTemplates(mock(ReceiptLayoutRepository.class), logos,
+                COLUMNS, "CP860", nativeQr, 60));
+    }
+
+    private static byte[] pix(ReceiptGeneratorService generator) {
+        return generator.generatePixReceipt(TENANT, null, "Paciente Teste da Conceição", new BigDecimal("123.45"),
+                "17/10/2026", "09:30", "Dra. Ana Lúcia", PIX_CODE);
+    }
+
+    /**
+     * Logo de 600x240 com texto e degradê (passa pelo dithering como uma foto)
+     */
+    private static byte[] logo() throws IOException {
+        BufferedImage image = new BufferedImage(600, 240, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        for (int x = 0; x < image.getWidth(); x++) {
+            int shade = 255 * x / image.getWidth();
+            g.setColor(new Color(shade, shade, 255 - shade / 2));
+            g.drawLine(x, 0, x, image.getHeight());
+        }
+        g.setColor(Color.BLACK);
+        g.setFont(new Font(Font.SANS_SERIF, Font.BOLD, 96));
+        g.drawString("LUNA", 150, 160);
+        g.dispose();
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", png);
+        return png.toByteArray();
+    }
+
+    private static void print(String variant, Result result, int size) {
+        System.out.printf("[RECEIPT GRAPHICS BENCH] %-30s | %9.0f | %14d | %d%n", variant, result.perSecond(),
+                result.bytesPerReceipt(), size);
+    }
+
+    private record Result(double perSecond, long bytesPerReceipt) {
+    }
+
+    /**
+     * Mediana de {@link #RUNS} rodadas de {@code receipts} recibos, após uma rodada de aquecimento
+     */
+    private static Result measure(int receipts, Render render) {
+        long sink = 0;
+        for (int i = 0; i < receipts; i++) {
+            sink += render.run().length;
+        }
+        double[] rates = new double[RUNS];
+        long[] allocated = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < receipts; i++) {
+                sink += render.run().length;
+            }
+            rates[run] = receipts / ((System.nanoTime() - start) / 1e9);
+            allocated[run] = (THREADS.getCurrentThreadAllocatedBytes() - bytesBefore) / receipts;
+        }
+        assertThat(sink).isPositive();
+        Arrays.sort(rates);
+        Arrays.sort(allocated);
+        return new Result(rates[RUNS / 2], allocated[RUNS / 2]);
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @FunctionalInterface
+    private interface Render {
+        byte[] run();
+    }
+}
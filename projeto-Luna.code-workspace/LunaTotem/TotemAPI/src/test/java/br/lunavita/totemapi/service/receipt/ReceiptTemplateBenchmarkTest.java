@@ -0,0 +1,131 @@
+package br.lunavita.totemapi.service.receipt;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import br.lunavita.totemapi.repository.ReceiptLayoutRepository;
+import br.lunavita.totemapi.repository.ReceiptLogoRepository;
+import br.lunavita.totemapi.service.ReceiptGeneratorService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Recibo de pagamento pelo template pré-compilado contra compilar o layout a cada recibo (o custo que o
+ * template tira da renderização), em 32 e 48 colunas. Vazão em medianas e bytes alocados por recibo
+ * impressos no log do teste; nenhum limite de tempo é verificado.
+ */
+@Tag("benchmark")
+class ReceiptTemplateBenchmarkTest {
+
+    private static final String TENANT = "tenant-receipt-bench";
+    private static final String CLINIC = "Clínica São José";
+    private static final int[] COLUMNS = { 32, 48 };
+    private static final int RECEIPTS = 20_000;
+    private static final int RUNS = 5;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    @Test
+    void compiledTemplateAgainstCompilingPerReceipt() {
+        System.out.println("[RECEIPT BENCH] colunas | template (recibos/s / bytes alocados) "
+                + "| compilando a cada recibo (recibos/s / bytes alocados) | tamanho (bytes)");
+        for (int columns : COLUMNS) {
+            // Tenant sem layout nem logo próprios: consultas ao banco só na primeira vez (caches de 60 s)
+            ReceiptLogos logos = new ReceiptLogos(mock(ReceiptLogoRepository.class), new SimpleMeterRegistry(), 60);
+            ReceiptTemplates templates = new ReceiptTemplates(mock(ReceiptLayoutRepository.class), logos, columns,
+                    "CP860", true, 60);
+            ReceiptGeneratorService generator = new ReceiptGeneratorService(templates);
+            String layout = templates.defaultLayout(ReceiptTemplates.PAYMENT);
+
+            byte[] receipt = payment(generator);
+            assertThat(indexOf(receipt, "Paciente Teste".getBytes(StandardCharsets.US_ASCII))).isPositive();
+            assertThat(indexOf(receipt, EscPosCodepage.CP860.selectCommand())).isPositive();
+            // Compilado a cada vez ou uma só: mesmos bytes (fora o horário de impressão)
+            assertThat(ReceiptTemplate.compile(layout, columns, EscPosCodepage.CP860, true).render(data()))
+                    .hasSameSizeAs(receipt);
+
+            Result compiled = measure(() -> payment(generator));
+            Result perReceipt = measure(() ->
+                    ReceiptTemplate.compile(layout, columns, EscPosCodepage.CP860, true).render(data()));
+
+            System.out.printf("[RECEIPT BENCH] %7d | %13.0f / %6d | %27.0f / %6d | %d%n", columns,
+                    compiled.perSecond(), compiled.bytesPerReceipt(), perReceipt.perSecond(),
+                    perReceipt.bytesPerReceipt(), receipt.length);
+        }
+    }
+
+    private static byte[] payment(ReceiptGeneratorService generator) {
+        return generator.generatePaymentReceipt(TENANT, CLINIC, "Paciente Teste da Conceição", "12345678901",
+                new BigDecimal("1234.56"), "CREDIT_CARD", "17/10/2026", "09:30", "Dra. Ana Lúcia",
+                "Cardiologia");
+    }
+
+    private static ReceiptData data() {
+        return new ReceiptData()
+                .set(ReceiptField.CLINIC, CLINIC)
+                .set(ReceiptField.PATIENT, "Paciente Teste da Conceição")
+                .set(ReceiptField.CPF, "12345678901")
+                .set(ReceiptField.AMOUNT, new BigDecimal("1234.56"))
+                .set(ReceiptField.PAYMENT_METHOD, "CREDIT_CARD")
+                .set(ReceiptField.APPOINTMENT_DATE, "17/10/2026")
+                .set(ReceiptField.APPOINTMENT_TIME, "09:30")
+                .set(ReceiptField.DOCTOR, "Dra. Ana Lúcia")
+                .set(ReceiptField.SPECIALTY, "Cardiologia")
+                .set(ReceiptField.PRINTED_AT, Instant.now());
+    }
+
+    private record Result(double perSecond, long bytesPerReceipt) {
+    }
+
+    /**
+     * Mediana de {@link #RUNS} rodadas de {@link #RECEIPTS} recibos, após uma rodada de aquecimento
+     */
+    private static Result measure(Render render) {
+        long sink = 0;
+        for (int i = 0; i < RECEIPTS; i++) {
+            sink += render.run().length;
+        }
+        double[] rates = new double[RUNS];
+        long[] allocated = new long[RUNS];
+        for (int run = 0; run < RUNS; run++) {
+            long bytesBefore = THREADS.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < RECEIPTS; i++) {
+                sink += render.run().length;
+            }
+            rates[run] = RECEIPTS / ((System.nanoTime() - start) / 1e9);
+            allocated[run] = (THREADS.getCurrentThreadAllocatedBytes() - bytesBefore) / RECEIPTS;
+        }
+        assertThat(sink).isPositive();
+        Arrays.sort(rates);
+        Arrays.sort(allocated);
+        return new Result(rates[RUNS / 2], allocated[RUNS / 2]);
+    }
+
+    private static int indexOf(byte[] haystack, byte[] needle) {
+        outer:
+        for (int i = 0; i <= haystack.length - needle.length; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    @FunctionalInterface
+    private interface Render {
+        byte[] run();
+    }
+}